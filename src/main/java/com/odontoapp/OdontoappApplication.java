@@ -2,9 +2,11 @@ package com.odontoapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.session.SessionAutoConfiguration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// Las sesiones en BD se activan por propiedad en SesionesCompartidasConfig, no por estar en el classpath
+@SpringBootApplication(exclude = SessionAutoConfiguration.class)
 @EnableScheduling
 public class OdontoappApplication {
 
@@ -0,0 +1,152 @@
+package com.odontoapp.configuracion;
+
+import com.odontoapp.entidad.ContenidoArchivo;
+import com.odontoapp.repositorio.ContenidoArchivoRepository;
+import com.odontoapp.servicio.AlmacenArchivosService;
+import com.odontoapp.servicio.LimpiezaAlmacenService;
+import com.odontoapp.servicio.UsoAlmacenamientoService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ciclo de vida nocturno de los archivos subidos:
+ *
+ * 1. Pasa al almacén frío los contenidos sin leer desde hace {@code almacen.frio.dias-sin-uso} días.
+ * 2. Borra la copia caliente de los archivados hace más de la gracia y que nadie leyó entretanto.
+ * 3. Borra los contenidos que quedaron sin referencias (subidas cuya transacción falló).
+ * 4. Barre el disco en busca de archivos huérfanos ({@link LimpiezaAlmacenService}).
+ * 5. Recalcula el uso de almacenamiento por paciente.
+ *
+ * Con varios nodos sobre el mismo directorio conviene habilitarlo solo en uno
+ * ({@code almacen.ciclo-vida.habilitado}); si coinciden dos, las marcas condicionales de
+ * contenidos_archivo evitan perder datos, pero se repite trabajo.
+ */
+@Component
+@ConditionalOnProperty(name = "almacen.ciclo-vida.habilitado", havingValue = "true", matchIfMissing = true)
+public class CicloVidaAlmacenScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(CicloVidaAlmacenScheduler.class);
+
+    private final AlmacenArchivosService almacenArchivosService;
+    private final LimpiezaAlmacenService limpiezaAlmacenService;
+    private final UsoAlmacenamientoService usoAlmacenamientoService;
+    private final ContenidoArchivoRepository contenidoArchivoRepository;
+    private final int diasSinUso;
+    private final int tamanoLote;
+    private final Duration gracia;
+    private final int hilos;
+
+    private final Counter archivados;
+    private final Counter huerfanos;
+
+    public CicloVidaAlmacenScheduler(AlmacenArchivosService almacenArchivosService,
+            LimpiezaAlmacenService limpiezaAlmacenService,
+            UsoAlmacenamientoService usoAlmacenamientoService,
+            ContenidoArchivoRepository contenidoArchivoRepository,
+            @Value("${almacen.frio.dias-sin-uso:180}") int diasSinUso,
+            @Value("${almacen.frio.lote:200}") int tamanoLote,
+            @Value("${almacen.limpieza.gracia-horas:24}") int graciaHoras,
+            @Value("${almacen.limpieza.hilos:4}") int hilos,
+            MeterRegistry meterRegistry) {
+        this.almacenArchivosService = almacenArchivosService;
+        this.limpiezaAlmacenService = limpiezaAlmacenService;
+        this.usoAlmacenamientoService = usoAlmacenamientoService;
+        this.contenidoArchivoRepository = contenidoArchivoRepository;
+        this.diasSinUso = diasSinUso;
+        this.tamanoLote = tamanoLote;
+        this.gracia = Duration.ofHours(graciaHoras);
+        this.hilos = hilos;
+        this.archivados = Counter.builder("odontoapp.almacen.archivados")
+                .description("Contenidos pasados al almacén frío")
+                .register(meterRegistry);
+        this.huerfanos = Counter.builder("odontoapp.almacen.huerfanos.borrados")
+                .description("Archivos huérfanos borrados del disco")
+                .register(meterRegistry);
+    }
+
+    /**
+     * "0 30 2 * * *" = Todos los días a las 2:30 AM
+     */
+    @Scheduled(cron = "${almacen.ciclo-vida.cron:0 30 2 * * *}")
+    public void ejecutar() {
+        long inicio = System.currentTimeMillis();
+        try {
+            archivarSinUso();
+        } catch (Exception e) {
+            log.error("Error pasando contenidos al almacén frío: {}", e.getMessage(), e);
+        }
+        try {
+            long liberados = almacenArchivosService.borrarCopiasCalientes(gracia);
+            if (liberados > 0) {
+                log.info("Almacén: {} bytes liberados de contenidos ya archivados", liberados);
+            }
+        } catch (Exception e) {
+            log.error("Error borrando copias calientes de contenidos archivados: {}", e.getMessage(), e);
+        }
+        try {
+            int purgados = almacenArchivosService.purgarSinReferencias(gracia);
+            if (purgados > 0) {
+                log.info("Almacén: {} contenidos sin referencias purgados", purgados);
+            }
+        } catch (Exception e) {
+            log.error("Error purgando contenidos sin referencias: {}", e.getMessage(), e);
+        }
+        try {
+            LimpiezaAlmacenService.Resultado resultado = limpiezaAlmacenService.barrer(gracia, hilos);
+            huerfanos.increment(resultado.borrados());
+            log.info("Almacén: {} archivos revisados, {} huérfanos borrados ({} bytes)",
+                    resultado.revisados(), resultado.borrados(), resultado.bytesLiberados());
+        } catch (Exception e) {
+            log.error("Error en el barrido de archivos huérfanos: {}", e.getMessage(), e);
+        }
+        try {
+            usoAlmacenamientoService.actualizar();
+        } catch (Exception e) {
+            log.error("Error calculando el uso de almacenamiento: {}", e.getMessage(), e);
+        }
+        log.info("Ciclo de vida del almacén completado en {} ms", System.currentTimeMillis() - inicio);
+    }
+
+    // Por lotes y en orden de hash: un contenido que falla no se vuelve a pedir en la misma pasada
+    private void archivarSinUso() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(diasSinUso);
+        String desde = "";
+        int cantidad = 0;
+        long bytesArchivados = 0;
+        while (true) {
+            List<ContenidoArchivo> lote = contenidoArchivoRepository.buscarParaArchivar(limite, desde,
+                    PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            for (ContenidoArchivo contenido : lote) {
+                try {
+                    long bytes = almacenArchivosService.archivar(contenido);
+                    if (bytes > 0) {
+                        cantidad++;
+                        bytesArchivados += bytes;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("No se pudo pasar al almacén frío el contenido {}: {}", contenido.getHash(), e.getMessage());
+                }
+            }
+            desde = lote.get(lote.size() - 1).getHash();
+        }
+        archivados.increment(cantidad);
+        if (cantidad > 0) {
+            log.info("Almacén: {} contenidos pasados al almacén frío ({} bytes)", cantidad, bytesArchivados);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.odontoapp.configuracion;
+
+import com.odontoapp.servicio.IndiceBusquedaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduler de los índices de búsqueda de pacientes, usuarios e insumos.
+ *
+ * - Al arrancar: se construyen los índices (mientras tanto las búsquedas usan LIKE).
+ * - Cada noche a las 02:15 AM: reconstrucción completa, que compacta los documentos
+ *   eliminados y recoge cambios hechos con SQL nativo.
+ */
+@Component
+public class IndiceBusquedaScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceBusquedaScheduler.class);
+
+    private final IndiceBusquedaService indiceBusquedaService;
+
+    public IndiceBusquedaScheduler(IndiceBusquedaService indiceBusquedaService) {
+        this.indiceBusquedaService = indiceBusquedaService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargaInicial() {
+        try {
+            indiceBusquedaService.reconstruir();
+        } catch (Exception e) {
+            log.error("Error construyendo los índices de búsqueda: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * "0 15 2 * * *" = A las 02:15:00 todos los días
+     */
+    @Scheduled(cron = "${busqueda.indice.cron:0 15 2 * * *}")
+    public void reconstruirIndices() {
+        log.info("========== RECONSTRUYENDO ÍNDICES DE BÚSQUEDA ==========");
+        try {
+            indiceBusquedaService.reconstruir();
+        } catch (Exception e) {
+            log.error("Error reconstruyendo los índices de búsqueda: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.odontoapp.configuracion;
+
+import com.odontoapp.servicio.CuboReporteService;
+import com.odontoapp.servicio.ResumenDiarioService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Scheduler que mantiene las tablas de resúmenes diarios del módulo de reportes.
+ *
+ * - Al arrancar: si no hay resúmenes, se genera el histórico completo; después se construye
+ *   el cubo en memoria de reportes.
+ * - Cada pocos minutos: se regenera el día en curso (cubre escrituras sin evento).
+ * - Cada noche a las 00:30 AM: se reconcilian los últimos días.
+ * - Cada domingo a las 03:00 AM: reconstrucción completa.
+ */
+@Component
+public class ResumenDiarioScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenDiarioScheduler.class);
+
+    private final ResumenDiarioService resumenDiarioService;
+    private final CuboReporteService cuboReporteService;
+
+    @Value("${reportes.resumen.dias-reconciliacion:7}")
+    private int diasReconciliacion;
+
+    public ResumenDiarioScheduler(ResumenDiarioService resumenDiarioService,
+                                  CuboReporteService cuboReporteService) {
+        this.resumenDiarioService = resumenDiarioService;
+        this.cuboReporteService = cuboReporteService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargaInicial() {
+        try {
+            if (resumenDiarioService.estaVacio()) {
+                log.info("No existen resúmenes diarios. Generando histórico completo...");
+                resumenDiarioService.reconstruirTodo();
+                log.info("Histórico de resúmenes diarios generado.");
+            }
+        } catch (Exception e) {
+            log.error("Error generando el histórico de resúmenes diarios: {}", e.getMessage(), e);
+        }
+        try {
+            cuboReporteService.construir();
+        } catch (Exception e) {
+            log.error("Error construyendo el cubo de reportes: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Regenera el día en curso para que los reportes que incluyen "hoy" estén al día.
+     */
+    @Scheduled(fixedDelayString = "${reportes.resumen.intervalo-ms:300000}",
+            initialDelayString = "${reportes.resumen.intervalo-ms:300000}")
+    public void refrescarDiaActual() {
+        try {
+            LocalDate hoy = LocalDate.now();
+            resumenDiarioService.reconstruir(hoy, hoy);
+        } catch (Exception e) {
+            log.error("Error refrescando el resumen del día actual: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reconciliación nocturna de los últimos días (pagos o citas registrados con fecha pasada).
+     * "0 30 0 * * *" = A las 00:30:00 todos los días
+     */
+    @Scheduled(cron = "${reportes.resumen.cron:0 30 0 * * *}")
+    public void reconciliarUltimosDias() {
+        log.info("========== INICIANDO RECONCILIACIÓN DE RESÚMENES DIARIOS ==========");
+        try {
+            LocalDate hoy = LocalDate.now();
+            resumenDiarioService.reconstruir(hoy.minusDays(diasReconciliacion), hoy);
+            log.info("Resúmenes de los últimos {} día(s) reconciliados.", diasReconciliacion);
+        } catch (Exception e) {
+            log.error("Error en la reconciliación de resúmenes diarios: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reconstrucción completa semanal (renombres de procedimientos, bajas de pacientes, etc.).
+     * "0 0 3 * * SUN" = A las 03:00:00 cada domingo
+     */
+    @Scheduled(cron = "${reportes.resumen.cron-completo:0 0 3 * * SUN}")
+    public void reconstruccionSemanal() {
+        log.info("========== INICIANDO RECONSTRUCCIÓN COMPLETA DE RESÚMENES ==========");
+        try {
+            resumenDiarioService.reconstruirTodo();
+        } catch (Exception e) {
+            log.error("Error en la reconstrucción completa de resúmenes: {}", e.getMessage(), e);
+        }
+    }
+}
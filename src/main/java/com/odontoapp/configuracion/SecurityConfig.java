@@ -1,20 +1,31 @@
 package com.odontoapp.configuracion;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.session.SessionRegistry;
-import org.springframework.security.core.session.SessionRegistryImpl;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.session.HttpSessionEventPublisher;
 import com.odontoapp.seguridad.CustomAuthenticationSuccessHandler;
 import com.odontoapp.seguridad.CustomAuthenticationFailureHandler;
+import com.odontoapp.seguridad.CatalogoPermisos;
+import com.odontoapp.seguridad.EncoderContrasenasAcotado;
+import com.odontoapp.seguridad.FiltroLimiteIntentosLogin;
+import com.odontoapp.seguridad.LimitadorIntentosLogin;
+import com.odontoapp.seguridad.PermisosMethodSecurityExpressionHandler;
+import com.odontoapp.seguridad.RegistroSesionesIndexado;
 
 @Configuration
 @EnableWebSecurity
@@ -26,10 +37,17 @@ public class SecurityConfig {
         private CustomAuthenticationFailureHandler customAuthenticationFailureHandler;
         @Autowired
         private com.odontoapp.seguridad.CustomAccessDeniedHandler customAccessDeniedHandler;
+        @Autowired
+        private LimitadorIntentosLogin limitadorIntentosLogin;
 
+        // BCrypt en un ejecutor acotado, con costo calibrado para este equipo
         @Bean
-        public PasswordEncoder passwordEncoder() {
-                return new BCryptPasswordEncoder();
+        public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                        @Value("${seguridad.hash.hilos:0}") int hilos,
+                        @Value("${seguridad.hash.cola:64}") int capacidadCola,
+                        @Value("${seguridad.hash.espera-ms:200}") long esperaMs,
+                        @Value("${seguridad.hash.objetivo-ms:250}") long objetivoMs) {
+                return new EncoderContrasenasAcotado(hilos, capacidadCola, esperaMs, objetivoMs, meterRegistry);
         }
 
         @Bean
@@ -37,13 +55,29 @@ public class SecurityConfig {
                 return authConfig.getAuthenticationManager();
         }
 
+        // Indexado por rol y email para invalidar solo las sesiones afectadas.
+        // Con sesiones compartidas lo reemplaza el registro de SesionesCompartidasConfig.
+        @Bean
+        @ConditionalOnProperty(name = "sesiones.compartidas.habilitado", havingValue = "false", matchIfMissing = true)
+        public RegistroSesionesIndexado sessionRegistry() {
+                return new RegistroSesionesIndexado();
+        }
+
+        // Publica el fin de cada sesión HTTP (logout o timeout) para que el registro la retire
+        @Bean
+        public static HttpSessionEventPublisher httpSessionEventPublisher() {
+                return new HttpSessionEventPublisher();
+        }
+
+        // @PreAuthorize con hasAuthority/hasAnyAuthority evaluado sobre los permisos compilados
         @Bean
-        public SessionRegistry sessionRegistry() {
-                return new SessionRegistryImpl();
+        static MethodSecurityExpressionHandler methodSecurityExpressionHandler(
+                        ObjectProvider<CatalogoPermisos> catalogoPermisos) {
+                return new PermisosMethodSecurityExpressionHandler(catalogoPermisos);
         }
 
         @Bean
-        public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        public SecurityFilterChain filterChain(HttpSecurity http, SessionRegistry sessionRegistry) throws Exception {
                 http
                                 .authorizeHttpRequests(authorize -> authorize
                                                 // Recursos públicos
@@ -115,7 +149,11 @@ public class SecurityConfig {
                                                 .accessDeniedHandler(customAccessDeniedHandler))
                                 .sessionManagement(session -> session
                                                 .maximumSessions(-1)
-                                                .sessionRegistry(sessionRegistry()));
+                                                .sessionRegistry(sessionRegistry))
+                                // Rechaza logins de cuentas/IPs bloqueadas antes de verificar la contraseña
+                                .addFilterBefore(new FiltroLimiteIntentosLogin(limitadorIntentosLogin,
+                                                customAuthenticationFailureHandler),
+                                                UsernamePasswordAuthenticationFilter.class);
                 return http.build();
         }
 }
\ No newline at end of file
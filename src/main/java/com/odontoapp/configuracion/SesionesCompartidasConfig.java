@@ -0,0 +1,88 @@
+package com.odontoapp.configuracion;
+
+import com.odontoapp.seguridad.RegistroSesionesJdbc;
+import com.odontoapp.seguridad.SerializadorAtributosSesion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.session.JdbcSessionDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.session.JdbcSessionProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.FlushMode;
+import org.springframework.session.SaveMode;
+import org.springframework.session.Session;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Sesiones HTTP guardadas en la base de datos de la aplicación (tablas SPRING_SESSION de Spring
+ * Session), para poder tener varios nodos detrás del balanceador sin sesiones pegajosas.
+ * Se activa con {@code sesiones.compartidas.habilitado=true}; sin ella se usan las sesiones del
+ * contenedor y el registro en memoria de SecurityConfig.
+ *
+ * - Atributos con serialización compacta ({@link SerializadorAtributosSesion}).
+ * - Cada atributo se deserializa recién cuando se lee, y solo se escriben los que cambiaron.
+ * - La limpieza de sesiones expiradas la hace {@link SesionesExpiradasScheduler} por lotes, en
+ *   lugar del DELETE único de Spring Session.
+ * - Las tablas se crean al arrancar si no existen ({@code sesiones.compartidas.crear-tablas}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "sesiones.compartidas.habilitado", havingValue = "true")
+@EnableJdbcHttpSession(cleanupCron = Scheduled.CRON_DISABLED)
+@EnableConfigurationProperties(JdbcSessionProperties.class)
+public class SesionesCompartidasConfig {
+
+    // Nombre que busca Spring Session para convertir los atributos
+    @Bean("springSessionConversionService")
+    public ConversionService springSessionConversionService() {
+        SerializadorAtributosSesion serializador = new SerializadorAtributosSesion(getClass().getClassLoader());
+        GenericConversionService conversionService = new GenericConversionService();
+        conversionService.addConverter(Object.class, byte[].class, serializador::serializar);
+        conversionService.addConverter(byte[].class, Object.class, serializador::deserializar);
+        return conversionService;
+    }
+
+    @Bean
+    public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> repositorioSesionesCustomizer(
+            @Value("${server.servlet.session.timeout:30m}") Duration tiempoInactividad) {
+        return repositorio -> {
+            repositorio.setDefaultMaxInactiveInterval(tiempoInactividad);
+            repositorio.setSaveMode(SaveMode.ON_SET_ATTRIBUTE);
+            repositorio.setFlushMode(FlushMode.ON_SAVE);
+        };
+    }
+
+    @Bean
+    public JdbcSessionDataSourceScriptDatabaseInitializer inicializadorTablasSesion(DataSource dataSource,
+            JdbcSessionProperties propiedades,
+            @Value("${sesiones.compartidas.crear-tablas:true}") boolean crearTablas) {
+        if (crearTablas && propiedades.getInitializeSchema() == DatabaseInitializationMode.EMBEDDED) {
+            // Los scripts de Spring Session siguen adelante si las tablas ya existen
+            propiedades.setInitializeSchema(DatabaseInitializationMode.ALWAYS);
+        }
+        return new JdbcSessionDataSourceScriptDatabaseInitializer(dataSource, propiedades);
+    }
+
+    // Reemplaza al registro en memoria de SecurityConfig: lo ven todos los nodos
+    @Bean
+    public RegistroSesionesJdbc<?> sessionRegistry(FindByIndexNameSessionRepository<? extends Session> sessionRepository,
+            JdbcTemplate jdbcTemplate) {
+        return crearRegistro(sessionRepository, jdbcTemplate);
+    }
+
+    private static <S extends Session> RegistroSesionesJdbc<S> crearRegistro(
+            FindByIndexNameSessionRepository<S> sessionRepository, JdbcTemplate jdbcTemplate) {
+        return new RegistroSesionesJdbc<>(sessionRepository, jdbcTemplate);
+    }
+}
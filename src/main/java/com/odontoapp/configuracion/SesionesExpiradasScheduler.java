@@ -0,0 +1,74 @@
+package com.odontoapp.configuracion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Borra las sesiones compartidas expiradas (ver {@link SesionesCompartidasConfig}) en lotes
+ * pequeños, cada uno en su propia sentencia, para no bloquear la tabla de sesiones con un DELETE
+ * de todas las expiradas a la vez. Los atributos se borran en cascada.
+ *
+ * Corre en todos los nodos; si dos coinciden, el segundo simplemente no encuentra filas.
+ */
+@Component
+@ConditionalOnProperty(name = "sesiones.compartidas.habilitado", havingValue = "true")
+public class SesionesExpiradasScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(SesionesExpiradasScheduler.class);
+
+    private static final String SQL_EXPIRADAS = "SELECT PRIMARY_ID FROM SPRING_SESSION "
+            + "WHERE EXPIRY_TIME < ? ORDER BY EXPIRY_TIME LIMIT ?";
+    // Se vuelve a comprobar la expiración: la sesión pudo usarse entre la consulta y el borrado
+    private static final String SQL_BORRAR = "DELETE FROM SPRING_SESSION WHERE EXPIRY_TIME < ? AND PRIMARY_ID IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanoLote;
+    private final int maxLotes;
+
+    public SesionesExpiradasScheduler(JdbcTemplate jdbcTemplate,
+            @Value("${sesiones.compartidas.limpieza-lote:500}") int tamanoLote,
+            @Value("${sesiones.compartidas.limpieza-max-lotes:100}") int maxLotes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoLote = tamanoLote;
+        this.maxLotes = maxLotes;
+    }
+
+    /**
+     * "0 * * * * *" = Cada minuto, como la limpieza por defecto de Spring Session
+     */
+    @Scheduled(cron = "${sesiones.compartidas.limpieza-cron:0 * * * * *}")
+    public void borrarExpiradas() {
+        long ahora = System.currentTimeMillis();
+        int borradas = 0;
+        try {
+            for (int lote = 0; lote < maxLotes; lote++) {
+                List<String> ids = jdbcTemplate.queryForList(SQL_EXPIRADAS, String.class, ahora, tamanoLote);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                List<Object> parametros = new ArrayList<>(ids.size() + 1);
+                parametros.add(ahora);
+                parametros.addAll(ids);
+                String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+                borradas += jdbcTemplate.update(SQL_BORRAR.formatted(marcadores), parametros.toArray());
+                if (ids.size() < tamanoLote) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error borrando sesiones expiradas: {}", e.getMessage(), e);
+        }
+        if (borradas > 0) {
+            log.debug("Sesiones expiradas borradas: {}", borradas);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.odontoapp.configuracion;
 
 import com.odontoapp.entidad.Usuario;
+import com.odontoapp.evento.PersonalModificadoEvent;
 import com.odontoapp.repositorio.UsuarioRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,9 +25,11 @@ public class UsuarioVencidoScheduler {
     private static final Logger log = LoggerFactory.getLogger(UsuarioVencidoScheduler.class);
 
     private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UsuarioVencidoScheduler(UsuarioRepository usuarioRepository) {
+    public UsuarioVencidoScheduler(UsuarioRepository usuarioRepository, ApplicationEventPublisher eventPublisher) {
         this.usuarioRepository = usuarioRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -69,6 +73,7 @@ public class UsuarioVencidoScheduler {
                     // Desactivar usuario
                     usuario.setEstaActivo(false);
                     usuarioRepository.save(usuario);
+                    eventPublisher.publishEvent(new PersonalModificadoEvent(usuario.getId(), null));
                     contador++;
 
                     log.info("✓ Usuario desactivado: {} (vigencia: {})",
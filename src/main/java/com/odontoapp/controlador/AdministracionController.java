@@ -3,12 +3,17 @@ package com.odontoapp.controlador;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
 
 import com.odontoapp.entidad.Insumo;
 import com.odontoapp.entidad.Paciente;
@@ -20,6 +25,8 @@ import com.odontoapp.repositorio.PacienteRepository;
 import com.odontoapp.repositorio.ProcedimientoRepository;
 import com.odontoapp.repositorio.RolRepository;
 import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.IndiceBusquedaService;
+import com.odontoapp.servicio.UsoAlmacenamientoService;
 import com.odontoapp.util.Permisos;
 
 @Controller
@@ -31,17 +38,23 @@ public class AdministracionController {
     private final RolRepository rolRepository;
     private final ProcedimientoRepository procedimientoRepository;
     private final InsumoRepository insumoRepository;
+    private final IndiceBusquedaService indiceBusquedaService;
+    private final UsoAlmacenamientoService usoAlmacenamientoService;
 
     public AdministracionController(UsuarioRepository usuarioRepository,
             PacienteRepository pacienteRepository,
             RolRepository rolRepository,
             ProcedimientoRepository procedimientoRepository,
-            InsumoRepository insumoRepository) {
+            InsumoRepository insumoRepository,
+            IndiceBusquedaService indiceBusquedaService,
+            UsoAlmacenamientoService usoAlmacenamientoService) {
         this.usuarioRepository = usuarioRepository;
         this.pacienteRepository = pacienteRepository;
         this.rolRepository = rolRepository;
         this.procedimientoRepository = procedimientoRepository;
         this.insumoRepository = insumoRepository;
+        this.indiceBusquedaService = indiceBusquedaService;
+        this.usoAlmacenamientoService = usoAlmacenamientoService;
     }
 
     /**
@@ -118,4 +131,47 @@ public class AdministracionController {
 
         return "modulos/administracion/eliminados";
     }
+
+    /**
+     * Estado de los índices de búsqueda (documentos, memoria, reconstrucción en curso).
+     */
+    @GetMapping("/indice-busqueda")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> estadoIndiceBusqueda() {
+        return ResponseEntity.ok(indiceBusquedaService.obtenerEstado());
+    }
+
+    /**
+     * Reconstruye los índices de búsqueda desde la base de datos (normalmente se hace cada noche).
+     * Las búsquedas siguen atendiéndose con el índice anterior mientras tanto.
+     */
+    @PostMapping("/indice-busqueda/reconstruir")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> reconstruirIndiceBusqueda() {
+        indiceBusquedaService.reconstruir();
+        return ResponseEntity.ok(indiceBusquedaService.obtenerEstado());
+    }
+
+    /**
+     * Uso del almacenamiento de archivos: total caliente/frío y pacientes con más bytes
+     * (calculado en el ciclo de vida nocturno del almacén).
+     */
+    @GetMapping("/almacenamiento")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> usoAlmacenamiento() {
+        return ResponseEntity.ok(usoAlmacenamientoService.obtenerEstado());
+    }
+
+    /**
+     * Uso del almacenamiento de un paciente.
+     */
+    @GetMapping("/almacenamiento/paciente")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseBody
+    public ResponseEntity<UsoAlmacenamientoService.UsoPaciente> usoAlmacenamientoPaciente(@RequestParam Long pacienteId) {
+        return ResponseEntity.ok(usoAlmacenamientoService.usoDePaciente(pacienteId));
+    }
 }
@@ -2,19 +2,24 @@ package com.odontoapp.controlador;
 
 import com.odontoapp.entidad.ArchivoAdjunto;
 import com.odontoapp.servicio.ArchivoAdjuntoService;
+import com.odontoapp.servicio.MiniaturasService;
+import com.odontoapp.util.EntregaArchivo;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.core.io.Resource;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controlador para la gestión de archivos adjuntos.
@@ -24,10 +29,15 @@ import java.io.IOException;
 @RequestMapping("/archivos")
 public class ArchivoAdjuntoController {
 
+    private static final Logger log = LoggerFactory.getLogger(ArchivoAdjuntoController.class);
+
     private final ArchivoAdjuntoService archivoAdjuntoService;
+    private final MiniaturasService miniaturasService;
 
-    public ArchivoAdjuntoController(ArchivoAdjuntoService archivoAdjuntoService) {
+    public ArchivoAdjuntoController(ArchivoAdjuntoService archivoAdjuntoService,
+                                    MiniaturasService miniaturasService) {
         this.archivoAdjuntoService = archivoAdjuntoService;
+        this.miniaturasService = miniaturasService;
     }
 
     /**
@@ -75,76 +85,120 @@ public class ArchivoAdjuntoController {
 
     /**
      * Descarga un archivo del servidor.
+     * Admite peticiones por rangos y revalidación por ETag (ver {@link EntregaArchivo}).
      *
      * @param id ID del archivo a descargar
      * @param request Petición HTTP
-     * @return ResponseEntity con el archivo como recurso
+     * @param response Respuesta HTTP donde se escribe el archivo
      */
     @GetMapping("/descargar/{id}")
-    public ResponseEntity<Resource> descargarArchivo(@PathVariable Long id,
-                                                     HttpServletRequest request) {
-        try {
-            // Buscar el archivo en la base de datos
-            ArchivoAdjunto archivo = archivoAdjuntoService.buscarPorId(id)
-                    .orElseThrow(() -> new EntityNotFoundException("Archivo no encontrado con ID: " + id));
-
-            // Cargar el archivo como recurso
-            Resource resource = archivoAdjuntoService.cargarArchivoComoRecurso(id);
-
-            // Determinar el tipo de contenido
-            String contentType = archivo.getTipoMime();
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            // Configurar headers para la descarga
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + archivo.getNombreArchivoOriginal() + "\"")
-                    .body(resource);
-
-        } catch (EntityNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public void descargarArchivo(@PathVariable Long id,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        entregar(id, false, request, response);
     }
 
     /**
      * Visualiza un archivo en el navegador (para imágenes principalmente).
+     * Las visitas repetidas se resuelven con la caché del navegador o con un 304.
      *
      * @param id ID del archivo a visualizar
-     * @return ResponseEntity con el archivo como recurso
+     * @param request Petición HTTP
+     * @param response Respuesta HTTP donde se escribe el archivo
      */
     @GetMapping("/ver/{id}")
-    public ResponseEntity<Resource> verArchivo(@PathVariable Long id) {
-        try {
-            // Buscar el archivo en la base de datos
-            ArchivoAdjunto archivo = archivoAdjuntoService.buscarPorId(id)
-                    .orElseThrow(() -> new EntityNotFoundException("Archivo no encontrado con ID: " + id));
+    public void verArchivo(@PathVariable Long id,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        entregar(id, true, request, response);
+    }
+
+    /**
+     * Miniatura JPEG de una imagen o de la primera página de un PDF (para listados).
+     *
+     * @param id ID del archivo
+     * @param request Petición HTTP
+     * @param response Respuesta HTTP donde se escribe la miniatura
+     */
+    @GetMapping("/miniatura/{id}")
+    public void verMiniatura(@PathVariable Long id,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        entregarDerivado(id, MiniaturasService.Variante.MINIATURA, request, response);
+    }
 
-            // Cargar el archivo como recurso
-            Resource resource = archivoAdjuntoService.cargarArchivoComoRecurso(id);
+    /**
+     * Vista previa JPEG de tamaño medio de una imagen o de la primera página de un PDF.
+     *
+     * @param id ID del archivo
+     * @param request Petición HTTP
+     * @param response Respuesta HTTP donde se escribe la vista previa
+     */
+    @GetMapping("/vista-previa/{id}")
+    public void verVistaPrevia(@PathVariable Long id,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        entregarDerivado(id, MiniaturasService.Variante.VISTA_PREVIA, request, response);
+    }
 
-            // Determinar el tipo de contenido
-            String contentType = archivo.getTipoMime();
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
+    private void entregar(Long id, boolean enLinea, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        // Buscar el archivo en la base de datos
+        Optional<ArchivoAdjunto> encontrado = archivoAdjuntoService.buscarPorId(id);
+        if (encontrado.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ArchivoAdjunto archivo = encontrado.get();
+        // Revalidación: el contenido frío no se descomprime para responder un 304
+        if (EntregaArchivo.noModificado(archivo.getHashContenido(), request, response)) {
+            return;
+        }
 
-            // Configurar headers para visualización en el navegador (inline)
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "inline; filename=\"" + archivo.getNombreArchivoOriginal() + "\"")
-                    .body(resource);
+        Path ruta;
+        try {
+            ruta = archivoAdjuntoService.obtenerRutaArchivo(archivo);
+        } catch (FileNotFoundException | IllegalArgumentException e) {
+            log.warn("Archivo adjunto {} sin contenido legible: {}", id, e.getMessage());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-        } catch (EntityNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        EntregaArchivo.enviar(ruta, archivo.getHashContenido(), archivo.getTipoMime(),
+                EntregaArchivo.disposicion(enLinea, archivo.getNombreArchivoOriginal()), request, response);
+    }
+
+    private void entregarDerivado(Long id, MiniaturasService.Variante variante, HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        Optional<ArchivoAdjunto> encontrado = archivoAdjuntoService.buscarPorId(id);
+        if (encontrado.isEmpty() || !miniaturasService.soportado(encontrado.get().getTipoMime())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        ArchivoAdjunto archivo = encontrado.get();
+        // El derivado cambia con el contenido: ETag propio por variante
+        String etag = archivo.getHashContenido() != null
+                ? archivo.getHashContenido() + "-" + variante.getCarpeta()
+                : null;
+        if (EntregaArchivo.noModificado(etag, request, response)) {
+            return;
+        }
+
+        Path derivado;
+        try {
+            derivado = miniaturasService.obtener(archivo, variante);
+        } catch (TimeoutException e) {
+            // Sigue generándose: el navegador puede reintentar en un momento
+            response.setHeader(HttpHeaders.RETRY_AFTER, "2");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Sin {} para el archivo adjunto {}: {}", variante.getCarpeta(), id, e.getMessage());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        EntregaArchivo.enviar(derivado, etag, "image/jpeg", EntregaArchivo.disposicion(true, null), request, response);
     }
 
     /**
@@ -7,14 +7,15 @@ import com.odontoapp.entidad.EstadoCita;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.EstadoCitaRepository;
 import com.odontoapp.repositorio.InsumoRepository;
-import com.odontoapp.repositorio.PacienteRepository;
 import com.odontoapp.repositorio.ProcedimientoRepository;
 import com.odontoapp.repositorio.RolRepository;
-import com.odontoapp.repositorio.UsuarioRepository;
 import com.odontoapp.repositorio.TratamientoPlanificadoRepository;
 import com.odontoapp.entidad.TratamientoPlanificado;
+import com.odontoapp.seguridad.UsuarioSesion;
 import com.odontoapp.servicio.CitaService;
+import com.odontoapp.servicio.DirectorioPersonalService;
 import com.odontoapp.servicio.FacturacionService;
+import com.odontoapp.servicio.SesionUsuarioService;
 import com.odontoapp.util.Permisos;
 import org.springframework.http.ResponseEntity;
 import org.springframework.data.domain.Page;
@@ -23,8 +24,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -49,8 +48,8 @@ public class CitaController {
     private final CitaRepository citaRepository;
     private final FacturacionService facturacionService;
     private final RolRepository rolRepository;
-    private final UsuarioRepository usuarioRepository;
-    private final PacienteRepository pacienteRepository;
+    private final SesionUsuarioService sesionUsuarioService;
+    private final DirectorioPersonalService directorioPersonalService;
     private final ProcedimientoRepository procedimientoRepository;
     private final InsumoRepository insumoRepository;
     private final EstadoCitaRepository estadoCitaRepository;
@@ -60,8 +59,8 @@ public class CitaController {
             CitaRepository citaRepository,
             FacturacionService facturacionService,
             RolRepository rolRepository,
-            UsuarioRepository usuarioRepository,
-            PacienteRepository pacienteRepository,
+            SesionUsuarioService sesionUsuarioService,
+            DirectorioPersonalService directorioPersonalService,
             ProcedimientoRepository procedimientoRepository,
             InsumoRepository insumoRepository,
             EstadoCitaRepository estadoCitaRepository,
@@ -70,8 +69,8 @@ public class CitaController {
         this.citaRepository = citaRepository;
         this.facturacionService = facturacionService;
         this.rolRepository = rolRepository;
-        this.usuarioRepository = usuarioRepository;
-        this.pacienteRepository = pacienteRepository;
+        this.sesionUsuarioService = sesionUsuarioService;
+        this.directorioPersonalService = directorioPersonalService;
         this.procedimientoRepository = procedimientoRepository;
         this.insumoRepository = insumoRepository;
         this.estadoCitaRepository = estadoCitaRepository;
@@ -89,12 +88,9 @@ public class CitaController {
     public String verCalendario(Model model) {
         try {
             // Buscar usuarios ACTIVOS con rol ODONTOLOGO
-            var listaOdontologos = usuarioRepository.findActiveByRolesNombre("ODONTOLOGO");
+            var listaOdontologos = directorioPersonalService.listarActivosPorRol("ODONTOLOGO");
 
-            // Buscar solo pacientes activos (usuarios con rol PACIENTE que estén activos)
-            var listaPacientes = pacienteRepository.findAll().stream()
-                    .filter(p -> p.getUsuario() != null && p.getUsuario().isEstaActivo())
-                    .collect(java.util.stream.Collectors.toList());
+            // Los pacientes no se precargan: el selector consulta /pacientes/api/buscar al escribir
 
             // Buscar todos los procedimientos con sus relaciones cargadas
             var listaProcedimientos = procedimientoRepository.findAllWithRelations();
@@ -108,7 +104,6 @@ public class CitaController {
 
             // Añadir al modelo
             model.addAttribute("listaOdontologos", listaOdontologos);
-            model.addAttribute("listaPacientes", listaPacientes);
             model.addAttribute("listaProcedimientos", listaProcedimientos);
             model.addAttribute("listaInsumos", listaInsumos);
             model.addAttribute("listaEstadosCita", listaEstadosCita);
@@ -121,7 +116,6 @@ public class CitaController {
 
             // Inicializar listas vacías para evitar errores en la vista
             model.addAttribute("listaOdontologos", List.of());
-            model.addAttribute("listaPacientes", List.of());
             model.addAttribute("listaProcedimientos", List.of());
             model.addAttribute("listaInsumos", List.of());
             model.addAttribute("listaEstadosCita", List.of());
@@ -164,7 +158,7 @@ public class CitaController {
 
         // Cargar listas para los filtros
         var listaEstados = estadoCitaRepository.findAll();
-        var listaOdontologos = usuarioRepository.findActiveByRolesNombre("ODONTOLOGO");
+        var listaOdontologos = directorioPersonalService.listarActivosPorRol("ODONTOLOGO");
 
         // Añadir al modelo
         model.addAttribute("paginaCitas", paginaCitas);
@@ -336,11 +330,11 @@ public class CitaController {
     @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).EDITAR_CITAS)")
     public String confirmarCita(@RequestParam Long citaId, RedirectAttributes attributes) {
         try {
-            // Obtener usuario autenticado
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String username = authentication.getName();
-            var usuarioAutenticado = usuarioRepository.findByEmail(username)
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+            // Obtener usuario autenticado (datos de la sesión)
+            UsuarioSesion usuarioAutenticado = sesionUsuarioService.obtenerActual();
+            if (usuarioAutenticado == null) {
+                throw new RuntimeException("Usuario no encontrado");
+            }
 
             // Obtener la cita
             Cita cita = citaRepository.findById(citaId)
@@ -349,8 +343,8 @@ public class CitaController {
             // Verificar permisos: Solo el odontólogo asignado, admins o recepcionistas
             // pueden confirmar
             boolean esOdontologoAsignado = cita.getOdontologo().getId().equals(usuarioAutenticado.getId());
-            boolean esAdminORecepcionista = usuarioAutenticado.getRoles().stream()
-                    .anyMatch(rol -> "ADMIN".equals(rol.getNombre()) || "RECEPCIONISTA".equals(rol.getNombre()));
+            boolean esAdminORecepcionista = usuarioAutenticado.tieneRol("ADMIN")
+                    || usuarioAutenticado.tieneRol("RECEPCIONISTA");
 
             if (!esOdontologoAsignado && !esAdminORecepcionista) {
                 attributes.addFlashAttribute("error",
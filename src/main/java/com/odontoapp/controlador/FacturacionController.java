@@ -7,7 +7,6 @@ import com.odontoapp.entidad.Pago;
 import com.odontoapp.repositorio.ComprobanteRepository;
 import com.odontoapp.repositorio.InsumoRepository;
 import com.odontoapp.repositorio.MetodoPagoRepository;
-import com.odontoapp.repositorio.PacienteRepository;
 import com.odontoapp.repositorio.ProcedimientoRepository;
 import com.odontoapp.servicio.FacturacionService;
 import com.odontoapp.util.Permisos;
@@ -33,20 +32,17 @@ import java.util.Map;
 public class FacturacionController {
 
     private final FacturacionService facturacionService;
-    private final PacienteRepository pacienteRepository;
     private final ProcedimientoRepository procedimientoRepository;
     private final InsumoRepository insumoRepository;
     private final MetodoPagoRepository metodoPagoRepository;
     private final ComprobanteRepository comprobanteRepository;
 
     public FacturacionController(FacturacionService facturacionService,
-                                PacienteRepository pacienteRepository,
                                 ProcedimientoRepository procedimientoRepository,
                                 InsumoRepository insumoRepository,
                                 MetodoPagoRepository metodoPagoRepository,
                                 ComprobanteRepository comprobanteRepository) {
         this.facturacionService = facturacionService;
-        this.pacienteRepository = pacienteRepository;
         this.procedimientoRepository = procedimientoRepository;
         this.insumoRepository = insumoRepository;
         this.metodoPagoRepository = metodoPagoRepository;
@@ -87,10 +83,7 @@ public class FacturacionController {
     @GetMapping("/pos")
     @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).CREAR_FACTURACION)")
     public String verPOS(Model model) {
-        // Buscar solo pacientes activos
-        var listaPacientes = pacienteRepository.findAll().stream()
-                .filter(p -> p.getUsuario() != null && p.getUsuario().isEstaActivo())
-                .collect(java.util.stream.Collectors.toList());
+        // Los pacientes no se precargan: el selector consulta /pacientes/api/buscar al escribir
 
         // Buscar todos los procedimientos
         var listaProcedimientos = procedimientoRepository.findAll();
@@ -103,7 +96,6 @@ public class FacturacionController {
 
         // Añadir al modelo
         model.addAttribute("comprobanteDTO", new ComprobanteDTO());
-        model.addAttribute("listaPacientes", listaPacientes);
         model.addAttribute("listaProcedimientos", listaProcedimientos);
         model.addAttribute("listaInsumos", listaInsumos);
         model.addAttribute("listaMetodosPago", listaMetodosPago);
@@ -1,26 +1,35 @@
 package com.odontoapp.controlador;
 
-import com.odontoapp.entidad.Usuario;
-import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.seguridad.SobrecargaHashException;
+import com.odontoapp.seguridad.UsuarioSesion;
+import com.odontoapp.servicio.SesionUsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ModelAttribute;
 
+import java.util.Map;
+
 @ControllerAdvice
 public class GlobalControllerAdvice {
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private SesionUsuarioService sesionUsuarioService;
 
+    // Se lee de la sesión; solo consulta la base de datos si el usuario cambió desde el login
     @ModelAttribute("usuarioLogueado")
-    public Usuario getUsuarioLogueado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated()
-                && !"anonymousUser".equals(authentication.getPrincipal())) {
-            return usuarioRepository.findByEmail(authentication.getName()).orElse(null);
-        }
-        return null;
+    public UsuarioSesion getUsuarioLogueado() {
+        return sesionUsuarioService.obtenerActual();
+    }
+
+    // Registro, cambio de contraseña o alta de usuarios con el ejecutor de hashing saturado
+    @ExceptionHandler(SobrecargaHashException.class)
+    public ResponseEntity<Map<String, Object>> sobrecargaHash(SobrecargaHashException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(SobrecargaHashException.REINTENTAR_SEGUNDOS))
+                .body(Map.of("error", e.getMessage()));
     }
-}
\ No newline at end of file
+}
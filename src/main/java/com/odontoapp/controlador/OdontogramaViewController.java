@@ -2,7 +2,8 @@ package com.odontoapp.controlador;
 
 import com.odontoapp.servicio.OdontogramaDienteService;
 import com.odontoapp.repositorio.UsuarioRepository;
-import com.odontoapp.entidad.Usuario;
+import com.odontoapp.seguridad.UsuarioSesion;
+import com.odontoapp.servicio.SesionUsuarioService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -21,12 +22,15 @@ public class OdontogramaViewController {
 
     private final OdontogramaDienteService odontogramaService;
     private final UsuarioRepository usuarioRepository;
+    private final SesionUsuarioService sesionUsuarioService;
 
     public OdontogramaViewController(
             OdontogramaDienteService odontogramaService,
-            UsuarioRepository usuarioRepository) {
+            UsuarioRepository usuarioRepository,
+            SesionUsuarioService sesionUsuarioService) {
         this.odontogramaService = odontogramaService;
         this.usuarioRepository = usuarioRepository;
+        this.sesionUsuarioService = sesionUsuarioService;
     }
 
     /**
@@ -44,10 +48,11 @@ public class OdontogramaViewController {
             Model model,
             RedirectAttributes redirectAttributes) {
         try {
-            // Obtener usuario autenticado
-            String emailUsuarioActual = authentication.getName();
-            Usuario usuarioActual = usuarioRepository.findByEmail(emailUsuarioActual)
-                .orElseThrow(() -> new RuntimeException("Usuario autenticado no encontrado"));
+            // Obtener usuario autenticado (datos de la sesión)
+            UsuarioSesion usuarioActual = sesionUsuarioService.obtenerActual();
+            if (usuarioActual == null) {
+                throw new RuntimeException("Usuario autenticado no encontrado");
+            }
 
             // Verificar si el usuario es paciente
             boolean esPaciente = authentication.getAuthorities().stream()
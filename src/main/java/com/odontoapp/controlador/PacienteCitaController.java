@@ -7,6 +7,7 @@ import com.odontoapp.entidad.EstadoCita;
 import com.odontoapp.entidad.Usuario;
 import com.odontoapp.repositorio.*;
 import com.odontoapp.servicio.CitaService;
+import com.odontoapp.servicio.DirectorioPersonalService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -40,6 +41,7 @@ public class PacienteCitaController {
     private final CitaService citaService;
     private final RolRepository rolRepository;
     private final UsuarioRepository usuarioRepository;
+    private final DirectorioPersonalService directorioPersonalService;
     private final ProcedimientoRepository procedimientoRepository;
     private final EstadoCitaRepository estadoCitaRepository;
     private final CitaRepository citaRepository;
@@ -107,7 +109,7 @@ public class PacienteCitaController {
             var listaEstados = estadoCitaRepository.findAll();
 
             // Cargar datos para el modal de agendar cita
-            var todosOdontologos = usuarioRepository.findActiveByRolesNombre("ODONTOLOGO");
+            var todosOdontologos = directorioPersonalService.listarActivosPorRol("ODONTOLOGO");
             var listaOdontologos = todosOdontologos.stream()
                     .filter(odontologo -> !odontologo.getId().equals(usuario.getId()))
                     .collect(Collectors.toList());
@@ -1,14 +1,21 @@
 // Archivo: C:\proyectos\nuevo\odontoapp\src\main\java\com\odontoapp\controlador\PacienteController.java
 package com.odontoapp.controlador;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -19,9 +26,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.RequestContextUtils;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.odontoapp.dto.DuplicadoPacienteDTO;
+import com.odontoapp.dto.EventoLineaTiempoDTO.TipoEvento;
+import com.odontoapp.dto.LineaTiempoDTO;
 import com.odontoapp.dto.PacienteDTO;
+import com.odontoapp.dto.PacienteSugerenciaDTO;
 import com.odontoapp.entidad.Cita;
 import com.odontoapp.entidad.Comprobante;
 import com.odontoapp.entidad.OdontogramaDiente;
@@ -36,11 +49,19 @@ import com.odontoapp.repositorio.PacienteRepository;
 import com.odontoapp.repositorio.TipoDocumentoRepository;
 import com.odontoapp.repositorio.TratamientoPlanificadoRepository;
 import com.odontoapp.repositorio.TratamientoRealizadoRepository;
+import com.odontoapp.servicio.DuplicadosPacienteService;
+import com.odontoapp.servicio.ImportacionPacientesService;
+import com.odontoapp.servicio.LineaTiempoPacienteService;
 import com.odontoapp.servicio.PacienteService;
+import com.odontoapp.util.EscritorCsv;
+import com.odontoapp.util.EscritorTabular;
 import com.odontoapp.util.Permisos;
 
 import java.time.format.DateTimeFormatter;
 
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -49,6 +70,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @RequestMapping("/pacientes")
 public class PacienteController {
 
+    private static final int MAX_SUGERENCIAS = 50;
+    // Cada fuente lee hasta limite + 1 filas por página de la línea de tiempo
+    private static final int MAX_EVENTOS_LINEA_TIEMPO = 100;
+
     private final PacienteService pacienteService;
     private final PacienteRepository pacienteRepository;
     private final TipoDocumentoRepository tipoDocumentoRepository;
@@ -57,13 +82,19 @@ public class PacienteController {
     private final TratamientoRealizadoRepository tratamientoRealizadoRepository;
     private final TratamientoPlanificadoRepository tratamientoPlanificadoRepository;
     private final ComprobanteRepository comprobanteRepository;
+    private final ImportacionPacientesService importacionPacientesService;
+    private final DuplicadosPacienteService duplicadosPacienteService;
+    private final LineaTiempoPacienteService lineaTiempoPacienteService;
 
     public PacienteController(PacienteService pacienteService,
             PacienteRepository pacienteRepository, TipoDocumentoRepository tipoDocumentoRepository,
             CitaRepository citaRepository, OdontogramaDienteRepository odontogramaDienteRepository,
             TratamientoRealizadoRepository tratamientoRealizadoRepository,
             TratamientoPlanificadoRepository tratamientoPlanificadoRepository,
-            ComprobanteRepository comprobanteRepository) {
+            ComprobanteRepository comprobanteRepository,
+            ImportacionPacientesService importacionPacientesService,
+            DuplicadosPacienteService duplicadosPacienteService,
+            LineaTiempoPacienteService lineaTiempoPacienteService) {
         this.pacienteService = pacienteService;
         this.pacienteRepository = pacienteRepository;
         this.tipoDocumentoRepository = tipoDocumentoRepository;
@@ -72,6 +103,9 @@ public class PacienteController {
         this.tratamientoRealizadoRepository = tratamientoRealizadoRepository;
         this.tratamientoPlanificadoRepository = tratamientoPlanificadoRepository;
         this.comprobanteRepository = comprobanteRepository;
+        this.importacionPacientesService = importacionPacientesService;
+        this.duplicadosPacienteService = duplicadosPacienteService;
+        this.lineaTiempoPacienteService = lineaTiempoPacienteService;
     }
 
     @GetMapping
@@ -357,4 +391,147 @@ public class PacienteController {
         return ResponseEntity.ok(detalle);
     }
 
-}
\ No newline at end of file
+    /**
+     * API REST para los selectores de pacientes con búsqueda (agenda, POS).
+     * Devuelve una página liviana (id, usuario, nombre, documento) en lugar de precargar todos los pacientes.
+     */
+    @GetMapping("/api/buscar")
+    @PreAuthorize("hasAnyAuthority(T(com.odontoapp.util.Permisos).VER_LISTA_PACIENTES, " +
+            "T(com.odontoapp.util.Permisos).VER_LISTA_CITAS, " +
+            "T(com.odontoapp.util.Permisos).CREAR_FACTURACION)")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> buscarPacientes(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int limite) {
+        Pageable pageable = PageRequest.of(Math.max(pagina, 0), Math.min(Math.max(limite, 1), MAX_SUGERENCIAS));
+        Slice<PacienteSugerenciaDTO> resultados = pacienteService.buscarSugerencias(q, pageable);
+        return ResponseEntity.ok(Map.of(
+                "resultados", resultados.getContent(),
+                "hayMas", resultados.hasNext()));
+    }
+
+    /**
+     * API REST de la línea de tiempo del paciente (citas, tratamientos, comprobantes, odontograma, archivos).
+     * Paginada con cursor: el cliente envía el {@code siguienteCursor} recibido para cargar lo anterior.
+     */
+    @GetMapping("/api/{id}/linea-tiempo")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).VER_DETALLE_PACIENTES)")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> obtenerLineaTiempo(@PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limite,
+            @RequestParam(required = false) Set<TipoEvento> tipos) {
+        try {
+            LineaTiempoDTO pagina = lineaTiempoPacienteService.obtenerPagina(id, cursor,
+                    Math.min(Math.max(limite, 1), MAX_EVENTOS_LINEA_TIEMPO), tipos);
+            Map<String, Object> respuesta = new java.util.HashMap<>();
+            respuesta.put("eventos", pagina.getEventos());
+            respuesta.put("siguienteCursor", pagina.getSiguienteCursor());
+            return ResponseEntity.ok(respuesta);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Importación masiva desde CSV. Responde con el reporte por fila (IMPORTADO/DUPLICADO/ERROR)
+     * como descarga; si el archivo no se puede leer vuelve a la lista con el error.
+     */
+    @PostMapping("/importar")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).CREAR_PACIENTES)")
+    public void importarPacientes(@RequestParam("archivo") MultipartFile archivo,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (archivo.isEmpty()) {
+            redirigirConError("Seleccione un archivo CSV para importar.", request, response);
+            return;
+        }
+
+        response.setContentType(EscritorTabular.Formato.CSV.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"importacion_pacientes_" + LocalDate.now() + ".csv\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        EscritorCsv escritor = new EscritorCsv(response.getOutputStream());
+        try (InputStream entrada = archivo.getInputStream()) {
+            importacionPacientesService.importar(entrada, escritor);
+            escritor.close();
+        } catch (IllegalArgumentException e) {
+            // Encabezado inválido: aún no se ha escrito nada en la respuesta
+            response.reset();
+            redirigirConError(e.getMessage(), request, response);
+        }
+    }
+
+    /**
+     * Cola de revisión de posibles pacientes duplicados, de mayor a menor puntaje.
+     */
+    @GetMapping("/duplicados/api")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).EDITAR_PACIENTES)")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> listarDuplicados(
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamano) {
+        Page<DuplicadoPacienteDTO> pendientes = duplicadosPacienteService.listarPendientes(
+                PageRequest.of(Math.max(pagina, 0), Math.min(Math.max(tamano, 1), MAX_SUGERENCIAS)));
+        return ResponseEntity.ok(Map.of(
+                "contenido", pendientes.getContent(),
+                "totalElementos", pendientes.getTotalElements(),
+                "totalPaginas", pendientes.getTotalPages()));
+    }
+
+    /**
+     * Ejecuta la detección de duplicados ahora (normalmente se hace cada noche).
+     */
+    @PostMapping("/duplicados/detectar")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).EDITAR_PACIENTES)")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> detectarDuplicados() {
+        return ResponseEntity.ok(duplicadosPacienteService.detectar());
+    }
+
+    /**
+     * Fusiona un par de la cola conservando el paciente indicado.
+     */
+    @PostMapping("/duplicados/{id}/fusionar")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).EDITAR_PACIENTES) and "
+            + "hasAuthority(T(com.odontoapp.util.Permisos).ELIMINAR_PACIENTES)")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> fusionarDuplicado(@PathVariable Long id,
+            @RequestParam Long conservarId) {
+        try {
+            return ResponseEntity.ok(Map.of("reasignadas", duplicadosPacienteService.fusionar(id, conservarId)));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Marca un par de la cola como falso positivo.
+     */
+    @PostMapping("/duplicados/{id}/descartar")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).EDITAR_PACIENTES)")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> descartarDuplicado(@PathVariable Long id) {
+        try {
+            duplicadosPacienteService.descartar(id);
+            return ResponseEntity.ok(Map.of("mensaje", "Par descartado."));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private void redirigirConError(String mensaje, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String destino = request.getContextPath() + "/pacientes";
+        RequestContextUtils.getOutputFlashMap(request).put("error", mensaje);
+        RequestContextUtils.saveOutputFlashMap(destino, request, response);
+        response.sendRedirect(destino);
+    }
+}
@@ -1,14 +1,14 @@
 package com.odontoapp.controlador;
 
+import com.odontoapp.seguridad.CatalogoPermisos;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Controlador REST para validar permisos desde JavaScript.
@@ -18,6 +18,12 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/permisos")
 public class PermisosRestController {
 
+    private final CatalogoPermisos catalogoPermisos;
+
+    public PermisosRestController(CatalogoPermisos catalogoPermisos) {
+        this.catalogoPermisos = catalogoPermisos;
+    }
+
     /**
      * Verifica si el usuario actual tiene un permiso específico.
      *
@@ -33,8 +39,7 @@ public class PermisosRestController {
         boolean tienePermiso = false;
 
         if (authentication != null && authentication.isAuthenticated()) {
-            tienePermiso = authentication.getAuthorities().stream()
-                    .anyMatch(auth -> auth.getAuthority().equals(permiso));
+            tienePermiso = catalogoPermisos.tiene(authentication, permiso);
         }
 
         Map<String, Boolean> response = new HashMap<>();
@@ -59,10 +64,10 @@ public class PermisosRestController {
 
         if (authentication != null && authentication.isAuthenticated()) {
             String[] permisosArray = permisos.split(",");
-            Set<String> permisosSet = Set.of(permisosArray);
-
-            tienePermiso = authentication.getAuthorities().stream()
-                    .anyMatch(auth -> permisosSet.contains(auth.getAuthority()));
+            for (int i = 0; i < permisosArray.length; i++) {
+                permisosArray[i] = permisosArray[i].trim();
+            }
+            tienePermiso = catalogoPermisos.tieneAlguno(authentication, permisosArray);
         }
 
         Map<String, Boolean> response = new HashMap<>();
@@ -80,13 +85,11 @@ public class PermisosRestController {
     @GetMapping("/mis-permisos")
     public ResponseEntity<Map<String, Object>> obtenerMisPermisos(Authentication authentication) {
 
-        Set<String> permisos = Set.of();
+        List<String> permisos = List.of();
 
         if (authentication != null && authentication.isAuthenticated()) {
-            permisos = authentication.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .filter(auth -> !auth.startsWith("ROLE_")) // Excluir roles, solo permisos
-                    .collect(Collectors.toSet());
+            // Solo permisos del catálogo (sin roles)
+            permisos = catalogoPermisos.nombresDe(authentication);
         }
 
         Map<String, Object> response = new HashMap<>();
@@ -107,25 +110,40 @@ public class PermisosRestController {
             @RequestParam("permisos") String permisos,
             Authentication authentication) {
 
-        Map<String, Boolean> response = new HashMap<>();
-        String[] permisosArray = permisos.split(",");
+        return ResponseEntity.ok(verificarLote(List.of(permisos.split(",")), authentication));
+    }
 
-        if (authentication != null && authentication.isAuthenticated()) {
-            Set<String> permisosUsuario = authentication.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .collect(Collectors.toSet());
+    /**
+     * Verifica un lote de permisos enviado como arreglo JSON (para listas largas que no caben en la URL).
+     *
+     * @param permisos Arreglo de nombres de permisos: ["CREAR_USUARIOS", "EDITAR_USUARIOS", ...]
+     * @param authentication El objeto de autenticación de Spring Security
+     * @return JSON con el resultado de cada permiso, en el mismo orden: {"CREAR_USUARIOS": true, ...},
+     *         o 400 si el arreglo contiene elementos nulos
+     */
+    @PostMapping("/verificar-lote")
+    public ResponseEntity<?> verificarLoteDePermisos(
+            @RequestBody List<String> permisos,
+            Authentication authentication) {
+        if (permisos.contains(null)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "La lista de permisos no puede contener valores nulos."));
+        }
+        return ResponseEntity.ok(verificarLote(permisos, authentication));
+    }
 
-            for (String permiso : permisosArray) {
-                String permisoTrimmed = permiso.trim();
-                response.put(permisoTrimmed, permisosUsuario.contains(permisoTrimmed));
-            }
-        } else {
+    private Map<String, Boolean> verificarLote(List<String> permisos, Authentication authentication) {
+        Map<String, Boolean> response = new LinkedHashMap<>();
+        if (authentication == null || !authentication.isAuthenticated()) {
             // Si no está autenticado, todos son false
-            for (String permiso : permisosArray) {
-                response.put(permiso.trim(), false);
-            }
+            permisos.forEach(permiso -> response.put(permiso.trim(), false));
+            return response;
         }
-
-        return ResponseEntity.ok(response);
+        // Los bits del usuario se resuelven una vez por petición y cada permiso es una prueba de bit
+        for (String permiso : permisos) {
+            String permisoTrimmed = permiso.trim();
+            response.put(permisoTrimmed, catalogoPermisos.tiene(authentication, permisoTrimmed));
+        }
+        return response;
     }
 }
@@ -7,6 +7,7 @@ import com.odontoapp.entidad.Insumo;
 import com.odontoapp.repositorio.CategoriaProcedimientoRepository;
 import com.odontoapp.repositorio.ProcedimientoRepository;
 import com.odontoapp.repositorio.InsumoRepository;
+import com.odontoapp.servicio.CostoProcedimientoService;
 import com.odontoapp.servicio.ProcedimientoService;
 import com.odontoapp.util.Permisos;
 import jakarta.validation.Valid;
@@ -37,17 +38,20 @@ public class ProcedimientoController {
     private final ProcedimientoRepository procedimientoRepository;
     private final ProcedimientoInsumoRepository procedimientoInsumoRepository;
     private final InsumoRepository insumoRepository;
+    private final CostoProcedimientoService costoProcedimientoService;
 
     public ProcedimientoController(ProcedimientoService procedimientoService,
             CategoriaProcedimientoRepository categoriaRepository,
             ProcedimientoRepository procedimientoRepository,
             ProcedimientoInsumoRepository procedimientoInsumoRepository,
-            InsumoRepository insumoRepository) {
+            InsumoRepository insumoRepository,
+            CostoProcedimientoService costoProcedimientoService) {
         this.procedimientoService = procedimientoService;
         this.categoriaRepository = categoriaRepository;
         this.procedimientoRepository = procedimientoRepository;
         this.procedimientoInsumoRepository = procedimientoInsumoRepository;
         this.insumoRepository = insumoRepository;
+        this.costoProcedimientoService = costoProcedimientoService;
     }
 
     @GetMapping
@@ -88,6 +92,9 @@ public class ProcedimientoController {
         }
 
         model.addAttribute("paginaProcedimientos", paginaProcedimientos);
+        // Costo de materiales y margen (desde caché) solo para la página actual
+        model.addAttribute("costos", costoProcedimientoService.obtenerCostos(
+                paginaProcedimientos.getContent().stream().map(Procedimiento::getId).collect(Collectors.toList())));
         model.addAttribute("keyword", keyword);
         model.addAttribute("categoriaId", categoriaId);
         model.addAttribute("mostrarEliminados", false);
@@ -200,6 +207,28 @@ public class ProcedimientoController {
         }
     }
 
+    /**
+     * Endpoint para obtener el costo de materiales y margen de un procedimiento
+     */
+    @GetMapping("/{id}/costo")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).VER_DETALLE_SERVICIOS)")
+    @ResponseBody
+    public ResponseEntity<?> obtenerCostoDeProcedimiento(@PathVariable Long id) {
+        return costoProcedimientoService.obtenerCosto(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Servicio no encontrado.")));
+    }
+
+    /**
+     * Endpoint para obtener el costo de materiales y margen de todos los procedimientos
+     */
+    @GetMapping("/costos")
+    @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).VER_LISTA_SERVICIOS)")
+    @ResponseBody
+    public ResponseEntity<?> listarCostosDeProcedimientos() {
+        return ResponseEntity.ok(costoProcedimientoService.listarCostos());
+    }
+
     @GetMapping("/restablecer/{id}")
     @PreAuthorize("hasAuthority(T(com.odontoapp.util.Permisos).RESTAURAR_SERVICIOS)")
     public String restablecerProcedimiento(@PathVariable Long id, RedirectAttributes redirectAttributes) {
@@ -15,6 +15,7 @@ import com.odontoapp.dto.RegistroPacienteDTO;
 import com.odontoapp.entidad.Usuario;
 import com.odontoapp.repositorio.TipoDocumentoRepository;
 import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.seguridad.SobrecargaHashException;
 import com.odontoapp.servicio.EmailService;
 import com.odontoapp.servicio.PacienteService;
 
@@ -65,6 +66,8 @@ public class RegistroController {
             }
             // --- FIN MANEJO MEJORADO ---
             return "redirect:/registro"; // Volver al formulario de email
+        } catch (SobrecargaHashException e) {
+            throw e; // 503 con Retry-After en GlobalControllerAdvice
         } catch (Exception e) {
             // Otros errores inesperados
             redirectAttributes.addFlashAttribute("error", "Ocurrió un error inesperado al procesar tu solicitud.");
@@ -161,6 +164,8 @@ public class RegistroController {
             cargarDatosFormulario(model, registroDTO, token);
             return "publico/registro-formulario"; //
 
+        } catch (SobrecargaHashException e) {
+            throw e; // 503 con Retry-After en GlobalControllerAdvice
         } catch (Exception e) {
             // Error inesperado
             model.addAttribute("error", "Ocurrió un error inesperado al completar el registro.");
@@ -1,7 +1,18 @@
 package com.odontoapp.controlador;
 
-import com.odontoapp.servicio.ReporteService;
-import com.odontoapp.servicio.UsuarioService;
+import com.odontoapp.dto.ResultadoReporteDTO;
+import com.odontoapp.dto.TrabajoReporteDTO;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+import com.odontoapp.servicio.CuboReporteService;
+import com.odontoapp.servicio.CuboReporteService.Dimension;
+import com.odontoapp.servicio.DirectorioPersonalService;
+import com.odontoapp.servicio.ExportacionReporteService;
+import com.odontoapp.servicio.RetencionPacientesService;
+import com.odontoapp.servicio.TrabajoReporteService;
+import com.odontoapp.servicio.UtilizacionService;
+import com.odontoapp.util.EscritorTabular;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
@@ -10,13 +21,27 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Controller
 @RequestMapping("/reportes")
@@ -24,8 +49,12 @@ import java.time.LocalDate;
 @PreAuthorize("hasRole('ADMIN')")
 public class ReporteControlador {
 
-    private final ReporteService reporteService;
-    private final UsuarioService usuarioService;
+    private final DirectorioPersonalService directorioPersonalService;
+    private final TrabajoReporteService trabajoReporteService;
+    private final ExportacionReporteService exportacionReporteService;
+    private final UtilizacionService utilizacionService;
+    private final RetencionPacientesService retencionPacientesService;
+    private final CuboReporteService cuboReporteService;
 
     @GetMapping
     public String index(Model model,
@@ -35,12 +64,8 @@ public class ReporteControlador {
             RedirectAttributes redirectAttributes) {
 
         // Valores por defecto: Último mes si no se especifica
-        if (fechaInicio == null) {
-            fechaInicio = LocalDate.now().minusMonths(1).withDayOfMonth(1);
-        }
-        if (fechaFin == null) {
-            fechaFin = LocalDate.now();
-        }
+        fechaInicio = fechaInicioPorDefecto(fechaInicio);
+        fechaFin = fechaFinPorDefecto(fechaFin);
 
         // ===== VALIDACIONES =====
         LocalDate hoy = LocalDate.now();
@@ -68,16 +93,303 @@ public class ReporteControlador {
         model.addAttribute("odontologoId", odontologoId);
 
         // Cargar listas para filtros
-        model.addAttribute("odontologos", usuarioService.listarPorRol("ODONTOLOGO"));
+        model.addAttribute("odontologos", directorioPersonalService.listarPorRol("ODONTOLOGO"));
 
-        // Cargar datos de reportes con filtros
-        model.addAttribute("ingresosPorMetodo", reporteService.obtenerIngresosPorMetodoPago(fechaInicio, fechaFin));
-        model.addAttribute("ingresosPorMes", reporteService.obtenerIngresosPorMes(fechaInicio, fechaFin));
-        model.addAttribute("citasPorEstado", reporteService.obtenerCitasPorEstado(fechaInicio, fechaFin, odontologoId));
-        model.addAttribute("topTratamientos",
-                reporteService.obtenerTopTratamientos(fechaInicio, fechaFin, odontologoId));
-        model.addAttribute("nuevosPacientes", reporteService.obtenerNuevosPacientesPorMes(fechaInicio, fechaFin));
+        // Cargar datos de reportes con filtros: desde caché o mediante un trabajo en segundo plano
+        Optional<ResultadoReporteDTO> resultado = trabajoReporteService
+                .obtenerResultadoEnCache(fechaInicio, fechaFin, odontologoId);
+        if (resultado.isEmpty()) {
+            try {
+                TrabajoReporteDTO trabajo = trabajoReporteService.enviar(fechaInicio, fechaFin, odontologoId);
+                resultado = Optional.ofNullable(trabajo.getResultado());
+                if (resultado.isEmpty()) {
+                    // La página consulta el progreso y se recarga al terminar
+                    model.addAttribute("trabajoId", trabajo.getId());
+                }
+            } catch (IllegalStateException e) {
+                model.addAttribute("error", e.getMessage());
+            }
+        }
+        cargarResultado(model, resultado.orElse(null));
 
         return "modulos/reportes/index";
     }
+
+    /**
+     * Encola la generación de reportes y devuelve el trabajo (id, estado y progreso).
+     */
+    @PostMapping("/trabajos")
+    @ResponseBody
+    public ResponseEntity<?> enviarTrabajo(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) Long odontologoId) {
+        LocalDate inicio = fechaInicioPorDefecto(fechaInicio);
+        LocalDate fin = fechaFinPorDefecto(fechaFin);
+        if (inicio.isAfter(fin)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "La fecha de inicio no puede ser posterior a la fecha de fin."));
+        }
+        try {
+            return ResponseEntity.accepted().body(trabajoReporteService.enviar(inicio, fin, odontologoId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Consulta el estado de un trabajo de reportes (incluye el resultado cuando está COMPLETADO).
+     */
+    @GetMapping("/trabajos/{id}")
+    @ResponseBody
+    public ResponseEntity<?> consultarTrabajo(@PathVariable String id) {
+        return trabajoReporteService.consultar(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Trabajo no encontrado.")));
+    }
+
+    /**
+     * Utilización del horario de los odontólogos (minutos disponibles vs agendados, atendidos,
+     * cancelados y no asistidos). Con detalle=true incluye el desglose por día.
+     */
+    @GetMapping("/utilizacion")
+    @ResponseBody
+    public ResponseEntity<?> obtenerUtilizacion(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) Long odontologoId,
+            @RequestParam(defaultValue = "false") boolean detalle) {
+        try {
+            return ResponseEntity.ok(utilizacionService.calcular(
+                    fechaInicioPorDefecto(fechaInicio), fechaFinPorDefecto(fechaFin), odontologoId, detalle));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retención por cohorte (mes de primera visita) a los 3, 6 y 12 meses.
+     */
+    @GetMapping("/cohortes")
+    @ResponseBody
+    public ResponseEntity<?> obtenerCohortes() {
+        LocalDateTime fechaCalculo = retencionPacientesService.obtenerFechaCalculo();
+        return ResponseEntity.ok(Map.of(
+                "estado", fechaCalculo != null ? "CALCULADO" : "PENDIENTE",
+                "cohortes", retencionPacientesService.obtenerCohortes(),
+                "fechaCalculo", String.valueOf(fechaCalculo)));
+    }
+
+    /**
+     * Pacientes con la limpieza de control vencida y sin cita futura.
+     */
+    @GetMapping("/recall")
+    @ResponseBody
+    public ResponseEntity<?> obtenerRecall() {
+        return ResponseEntity.ok(retencionPacientesService.obtenerRecallPendiente());
+    }
+
+    /**
+     * Fuerza el recálculo de cohortes y recall (normalmente se hace cada noche).
+     */
+    @PostMapping("/cohortes/recalcular")
+    @ResponseBody
+    public ResponseEntity<?> recalcularCohortes() {
+        retencionPacientesService.recalcular();
+        return ResponseEntity.ok(Map.of("fechaCalculo",
+                String.valueOf(retencionPacientesService.obtenerFechaCalculo())));
+    }
+
+    /**
+     * Exporta la lista de recall (con email y teléfono) para el envío de recordatorios.
+     */
+    @GetMapping("/recall/exportar")
+    public void exportarRecall(@RequestParam(defaultValue = "xlsx") String formato,
+            HttpServletResponse response) throws IOException {
+        exportar("recall", formato, null, LocalDate.now(), response, retencionPacientesService::exportarRecall);
+    }
+
+    /**
+     * Consulta al cubo en memoria (slice/dice): hecho=INGRESO|CITA|TRATAMIENTO|PACIENTE_NUEVO,
+     * agrupar=lista de dimensiones separadas por coma y un parámetro por dimensión para filtrar
+     * (p. ej. odontologo=3&amp;metodoPago=Efectivo&amp;mes=2025-03).
+     */
+    @GetMapping("/cubo")
+    @ResponseBody
+    public ResponseEntity<?> consultarCubo(@RequestParam String hecho,
+            @RequestParam(required = false) String agrupar,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam MultiValueMap<String, String> parametros) {
+        try {
+            List<Dimension> dimensiones = new ArrayList<>();
+            if (agrupar != null && !agrupar.isBlank()) {
+                for (String dimension : agrupar.split(",")) {
+                    dimensiones.add(Dimension.desde(dimension.trim()));
+                }
+            }
+            return ResponseEntity.ok(cuboReporteService.consultar(tipoHecho(hecho), dimensiones,
+                    filtrosCubo(parametros), fechaInicio, fechaFin));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Profundiza un nivel en la jerarquía de la dimensión (año → mes → día, categoría → procedimiento),
+     * manteniendo el resto de filtros.
+     */
+    @GetMapping("/cubo/drill")
+    @ResponseBody
+    public ResponseEntity<?> profundizarCubo(@RequestParam String hecho,
+            @RequestParam String dimension,
+            @RequestParam String valor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam MultiValueMap<String, String> parametros) {
+        try {
+            return ResponseEntity.ok(cuboReporteService.profundizar(tipoHecho(hecho), Dimension.desde(dimension),
+                    valor, filtrosCubo(parametros), fechaInicio, fechaFin));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Memoria ocupada por el cubo (columnas, diccionarios) y fechas de construcción/actualización.
+     */
+    @GetMapping("/cubo/memoria")
+    @ResponseBody
+    public ResponseEntity<?> memoriaCubo() {
+        try {
+            return ResponseEntity.ok(cuboReporteService.obtenerMemoria());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private TipoResumen tipoHecho(String hecho) {
+        try {
+            return TipoResumen.valueOf(hecho.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Hecho no válido: " + hecho);
+        }
+    }
+
+    /**
+     * Toma como filtro cada parámetro cuyo nombre es una dimensión (admite varios valores o lista con comas).
+     */
+    private Map<Dimension, Set<String>> filtrosCubo(MultiValueMap<String, String> parametros) {
+        Map<Dimension, Set<String>> filtros = new EnumMap<>(Dimension.class);
+        for (Dimension dimension : Dimension.values()) {
+            List<String> valores = parametros.get(dimension.getParametro());
+            if (valores == null || valores.isEmpty()) {
+                continue;
+            }
+            Set<String> conjunto = new HashSet<>();
+            for (String valor : valores) {
+                conjunto.addAll(Arrays.asList(valor.split(",")));
+            }
+            filtros.put(dimension, conjunto);
+        }
+        return filtros;
+    }
+
+    private void cargarResultado(Model model, ResultadoReporteDTO resultado) {
+        boolean hayDatos = resultado != null;
+        model.addAttribute("ingresosPorMetodo", hayDatos ? resultado.getIngresosPorMetodo() : Collections.emptyList());
+        model.addAttribute("ingresosPorMes", hayDatos ? resultado.getIngresosPorMes() : Collections.emptyList());
+        model.addAttribute("citasPorEstado", hayDatos ? resultado.getCitasPorEstado() : Collections.emptyList());
+        model.addAttribute("topTratamientos", hayDatos ? resultado.getTopTratamientos() : Collections.emptyList());
+        model.addAttribute("nuevosPacientes", hayDatos ? resultado.getNuevosPacientes() : Collections.emptyList());
+        model.addAttribute("margenServicios", hayDatos ? resultado.getMargenServicios() : Collections.emptyList());
+    }
+
+    private LocalDate fechaInicioPorDefecto(LocalDate fechaInicio) {
+        return fechaInicio != null ? fechaInicio : LocalDate.now().minusMonths(1).withDayOfMonth(1);
+    }
+
+    private LocalDate fechaFinPorDefecto(LocalDate fechaFin) {
+        return fechaFin != null ? fechaFin : LocalDate.now();
+    }
+
+    /**
+     * Exporta un reporte resumido (mismos datos que los gráficos) a CSV o XLSX.
+     */
+    @GetMapping("/exportar/{reporte}")
+    public void exportarReporte(@PathVariable String reporte,
+            @RequestParam(defaultValue = "xlsx") String formato,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) Long odontologoId,
+            HttpServletResponse response) throws IOException {
+
+        if (!exportacionReporteService.existeReporte(reporte)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Reporte no encontrado: " + reporte);
+            return;
+        }
+        exportar(reporte, formato, fechaInicio, fechaFin, response,
+                escritor -> exportacionReporteService.exportarReporte(reporte, fechaInicio, fechaFin, odontologoId,
+                        escritor));
+    }
+
+    /**
+     * Exporta las filas de detalle (pagos, citas o tratamientos) del rango indicado.
+     * Se transmiten directamente a la respuesta mientras se leen de la base de datos.
+     */
+    @GetMapping("/exportar/detalle/{detalle}")
+    public void exportarDetalle(@PathVariable String detalle,
+            @RequestParam(defaultValue = "xlsx") String formato,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) Long odontologoId,
+            HttpServletResponse response) throws IOException {
+
+        if (!exportacionReporteService.existeDetalle(detalle)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Detalle no encontrado: " + detalle);
+            return;
+        }
+        exportar("detalle-" + detalle, formato, fechaInicio, fechaFin, response,
+                escritor -> exportacionReporteService.exportarDetalle(detalle, fechaInicio, fechaFin, odontologoId,
+                        escritor));
+    }
+
+    @FunctionalInterface
+    private interface Exportacion {
+        void escribir(EscritorTabular escritor) throws IOException;
+    }
+
+    private void exportar(String nombre, String formato, LocalDate fechaInicio, LocalDate fechaFin,
+            HttpServletResponse response, Exportacion exportacion) throws IOException {
+        EscritorTabular.Formato tipo;
+        try {
+            tipo = EscritorTabular.Formato.desde(formato);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (fechaInicio != null && fechaFin != null && fechaInicio.isAfter(fechaFin)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "La fecha de inicio no puede ser posterior a la fecha de fin.");
+            return;
+        }
+
+        String archivo = "reporte_" + nombre
+                + (fechaInicio != null ? "_" + fechaInicio : "")
+                + (fechaFin != null ? "_" + fechaFin : "")
+                + "." + tipo.getExtension();
+        response.setContentType(tipo.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        try (EscritorTabular escritor = tipo.crear(response.getOutputStream(), nombre)) {
+            exportacion.escribir(escritor);
+        }
+    }
 }
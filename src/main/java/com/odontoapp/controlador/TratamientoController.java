@@ -2,9 +2,12 @@ package com.odontoapp.controlador;
 
 import com.odontoapp.dto.TratamientoRealizadoDTO;
 import com.odontoapp.entidad.*;
+import com.odontoapp.evento.CitaModificadaEvent;
+import com.odontoapp.evento.TratamientoRealizadoModificadoEvent;
 import com.odontoapp.repositorio.*;
 import com.odontoapp.servicio.TratamientoRealizadoService;
 import com.odontoapp.servicio.OdontogramaDienteService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -42,6 +45,7 @@ public class TratamientoController {
     private final MotivoMovimientoRepository motivoMovimientoRepository;
     private final EstadoCitaRepository estadoCitaRepository;
     private final OdontogramaDienteService odontogramaService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public TratamientoController(
             TratamientoRealizadoService tratamientoRealizadoService,
@@ -58,7 +62,8 @@ public class TratamientoController {
             TipoMovimientoRepository tipoMovimientoRepository,
             MotivoMovimientoRepository motivoMovimientoRepository,
             EstadoCitaRepository estadoCitaRepository,
-            OdontogramaDienteService odontogramaService) {
+            OdontogramaDienteService odontogramaService,
+            ApplicationEventPublisher eventPublisher) {
         this.tratamientoRealizadoService = tratamientoRealizadoService;
         this.tratamientoRealizadoRepository = tratamientoRealizadoRepository;
         this.tratamientoPlanificadoRepository = tratamientoPlanificadoRepository;
@@ -74,6 +79,7 @@ public class TratamientoController {
         this.motivoMovimientoRepository = motivoMovimientoRepository;
         this.estadoCitaRepository = estadoCitaRepository;
         this.odontogramaService = odontogramaService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -340,6 +346,8 @@ public class TratamientoController {
 
             // Guardar tratamiento (actualizado o nuevo)
             tratamientoRealizadoRepository.save(tratamiento);
+            eventPublisher.publishEvent(new TratamientoRealizadoModificadoEvent(
+                    tratamiento.getId(), tratamiento.getFechaRealizacion().toLocalDate()));
             System.out.println("✅ TratamientoRealizado guardado con ID: " + tratamiento.getId());
 
             // **MARCAR CITA ORIGINAL COMO ASISTIO**
@@ -351,6 +359,7 @@ public class TratamientoController {
                         .orElseThrow(() -> new RuntimeException("Estado ASISTIO no encontrado"));
                     cita.setEstadoCita(estadoAsistio);
                     citaRepository.save(cita);
+                    eventPublisher.publishEvent(new CitaModificadaEvent(cita.getId()));
                     System.out.println("✅ Cita #" + cita.getId() + " marcada automáticamente como ASISTIO (estado anterior: " + estadoActualCita + ")");
                 } catch (Exception e) {
                     System.err.println("⚠️ Error al marcar cita como ASISTIO: " + e.getMessage());
@@ -406,6 +415,7 @@ public class TratamientoController {
 
             // Guardar la nueva cita
             citaRepository.save(citaTratamiento);
+            eventPublisher.publishEvent(new CitaModificadaEvent(citaTratamiento.getId()));
             System.out.println("✓ Cita generada y vinculada: Cita #" + cita.getId() + " → Cita #" + citaTratamiento.getId());
 
             // **DESCONTAR INSUMOS USANDO LA LISTA UNIFICADA DEL FRONTEND**
@@ -620,9 +620,6 @@ public class UsuarioController {
             @PathVariable Long id,
             @RequestBody java.util.Map<String, String> horarios) {
         try {
-            Usuario usuario = usuarioRepository.findById(id)
-                    .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
-
             // Convertir Map<String, String> a Map<DayOfWeek, String>
             java.util.Map<java.time.DayOfWeek, String> horarioRegular = new java.util.EnumMap<>(
                     java.time.DayOfWeek.class);
@@ -636,8 +633,7 @@ public class UsuarioController {
                 }
             }
 
-            usuario.setHorarioRegular(horarioRegular);
-            usuarioRepository.save(usuario);
+            usuarioService.actualizarHorarioRegular(id, horarioRegular);
 
             return ResponseEntity.ok(java.util.Map.of(
                     "success", true,
@@ -40,4 +40,8 @@ public class ArchivoAdjuntoDTO {
     private String pacienteNombre;
 
     private String tamanoLegible; // Ej: "2.5 MB"
+
+    private String urlMiniatura; // Solo imágenes y PDFs; null si no hay miniatura
+
+    private String urlVistaPrevia;
 }
@@ -0,0 +1,24 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Retención de una cohorte de pacientes (mes de su primera visita).
+ * Un porcentaje es null mientras la ventana de la cohorte no haya terminado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CohorteRetencionDTO {
+    // Mes de adquisición en formato yyyy-MM
+    private String cohorte;
+    private int pacientes;
+    private int retenidos3Meses;
+    private int retenidos6Meses;
+    private int retenidos12Meses;
+    private Double porcentaje3Meses;
+    private Double porcentaje6Meses;
+    private Double porcentaje12Meses;
+}
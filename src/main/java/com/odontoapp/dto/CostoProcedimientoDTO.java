@@ -0,0 +1,25 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Costo de materiales y margen de un procedimiento, calculado a partir de sus
+ * insumos por defecto (cantidad x precio unitario del insumo).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CostoProcedimientoDTO {
+    private Long procedimientoId;
+    private String codigo;
+    private String nombre;
+    private BigDecimal precioBase;
+    private BigDecimal costoMateriales;
+    private BigDecimal margen;
+    // Margen sobre el precio base, en porcentaje (null si el precio es cero)
+    private BigDecimal margenPorcentaje;
+}
@@ -0,0 +1,36 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Par candidato de la cola de revisión de duplicados, con los datos de ambos pacientes lado a lado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicadoPacienteDTO {
+    private Long id;
+    private double puntaje;
+    private String motivos;
+    private LocalDateTime fechaDeteccion;
+    private FichaPaciente pacienteA;
+    private FichaPaciente pacienteB;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FichaPaciente {
+        private Long id;
+        private String nombreCompleto;
+        private String tipoDocumento;
+        private String numeroDocumento;
+        private String email;
+        private String telefono;
+        private LocalDate fechaNacimiento;
+    }
+}
@@ -0,0 +1,31 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entrada de la línea de tiempo del paciente (cita, tratamiento, comprobante, cambio de odontograma o archivo).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoLineaTiempoDTO {
+
+    public enum TipoEvento {
+        CITA, TRATAMIENTO, COMPROBANTE, ODONTOGRAMA, ARCHIVO
+    }
+
+    private TipoEvento tipo;
+    // ID en la tabla de origen
+    private Long id;
+    private LocalDateTime fecha;
+    private String titulo;
+    private String detalle;
+    private String estado;
+    // Solo comprobantes
+    private BigDecimal monto;
+}
@@ -0,0 +1,22 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Celda agregada del cubo de reportes.
+ * Las claves tienen el mismo formato que los filtros, de modo que se pueden usar para profundizar.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilaCuboDTO {
+    private List<String> claves;
+    private List<String> etiquetas;
+    private long cantidad;
+    private BigDecimal monto;
+}
@@ -0,0 +1,19 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de la línea de tiempo del paciente, de lo más reciente a lo más antiguo.
+ * {@code siguienteCursor} es null cuando no hay más eventos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LineaTiempoDTO {
+    private List<EventoLineaTiempoDTO> eventos;
+    private String siguienteCursor;
+}
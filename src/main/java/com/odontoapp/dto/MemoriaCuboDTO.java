@@ -0,0 +1,29 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Uso de memoria del cubo de reportes. Los bytes de columnas son exactos (capacidad × ancho);
+ * los de diccionarios y etiquetas son una estimación.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemoriaCuboDTO {
+    private int filas;
+    private int filasEliminadas;
+    private int capacidad;
+    private Map<String, Long> bytesPorColumna;
+    private long bytesColumnas;
+    private Map<String, Integer> cardinalidades;
+    private long bytesDiccionariosEstimados;
+    private long bytesTotalEstimados;
+    private LocalDateTime fechaConstruccion;
+    private long tiempoConstruccionMs;
+    private LocalDateTime ultimaActualizacion;
+}
@@ -0,0 +1,36 @@
+package com.odontoapp.dto;
+
+import lombok.Value;
+
+import java.time.DayOfWeek;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Proyección de un usuario del personal para selectores y contexto del chatbot,
+ * sin cargar la entidad ni sus colecciones.
+ * Es inmutable porque la misma instancia se comparte desde la caché del directorio.
+ */
+@Value
+public class MiembroPersonalDTO {
+    Long id;
+    String nombreCompleto;
+    String email;
+    String telefono;
+    boolean activo;
+    // Horario regular semanal (inmutable, vacío si no tiene)
+    Map<DayOfWeek, String> horarioRegular;
+
+    public MiembroPersonalDTO(Long id, String nombreCompleto, String email, String telefono, boolean activo,
+            Map<DayOfWeek, String> horarioRegular) {
+        this.id = id;
+        this.nombreCompleto = nombreCompleto;
+        this.email = email;
+        this.telefono = telefono;
+        this.activo = activo;
+        // Copia en orden de lunes a domingo
+        this.horarioRegular = horarioRegular == null || horarioRegular.isEmpty() ? Map.of()
+                : Collections.unmodifiableMap(new EnumMap<>(horarioRegular));
+    }
+}
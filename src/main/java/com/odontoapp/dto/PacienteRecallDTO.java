@@ -0,0 +1,24 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Paciente con la limpieza de control vencida y sin cita futura agendada.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacienteRecallDTO {
+    private Long pacienteUsuarioId;
+    private String nombre;
+    private String email;
+    private String telefono;
+    // null si el paciente nunca tuvo una limpieza (se usa la última visita)
+    private LocalDate ultimaLimpieza;
+    private LocalDate ultimaVisita;
+    private int diasVencido;
+}
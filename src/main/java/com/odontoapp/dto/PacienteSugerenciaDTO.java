@@ -0,0 +1,19 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Proyección liviana de un paciente para los selectores con búsqueda (typeahead).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacienteSugerenciaDTO {
+    private Long id;
+    // Las citas y comprobantes referencian al usuario del paciente
+    private Long usuarioId;
+    private String nombreCompleto;
+    private String numeroDocumento;
+}
@@ -0,0 +1,24 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Resultado de una consulta al cubo de reportes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoCuboDTO {
+    private String hecho;
+    private List<String> dimensiones;
+    private List<FilaCuboDTO> filas;
+    private long totalCantidad;
+    private BigDecimal totalMonto;
+    private int filasEscaneadas;
+    private double tiempoMs;
+}
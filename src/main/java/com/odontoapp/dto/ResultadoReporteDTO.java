@@ -0,0 +1,22 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Conjunto de datos que muestra la página de reportes para un rango y odontólogo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoReporteDTO {
+    private List<ReporteDTO> ingresosPorMetodo;
+    private List<ReporteDTO> ingresosPorMes;
+    private List<ReporteDTO> citasPorEstado;
+    private List<ReporteDTO> topTratamientos;
+    private List<ReporteDTO> nuevosPacientes;
+    private List<ReporteDTO> margenServicios;
+}
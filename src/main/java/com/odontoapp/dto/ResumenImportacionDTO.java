@@ -0,0 +1,19 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totales de una importación masiva de pacientes. El detalle por fila va en el reporte CSV.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenImportacionDTO {
+    private long filasLeidas;
+    private long importados;
+    private long duplicados;
+    private long errores;
+    private long duracionMs;
+}
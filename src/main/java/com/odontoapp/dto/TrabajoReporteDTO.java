@@ -0,0 +1,28 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Estado de un trabajo de generación de reportes.
+ * Estados: PENDIENTE, EN_PROCESO, COMPLETADO, ERROR.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrabajoReporteDTO {
+    private String id;
+    private String estado;
+    // Porcentaje de avance (0-100)
+    private int progreso;
+    private String pasoActual;
+    private String error;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private Long odontologoId;
+    // Solo se informa cuando el trabajo está COMPLETADO
+    private ResultadoReporteDTO resultado;
+}
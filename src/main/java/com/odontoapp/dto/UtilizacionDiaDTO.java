@@ -0,0 +1,22 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Minutos de sillón de un odontólogo en un día concreto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UtilizacionDiaDTO {
+    private LocalDate fecha;
+    private int minutosDisponibles;
+    private int minutosAgendados;
+    private int minutosAtendidos;
+    private int minutosCancelados;
+    private int minutosNoAsistidos;
+}
@@ -0,0 +1,30 @@
+package com.odontoapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Utilización del horario de un odontólogo en un rango de fechas.
+ * Disponibles: horario regular menos excepciones. Agendados: citas no canceladas ni reprogramadas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UtilizacionOdontologoDTO {
+    private Long odontologoId;
+    private String odontologoNombre;
+    private long minutosDisponibles;
+    private long minutosAgendados;
+    private long minutosAtendidos;
+    private long minutosCancelados;
+    private long minutosNoAsistidos;
+    // Minutos agendados dentro del horario / minutos disponibles, en porcentaje
+    private double porcentajeOcupacion;
+    // Minutos atendidos / minutos disponibles, en porcentaje
+    private double porcentajeAtencion;
+    // Detalle por día (solo si se solicita)
+    private List<UtilizacionDiaDTO> dias;
+}
@@ -11,6 +11,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -22,7 +23,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true, exclude = { "paciente", "cita" })
 @ToString(callSuper = true, exclude = { "paciente", "cita" })
 @Entity
-@Table(name = "archivos_adjuntos")
+@Table(name = "archivos_adjuntos", indexes = { // Línea de tiempo del paciente (keyset por fecha)
+        @Index(name = "idx_archivos_adjuntos_paciente_fecha", columnList = "paciente_usuario_id, fecha_creacion"),
+        @Index(name = "idx_archivos_adjuntos_hash", columnList = "hash_contenido")
+})
 @SQLDelete(sql = "UPDATE archivos_adjuntos SET eliminado = true, fecha_eliminacion = NOW() WHERE id = ?")
 @Where(clause = "eliminado = false")
 public class ArchivoAdjunto extends EntidadAuditable {
@@ -57,6 +61,10 @@ public class ArchivoAdjunto extends EntidadAuditable {
     @Column(name = "descripcion")
     private String descripcion;
 
+    // SHA-256 del contenido (ContenidoArchivo); null en archivos subidos antes del almacén por contenido
+    @Column(name = "hash_contenido", length = 64)
+    private String hashContenido;
+
     // --- Campos Soft Delete ---
     private boolean eliminado = false;
     private LocalDateTime fechaEliminacion;
@@ -11,6 +11,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
@@ -24,7 +25,9 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true, exclude = { "paciente", "odontologo", "procedimiento", "estadoCita", "citaReprogramada", "citaGeneradaPorTratamiento" })
 @ToString(callSuper = true, exclude = { "paciente", "odontologo", "procedimiento", "estadoCita", "citaReprogramada", "citaGeneradaPorTratamiento" })
 @Entity
-@Table(name = "citas")
+@Table(name = "citas", indexes = { // Línea de tiempo del paciente (keyset por fecha)
+        @Index(name = "idx_citas_paciente_fecha", columnList = "paciente_usuario_id, fecha_hora_inicio")
+})
 @SQLDelete(sql = "UPDATE citas SET eliminado = true, fecha_eliminacion = NOW() WHERE id = ?")
 @Where(clause = "eliminado = false")
 public class Cita extends EntidadAuditable {
@@ -15,6 +15,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -28,7 +29,9 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true, exclude = { "cita", "paciente", "estadoPago", "detalles" })
 @ToString(callSuper = true, exclude = { "cita", "paciente", "estadoPago", "detalles" })
 @Entity
-@Table(name = "comprobantes")
+@Table(name = "comprobantes", indexes = { // Línea de tiempo del paciente (keyset por fecha)
+        @Index(name = "idx_comprobantes_paciente_fecha", columnList = "paciente_usuario_id, fecha_emision")
+})
 @SQLDelete(sql = "UPDATE comprobantes SET eliminado = true, fecha_eliminacion = NOW() WHERE id = ?")
 @Where(clause = "eliminado = false")
 public class Comprobante extends EntidadAuditable {
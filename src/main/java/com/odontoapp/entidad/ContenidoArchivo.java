@@ -0,0 +1,67 @@
+package com.odontoapp.entidad;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bytes de un archivo subido, identificados por su SHA-256. Varios {@link ArchivoAdjunto} con el
+ * mismo contenido comparten una fila y un archivo en disco; {@code referencias} cuenta cuántos
+ * adjuntos vigentes lo usan. Lo gestiona AlmacenArchivosService, por eso no lleva auditoría.
+ *
+ * Los contenidos sin uso reciente se pasan al almacén frío ({@code frio}), comprimidos cuando
+ * compensa, y vuelven al directorio de subidas la próxima vez que se leen. La copia caliente
+ * se conserva durante una gracia tras archivar, por si alguien la estaba leyendo.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "contenidos_archivo")
+public class ContenidoArchivo {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // Relativa a file.upload-dir: ab/cd/<hash>
+    @Column(nullable = false, length = 80)
+    private String ruta;
+
+    @Column(name = "tamano_bytes", nullable = false)
+    private long tamanoBytes;
+
+    @Column(nullable = false)
+    private int referencias;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(nullable = false)
+    private boolean frio;
+
+    // Solo tiene sentido en el almacén frío: gzip o copia tal cual
+    @Column(nullable = false)
+    private boolean comprimido;
+
+    // Última lectura registrada (como mucho una por intervalo y nodo) o vuelta del almacén frío;
+    // null si no se ha leído desde que se subió
+    @Column(name = "fecha_ultimo_acceso")
+    private LocalDateTime fechaUltimoAcceso;
+
+    // Cuándo pasó al almacén frío mientras su copia en el directorio de subidas espera la gracia
+    // para borrarse; null cuando ya no queda copia caliente
+    @Column(name = "fecha_archivado")
+    private LocalDateTime fechaArchivado;
+
+    public ContenidoArchivo(String hash, String ruta, long tamanoBytes) {
+        this.hash = hash;
+        this.ruta = ruta;
+        this.tamanoBytes = tamanoBytes;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,76 @@
+package com.odontoapp.entidad;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Correo encolado para envío diferido (bandeja de salida).
+ * Se inserta en la misma transacción que los datos que lo originan, de modo que un rollback
+ * no deja correos sueltos, y un proceso programado lo envía después con reintentos.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "correos_pendientes", indexes = {
+        @Index(name = "idx_correo_pendiente_estado", columnList = "estado, id"),
+        @Index(name = "idx_correo_pendiente_reclamo", columnList = "reclamo")
+})
+public class CorreoPendiente {
+
+    public enum TipoCorreo {
+        ACTIVACION_CUENTA
+    }
+
+    public enum EstadoCorreo {
+        PENDIENTE, ENVIANDO, ENVIADO, FALLIDO
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private TipoCorreo tipo;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    private String nombre;
+
+    private String token;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 15)
+    private EstadoCorreo estado = EstadoCorreo.PENDIENTE;
+
+    @Column(nullable = false)
+    private int intentos = 0;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_envio")
+    private LocalDateTime fechaEnvio;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    // Identifica la pasada que reclamó el correo (estado ENVIANDO) y desde cuándo
+    @Column(length = 36)
+    private String reclamo;
+
+    @Column(name = "fecha_reclamo")
+    private LocalDateTime fechaReclamo;
+}
@@ -0,0 +1,70 @@
+package com.odontoapp.entidad;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Par de pacientes que probablemente son la misma persona, en la cola de revisión.
+ * El par se guarda ordenado (pacienteAId &lt; pacienteBId) para no repetirlo; un par descartado
+ * no vuelve a proponerse en detecciones posteriores.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "duplicados_pacientes", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "paciente_a_id", "paciente_b_id" })
+}, indexes = {
+        @Index(name = "idx_duplicado_estado_puntaje", columnList = "estado, puntaje")
+})
+public class DuplicadoPaciente {
+
+    public enum EstadoDuplicado {
+        PENDIENTE, FUSIONADO, DESCARTADO
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "paciente_a_id", nullable = false)
+    private Long pacienteAId;
+
+    @Column(name = "paciente_b_id", nullable = false)
+    private Long pacienteBId;
+
+    // Similitud ponderada entre 0 y 1
+    @Column(nullable = false)
+    private double puntaje;
+
+    // Detalle legible de las coincidencias (nombre, documento, fecha de nacimiento, teléfono, email)
+    @Column(length = 500)
+    private String motivos;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 15)
+    private EstadoDuplicado estado = EstadoDuplicado.PENDIENTE;
+
+    @Column(name = "fecha_deteccion", nullable = false)
+    private LocalDateTime fechaDeteccion;
+
+    @Column(name = "fecha_resolucion")
+    private LocalDateTime fechaResolucion;
+
+    @Column(name = "resuelto_por")
+    private String resueltoPor;
+
+    @Column(name = "paciente_conservado_id")
+    private Long pacienteConservadoId;
+}
@@ -0,0 +1,71 @@
+package com.odontoapp.entidad;
+
+import com.odontoapp.servicio.IndiceBusquedaService;
+import com.odontoapp.servicio.IndiceBusquedaService.TipoIndice;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Mantiene al día los índices de búsqueda cuando se guardan o eliminan pacientes, usuarios e insumos.
+ * Los campos se copian en el momento del flush, pero el índice solo se toca después del commit
+ * para que un rollback no deje resultados fantasma.
+ */
+public class IndiceBusquedaListener {
+
+    private final ObjectProvider<IndiceBusquedaService> indiceBusquedaService;
+
+    public IndiceBusquedaListener(ObjectProvider<IndiceBusquedaService> indiceBusquedaService) {
+        this.indiceBusquedaService = indiceBusquedaService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void alGuardar(Object entidad) {
+        if (entidad instanceof Paciente p) {
+            registrar(TipoIndice.PACIENTE, p.getId(), p.isEliminado(),
+                    p.getNombreCompleto(), p.getNumeroDocumento(), p.getEmail());
+        } else if (entidad instanceof Usuario u) {
+            registrar(TipoIndice.USUARIO, u.getId(), u.isEliminado(),
+                    u.getNombreCompleto(), u.getEmail(), u.getNumeroDocumento());
+        } else if (entidad instanceof Insumo i) {
+            registrar(TipoIndice.INSUMO, i.getId(), i.isEliminado(),
+                    i.getNombre(), i.getCodigo(), i.getMarca());
+        }
+    }
+
+    @PostRemove
+    public void alEliminar(Object entidad) {
+        if (entidad instanceof Paciente p) {
+            registrar(TipoIndice.PACIENTE, p.getId(), true);
+        } else if (entidad instanceof Usuario u) {
+            registrar(TipoIndice.USUARIO, u.getId(), true);
+        } else if (entidad instanceof Insumo i) {
+            registrar(TipoIndice.INSUMO, i.getId(), true);
+        }
+    }
+
+    private void registrar(TipoIndice tipo, Long id, boolean eliminado, String... campos) {
+        IndiceBusquedaService servicio = indiceBusquedaService.getIfAvailable();
+        if (servicio == null || id == null) {
+            return;
+        }
+        Runnable cambio = eliminado
+                ? () -> servicio.eliminar(tipo, id)
+                : () -> servicio.indexar(tipo, id, campos);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cambio.run();
+                }
+            });
+        } else {
+            cambio.run();
+        }
+    }
+}
@@ -16,6 +16,7 @@ import java.time.LocalDate;
 @Table(name = "insumos")
 @SQLDelete(sql = "UPDATE insumos SET eliminado = true WHERE id = ?")
 @Where(clause = "eliminado = false")
+@EntityListeners(IndiceBusquedaListener.class)
 public class Insumo extends EntidadAuditable {
 
     @Id
@@ -14,7 +14,9 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = false, exclude = {"paciente", "usuario"})
 @ToString(exclude = {"paciente", "usuario"})
 @Entity
-@Table(name = "odontograma_historial")
+@Table(name = "odontograma_historial", indexes = { // Línea de tiempo del paciente (keyset por fecha)
+        @Index(name = "idx_odontograma_historial_paciente_fecha", columnList = "paciente_usuario_id, fecha_cambio")
+})
 public class OdontogramaHistorial {
 
     @Id
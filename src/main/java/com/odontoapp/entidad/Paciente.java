@@ -15,9 +15,13 @@ import lombok.ToString;
 @Entity
 @Table(name = "pacientes", uniqueConstraints = { // Constraint único en la dupla
         @UniqueConstraint(columnNames = { "tipo_documento_id", "numero_documento" })
+}, indexes = { // Búsqueda por prefijo en los selectores de pacientes
+        @Index(name = "idx_pacientes_nombre_completo", columnList = "nombre_completo"),
+        @Index(name = "idx_pacientes_numero_documento", columnList = "numero_documento")
 })
 @SQLDelete(sql = "UPDATE pacientes SET eliminado = true WHERE id = ?")
 @Where(clause = "eliminado = false")
+@EntityListeners(IndiceBusquedaListener.class)
 public class Paciente extends EntidadAuditable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
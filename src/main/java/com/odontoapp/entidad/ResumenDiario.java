@@ -0,0 +1,72 @@
+package com.odontoapp.entidad;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila pre-agregada para el módulo de reportes.
+ * Grano: día × odontólogo × procedimiento × método de pago (más el estado para citas).
+ * Se regenera por día de forma idempotente, por lo que no necesita auditoría.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "resumenes_diarios", indexes = {
+        @Index(name = "idx_resumen_tipo_fecha", columnList = "tipo, fecha"),
+        @Index(name = "idx_resumen_tipo_odontologo_fecha", columnList = "tipo, odontologo_id, fecha")
+})
+public class ResumenDiario {
+
+    public enum TipoResumen {
+        INGRESO, CITA, TRATAMIENTO, PACIENTE_NUEVO
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TipoResumen tipo;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "odontologo_id")
+    private Long odontologoId;
+
+    @Column(name = "procedimiento_id")
+    private Long procedimientoId;
+
+    @Column(name = "procedimiento_nombre")
+    private String procedimientoNombre;
+
+    @Column(name = "metodo_pago", length = 100)
+    private String metodoPago;
+
+    @Column(length = 100)
+    private String estado;
+
+    @Column(nullable = false)
+    private long cantidad;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal monto = BigDecimal.ZERO;
+
+    public ResumenDiario(TipoResumen tipo, LocalDate fecha) {
+        this.tipo = tipo;
+        this.fecha = fecha;
+    }
+}
@@ -2,6 +2,7 @@ package com.odontoapp.entidad;
 
 import java.util.Set;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 
@@ -47,6 +48,12 @@ public class Rol extends EntidadAuditable { // <-- Extiende EntidadAuditable
     @Column(nullable = false)
     private boolean esRolSistema = false;
 
+    // Sube con cada cambio de permisos o estado del rol. CatalogoPermisos compara el máximo de la
+    // tabla para saber, en cualquier nodo, si sus mapas de bits por rol siguen al día
+    @ColumnDefault("0")
+    @Column(name = "generacion_permisos", nullable = false)
+    private long generacionPermisos = 0;
+
     // --- NUEVO CAMPO SOFT DELETE ---
     private boolean eliminado = false;
 
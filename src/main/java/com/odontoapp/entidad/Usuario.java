@@ -18,6 +18,7 @@ import jakarta.persistence.CollectionTable; // NUEVO import
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection; // NUEVO import
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType; // NUEVO import
 import jakarta.persistence.FetchType; // NUEVO import
 import jakarta.persistence.GeneratedValue;
@@ -43,6 +44,7 @@ import lombok.ToString;
 @Table(name = "usuarios")
 @SQLDelete(sql = "UPDATE usuarios SET eliminado = true, fecha_eliminacion = NOW() WHERE id = ?")
 @Where(clause = "eliminado = false")
+@EntityListeners({ IndiceBusquedaListener.class, UsuarioSesionListener.class })
 public class Usuario extends EntidadAuditable { // Extiende EntidadAuditable
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -109,7 +111,8 @@ public class Usuario extends EntidadAuditable { // Extiende EntidadAuditable
     @Column(name = "fecha_contratacion")
     private LocalDate fechaContratacion; // Fecha de contrataciÃ³n/creaciÃ³n inicial
 
-    @Column(name = "ultimo_acceso")
+    // Lo escribe RegistroAccesoService por JDBC; un guardado de la entidad no debe pisarlo
+    @Column(name = "ultimo_acceso", updatable = false)
     private LocalDateTime ultimoAcceso; // Fecha y hora del Ãºltimo login
 
     @Column(name = "debe_actualizar_password")
@@ -0,0 +1,42 @@
+package com.odontoapp.entidad;
+
+import com.odontoapp.servicio.SesionUsuarioService;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Marca como desactualizados los datos de sesión de un usuario cuando se modifica o elimina,
+ * sea cual sea el servicio o controlador que lo guardó. La marca se registra después del commit
+ * para que la siguiente petición relea los datos ya confirmados.
+ */
+public class UsuarioSesionListener {
+
+    private final ObjectProvider<SesionUsuarioService> sesionUsuarioService;
+
+    public UsuarioSesionListener(ObjectProvider<SesionUsuarioService> sesionUsuarioService) {
+        this.sesionUsuarioService = sesionUsuarioService;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void alModificar(Usuario usuario) {
+        SesionUsuarioService servicio = sesionUsuarioService.getIfAvailable();
+        Long id = usuario.getId();
+        if (servicio == null || id == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    servicio.marcarDesactualizado(id);
+                }
+            });
+        } else {
+            servicio.marcarDesactualizado(id);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando se guarda un archivo adjunto nuevo.
+ *
+ * @param archivoId ID del archivo adjunto
+ * @param hashContenido SHA-256 del contenido
+ * @param rutaArchivo ruta del contenido, relativa al directorio de subidas
+ * @param tipoMime tipo de contenido del archivo
+ */
+public record ArchivoAdjuntoGuardadoEvent(Long archivoId, String hashContenido, String rutaArchivo, String tipoMime) {
+}
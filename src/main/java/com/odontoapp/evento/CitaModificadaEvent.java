@@ -0,0 +1,10 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando se agenda, reprograma, cancela, confirma o se marca
+ * la asistencia de una cita.
+ *
+ * @param citaId ID de la cita afectada
+ */
+public record CitaModificadaEvent(Long citaId) {
+}
@@ -0,0 +1,9 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando se borra del disco un contenido que ya no tiene referencias.
+ *
+ * @param hashContenido SHA-256 del contenido borrado
+ */
+public record ContenidoArchivoEliminadoEvent(String hashContenido) {
+}
@@ -0,0 +1,10 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando se genera o anula un comprobante, o se registra un
+ * pago sobre él.
+ *
+ * @param comprobanteId ID del comprobante afectado
+ */
+public record FacturacionModificadaEvent(Long comprobanteId) {
+}
@@ -0,0 +1,10 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando cambia el stock de un insumo por un movimiento de
+ * inventario.
+ *
+ * @param insumoId ID del insumo afectado
+ */
+public record InventarioModificadoEvent(Long insumoId) {
+}
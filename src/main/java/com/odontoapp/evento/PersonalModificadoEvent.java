@@ -0,0 +1,11 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando cambia un usuario del personal (datos, roles, estado) o un rol.
+ * Invalida el directorio de personal en memoria.
+ *
+ * @param usuarioId ID del usuario modificado (null si el cambio es de un rol)
+ * @param rolId     ID del rol modificado (null si el cambio es de un usuario)
+ */
+public record PersonalModificadoEvent(Long usuarioId, Long rolId) {
+}
@@ -0,0 +1,9 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando cambia el precio unitario de un insumo.
+ *
+ * @param insumoId ID del insumo cuyo precio cambió
+ */
+public record PrecioInsumoModificadoEvent(Long insumoId) {
+}
@@ -0,0 +1,10 @@
+package com.odontoapp.evento;
+
+/**
+ * Evento publicado cuando cambia un procedimiento o su lista de insumos
+ * (asignación, cambio de cantidad o retiro de un insumo).
+ *
+ * @param procedimientoId ID del procedimiento afectado
+ */
+public record ProcedimientoModificadoEvent(Long procedimientoId) {
+}
@@ -0,0 +1,16 @@
+package com.odontoapp.evento;
+
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+
+import java.time.LocalDate;
+
+/**
+ * Evento publicado después de regenerar (y confirmar) los resúmenes diarios de un tipo
+ * para un rango de días.
+ *
+ * @param tipo  tipo de resumen regenerado
+ * @param desde primer día regenerado (inclusive)
+ * @param hasta último día regenerado (inclusive)
+ */
+public record ResumenDiarioActualizadoEvent(TipoResumen tipo, LocalDate desde, LocalDate hasta) {
+}
@@ -0,0 +1,13 @@
+package com.odontoapp.evento;
+
+import java.time.LocalDate;
+
+/**
+ * Evento publicado cuando se registra o elimina un tratamiento realizado.
+ * Incluye la fecha de realización porque tras una eliminación el registro ya no existe.
+ *
+ * @param tratamientoId    ID del tratamiento afectado
+ * @param fechaRealizacion día de realización del tratamiento
+ */
+public record TratamientoRealizadoModificadoEvent(Long tratamientoId, LocalDate fechaRealizacion) {
+}
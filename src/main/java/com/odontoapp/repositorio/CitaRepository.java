@@ -191,15 +191,36 @@ public interface CitaRepository extends JpaRepository<Cita, Long> {
                 return countActiveCitasByOdontologoId(odontologoId);
         }
 
-        // Método para reportes - obtener citas por estado
-        @Query("SELECT new com.odontoapp.dto.ReporteDTO(" +
-                        "c.estadoCita.descripcion, COUNT(c)) " +
+        /**
+         * Intervalos de las citas de un odontólogo ordenados por inicio (analítica de utilización).
+         * Filas: [fechaHoraInicio, fechaHoraFin, estadoCita.nombre]
+         */
+        @Query("SELECT c.fechaHoraInicio, c.fechaHoraFin, c.estadoCita.nombre " +
+                        "FROM Cita c " +
+                        "WHERE c.odontologo.id = :odontologoId " +
+                        "AND c.fechaHoraInicio >= :inicio AND c.fechaHoraInicio < :fin " +
+                        "ORDER BY c.fechaHoraInicio ASC")
+        List<Object[]> findIntervalosByOdontologo(
+                        @Param("odontologoId") Long odontologoId,
+                        @Param("inicio") LocalDateTime inicio,
+                        @Param("fin") LocalDateTime fin);
+
+        // --- Consultas para Resúmenes Diarios (reportes) ---
+
+        /**
+         * Citas agregadas por día de inicio, odontólogo, procedimiento y estado.
+         * Filas: [fecha, odontologoId, procedimientoId, estadoDescripcion, COUNT(cita)]
+         */
+        @Query("SELECT cast(c.fechaHoraInicio as LocalDate), c.odontologo.id, c.procedimiento.id, " +
+                        "c.estadoCita.descripcion, COUNT(c) " +
                         "FROM Cita c " +
-                        "WHERE c.fechaHoraInicio BETWEEN :inicio AND :fin " +
-                        "AND (:odontologoId IS NULL OR c.odontologo.id = :odontologoId) " +
-                        "GROUP BY c.estadoCita.descripcion")
-        List<com.odontoapp.dto.ReporteDTO> obtenerCitasPorEstado(
+                        "WHERE c.fechaHoraInicio >= :inicio AND c.fechaHoraInicio < :fin " +
+                        "GROUP BY cast(c.fechaHoraInicio as LocalDate), c.odontologo.id, c.procedimiento.id, " +
+                        "c.estadoCita.descripcion")
+        List<Object[]> agregarCitasPorDia(
                         @Param("inicio") LocalDateTime inicio,
-                        @Param("fin") LocalDateTime fin,
-                        @Param("odontologoId") Long odontologoId);
+                        @Param("fin") LocalDateTime fin);
+
+        @Query("SELECT MIN(c.fechaHoraInicio) FROM Cita c")
+        LocalDateTime findPrimeraFechaCita();
 }
@@ -0,0 +1,77 @@
+package com.odontoapp.repositorio;
+
+import com.odontoapp.entidad.ContenidoArchivo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ContenidoArchivoRepository extends JpaRepository<ContenidoArchivo, String> {
+
+    /**
+     * Suma una referencia; bloquea la fila hasta el fin de la transacción.
+     * @return 0 si el contenido no está registrado
+     */
+    @Modifying
+    @Query("UPDATE ContenidoArchivo c SET c.referencias = c.referencias + 1 WHERE c.hash = :hash")
+    int incrementarReferencias(@Param("hash") String hash);
+
+    @Modifying
+    @Query("UPDATE ContenidoArchivo c SET c.referencias = c.referencias - 1 WHERE c.hash = :hash AND c.referencias > 0")
+    int decrementarReferencias(@Param("hash") String hash);
+
+    /**
+     * Borra el registro solo si nadie lo referencia (una subida concurrente pudo volver a usarlo).
+     */
+    @Modifying
+    @Query("DELETE FROM ContenidoArchivo c WHERE c.hash = :hash AND c.referencias = 0")
+    int eliminarSinReferencias(@Param("hash") String hash);
+
+    /**
+     * Contenidos en uso sin leerse desde {@code limite} (o sin leerse nunca y subidos antes), por orden de hash a partir de {@code desde}.
+     */
+    @Query("SELECT c FROM ContenidoArchivo c WHERE c.frio = false AND c.referencias > 0 "
+            + "AND COALESCE(c.fechaUltimoAcceso, c.fechaCreacion) < :limite AND c.hash > :desde ORDER BY c.hash")
+    List<ContenidoArchivo> buscarParaArchivar(@Param("limite") LocalDateTime limite, @Param("desde") String desde,
+            Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE ContenidoArchivo c SET c.frio = true, c.comprimido = :comprimido, c.fechaArchivado = :fecha "
+            + "WHERE c.hash = :hash AND c.frio = false AND c.referencias > 0")
+    int marcarFrio(@Param("hash") String hash, @Param("comprimido") boolean comprimido,
+            @Param("fecha") LocalDateTime fecha);
+
+    @Modifying
+    @Query("UPDATE ContenidoArchivo c SET c.frio = false, c.comprimido = false, c.fechaArchivado = null, "
+            + "c.fechaUltimoAcceso = :fecha WHERE c.hash = :hash AND c.frio = true")
+    int marcarCaliente(@Param("hash") String hash, @Param("fecha") LocalDateTime fecha);
+
+    @Modifying
+    @Query("UPDATE ContenidoArchivo c SET c.fechaUltimoAcceso = :fecha WHERE c.hash = :hash")
+    int registrarAcceso(@Param("hash") String hash, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Contenidos archivados antes de {@code limite} que aún conservan la copia del directorio de subidas.
+     */
+    @Query("SELECT c FROM ContenidoArchivo c WHERE c.frio = true AND c.fechaArchivado < :limite")
+    List<ContenidoArchivo> buscarCopiasCalientes(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Da por borrada la copia caliente, salvo que se haya leído desde que se archivó.
+     */
+    @Modifying
+    @Query("UPDATE ContenidoArchivo c SET c.fechaArchivado = null WHERE c.hash = :hash AND c.frio = true "
+            + "AND c.fechaArchivado < :limite "
+            + "AND (c.fechaUltimoAcceso IS NULL OR c.fechaUltimoAcceso < c.fechaArchivado)")
+    int quitarCopiaCaliente(@Param("hash") String hash, @Param("limite") LocalDateTime limite);
+
+    /**
+     * Filas sin referencias desde antes de {@code limite}: subidas cuya transacción no llegó a confirmarse.
+     */
+    @Query("SELECT c.hash FROM ContenidoArchivo c WHERE c.referencias = 0 AND c.fechaCreacion < :limite")
+    List<String> buscarSinReferencias(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,52 @@
+package com.odontoapp.repositorio;
+
+import com.odontoapp.entidad.CorreoPendiente;
+import com.odontoapp.entidad.CorreoPendiente.EstadoCorreo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface CorreoPendienteRepository extends JpaRepository<CorreoPendiente, Long> {
+
+    /**
+     * IDs del siguiente lote de correos en el estado indicado, en orden de llegada.
+     */
+    @Query("SELECT c.id FROM CorreoPendiente c WHERE c.estado = :estado ORDER BY c.id")
+    List<Long> findIdsByEstado(@Param("estado") EstadoCorreo estado, Pageable pageable);
+
+    /**
+     * Reclama los correos que sigan {@code pendiente}: pasan a {@code enviando} con el reclamo indicado.
+     * Si dos nodos intentan reclamar el mismo correo, el UPDATE condicionado solo lo cambia para uno.
+     *
+     * @return cantidad de correos reclamados
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CorreoPendiente c SET c.estado = :enviando, c.reclamo = :reclamo, c.fechaReclamo = :fecha "
+            + "WHERE c.id IN :ids AND c.estado = :pendiente")
+    int reclamar(@Param("ids") Collection<Long> ids, @Param("reclamo") String reclamo,
+            @Param("fecha") LocalDateTime fecha, @Param("pendiente") EstadoCorreo pendiente,
+            @Param("enviando") EstadoCorreo enviando);
+
+    List<CorreoPendiente> findByReclamoAndEstadoOrderByIdAsc(String reclamo, EstadoCorreo estado);
+
+    /**
+     * Devuelve a {@code pendiente} los correos reclamados antes del límite que no se terminaron de
+     * procesar (p. ej. el nodo se detuvo a mitad del lote).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CorreoPendiente c SET c.estado = :pendiente, c.reclamo = NULL, c.fechaReclamo = NULL "
+            + "WHERE c.estado = :enviando AND c.fechaReclamo < :limite")
+    int liberarReclamosVencidos(@Param("limite") LocalDateTime limite, @Param("enviando") EstadoCorreo enviando,
+            @Param("pendiente") EstadoCorreo pendiente);
+
+    long countByEstado(EstadoCorreo estado);
+}
@@ -0,0 +1,29 @@
+package com.odontoapp.repositorio;
+
+import com.odontoapp.entidad.DuplicadoPaciente;
+import com.odontoapp.entidad.DuplicadoPaciente.EstadoDuplicado;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface DuplicadoPacienteRepository extends JpaRepository<DuplicadoPaciente, Long> {
+
+    Page<DuplicadoPaciente> findByEstadoOrderByPuntajeDescIdAsc(EstadoDuplicado estado, Pageable pageable);
+
+    /**
+     * Descarta los pares pendientes en los que participa un paciente que ya no existe (fusionado o eliminado).
+     */
+    @Modifying
+    @Query("UPDATE DuplicadoPaciente d SET d.estado = :descartado, d.fechaResolucion = :fecha, d.resueltoPor = :usuario "
+            + "WHERE d.estado = :pendiente AND (d.pacienteAId = :pacienteId OR d.pacienteBId = :pacienteId)")
+    int descartarPendientesDePaciente(@Param("pacienteId") Long pacienteId,
+            @Param("pendiente") EstadoDuplicado pendiente,
+            @Param("descartado") EstadoDuplicado descartado,
+            @Param("fecha") LocalDateTime fecha,
+            @Param("usuario") String usuario);
+}
@@ -1,6 +1,7 @@
 package com.odontoapp.repositorio;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +32,9 @@ public interface InsumoRepository extends JpaRepository<Insumo, Long> {
        @Query(value = "SELECT DISTINCT i FROM Insumo i LEFT JOIN FETCH i.categoria LEFT JOIN FETCH i.unidadMedida", countQuery = "SELECT COUNT(i) FROM Insumo i")
        Page<Insumo> findAllWithRelations(Pageable pageable);
 
+       @Query("SELECT DISTINCT i FROM Insumo i LEFT JOIN FETCH i.categoria LEFT JOIN FETCH i.unidadMedida WHERE i.id IN :ids")
+       List<Insumo> findAllWithRelationsByIdIn(@Param("ids") Collection<Long> ids);
+
        // --- NUEVO MÉTODO AÑADIDO ---
        /**
         * Cuenta cuántos insumos pertenecen a una categoría específica.
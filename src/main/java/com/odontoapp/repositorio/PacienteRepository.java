@@ -1,13 +1,16 @@
 package com.odontoapp.repositorio;
 
+import com.odontoapp.dto.PacienteSugerenciaDTO;
 import com.odontoapp.entidad.Paciente;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -69,6 +72,32 @@ public interface PacienteRepository extends JpaRepository<Paciente, Long> {
                                         "     OR p.email LIKE CONCAT('%', :keyword, '%'))", nativeQuery = true)
         Page<Paciente> findByKeyword(@Param("keyword") String keyword, Pageable pageable);
 
+        // Filtra los resultados del índice de búsqueda con las mismas condiciones de rol que el listado
+        @Query(value = "SELECT p.id FROM pacientes p " +
+                        "INNER JOIN usuarios u ON p.usuario_id = u.id " +
+                        "WHERE p.id IN (:ids) " +
+                        "AND p.eliminado = false " +
+                        "AND u.eliminado = false " +
+                        "AND (SELECT COUNT(DISTINCT ur.rol_id) FROM usuarios_roles ur WHERE ur.usuario_id = u.id) = 1 "
+                        +
+                        "AND EXISTS (SELECT 1 FROM usuarios_roles ur2 " +
+                        "            INNER JOIN roles r ON ur2.rol_id = r.id " +
+                        "            WHERE ur2.usuario_id = u.id AND r.nombre = 'PACIENTE')", nativeQuery = true)
+        List<Long> findIdsConSoloRolPaciente(@Param("ids") Collection<Long> ids);
+
+        // --- Selectores con búsqueda: solo pacientes con usuario activo ---
+        @Query("SELECT new com.odontoapp.dto.PacienteSugerenciaDTO(p.id, u.id, p.nombreCompleto, p.numeroDocumento) " +
+                        "FROM Paciente p JOIN p.usuario u " +
+                        "WHERE u.estaActivo = true AND u.eliminado = false " +
+                        "AND (p.nombreCompleto LIKE CONCAT(:prefijo, '%') OR p.numeroDocumento LIKE CONCAT(:prefijo, '%')) " +
+                        "ORDER BY p.nombreCompleto, p.id")
+        Slice<PacienteSugerenciaDTO> findSugerenciasPorPrefijo(@Param("prefijo") String prefijo, Pageable pageable);
+
+        @Query("SELECT new com.odontoapp.dto.PacienteSugerenciaDTO(p.id, u.id, p.nombreCompleto, p.numeroDocumento) " +
+                        "FROM Paciente p JOIN p.usuario u " +
+                        "WHERE p.id IN :ids AND u.estaActivo = true AND u.eliminado = false")
+        List<PacienteSugerenciaDTO> findSugerenciasByIdIn(@Param("ids") Collection<Long> ids);
+
         // --- Consultas que IGNORAN el soft delete (para validaciones) ---
         @Query("SELECT p FROM Paciente p WHERE p.numeroDocumento = :numDoc AND p.tipoDocumento.id = :tipoDocId")
         Optional<Paciente> findByNumeroTipoDocumentoIgnorandoSoftDelete(@Param("numDoc") String numDoc,
@@ -130,15 +159,20 @@ public interface PacienteRepository extends JpaRepository<Paciente, Long> {
                                         "                 AND MAX((SELECT nombre FROM roles WHERE id = ur2.rol_id)) = 'PACIENTE'))", nativeQuery = true)
         Page<Paciente> findEliminados(Pageable pageable);
 
-        // --- Consultas para Reportes ---
+        // --- Consultas para Resúmenes Diarios (reportes) ---
 
-        @Query("SELECT new com.odontoapp.dto.ReporteDTO(FUNCTION('DATE_FORMAT', p.fechaCreacion, '%Y-%m'), COUNT(p)) " +
+        /**
+         * Pacientes nuevos agregados por día de creación.
+         * Filas: [fecha, COUNT(paciente)]
+         */
+        @Query("SELECT cast(p.fechaCreacion as LocalDate), COUNT(p) " +
                         "FROM Paciente p " +
-                        "WHERE p.eliminado = false AND p.fechaCreacion >= :fechaInicio AND p.fechaCreacion <= :fechaFin "
-                        +
-                        "GROUP BY FUNCTION('DATE_FORMAT', p.fechaCreacion, '%Y-%m') " +
-                        "ORDER BY FUNCTION('DATE_FORMAT', p.fechaCreacion, '%Y-%m') ASC")
-        List<com.odontoapp.dto.ReporteDTO> obtenerNuevosPacientesPorMes(
-                        @Param("fechaInicio") LocalDateTime fechaInicio,
-                        @Param("fechaFin") LocalDateTime fechaFin);
-}
\ No newline at end of file
+                        "WHERE p.eliminado = false AND p.fechaCreacion >= :inicio AND p.fechaCreacion < :fin " +
+                        "GROUP BY cast(p.fechaCreacion as LocalDate)")
+        List<Object[]> agregarNuevosPacientesPorDia(
+                        @Param("inicio") LocalDateTime inicio,
+                        @Param("fin") LocalDateTime fin);
+
+        @Query("SELECT MIN(p.fechaCreacion) FROM Paciente p")
+        LocalDateTime findPrimeraFechaCreacion();
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -28,22 +29,25 @@ public interface PagoRepository extends JpaRepository<Pago, Long> {
          */
         @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pago p WHERE p.fechaPago BETWEEN :inicio AND :fin")
         BigDecimal sumMontoByFechaPagoBetween(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
-        // --- Consultas para Reportes ---
-
-        @Query("SELECT new com.odontoapp.dto.ReporteDTO(p.metodoPago.nombre, SUM(p.monto)) " +
-                        "FROM Pago p " +
-                        "WHERE p.fechaPago BETWEEN :fechaInicio AND :fechaFin " +
-                        "GROUP BY p.metodoPago.nombre")
-        List<com.odontoapp.dto.ReporteDTO> obtenerIngresosPorMetodoPago(
-                        @Param("fechaInicio") LocalDateTime fechaInicio,
-                        @Param("fechaFin") LocalDateTime fechaFin);
-
-        @Query("SELECT new com.odontoapp.dto.ReporteDTO(FUNCTION('DATE_FORMAT', p.fechaPago, '%Y-%m'), SUM(p.monto)) " +
-                        "FROM Pago p " +
-                        "WHERE p.fechaPago >= :fechaInicio AND p.fechaPago <= :fechaFin " +
-                        "GROUP BY FUNCTION('DATE_FORMAT', p.fechaPago, '%Y-%m') " +
-                        "ORDER BY FUNCTION('DATE_FORMAT', p.fechaPago, '%Y-%m') ASC")
-        List<com.odontoapp.dto.ReporteDTO> obtenerIngresosPorMes(
-                        @Param("fechaInicio") LocalDateTime fechaInicio,
-                        @Param("fechaFin") LocalDateTime fechaFin);
+        // --- Consultas para Resúmenes Diarios (reportes) ---
+
+        /**
+         * Ingresos agregados por día, método de pago, odontólogo y procedimiento de la cita
+         * (estos dos últimos son nulos en ventas directas).
+         * Filas: [fecha, metodoPago, odontologoId, procedimientoId, SUM(monto), COUNT(pago)]
+         */
+        @Query("SELECT cast(p.fechaPago as LocalDate), p.metodoPago.nombre, ci.odontologo.id, ci.procedimiento.id, " +
+                        "SUM(p.monto), COUNT(p) " +
+                        "FROM Pago p LEFT JOIN p.comprobante c LEFT JOIN c.cita ci " +
+                        "WHERE p.fechaPago >= :inicio AND p.fechaPago < :fin " +
+                        "GROUP BY cast(p.fechaPago as LocalDate), p.metodoPago.nombre, ci.odontologo.id, ci.procedimiento.id")
+        List<Object[]> agregarIngresosPorDia(
+                        @Param("inicio") LocalDateTime inicio,
+                        @Param("fin") LocalDateTime fin);
+
+        @Query("SELECT DISTINCT cast(p.fechaPago as LocalDate) FROM Pago p WHERE p.comprobante.id = :comprobanteId")
+        List<LocalDate> findFechasPagoByComprobanteId(@Param("comprobanteId") Long comprobanteId);
+
+        @Query("SELECT MIN(p.fechaPago) FROM Pago p")
+        LocalDateTime findPrimeraFechaPago();
 }
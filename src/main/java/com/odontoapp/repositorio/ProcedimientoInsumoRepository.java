@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -64,4 +65,15 @@ public interface ProcedimientoInsumoRepository extends JpaRepository<Procedimien
      */
     @Query("SELECT COUNT(pi) FROM ProcedimientoInsumo pi WHERE pi.insumo.id = :insumoId")
     long countByInsumoId(@Param("insumoId") Long insumoId);
+
+    /**
+     * Suma el costo de materiales (cantidad por defecto x precio unitario) de
+     * los procedimientos indicados, agrupado por procedimiento.
+     * @param procedimientoIds IDs de los procedimientos a calcular
+     * @return Filas [procedimientoId, costoMateriales]
+     */
+    @Query("SELECT pi.procedimiento.id, SUM(pi.cantidadDefecto * pi.insumo.precioUnitario) " +
+           "FROM ProcedimientoInsumo pi WHERE pi.procedimiento.id IN :procedimientoIds " +
+           "GROUP BY pi.procedimiento.id")
+    List<Object[]> sumarCostoMaterialesPorProcedimiento(@Param("procedimientoIds") Collection<Long> procedimientoIds);
 }
@@ -0,0 +1,70 @@
+package com.odontoapp.repositorio;
+
+import com.odontoapp.dto.ReporteDTO;
+import com.odontoapp.entidad.ResumenDiario;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ResumenDiarioRepository extends JpaRepository<ResumenDiario, Long> {
+
+        /**
+         * Elimina las filas de un tipo de resumen dentro de un rango de días (inclusive),
+         * antes de volver a agregarlas.
+         */
+        @Modifying
+        @Query("DELETE FROM ResumenDiario r WHERE r.tipo = :tipo AND r.fecha BETWEEN :desde AND :hasta")
+        int eliminarRango(@Param("tipo") TipoResumen tipo,
+                        @Param("desde") LocalDate desde,
+                        @Param("hasta") LocalDate hasta);
+
+        // --- Consultas para Reportes ---
+
+        @Query("SELECT new com.odontoapp.dto.ReporteDTO(r.metodoPago, SUM(r.monto)) " +
+                        "FROM ResumenDiario r " +
+                        "WHERE r.tipo = :tipo AND r.fecha BETWEEN :desde AND :hasta " +
+                        "GROUP BY r.metodoPago")
+        List<ReporteDTO> sumarMontoPorMetodoPago(@Param("tipo") TipoResumen tipo,
+                        @Param("desde") LocalDate desde,
+                        @Param("hasta") LocalDate hasta);
+
+        /**
+         * Totales por día (fecha, SUM(monto), SUM(cantidad)) para agrupar luego por mes.
+         */
+        @Query("SELECT r.fecha, SUM(r.monto), SUM(r.cantidad) " +
+                        "FROM ResumenDiario r " +
+                        "WHERE r.tipo = :tipo AND r.fecha BETWEEN :desde AND :hasta " +
+                        "GROUP BY r.fecha " +
+                        "ORDER BY r.fecha ASC")
+        List<Object[]> sumarPorDia(@Param("tipo") TipoResumen tipo,
+                        @Param("desde") LocalDate desde,
+                        @Param("hasta") LocalDate hasta);
+
+        @Query("SELECT new com.odontoapp.dto.ReporteDTO(r.estado, SUM(r.cantidad)) " +
+                        "FROM ResumenDiario r " +
+                        "WHERE r.tipo = :tipo AND r.fecha BETWEEN :desde AND :hasta " +
+                        "AND (:odontologoId IS NULL OR r.odontologoId = :odontologoId) " +
+                        "GROUP BY r.estado")
+        List<ReporteDTO> sumarCantidadPorEstado(@Param("tipo") TipoResumen tipo,
+                        @Param("desde") LocalDate desde,
+                        @Param("hasta") LocalDate hasta,
+                        @Param("odontologoId") Long odontologoId);
+
+        @Query("SELECT new com.odontoapp.dto.ReporteDTO(r.procedimientoNombre, SUM(r.cantidad)) " +
+                        "FROM ResumenDiario r " +
+                        "WHERE r.tipo = :tipo AND r.fecha BETWEEN :desde AND :hasta " +
+                        "AND (:odontologoId IS NULL OR r.odontologoId = :odontologoId) " +
+                        "GROUP BY r.procedimientoNombre " +
+                        "ORDER BY SUM(r.cantidad) DESC")
+        List<ReporteDTO> sumarCantidadPorProcedimiento(@Param("tipo") TipoResumen tipo,
+                        @Param("desde") LocalDate desde,
+                        @Param("hasta") LocalDate hasta,
+                        @Param("odontologoId") Long odontologoId,
+                        Pageable pageable);
+}
@@ -6,11 +6,20 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.util.List;
 import java.util.Optional;
 
 public interface RolRepository extends JpaRepository<Rol, Long> {
     Optional<Rol> findByNombre(String nombre);
 
+    // --- ROLES CON SUS PERMISOS EN UNA CONSULTA (compilación de permisos) ---
+    @Query("SELECT DISTINCT r FROM Rol r LEFT JOIN FETCH r.permisos")
+    List<Rol> findAllConPermisos();
+
+    // --- GENERACIÓN DE PERMISOS (incluye roles eliminados, para que borrar un rol también la cambie) ---
+    @Query(value = "SELECT COALESCE(MAX(generacion_permisos), 0) FROM roles", nativeQuery = true)
+    long maxGeneracionPermisos();
+
     // --- MÉTODO PARA BÚSQUEDA Y PAGINACIÓN ---
     @Query("SELECT r FROM Rol r WHERE r.nombre LIKE %:keyword%")
     Page<Rol> findByKeyword(@Param("keyword") String keyword, Pageable pageable);
@@ -39,17 +39,22 @@ public interface TratamientoRealizadoRepository extends JpaRepository<Tratamient
      */
     @Query("SELECT t FROM TratamientoRealizado t WHERE t.cita.paciente.id = :pacienteId")
     Page<TratamientoRealizado> findByPacienteId(@Param("pacienteId") Long pacienteId, Pageable pageable);
-    // --- Consultas para Reportes ---
+    // --- Consultas para Resúmenes Diarios (reportes) ---
 
-    @Query("SELECT new com.odontoapp.dto.ReporteDTO(t.procedimiento.nombre, COUNT(t)) " +
+    /**
+     * Tratamientos agregados por día, odontólogo y procedimiento.
+     * Filas: [fecha, odontologoId, procedimientoId, procedimientoNombre, COUNT(tratamiento)]
+     */
+    @Query("SELECT cast(t.fechaRealizacion as LocalDate), t.odontologo.id, t.procedimiento.id, " +
+            "t.procedimiento.nombre, COUNT(t) " +
             "FROM TratamientoRealizado t " +
-            "WHERE t.fechaRealizacion BETWEEN :fechaInicio AND :fechaFin " +
-            "AND (:odontologoId IS NULL OR t.odontologo.id = :odontologoId) " +
-            "GROUP BY t.procedimiento.nombre " +
-            "ORDER BY COUNT(t) DESC")
-    List<com.odontoapp.dto.ReporteDTO> obtenerTopTratamientos(
-            @Param("fechaInicio") LocalDateTime fechaInicio,
-            @Param("fechaFin") LocalDateTime fechaFin,
-            @Param("odontologoId") Long odontologoId,
-            Pageable pageable);
+            "WHERE t.fechaRealizacion >= :inicio AND t.fechaRealizacion < :fin " +
+            "GROUP BY cast(t.fechaRealizacion as LocalDate), t.odontologo.id, t.procedimiento.id, " +
+            "t.procedimiento.nombre")
+    List<Object[]> agregarTratamientosPorDia(
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT MIN(t.fechaRealizacion) FROM TratamientoRealizado t")
+    LocalDateTime findPrimeraFechaRealizacion();
 }
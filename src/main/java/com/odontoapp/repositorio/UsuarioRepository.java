@@ -1,5 +1,7 @@
 package com.odontoapp.repositorio;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
@@ -60,6 +62,21 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
         @Query("SELECT u FROM Usuario u JOIN u.roles r WHERE r.nombre = :rolNombre AND u.estaActivo = true AND r.estaActivo = true")
         java.util.List<Usuario> findActiveByRolesNombre(@Param("rolNombre") String rolNombre);
 
+        // Buscar usuarios por nombre de rol sin distinguir mayúsculas (activos o no)
+        @Query("SELECT DISTINCT u FROM Usuario u JOIN u.roles r WHERE UPPER(r.nombre) = UPPER(:rolNombre)")
+        java.util.List<Usuario> findByRolesNombreIgnoreCase(@Param("rolNombre") String rolNombre);
+
+        // --- Directorio de personal: una fila por (rol, usuario) sin cargar entidades ---
+        @Query("SELECT r.nombre, r.estaActivo, u.id, u.nombreCompleto, u.email, u.telefono, u.estaActivo " +
+                        "FROM Usuario u JOIN u.roles r " +
+                        "WHERE u.eliminado = false AND r.eliminado = false AND r.nombre <> 'PACIENTE' " +
+                        "ORDER BY u.nombreCompleto, u.id")
+        java.util.List<Object[]> findDirectorioPersonal();
+
+        @Query(value = "SELECT usuario_id, dia_semana, horas FROM usuario_horario_regular " +
+                        "WHERE usuario_id IN (:ids)", nativeQuery = true)
+        java.util.List<Object[]> findHorariosRegularesByUsuarioIdIn(@Param("ids") Collection<Long> ids);
+
         /**
          * Busca usuarios activos cuya fecha de vigencia ha vencido.
          * Usado por el scheduler para desactivar usuarios automáticamente.
@@ -131,4 +148,13 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
                         +
                         "AND EXISTS (SELECT 1 FROM Rol rol WHERE rol MEMBER OF u.roles AND rol.nombre != 'PACIENTE')")
         Page<Usuario> findUsuariosConRolesDePersonalByKeyword(@Param("keyword") String keyword, Pageable pageable);
+
+        // Filtra los resultados del índice de búsqueda con las mismas condiciones que el listado de personal
+        @Query("SELECT u.id FROM Usuario u " +
+                        "WHERE u.id IN :ids AND u.eliminado = false " +
+                        "AND EXISTS (SELECT 1 FROM Rol rol WHERE rol MEMBER OF u.roles AND rol.nombre != 'PACIENTE')")
+        List<Long> findIdsConRolesDePersonal(@Param("ids") Collection<Long> ids);
+
+        @Query("SELECT DISTINCT u FROM Usuario u LEFT JOIN FETCH u.roles WHERE u.id IN :ids")
+        List<Usuario> findAllWithRolesByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
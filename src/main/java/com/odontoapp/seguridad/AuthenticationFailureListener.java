@@ -4,6 +4,7 @@ import com.odontoapp.servicio.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -12,9 +13,18 @@ public class AuthenticationFailureListener implements ApplicationListener<Authen
     @Autowired
     private UsuarioService usuarioService;
 
+    @Autowired
+    private LimitadorIntentosLogin limitadorIntentosLogin;
+
     @Override
     public void onApplicationEvent(AuthenticationFailureBadCredentialsEvent event) {
         String email = (String) event.getAuthentication().getPrincipal();
-        usuarioService.procesarLoginFallido(email);
+        String ip = event.getAuthentication().getDetails() instanceof WebAuthenticationDetails detalles
+                ? detalles.getRemoteAddress()
+                : null;
+        // Los fallos se cuentan en memoria; solo el paso a bloqueado se guarda en la base de datos
+        if (limitadorIntentosLogin.registrarFallo(email, ip)) {
+            usuarioService.bloquearPorIntentosFallidos(email);
+        }
     }
-}
\ No newline at end of file
+}
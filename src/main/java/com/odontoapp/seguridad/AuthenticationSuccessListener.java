@@ -1,6 +1,5 @@
 package com.odontoapp.seguridad;
 
-import com.odontoapp.servicio.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
@@ -10,11 +9,11 @@ import org.springframework.stereotype.Component;
 public class AuthenticationSuccessListener implements ApplicationListener<AuthenticationSuccessEvent> {
 
     @Autowired
-    private UsuarioService usuarioService;
+    private LimitadorIntentosLogin limitadorIntentosLogin;
 
     @Override
     public void onApplicationEvent(AuthenticationSuccessEvent event) {
-        String email = event.getAuthentication().getName();
-        usuarioService.resetearIntentosFallidos(email);
+        // Un bloqueo persistido ya vencido se limpia en CustomUserDetailsService; aquí basta con la memoria
+        limitadorIntentosLogin.reiniciar(event.getAuthentication().getName());
     }
-}
\ No newline at end of file
+}
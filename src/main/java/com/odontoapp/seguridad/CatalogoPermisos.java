@@ -0,0 +1,306 @@
+package com.odontoapp.seguridad;
+
+import com.odontoapp.entidad.Permiso;
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.evento.PersonalModificadoEvent;
+import com.odontoapp.repositorio.PermisoRepository;
+import com.odontoapp.repositorio.RolRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modelo compilado de permisos: cada permiso ("ACCION_MODULO") recibe un ordinal denso y cada rol
+ * un mapa de bits (long[]) con sus permisos. Las verificaciones de autorización se reducen a
+ * probar bits en lugar de recorrer y comparar las cadenas de las authorities.
+ *
+ * Los bits de un usuario son la unión de los de sus roles ("ROLE_X" en la autenticación); cada
+ * combinación de roles se une una sola vez por compilación y dentro de una petición el resultado
+ * se guarda en un atributo de la request, así que no depende de la identidad de los objetos de la
+ * sesión (que cambian al deserializarla con sesiones compartidas). Un rol inactivo o eliminado no
+ * aporta permisos. Las authorities que no son permisos del catálogo se buscan en la lista, como hace
+ * Spring Security.
+ *
+ * La compilación es una instantánea inmutable que se reemplaza de una vez. En este nodo se recompila
+ * tras el commit de cualquier cambio de roles ({@link PersonalModificadoEvent} con rol); para los
+ * cambios hechos en otro nodo, RolServiceImpl sube la columna roles.generacion_permisos y aquí se
+ * compara su máximo con el de la compilación como mucho cada {@code seguridad.permisos.verificacion}.
+ */
+@Component
+public class CatalogoPermisos {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoPermisos.class);
+
+    private static final String PREFIJO_ROL = "ROLE_";
+    private static final String ATRIBUTO_PETICION = CatalogoPermisos.class.getName() + ".permisos";
+    private static final long[] SIN_PERMISOS = new long[0];
+    // Un rol desconocido fuerza la verificación, pero no más de una vez por segundo
+    private static final long PAUSA_VERIFICACION_FORZADA_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Ordinales por nombre, nombres por ordinal, bits por nombre de rol y uniones ya calculadas
+     * por combinación de roles.
+     */
+    private record Compilacion(long generacion, Map<String, Integer> ordinales, String[] nombres,
+            Map<String, long[]> porRol, Map<Set<String>, long[]> uniones) {
+    }
+
+    /**
+     * Permisos resueltos para una autenticación durante una petición.
+     */
+    private record Resueltos(Authentication authentication, Compilacion compilacion, long[] bits) {
+    }
+
+    private final PermisoRepository permisoRepository;
+    private final RolRepository rolRepository;
+    private final long intervaloVerificacionNanos;
+
+    private volatile Compilacion compilacion;
+    private volatile long ultimaVerificacion = System.nanoTime();
+
+    public CatalogoPermisos(PermisoRepository permisoRepository, RolRepository rolRepository,
+            @Value("${seguridad.permisos.verificacion:5s}") Duration intervaloVerificacion) {
+        this.permisoRepository = permisoRepository;
+        this.rolRepository = rolRepository;
+        this.intervaloVerificacionNanos = intervaloVerificacion.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        recompilar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonalModificado(PersonalModificadoEvent evento) {
+        if (evento.rolId() != null) {
+            recompilar();
+        }
+    }
+
+    /**
+     * Vuelve a leer permisos y roles y publica la nueva compilación de una sola vez.
+     */
+    public synchronized void recompilar() {
+        long inicio = System.nanoTime();
+        // Antes que los roles: un cambio que se confirme durante la lectura se verá en la próxima verificación
+        long generacion = rolRepository.maxGeneracionPermisos();
+
+        // Orden por ID: los permisos nuevos se agregan al final sin mover los ordinales existentes
+        List<Permiso> permisos = new ArrayList<>(permisoRepository.findAll());
+        permisos.sort(Comparator.comparing(Permiso::getId));
+
+        Map<String, Integer> ordinales = new HashMap<>(permisos.size() * 2);
+        List<String> nombres = new ArrayList<>(permisos.size());
+        for (Permiso permiso : permisos) {
+            String nombre = permiso.getNombre();
+            if (!ordinales.containsKey(nombre)) {
+                ordinales.put(nombre, nombres.size());
+                nombres.add(nombre);
+            }
+        }
+
+        Map<String, long[]> porRol = new HashMap<>();
+        for (Rol rol : rolRepository.findAllConPermisos()) {
+            long[] bits = new long[palabras(nombres.size())];
+            if (rol.isEstaActivo() && rol.getPermisos() != null) {
+                for (Permiso permiso : rol.getPermisos()) {
+                    Integer ordinal = ordinales.get(permiso.getNombre());
+                    if (ordinal != null) {
+                        bits[ordinal >>> 6] |= 1L << ordinal;
+                    }
+                }
+            }
+            porRol.put(rol.getNombre(), bits);
+        }
+
+        compilacion = new Compilacion(generacion, Map.copyOf(ordinales), nombres.toArray(String[]::new),
+                Map.copyOf(porRol), new ConcurrentHashMap<>());
+        ultimaVerificacion = System.nanoTime();
+        log.info("Permisos compilados (generación {}): {} permisos, {} roles en {} ms", generacion,
+                nombres.size(), porRol.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Indica si la autenticación tiene la authority. Los permisos del catálogo se resuelven con un bit;
+     * cualquier otra authority (roles) se busca en la lista como antes.
+     */
+    public boolean tiene(Authentication authentication, String autoridad) {
+        Resueltos resueltos = resolver(authentication);
+        Integer ordinal = autoridad == null ? null : resueltos.compilacion().ordinales().get(autoridad);
+        if (ordinal == null) {
+            return tieneAutoridadLiteral(authentication, autoridad);
+        }
+        return contiene(resueltos.bits(), ordinal);
+    }
+
+    public boolean tieneAlguno(Authentication authentication, String... autoridades) {
+        Resueltos resueltos = resolver(authentication);
+        for (String autoridad : autoridades) {
+            Integer ordinal = autoridad == null ? null : resueltos.compilacion().ordinales().get(autoridad);
+            if (ordinal == null ? tieneAutoridadLiteral(authentication, autoridad)
+                    : contiene(resueltos.bits(), ordinal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Nombres de los permisos del catálogo que tiene la autenticación (sin roles).
+     */
+    public List<String> nombresDe(Authentication authentication) {
+        Resueltos resueltos = resolver(authentication);
+        String[] nombres = resueltos.compilacion().nombres();
+        long[] bits = resueltos.bits();
+        List<String> resultado = new ArrayList<>();
+        for (int palabra = 0; palabra < bits.length; palabra++) {
+            long resto = bits[palabra];
+            while (resto != 0) {
+                int ordinal = (palabra << 6) + Long.numberOfTrailingZeros(resto);
+                if (ordinal < nombres.length) {
+                    resultado.add(nombres[ordinal]);
+                }
+                resto &= resto - 1;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Bits de la autenticación, calculados una vez por petición. Fuera de una petición (tareas,
+     * pruebas) se resuelven en cada llamada, lo que solo cuesta recorrer sus authorities.
+     */
+    private Resueltos resolver(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return new Resueltos(authentication, vigente(false), SIN_PERMISOS);
+        }
+        HttpServletRequest peticion = peticionActual();
+        if (peticion != null && peticion.getAttribute(ATRIBUTO_PETICION) instanceof Resueltos guardados
+                && guardados.authentication() == authentication) {
+            return guardados;
+        }
+
+        Set<String> roles = new HashSet<>();
+        for (GrantedAuthority autoridad : authentication.getAuthorities()) {
+            String nombre = autoridad.getAuthority();
+            if (nombre != null && nombre.startsWith(PREFIJO_ROL)) {
+                roles.add(nombre.substring(PREFIJO_ROL.length()));
+            }
+        }
+        Compilacion actual = vigente(false);
+        if (!actual.porRol().keySet().containsAll(roles)) {
+            // Rol creado en otro nodo después de la última verificación (o ya eliminado)
+            actual = vigente(true);
+        }
+        Compilacion usada = actual;
+        long[] bits = usada.uniones().computeIfAbsent(Set.copyOf(roles), r -> unir(usada, r));
+
+        Resueltos resueltos = new Resueltos(authentication, usada, bits);
+        if (peticion != null) {
+            peticion.setAttribute(ATRIBUTO_PETICION, resueltos);
+        }
+        return resueltos;
+    }
+
+    /**
+     * Compilación actual, recompilada antes si la generación de roles en la BD ya no coincide.
+     */
+    private Compilacion vigente(boolean forzar) {
+        Compilacion actual = obtenerCompilacion();
+        long espera = forzar ? PAUSA_VERIFICACION_FORZADA_NANOS : intervaloVerificacionNanos;
+        long ahora = System.nanoTime();
+        if (ahora - ultimaVerificacion < espera) {
+            return actual;
+        }
+        synchronized (this) {
+            if (ahora - ultimaVerificacion < espera) {
+                return compilacion;
+            }
+            ultimaVerificacion = ahora;
+            try {
+                if (rolRepository.maxGeneracionPermisos() != compilacion.generacion()) {
+                    recompilar();
+                }
+            } catch (RuntimeException e) {
+                log.warn("No se pudo verificar la generación de permisos: {}", e.getMessage());
+            }
+            return compilacion;
+        }
+    }
+
+    private static long[] unir(Compilacion compilacion, Set<String> roles) {
+        long[] bits = new long[palabras(compilacion.nombres().length)];
+        for (String rol : roles) {
+            long[] bitsRol = compilacion.porRol().get(rol);
+            if (bitsRol != null) {
+                for (int i = 0; i < bitsRol.length; i++) {
+                    bits[i] |= bitsRol[i];
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static boolean contiene(long[] bits, int ordinal) {
+        int palabra = ordinal >>> 6;
+        return palabra < bits.length && (bits[palabra] & (1L << ordinal)) != 0;
+    }
+
+    private Compilacion obtenerCompilacion() {
+        Compilacion actual = compilacion;
+        if (actual == null) {
+            synchronized (this) {
+                if (compilacion == null) {
+                    recompilar();
+                }
+                actual = compilacion;
+            }
+        }
+        return actual;
+    }
+
+    private static boolean tieneAutoridadLiteral(Authentication authentication, String autoridad) {
+        if (authentication == null || autoridad == null) {
+            return false;
+        }
+        for (GrantedAuthority concedida : authentication.getAuthorities()) {
+            if (autoridad.equals(concedida.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static HttpServletRequest peticionActual() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos) {
+            return atributos.getRequest();
+        }
+        return null;
+    }
+
+    private static int palabras(int permisos) {
+        return (permisos + 63) >>> 6;
+    }
+}
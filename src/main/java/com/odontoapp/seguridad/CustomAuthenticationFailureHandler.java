@@ -5,6 +5,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.core.AuthenticationException;
@@ -25,13 +26,16 @@ import jakarta.servlet.http.HttpServletResponse;
 @Component
 public class CustomAuthenticationFailureHandler extends SimpleUrlAuthenticationFailureHandler {
 
-    private static final int MAX_INTENTOS_FALLIDOS = 3;
-    private static final int TIEMPO_BLOQUEO_MINUTOS = 15;
-
     private final UsuarioRepository usuarioRepository;
+    private final LimitadorIntentosLogin limitadorIntentosLogin;
+    private final int bloqueoMinutos;
 
-    public CustomAuthenticationFailureHandler(UsuarioRepository usuarioRepository) {
+    public CustomAuthenticationFailureHandler(UsuarioRepository usuarioRepository,
+            LimitadorIntentosLogin limitadorIntentosLogin,
+            @Value("${seguridad.login.bloqueo-minutos:15}") int bloqueoMinutos) {
         this.usuarioRepository = usuarioRepository;
+        this.limitadorIntentosLogin = limitadorIntentosLogin;
+        this.bloqueoMinutos = bloqueoMinutos;
         setDefaultFailureUrl("/login?error");
     }
 
@@ -43,29 +47,24 @@ public class CustomAuthenticationFailureHandler extends SimpleUrlAuthenticationF
         String errorMessage = "";
 
         // Verificar el tipo de excepción
-        if (exception instanceof LockedException) {
+        if (exception instanceof LoginLimitadoException limitado) {
+            // Rechazado por el limitador en memoria, sin consultar la base de datos
+            errorMessage = limitado.isPorIp()
+                    ? "Demasiados intentos fallidos desde esta conexión. " + tiempoRestante(limitado.getRestante())
+                    : "Cuenta bloqueada. " + tiempoRestante(limitado.getRestante());
+        } else if (exception instanceof LockedException) {
             // Cuenta bloqueada - Calcular tiempo restante
             Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(email);
             if (usuarioOpt.isPresent()) {
                 Usuario usuario = usuarioOpt.get();
                 if (usuario.getFechaBloqueo() != null) {
-                    LocalDateTime tiempoDesbloqueo = usuario.getFechaBloqueo().plusMinutes(TIEMPO_BLOQUEO_MINUTOS);
+                    LocalDateTime tiempoDesbloqueo = usuario.getFechaBloqueo().plusMinutes(bloqueoMinutos);
                     Duration duracion = Duration.between(LocalDateTime.now(), tiempoDesbloqueo);
 
                     if (duracion.isNegative() || duracion.isZero()) {
                         errorMessage = "Tu cuenta estuvo bloqueada temporalmente. Por favor, intenta nuevamente.";
                     } else {
-                        long minutosRestantes = duracion.toMinutes();
-                        if (minutosRestantes > 0) {
-                            errorMessage = String.format("Cuenta bloqueada. Intenta nuevamente en %d minuto%s.",
-                                minutosRestantes,
-                                minutosRestantes > 1 ? "s" : "");
-                        } else {
-                            long segundosRestantes = duracion.getSeconds();
-                            errorMessage = String.format("Cuenta bloqueada. Intenta nuevamente en %d segundo%s.",
-                                segundosRestantes,
-                                segundosRestantes > 1 ? "s" : "");
-                        }
+                        errorMessage = "Cuenta bloqueada. " + tiempoRestante(duracion);
                     }
                 }
             } else {
@@ -75,21 +74,14 @@ public class CustomAuthenticationFailureHandler extends SimpleUrlAuthenticationF
             // Cuenta desactivada
             errorMessage = "Tu cuenta está inactiva. Contacta al administrador.";
         } else {
-            // Credenciales incorrectas - Mostrar intentos restantes
-            Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(email);
-            if (usuarioOpt.isPresent()) {
-                Usuario usuario = usuarioOpt.get();
-                int intentosRestantes = MAX_INTENTOS_FALLIDOS - usuario.getIntentosFallidos();
-
-                if (intentosRestantes > 0) {
-                    errorMessage = String.format("Email o contraseña incorrectos. Te quedan %d intento%s.",
-                        intentosRestantes,
-                        intentosRestantes > 1 ? "s" : "");
-                } else {
-                    errorMessage = "Email o contraseña incorrectos.";
-                }
+            // Credenciales incorrectas - Mostrar intentos restantes (contador en memoria).
+            // Se muestra también para emails inexistentes, para no revelar qué cuentas existen.
+            int intentosRestantes = limitadorIntentosLogin.intentosRestantes(email);
+            if (intentosRestantes > 0) {
+                errorMessage = String.format("Email o contraseña incorrectos. Te quedan %d intento%s.",
+                    intentosRestantes,
+                    intentosRestantes > 1 ? "s" : "");
             } else {
-                // Usuario no existe
                 errorMessage = "Email o contraseña incorrectos.";
             }
         }
@@ -100,4 +92,17 @@ public class CustomAuthenticationFailureHandler extends SimpleUrlAuthenticationF
         // Continuar con el flujo normal
         super.onAuthenticationFailure(request, response, exception);
     }
+
+    private static String tiempoRestante(Duration duracion) {
+        long minutosRestantes = duracion.toMinutes();
+        if (minutosRestantes > 0) {
+            return String.format("Intenta nuevamente en %d minuto%s.",
+                minutosRestantes,
+                minutosRestantes > 1 ? "s" : "");
+        }
+        long segundosRestantes = Math.max(1, duracion.getSeconds());
+        return String.format("Intenta nuevamente en %d segundo%s.",
+            segundosRestantes,
+            segundosRestantes > 1 ? "s" : "");
+    }
 }
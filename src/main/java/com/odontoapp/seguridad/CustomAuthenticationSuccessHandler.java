@@ -2,7 +2,6 @@ package com.odontoapp.seguridad;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Optional;
 import java.time.LocalDateTime;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +18,8 @@ import org.springframework.util.StringUtils; // Para verificar la URL
 
 import com.odontoapp.entidad.Usuario;
 import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.RegistroAccesoService;
+import com.odontoapp.servicio.SesionUsuarioService;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -32,12 +33,17 @@ public class CustomAuthenticationSuccessHandler implements AuthenticationSuccess
 
     private RequestCache requestCache = new HttpSessionRequestCache();
     private final UsuarioRepository usuarioRepository;
+    private final SesionUsuarioService sesionUsuarioService;
+    private final RegistroAccesoService registroAccesoService;
 
     // Define la ruta de error por defecto de Spring Boot
     private static final String DEFAULT_ERROR_PATH = "/error";
 
-    public CustomAuthenticationSuccessHandler(UsuarioRepository usuarioRepository) {
+    public CustomAuthenticationSuccessHandler(UsuarioRepository usuarioRepository,
+            SesionUsuarioService sesionUsuarioService, RegistroAccesoService registroAccesoService) {
         this.usuarioRepository = usuarioRepository;
+        this.sesionUsuarioService = sesionUsuarioService;
+        this.registroAccesoService = registroAccesoService;
     }
 
     @Override
@@ -49,21 +55,6 @@ public class CustomAuthenticationSuccessHandler implements AuthenticationSuccess
         String username = authentication.getName();
         Usuario usuario = null;
 
-        try {
-            Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(username);
-            if (usuarioOpt.isPresent()) {
-                usuario = usuarioOpt.get(); // Assign to the 'usuario' variable
-                usuario.setUltimoAcceso(LocalDateTime.now()); // Set current time
-                usuarioRepository.save(usuario); // Save the change
-                log.info("Último acceso actualizado para {}", username);
-            } else {
-                log.warn("Usuario '{}' autenticado pero no encontrado en BD para actualizar último acceso.", username);
-            }
-        } catch (Exception e) {
-            log.error("¡ERROR al buscar o actualizar último acceso para '{}'!", username, e);
-            // Decide if you want to proceed even if update fails, or handle differently
-        }
-
         try {
             usuario = usuarioRepository.findByEmail(username).orElse(null);
             if (usuario == null) {
@@ -71,11 +62,18 @@ public class CustomAuthenticationSuccessHandler implements AuthenticationSuccess
             } else {
                 log.info("Usuario encontrado: {}, Debe cambiar Pwd: {}", usuario.getEmail(),
                         usuario.isDebeActualizarPassword());
+                // Se escribe en segundo plano, agrupado con otros logins
+                registroAccesoService.registrarAcceso(usuario.getId(), LocalDateTime.now());
             }
         } catch (Exception e) {
             log.error("¡ERROR al buscar el usuario '{}' en la base de datos después del login!", username, e);
         }
 
+        // Datos del usuario para las siguientes peticiones (evita consultarlo en cada vista)
+        if (usuario != null) {
+            sesionUsuarioService.registrar(request.getSession(), usuario);
+        }
+
         // ✅ VALIDACIÓN DE LOGIN DUAL
         String loginType = request.getParameter("loginType");
         log.info("Login type recibido: '{}'", loginType);
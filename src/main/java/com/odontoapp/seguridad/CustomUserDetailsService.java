@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.core.GrantedAuthority;
@@ -19,21 +20,23 @@ import com.odontoapp.entidad.Permiso;
 import com.odontoapp.entidad.Rol;
 import com.odontoapp.entidad.Usuario;
 import com.odontoapp.repositorio.UsuarioRepository;
-import com.odontoapp.servicio.UsuarioService;
+import com.odontoapp.servicio.RegistroAccesoService;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UsuarioRepository usuarioRepository;
-    private final UsuarioService usuarioService;
+    private final RegistroAccesoService registroAccesoService;
+    private final int bloqueoMinutos;
 
-    public CustomUserDetailsService(UsuarioRepository usuarioRepository, UsuarioService usuarioService) {
+    public CustomUserDetailsService(UsuarioRepository usuarioRepository,
+            RegistroAccesoService registroAccesoService,
+            @Value("${seguridad.login.bloqueo-minutos:15}") int bloqueoMinutos) {
         this.usuarioRepository = usuarioRepository;
-        this.usuarioService = usuarioService;
+        this.registroAccesoService = registroAccesoService;
+        this.bloqueoMinutos = bloqueoMinutos;
     }
 
-    private static final int TIEMPO_BLOQUEO_MINUTOS = 15;
-
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         Usuario usuario = usuarioRepository.findByEmailWithRolesAndPermissions(email)
@@ -41,10 +44,11 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         // --- VALIDACIÓN DE BLOQUEO TEMPORAL ---
         if (usuario.getFechaBloqueo() != null) {
-            if (LocalDateTime.now().isBefore(usuario.getFechaBloqueo().plusMinutes(TIEMPO_BLOQUEO_MINUTOS))) {
+            if (LocalDateTime.now().isBefore(usuario.getFechaBloqueo().plusMinutes(bloqueoMinutos))) {
                 throw new LockedException("La cuenta está bloqueada temporalmente.");
             } else {
-                usuarioService.resetearIntentosFallidos(email);
+                // Bloqueo vencido: la limpieza en BD se hace en segundo plano
+                registroAccesoService.registrarDesbloqueo(usuario.getId());
                 usuario.setFechaBloqueo(null);
             }
         }
@@ -71,6 +75,8 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     // --- MÉTODO PARA OBTENER AUTHORITIES ---
     // Cargar TODOS los roles y permisos, el filtrado se hace en /seleccionar-rol
+    // Los permisos salen de los roles recién leídos de la BD. Los usan sec:authorize y las reglas
+    // de URL; @PreAuthorize resuelve con los bits por rol de CatalogoPermisos
     private Collection<? extends GrantedAuthority> getAuthorities(Set<Rol> roles) {
         Set<GrantedAuthority> authorities = new HashSet<>();
 
@@ -78,14 +84,14 @@ public class CustomUserDetailsService implements UserDetailsService {
             // Añadir rol con prefijo ROLE_
             authorities.add(new SimpleGrantedAuthority("ROLE_" + rol.getNombre()));
 
-            // Añadir todos los permisos del rol
+            // Añadir todos los permisos del rol; un permiso repetido entre roles se agrega una vez
             if (rol.getPermisos() != null) {
                 for (Permiso permiso : rol.getPermisos()) {
-                    authorities.add(new SimpleGrantedAuthority(permiso.getAccion() + "_" + permiso.getModulo()));
+                    authorities.add(new SimpleGrantedAuthority(permiso.getNombre()));
                 }
             }
         }
 
         return authorities;
     }
-}
\ No newline at end of file
+}
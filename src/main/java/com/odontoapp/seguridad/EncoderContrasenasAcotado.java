@@ -0,0 +1,195 @@
+package com.odontoapp.seguridad;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PasswordEncoder BCrypt que calcula los hashes en un ejecutor propio y acotado, para que una ráfaga
+ * de logins o altas no ocupe toda la CPU y deje sin turno al resto de las peticiones.
+ *
+ * - Hilos: {@code seguridad.hash.hilos}; con 0, uno menos que los núcleos (mínimo uno) para que
+ *   siempre quede un núcleo libre para el resto de peticiones. La cola admite
+ *   {@code seguridad.hash.cola} trabajos en espera.
+ * - Con la cola llena, una petición HTTP espera como mucho {@code seguridad.hash.espera-ms} y luego
+ *   falla con {@link SobrecargaHashException} (503). Los procesos en segundo plano (importaciones,
+ *   datos iniciales) esperan su turno sin fallar.
+ * - El costo de BCrypt se calibra al arrancar para que un hash tarde cerca de
+ *   {@code seguridad.hash.objetivo-ms} en este equipo. {@code matches} acepta cualquier costo,
+ *   porque el costo va dentro del hash guardado.
+ * - Métricas: odontoapp.hash.cola, odontoapp.hash.activos, odontoapp.hash.rechazados y
+ *   odontoapp.hash.duracion.
+ */
+public class EncoderContrasenasAcotado implements PasswordEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(EncoderContrasenasAcotado.class);
+
+    // Mínimo recomendado por Spring Security y tope para no dejar el login en segundos
+    private static final int COSTO_MINIMO = 10;
+    private static final int COSTO_MAXIMO = 14;
+
+    private final PasswordEncoder delegado;
+    private final ThreadPoolExecutor executor;
+    // Hilos + lugares en cola: quien no consigue permiso no entra
+    private final Semaphore lugares;
+    private final long esperaMs;
+
+    private final Counter rechazados;
+    private final Timer duracion;
+
+    public EncoderContrasenasAcotado(int hilos, int capacidadCola, long esperaMs, long objetivoMs,
+            MeterRegistry meterRegistry) {
+        this(hilos, capacidadCola, esperaMs, calibrar(objetivoMs), meterRegistry);
+    }
+
+    /**
+     * Con el encoder ya construido; las pruebas pasan uno que controla cuánto dura cada hash.
+     */
+    EncoderContrasenasAcotado(int hilos, int capacidadCola, long esperaMs, PasswordEncoder delegado,
+            MeterRegistry meterRegistry) {
+        int totalHilos = totalHilos(hilos, Runtime.getRuntime().availableProcessors());
+        this.delegado = delegado;
+        this.esperaMs = esperaMs;
+        this.lugares = new Semaphore(totalHilos + capacidadCola);
+
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(totalHilos, totalHilos, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread hilo = new Thread(r, "hash-contrasenas-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        log.info("Hashing de contraseñas: {} hilos, cola de {}", totalHilos, capacidadCola);
+
+        Gauge.builder("odontoapp.hash.cola", executor, e -> e.getQueue().size())
+                .description("Hashes de contraseña esperando en la cola")
+                .register(meterRegistry);
+        Gauge.builder("odontoapp.hash.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashes de contraseña en cálculo")
+                .register(meterRegistry);
+        this.rechazados = Counter.builder("odontoapp.hash.rechazados")
+                .description("Peticiones rechazadas con 503 por ejecutor de hashing saturado")
+                .register(meterRegistry);
+        this.duracion = Timer.builder("odontoapp.hash.duracion")
+                .description("Tiempo de cálculo de cada hash de contraseña, sin la espera en cola")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> delegado.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(() -> delegado.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        entrar();
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(() -> {
+                try {
+                    return duracion.recordCallable(tarea);
+                } finally {
+                    lugares.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            lugares.release();
+            throw e;
+        }
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            // No se cancela: la tarea libera su lugar al terminar
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el hash de la contraseña", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Error calculando el hash de la contraseña", e.getCause());
+        }
+    }
+
+    private void entrar() {
+        try {
+            if (RequestContextHolder.getRequestAttributes() == null) {
+                // Segundo plano: no hay usuario esperando una respuesta rápida
+                lugares.acquire();
+                return;
+            }
+            if (!lugares.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                rechazados.increment();
+                log.warn("Ejecutor de hashing saturado ({} en cola); petición rechazada", executor.getQueue().size());
+                throw new SobrecargaHashException(
+                        "El servidor está procesando muchas solicitudes. Intenta nuevamente en unos segundos.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando turno para el hash de la contraseña", e);
+        }
+    }
+
+    static int totalHilos(int hilos, int nucleos) {
+        return hilos > 0 ? hilos : Math.max(1, nucleos - 1);
+    }
+
+    // Mide el costo mínimo en este equipo y elige el costo más cercano al objetivo
+    private static BCryptPasswordEncoder calibrar(long objetivoMs) {
+        BCryptPasswordEncoder prueba = new BCryptPasswordEncoder(COSTO_MINIMO);
+        prueba.encode("calentamiento");
+        long mejorNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long inicio = System.nanoTime();
+            prueba.encode("calibracion");
+            mejorNanos = Math.min(mejorNanos, System.nanoTime() - inicio);
+        }
+        int costo = costoCalibrado(mejorNanos / 1_000_000.0, objetivoMs);
+        log.info("Hashing de contraseñas: BCrypt costo {} (objetivo {} ms, costo {} medido en {} ms)",
+                costo, objetivoMs, COSTO_MINIMO, Math.round(mejorNanos / 1_000_000.0));
+        return new BCryptPasswordEncoder(costo);
+    }
+
+    /**
+     * Sube de a uno desde el costo mínimo (cada punto duplica el tiempo) mientras el siguiente quede
+     * más cerca del objetivo, sin pasar del máximo.
+     */
+    static int costoCalibrado(double msCostoMinimo, long objetivoMs) {
+        double ms = msCostoMinimo;
+        int costo = COSTO_MINIMO;
+        while (costo < COSTO_MAXIMO && Math.abs(ms * 2 - objetivoMs) < Math.abs(ms - objetivoMs)) {
+            ms *= 2;
+            costo++;
+        }
+        return costo;
+    }
+}
@@ -0,0 +1,60 @@
+package com.odontoapp.seguridad;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Rechaza el POST de login de una cuenta o IP bloqueada por {@link LimitadorIntentosLogin} antes de
+ * que llegue al filtro de autenticación, sin consultar la base de datos ni calcular el hash de la
+ * contraseña. Se registra en SecurityConfig delante de UsernamePasswordAuthenticationFilter.
+ * También responde 503 si el ejecutor de hashing está saturado ({@link SobrecargaHashException}).
+ */
+public class FiltroLimiteIntentosLogin extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroLimiteIntentosLogin.class);
+
+    private final LimitadorIntentosLogin limitador;
+    private final AuthenticationFailureHandler failureHandler;
+
+    public FiltroLimiteIntentosLogin(LimitadorIntentosLogin limitador, AuthenticationFailureHandler failureHandler) {
+        this.limitador = limitador;
+        this.failureHandler = failureHandler;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !"/login".equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String email = request.getParameter("username");
+        // Ya resuelta por el contenedor a partir de X-Forwarded-For (server.forward-headers-strategy);
+        // si sigue siendo la del proxy, el limitador no le aplica el límite por IP
+        String ip = request.getRemoteAddr();
+        Duration restante = limitador.bloqueoRestante(email, ip);
+        if (restante == null) {
+            try {
+                chain.doFilter(request, response);
+            } catch (SobrecargaHashException e) {
+                // Ejecutor de hashing saturado: se corta rápido en vez de encolar más logins
+                response.setHeader("Retry-After", String.valueOf(SobrecargaHashException.REINTENTAR_SEGUNDOS));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+            }
+            return;
+        }
+        boolean porIp = limitador.bloqueadoPorIp(ip);
+        log.warn("Login rechazado por límite de intentos: email='{}', ip={}, por IP={}", email, ip, porIp);
+        failureHandler.onAuthenticationFailure(request, response, new LoginLimitadoException(restante, porIp));
+    }
+}
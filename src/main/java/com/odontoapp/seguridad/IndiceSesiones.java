@@ -0,0 +1,27 @@
+package com.odontoapp.seguridad;
+
+import org.springframework.security.core.session.SessionInformation;
+
+import java.util.List;
+
+/**
+ * Búsqueda de sesiones autenticadas para invalidarlas. Lo implementan el registro en memoria
+ * ({@link RegistroSesionesIndexado}) y el de sesiones compartidas en BD ({@link RegistroSesionesJdbc}).
+ */
+public interface IndiceSesiones {
+
+    /**
+     * Sesiones no expiradas de los usuarios que tienen el rol (nombre sin prefijo, p. ej. "ADMIN").
+     */
+    List<SessionInformation> getSesionesPorRol(String rol);
+
+    /**
+     * Sesiones no expiradas del usuario con ese email.
+     */
+    List<SessionInformation> getSesionesPorEmail(String email);
+
+    /**
+     * Todas las sesiones autenticadas no expiradas.
+     */
+    List<SessionInformation> getSesionesActivas();
+}
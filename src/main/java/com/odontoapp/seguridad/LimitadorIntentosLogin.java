@@ -0,0 +1,298 @@
+package com.odontoapp.seguridad;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Limitador de intentos de login en memoria, por email y por IP, con ventana deslizante.
+ *
+ * Cada clave tiene un contador sin bloqueos (CAS sobre un estado inmutable) que estima los fallos
+ * de la última ventana ponderando la ventana anterior. Al alcanzar el máximo la clave queda
+ * bloqueada por un tiempo; solo ese paso a bloqueado se informa (una vez) para persistirlo en
+ * {@code usuarios.fecha_bloqueo}. Los intentos rechazados aquí no llegan a verificar la contraseña.
+ *
+ * Los mapas tienen un tamaño máximo y se purgan periódicamente de las claves inactivas. Si un mapa
+ * sigue lleno tras purgarlo (p. ej. un ataque con miles de emails o IPs distintos):
+ * <ul>
+ * <li>por IP se falla cerrado: las IPs sin contador quedan limitadas hasta que se libere lugar;</li>
+ * <li>por email se desaloja el contador no bloqueado más antiguo de una muestra, y si todos los
+ * muestreados están bloqueados el fallo no se cuenta (falla abierto). Cerrar también por email
+ * dejaría sin login a todas las cuentas que no tuvieran fallos previos.</li>
+ * </ul>
+ *
+ * La IP es la que resuelve el contenedor: detrás del balanceador hay que configurar
+ * {@code server.forward-headers-strategy=native} y {@code server.tomcat.remoteip.internal-proxies}.
+ * Una IP que coincide con {@code seguridad.login.proxies} (por defecto, las mismas internal-proxies)
+ * es la del propio proxy y la comparten todos los clientes; para ella no se aplica el límite por IP,
+ * solo el de la cuenta.
+ */
+@Component
+public class LimitadorIntentosLogin {
+
+    private static final Logger log = LoggerFactory.getLogger(LimitadorIntentosLogin.class);
+
+    /**
+     * Contadores de la ventana actual y la anterior, y fin del bloqueo (0 si no está bloqueado).
+     */
+    private record Estado(long inicioVentana, int anterior, int actual, long bloqueadoHasta) {
+    }
+
+    private static final class Contador {
+        private final AtomicReference<Estado> estado;
+
+        private Contador(long ahora) {
+            this.estado = new AtomicReference<>(new Estado(ahora, 0, 0, 0));
+        }
+    }
+
+    /**
+     * Límite de una dimensión (email o IP).
+     */
+    private record Politica(int maxIntentos, long ventanaMs, long bloqueoMs) {
+    }
+
+    /**
+     * Contadores de una dimensión. Con {@code falloCerrado}, {@code saturadoHasta} limita las claves
+     * nuevas mientras el mapa está lleno; sin él solo espacia el aviso en el log.
+     */
+    private static final class Dimension {
+        private final String nombre;
+        private final Politica politica;
+        private final boolean falloCerrado;
+        private final Map<String, Contador> contadores = new ConcurrentHashMap<>();
+        private volatile long saturadoHasta;
+
+        private Dimension(String nombre, Politica politica, boolean falloCerrado) {
+            this.nombre = nombre;
+            this.politica = politica;
+            this.falloCerrado = falloCerrado;
+        }
+    }
+
+    // Contadores que se revisan para elegir cuál desalojar cuando el mapa por email está lleno
+    private static final int MUESTRA_DESALOJO = 16;
+
+    private final Dimension porEmail;
+    private final Dimension porIp;
+    private final int maxEntradas;
+    private final Pattern proxies;
+    private final Clock reloj;
+
+    @Autowired
+    public LimitadorIntentosLogin(
+            @Value("${seguridad.login.max-intentos:3}") int maxIntentosEmail,
+            @Value("${seguridad.login.bloqueo-minutos:15}") int bloqueoMinutos,
+            @Value("${seguridad.login.max-intentos-ip:30}") int maxIntentosIp,
+            @Value("${seguridad.login.ventana-ip-minutos:5}") int ventanaIpMinutos,
+            @Value("${seguridad.login.max-entradas:100000}") int maxEntradas,
+            @Value("${seguridad.login.proxies:${server.tomcat.remoteip.internal-proxies:}}") String proxies) {
+        this(maxIntentosEmail, bloqueoMinutos, maxIntentosIp, ventanaIpMinutos, maxEntradas, proxies,
+                Clock.systemUTC());
+    }
+
+    LimitadorIntentosLogin(int maxIntentosEmail, int bloqueoMinutos, int maxIntentosIp, int ventanaIpMinutos,
+            int maxEntradas, String proxies, Clock reloj) {
+        long bloqueoMs = Duration.ofMinutes(bloqueoMinutos).toMillis();
+        long ventanaIpMs = Duration.ofMinutes(ventanaIpMinutos).toMillis();
+        this.porEmail = new Dimension("email", new Politica(maxIntentosEmail, bloqueoMs, bloqueoMs), false);
+        this.porIp = new Dimension("IP", new Politica(maxIntentosIp, ventanaIpMs, ventanaIpMs), true);
+        this.maxEntradas = maxEntradas;
+        this.proxies = proxies == null || proxies.isBlank() ? null : Pattern.compile(proxies);
+        this.reloj = reloj;
+    }
+
+    /**
+     * Tiempo que falta para poder intentar de nuevo, o null si el intento está permitido.
+     * No modifica los contadores.
+     */
+    public Duration bloqueoRestante(String email, String ip) {
+        long ahora = reloj.millis();
+        long hasta = Math.max(bloqueadoHasta(porEmail, clave(email)), bloqueadoHasta(porIp, claveIp(ip)));
+        return hasta > ahora ? Duration.ofMillis(hasta - ahora) : null;
+    }
+
+    /**
+     * Indica si el bloqueo vigente es por IP (y no por la cuenta).
+     */
+    public boolean bloqueadoPorIp(String ip) {
+        return bloqueadoHasta(porIp, claveIp(ip)) > reloj.millis();
+    }
+
+    /**
+     * Indica si la IP identifica al cliente y se le aplica el límite por IP (no es la de un proxy).
+     */
+    public boolean ipConfiable(String ip) {
+        return !claveIp(ip).isEmpty();
+    }
+
+    /**
+     * Registra un intento fallido.
+     *
+     * @return true solo para el intento que bloquea la cuenta (el que hay que persistir)
+     */
+    public boolean registrarFallo(String email, String ip) {
+        long ahora = reloj.millis();
+        registrar(porIp, claveIp(ip), ahora);
+        return registrar(porEmail, clave(email), ahora);
+    }
+
+    /**
+     * Intentos que le quedan a la cuenta antes del bloqueo.
+     */
+    public int intentosRestantes(String email) {
+        Politica politica = porEmail.politica;
+        Contador contador = porEmail.contadores.get(clave(email));
+        if (contador == null) {
+            return politica.maxIntentos();
+        }
+        long ahora = reloj.millis();
+        Estado estado = avanzar(contador.estado.get(), ahora, politica.ventanaMs());
+        return Math.max(0, politica.maxIntentos() - estimar(estado, ahora, politica));
+    }
+
+    /**
+     * Olvida los fallos de la cuenta (login correcto o desbloqueo manual).
+     */
+    public void reiniciar(String email) {
+        porEmail.contadores.remove(clave(email));
+    }
+
+    @Scheduled(fixedDelayString = "${seguridad.login.purga-ms:60000}")
+    public void purgar() {
+        long ahora = reloj.millis();
+        int antes = porEmail.contadores.size() + porIp.contadores.size();
+        purgar(porEmail, ahora);
+        purgar(porIp, ahora);
+        int despues = porEmail.contadores.size() + porIp.contadores.size();
+        if (antes != despues) {
+            log.debug("Limitador de login: {} contadores inactivos eliminados, {} activos", antes - despues, despues);
+        }
+    }
+
+    private boolean registrar(Dimension dimension, String clave, long ahora) {
+        if (clave.isEmpty()) {
+            return false;
+        }
+        Politica politica = dimension.politica;
+        Map<String, Contador> contadores = dimension.contadores;
+        Contador contador = contadores.get(clave);
+        if (contador == null) {
+            if (contadores.size() >= maxEntradas) {
+                purgar(dimension, ahora);
+                if (contadores.size() >= maxEntradas && (dimension.falloCerrado || !desalojar(dimension, ahora))) {
+                    // Sin lugar para contar más claves: por IP las que no tienen contador quedan limitadas;
+                    // por email este fallo simplemente no se cuenta
+                    if (dimension.saturadoHasta <= ahora) {
+                        log.warn("Limitador de login por {} lleno ({} claves); {}", dimension.nombre, maxEntradas,
+                                dimension.falloCerrado ? "se rechazan claves nuevas" : "no se cuentan claves nuevas");
+                    }
+                    dimension.saturadoHasta = ahora + politica.bloqueoMs();
+                    return false;
+                }
+            }
+            contador = contadores.computeIfAbsent(clave, k -> new Contador(ahora));
+        }
+
+        while (true) {
+            Estado previo = contador.estado.get();
+            if (previo.bloqueadoHasta() > ahora) {
+                // Ya bloqueado: el intento no debería haber llegado, no se cuenta de nuevo
+                return false;
+            }
+            Estado avanzado = avanzar(previo, ahora, politica.ventanaMs());
+            Estado nuevo = new Estado(avanzado.inicioVentana(), avanzado.anterior(), avanzado.actual() + 1, 0);
+            boolean bloquea = estimar(nuevo, ahora, politica) >= politica.maxIntentos();
+            if (bloquea) {
+                // Tras el bloqueo se empieza de cero
+                nuevo = new Estado(ahora, 0, 0, ahora + politica.bloqueoMs());
+            }
+            if (contador.estado.compareAndSet(previo, nuevo)) {
+                return bloquea;
+            }
+        }
+    }
+
+    private long bloqueadoHasta(Dimension dimension, String clave) {
+        if (clave.isEmpty()) {
+            return 0;
+        }
+        Contador contador = dimension.contadores.get(clave);
+        if (contador != null) {
+            return contador.estado.get().bloqueadoHasta();
+        }
+        // Clave sin contador: limitada mientras el mapa siga lleno, solo si la dimensión falla cerrado
+        return dimension.falloCerrado && dimension.contadores.size() >= maxEntradas ? dimension.saturadoHasta : 0;
+    }
+
+    /**
+     * Quita el contador no bloqueado con la ventana más antigua entre los primeros de una muestra.
+     * Los bloqueados se conservan para que inundar el mapa no sirva para levantar un bloqueo.
+     *
+     * @return true si se liberó lugar
+     */
+    private boolean desalojar(Dimension dimension, long ahora) {
+        Map.Entry<String, Contador> candidato = null;
+        long inicioCandidato = Long.MAX_VALUE;
+        int revisados = 0;
+        for (Map.Entry<String, Contador> entrada : dimension.contadores.entrySet()) {
+            Estado estado = entrada.getValue().estado.get();
+            if (estado.bloqueadoHasta() <= ahora && estado.inicioVentana() < inicioCandidato) {
+                candidato = entrada;
+                inicioCandidato = estado.inicioVentana();
+            }
+            if (++revisados >= MUESTRA_DESALOJO) {
+                break;
+            }
+        }
+        return candidato != null && dimension.contadores.remove(candidato.getKey(), candidato.getValue());
+    }
+
+    private void purgar(Dimension dimension, long ahora) {
+        long ventanaMs = dimension.politica.ventanaMs();
+        dimension.contadores.values().removeIf(contador -> {
+            Estado estado = contador.estado.get();
+            return estado.bloqueadoHasta() <= ahora && ahora - estado.inicioVentana() >= 2 * ventanaMs;
+        });
+    }
+
+    // Desplaza la ventana: la actual pasa a ser la anterior; si pasaron dos o más, se descarta todo
+    private static Estado avanzar(Estado estado, long ahora, long ventanaMs) {
+        long transcurrido = ahora - estado.inicioVentana();
+        if (transcurrido < ventanaMs) {
+            return estado;
+        }
+        if (transcurrido < 2 * ventanaMs) {
+            return new Estado(estado.inicioVentana() + ventanaMs, estado.actual(), 0, estado.bloqueadoHasta());
+        }
+        return new Estado(ahora - transcurrido % ventanaMs, 0, 0, estado.bloqueadoHasta());
+    }
+
+    // Fallos estimados en los últimos ventanaMs: parte proporcional de la ventana anterior + la actual
+    private static int estimar(Estado estado, long ahora, Politica politica) {
+        long transcurrido = Math.min(ahora - estado.inicioVentana(), politica.ventanaMs());
+        long pesoAnterior = politica.ventanaMs() - transcurrido;
+        return (int) (estado.anterior() * pesoAnterior / politica.ventanaMs()) + estado.actual();
+    }
+
+    private static String clave(String valor) {
+        return valor == null ? "" : valor.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Vacía (sin límite por IP) si es la dirección de un proxy
+    private String claveIp(String ip) {
+        String clave = clave(ip);
+        return proxies != null && proxies.matcher(clave).matches() ? "" : clave;
+    }
+}
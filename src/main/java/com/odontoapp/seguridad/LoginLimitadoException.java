@@ -0,0 +1,28 @@
+package com.odontoapp.seguridad;
+
+import org.springframework.security.authentication.LockedException;
+
+import java.time.Duration;
+
+/**
+ * Intento de login rechazado por {@link LimitadorIntentosLogin} antes de verificar la contraseña.
+ */
+public class LoginLimitadoException extends LockedException {
+
+    private final Duration restante;
+    private final boolean porIp;
+
+    public LoginLimitadoException(Duration restante, boolean porIp) {
+        super(porIp ? "Demasiados intentos desde esta conexión." : "La cuenta está bloqueada temporalmente.");
+        this.restante = restante;
+        this.porIp = porIp;
+    }
+
+    public Duration getRestante() {
+        return restante;
+    }
+
+    public boolean isPorIp() {
+        return porIp;
+    }
+}
@@ -0,0 +1,115 @@
+package com.odontoapp.seguridad;
+
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * Raíz de las expresiones de {@code @PreAuthorize}/{@code @PostAuthorize}. {@code hasAuthority} y
+ * {@code hasAnyAuthority} se resuelven con los bits de {@link CatalogoPermisos}; el resto
+ * (roles, filtros, hasPermission...) se delega en la raíz estándar de Spring Security.
+ */
+public class PermisosExpressionRoot implements MethodSecurityExpressionOperations {
+
+    private final MethodSecurityExpressionOperations delegado;
+    private final Supplier<Authentication> authentication;
+    private final CatalogoPermisos catalogoPermisos;
+
+    public PermisosExpressionRoot(MethodSecurityExpressionOperations delegado,
+            Supplier<Authentication> authentication, CatalogoPermisos catalogoPermisos) {
+        this.delegado = delegado;
+        this.authentication = authentication;
+        this.catalogoPermisos = catalogoPermisos;
+    }
+
+    @Override
+    public boolean hasAuthority(String authority) {
+        return catalogoPermisos.tiene(authentication.get(), authority);
+    }
+
+    @Override
+    public boolean hasAnyAuthority(String... authorities) {
+        return catalogoPermisos.tieneAlguno(authentication.get(), authorities);
+    }
+
+    @Override
+    public Authentication getAuthentication() {
+        return delegado.getAuthentication();
+    }
+
+    @Override
+    public boolean hasRole(String role) {
+        return delegado.hasRole(role);
+    }
+
+    @Override
+    public boolean hasAnyRole(String... roles) {
+        return delegado.hasAnyRole(roles);
+    }
+
+    @Override
+    public boolean permitAll() {
+        return delegado.permitAll();
+    }
+
+    @Override
+    public boolean denyAll() {
+        return delegado.denyAll();
+    }
+
+    @Override
+    public boolean isAnonymous() {
+        return delegado.isAnonymous();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return delegado.isAuthenticated();
+    }
+
+    @Override
+    public boolean isRememberMe() {
+        return delegado.isRememberMe();
+    }
+
+    @Override
+    public boolean isFullyAuthenticated() {
+        return delegado.isFullyAuthenticated();
+    }
+
+    @Override
+    public boolean hasPermission(Object target, Object permission) {
+        return delegado.hasPermission(target, permission);
+    }
+
+    @Override
+    public boolean hasPermission(Object targetId, String targetType, Object permission) {
+        return delegado.hasPermission(targetId, targetType, permission);
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        delegado.setFilterObject(filterObject);
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return delegado.getFilterObject();
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        delegado.setReturnObject(returnObject);
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return delegado.getReturnObject();
+    }
+
+    @Override
+    public Object getThis() {
+        return delegado.getThis();
+    }
+}
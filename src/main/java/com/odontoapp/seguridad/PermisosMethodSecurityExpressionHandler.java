@@ -0,0 +1,48 @@
+package com.odontoapp.seguridad;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * Manejador de expresiones de seguridad de métodos que envuelve la raíz estándar en
+ * {@link PermisosExpressionRoot}, para que los {@code hasAuthority(T(com.odontoapp.util.Permisos)...)}
+ * de los controladores se evalúen con los permisos compilados.
+ */
+public class PermisosMethodSecurityExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+    // Perezoso: el manejador se crea antes que los repositorios
+    private final ObjectProvider<CatalogoPermisos> catalogoPermisos;
+
+    public PermisosMethodSecurityExpressionHandler(ObjectProvider<CatalogoPermisos> catalogoPermisos) {
+        this.catalogoPermisos = catalogoPermisos;
+    }
+
+    @Override
+    public EvaluationContext createEvaluationContext(Supplier<Authentication> authentication, MethodInvocation mi) {
+        EvaluationContext ctx = super.createEvaluationContext(authentication, mi);
+        envolverRaiz(ctx, authentication);
+        return ctx;
+    }
+
+    @Override
+    protected MethodSecurityExpressionOperations createSecurityExpressionRoot(Authentication authentication,
+            MethodInvocation invocation) {
+        return new PermisosExpressionRoot(super.createSecurityExpressionRoot(authentication, invocation),
+                () -> authentication, catalogoPermisos.getObject());
+    }
+
+    private void envolverRaiz(EvaluationContext ctx, Supplier<Authentication> authentication) {
+        if (ctx instanceof StandardEvaluationContext contexto
+                && contexto.getRootObject().getValue() instanceof MethodSecurityExpressionOperations raiz
+                && !(raiz instanceof PermisosExpressionRoot)) {
+            contexto.setRootObject(new PermisosExpressionRoot(raiz, authentication, catalogoPermisos.getObject()));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.odontoapp.seguridad;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de sesiones con índices secundarios por nombre de rol y por email, para que invalidar
+ * las sesiones de un rol o de un usuario cueste lo proporcional a las sesiones afectadas y no a
+ * todos los usuarios conectados.
+ *
+ * Los índices se mantienen en {@link #registerNewSession} y {@link #removeSessionInformation}, que
+ * son los únicos puntos por los que pasan el login, el logout, la expiración de la sesión HTTP y
+ * el cambio de ID de sesión. Los roles se toman de las authorities del principal al registrarse
+ * (todos los roles del usuario, no solo el seleccionado).
+ */
+public class RegistroSesionesIndexado extends SessionRegistryImpl implements IndiceSesiones {
+
+    /**
+     * Claves de índice de una sesión, para poder quitarla sin recorrer los índices.
+     */
+    private record ClavesSesion(String email, List<String> roles) {
+    }
+
+    private final Map<String, Set<String>> sesionesPorRol = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sesionesPorEmail = new ConcurrentHashMap<>();
+    private final Map<String, ClavesSesion> clavesPorSesion = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerNewSession(String sessionId, Object principal) {
+        super.registerNewSession(sessionId, principal);
+        ClavesSesion claves = claves(principal);
+        ClavesSesion anteriores = clavesPorSesion.put(sessionId, claves);
+        if (anteriores != null) {
+            desindexar(sessionId, anteriores);
+        }
+        agregar(sesionesPorEmail, claves.email(), sessionId);
+        for (String rol : claves.roles()) {
+            agregar(sesionesPorRol, rol, sessionId);
+        }
+    }
+
+    @Override
+    public void removeSessionInformation(String sessionId) {
+        ClavesSesion claves = clavesPorSesion.remove(sessionId);
+        if (claves != null) {
+            desindexar(sessionId, claves);
+        }
+        super.removeSessionInformation(sessionId);
+    }
+
+    @Override
+    public List<SessionInformation> getSesionesPorRol(String rol) {
+        return resolver(sesionesPorRol.get(normalizar(rol)));
+    }
+
+    @Override
+    public List<SessionInformation> getSesionesPorEmail(String email) {
+        return resolver(sesionesPorEmail.get(normalizar(email)));
+    }
+
+    @Override
+    public List<SessionInformation> getSesionesActivas() {
+        return resolver(clavesPorSesion.keySet());
+    }
+
+    private List<SessionInformation> resolver(Set<String> ids) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<SessionInformation> sesiones = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            SessionInformation informacion = getSessionInformation(id);
+            if (informacion != null && !informacion.isExpired()) {
+                sesiones.add(informacion);
+            }
+        }
+        return sesiones;
+    }
+
+    private void desindexar(String sessionId, ClavesSesion claves) {
+        quitar(sesionesPorEmail, claves.email(), sessionId);
+        for (String rol : claves.roles()) {
+            quitar(sesionesPorRol, rol, sessionId);
+        }
+    }
+
+    private static ClavesSesion claves(Object principal) {
+        if (principal instanceof UserDetails usuario) {
+            Collection<? extends GrantedAuthority> autoridades = usuario.getAuthorities();
+            List<String> roles = new ArrayList<>();
+            for (GrantedAuthority autoridad : autoridades) {
+                String nombre = autoridad.getAuthority();
+                if (nombre != null && nombre.startsWith("ROLE_")) {
+                    roles.add(normalizar(nombre.substring(5)));
+                }
+            }
+            return new ClavesSesion(normalizar(usuario.getUsername()), List.copyOf(roles));
+        }
+        return new ClavesSesion(normalizar(String.valueOf(principal)), List.of());
+    }
+
+    // Alta y baja atómicas por clave: el conjunto vacío se retira en la misma operación
+    private static void agregar(Map<String, Set<String>> indice, String clave, String sessionId) {
+        indice.compute(clave, (k, ids) -> {
+            Set<String> resultado = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            resultado.add(sessionId);
+            return resultado;
+        });
+    }
+
+    private static void quitar(Map<String, Set<String>> indice, String clave, String sessionId) {
+        indice.computeIfPresent(clave, (k, ids) -> {
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static String normalizar(String clave) {
+        return clave == null ? "" : clave.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,73 @@
+package com.odontoapp.seguridad;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.security.SpringSessionBackedSessionRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registro de sesiones sobre la tabla de Spring Session, compartido por todos los nodos.
+ *
+ * Las búsquedas por rol y por usuario se resuelven con una consulta sobre SPRING_SESSION
+ * (PRINCIPAL_NAME está indexado) y solo se cargan las sesiones encontradas. Expirar una sesión
+ * guarda la marca en la propia sesión, así que el nodo que atienda la siguiente petición la cierra.
+ */
+public class RegistroSesionesJdbc<S extends Session> extends SpringSessionBackedSessionRegistry<S>
+        implements IndiceSesiones {
+
+    // Los roles se toman de la BD: son los usuarios que tienen el rol ahora
+    private static final String SQL_POR_ROL = "SELECT s.SESSION_ID FROM SPRING_SESSION s "
+            + "JOIN usuarios u ON u.email = s.PRINCIPAL_NAME "
+            + "JOIN usuarios_roles ur ON ur.usuario_id = u.id "
+            + "JOIN roles r ON r.id = ur.rol_id "
+            + "WHERE LOWER(r.nombre) = LOWER(?) AND s.EXPIRY_TIME > ?";
+    private static final String SQL_ACTIVAS = "SELECT SESSION_ID FROM SPRING_SESSION "
+            + "WHERE PRINCIPAL_NAME IS NOT NULL AND EXPIRY_TIME > ?";
+    private static final String SQL_PRINCIPALES = "SELECT DISTINCT PRINCIPAL_NAME FROM SPRING_SESSION "
+            + "WHERE PRINCIPAL_NAME IS NOT NULL AND EXPIRY_TIME > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RegistroSesionesJdbc(FindByIndexNameSessionRepository<S> sessionRepository, JdbcTemplate jdbcTemplate) {
+        super(sessionRepository);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<SessionInformation> getSesionesPorRol(String rol) {
+        return resolver(jdbcTemplate.queryForList(SQL_POR_ROL, String.class, rol, System.currentTimeMillis()));
+    }
+
+    @Override
+    public List<SessionInformation> getSesionesPorEmail(String email) {
+        return getAllSessions(email, false);
+    }
+
+    @Override
+    public List<SessionInformation> getSesionesActivas() {
+        return resolver(jdbcTemplate.queryForList(SQL_ACTIVAS, String.class, System.currentTimeMillis()));
+    }
+
+    /**
+     * El registro de Spring Session no lo soporta; aquí se listan los emails con sesión activa.
+     */
+    @Override
+    public List<Object> getAllPrincipals() {
+        return new ArrayList<>(jdbcTemplate.queryForList(SQL_PRINCIPALES, String.class, System.currentTimeMillis()));
+    }
+
+    private List<SessionInformation> resolver(List<String> ids) {
+        List<SessionInformation> sesiones = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            SessionInformation informacion = getSessionInformation(id);
+            if (informacion != null && !informacion.isExpired()) {
+                sesiones.add(informacion);
+            }
+        }
+        return sesiones;
+    }
+}
@@ -0,0 +1,119 @@
+package com.odontoapp.seguridad;
+
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serialización compacta de los atributos de sesión guardados en BD.
+ *
+ * Los atributos simples (rolActivo, rolActivoId, totalRoles, mensajes) se guardan como un byte de
+ * tipo más su valor, sin la cabecera ni los descriptores de clase de la serialización de Java.
+ * El resto (contexto de seguridad, petición guardada, instantánea del usuario) usa serialización
+ * de Java, comprimida cuando pasa de {@link #UMBRAL_COMPRESION} bytes y la compresión compensa.
+ * También lee los valores en serialización de Java sin prefijo que escribe Spring Session por defecto.
+ */
+public class SerializadorAtributosSesion {
+
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte JAVA = 16;
+    private static final byte JAVA_COMPRIMIDO = 17;
+    // Primer byte de la serialización de Java (0xACED): valores escritos antes de este formato
+    private static final byte JAVA_SIN_PREFIJO = (byte) 0xAC;
+
+    private static final int UMBRAL_COMPRESION = 512;
+
+    private final DefaultSerializer serializador = new DefaultSerializer();
+    private final DefaultDeserializer deserializador;
+
+    public SerializadorAtributosSesion(ClassLoader classLoader) {
+        this.deserializador = new DefaultDeserializer(classLoader);
+    }
+
+    public byte[] serializar(Object valor) {
+        if (valor instanceof String texto) {
+            byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(1 + utf8.length).put(STRING).put(utf8).array();
+        }
+        if (valor instanceof Integer numero) {
+            return ByteBuffer.allocate(5).put(INTEGER).putInt(numero).array();
+        }
+        if (valor instanceof Long numero) {
+            return ByteBuffer.allocate(9).put(LONG).putLong(numero).array();
+        }
+        if (valor instanceof Boolean logico) {
+            return new byte[] { BOOLEAN, (byte) (logico ? 1 : 0) };
+        }
+        try {
+            byte[] java = serializador.serializeToByteArray(valor);
+            if (java.length > UMBRAL_COMPRESION) {
+                byte[] comprimido = comprimir(java);
+                if (comprimido.length < java.length) {
+                    return prefijar(JAVA_COMPRIMIDO, comprimido);
+                }
+            }
+            return prefijar(JAVA, java);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo serializar el atributo de sesión "
+                    + valor.getClass().getName(), e);
+        }
+    }
+
+    public Object deserializar(byte[] datos) {
+        if (datos == null || datos.length == 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(datos, 1, datos.length - 1);
+        try {
+            return switch (datos[0]) {
+                case STRING -> new String(datos, 1, datos.length - 1, StandardCharsets.UTF_8);
+                case INTEGER -> buffer.getInt();
+                case LONG -> buffer.getLong();
+                case BOOLEAN -> datos[1] != 0;
+                case JAVA -> deserializador.deserialize(new ByteArrayInputStream(datos, 1, datos.length - 1));
+                case JAVA_COMPRIMIDO -> descomprimir(datos);
+                case JAVA_SIN_PREFIJO -> deserializador.deserialize(new ByteArrayInputStream(datos));
+                default -> throw new IllegalStateException("Tipo de atributo de sesión desconocido: " + datos[0]);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo deserializar un atributo de sesión", e);
+        }
+    }
+
+    private Object descomprimir(byte[] datos) throws IOException {
+        try (InflaterInputStream flujo = new InflaterInputStream(
+                new ByteArrayInputStream(datos, 1, datos.length - 1))) {
+            return deserializador.deserialize(flujo);
+        }
+    }
+
+    private static byte[] comprimir(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream flujo = new DeflaterOutputStream(salida, deflater)) {
+            flujo.write(datos);
+        } finally {
+            deflater.end();
+        }
+        return salida.toByteArray();
+    }
+
+    private static byte[] prefijar(byte tipo, byte[] datos) {
+        byte[] resultado = new byte[datos.length + 1];
+        resultado[0] = tipo;
+        System.arraycopy(datos, 0, resultado, 1, datos.length);
+        return resultado;
+    }
+}
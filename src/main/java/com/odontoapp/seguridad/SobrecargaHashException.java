@@ -0,0 +1,14 @@
+package com.odontoapp.seguridad;
+
+/**
+ * El ejecutor de hashing de contraseñas está saturado y la petición no puede esperar turno.
+ * Se responde 503 con Retry-After (GlobalControllerAdvice y FiltroLimiteIntentosLogin).
+ */
+public class SobrecargaHashException extends RuntimeException {
+
+    public static final int REINTENTAR_SEGUNDOS = 2;
+
+    public SobrecargaHashException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,46 @@
+package com.odontoapp.seguridad;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * Datos del usuario autenticado que se guardan en la sesión al iniciar sesión, para no consultar
+ * la base de datos en cada petición. Es inmutable; se reconstruye cuando el usuario o sus roles
+ * cambian (ver {@link com.odontoapp.servicio.SesionUsuarioService}).
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class UsuarioSesion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String email;
+    private final String nombreCompleto;
+    // Nombres de rol sin prefijo (ADMIN, ODONTOLOGO, PACIENTE...)
+    private final Set<String> roles;
+    // Rol elegido en el selector; null si aún no se eligió
+    private final String rolActivo;
+    private final boolean estaActivo;
+    private final boolean debeActualizarPassword;
+    // Secuencia de SesionUsuarioService al construirse; sirve para saber si quedó desactualizada
+    private final long version;
+
+    public boolean tieneRol(String rol) {
+        return roles.contains(rol);
+    }
+
+    public boolean esPaciente() {
+        return tieneRol("PACIENTE");
+    }
+
+    public UsuarioSesion conRolActivo(String nuevoRolActivo) {
+        return new UsuarioSesion(id, email, nombreCompleto, roles, nuevoRolActivo, estaActivo,
+                debeActualizarPassword, version);
+    }
+}
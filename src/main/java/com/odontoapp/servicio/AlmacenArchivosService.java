@@ -0,0 +1,462 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.entidad.ContenidoArchivo;
+import com.odontoapp.evento.ContenidoArchivoEliminadoEvent;
+import com.odontoapp.repositorio.ContenidoArchivoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Almacén de archivos direccionado por contenido, bajo {@code file.upload-dir}.
+ *
+ * Cada subida se lee una sola vez: se copia a un temporal mientras se calcula su SHA-256 y luego
+ * se mueve de forma atómica a {@code ab/cd/<hash>}. Si el contenido ya existe no se vuelve a
+ * guardar: se suma una referencia en {@link ContenidoArchivo}. Al liberar la última referencia se
+ * borran la fila y el archivo, después del commit.
+ *
+ * La fila del contenido se crea en su propia transacción y la referencia se suma después en la
+ * del llamador (la fila queda bloqueada hasta el commit), así que un borrado concurrente del mismo
+ * contenido espera y vuelve a comprobar que siga en 0. Si la transacción del llamador se deshace
+ * queda una fila en 0 referencias, que borra {@link #purgarSinReferencias}.
+ *
+ * Los contenidos sin uso reciente pasan al almacén frío ({@code almacen.frio.dir}, por defecto
+ * {@code .frio} dentro del directorio de subidas), comprimidos con gzip cuando compensa. Al leerlos
+ * con {@link #leer} vuelven solos al directorio de subidas. La copia caliente no se borra al
+ * archivar, porque una lectura en curso pudo haber recibido ya su ruta: la borra
+ * {@link #borrarCopiasCalientes} pasada la gracia, y solo si nadie la leyó entretanto.
+ *
+ * Las lecturas actualizan {@code fechaUltimoAcceso} como mucho una vez por
+ * {@code almacen.acceso.intervalo} y contenido en cada nodo, para no escribir en cada descarga.
+ */
+@Service
+public class AlmacenArchivosService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlmacenArchivosService.class);
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final String EXTENSION_COMPRIMIDO = ".gz";
+    private static final int BUFFER_COMPRESION = 64 * 1024;
+    private static final int MAX_ACCESOS = 10_000;
+
+    /**
+     * Resultado de guardar una subida: ruta relativa al directorio de subidas.
+     */
+    public record ContenidoGuardado(String hash, String ruta, long tamanoBytes) {
+    }
+
+    private final Path raiz;
+    private final Path temporales;
+    private final Path frios;
+    private final ContenidoArchivoRepository contenidoArchivoRepository;
+    private final TransactionTemplate transaccionNueva;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long intervaloAccesoMs;
+
+    // Hash -> restauración desde el almacén frío en curso
+    private final Map<String, CompletableFuture<Void>> restaurando = new ConcurrentHashMap<>();
+    // Hash -> último acceso escrito en BD desde este nodo
+    private final Map<String, Long> accesosRegistrados = new ConcurrentHashMap<>();
+
+    public AlmacenArchivosService(@Value("${file.upload-dir}") String uploadDir,
+            @Value("${almacen.frio.dir:}") String dirFrio,
+            ContenidoArchivoRepository contenidoArchivoRepository, PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${almacen.acceso.intervalo:1h}") Duration intervaloAcceso) {
+        this.raiz = Paths.get(uploadDir).toAbsolutePath().normalize();
+        // Dentro del mismo directorio para que el movimiento final sea un rename atómico
+        this.temporales = raiz.resolve(".tmp");
+        this.frios = dirFrio.isBlank() ? raiz.resolve(".frio") : Paths.get(dirFrio).toAbsolutePath().normalize();
+        this.contenidoArchivoRepository = contenidoArchivoRepository;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.intervaloAccesoMs = intervaloAcceso.toMillis();
+    }
+
+    /**
+     * Guarda el contenido (o reutiliza uno idéntico) y le suma una referencia.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public ContenidoGuardado guardar(InputStream entrada) throws IOException {
+        Files.createDirectories(temporales);
+        Path temporal = Files.createTempFile(temporales, "subida-", ".tmp");
+        try {
+            MessageDigest sha256 = sha256();
+            long tamano;
+            try (InputStream conDigest = new DigestInputStream(entrada, sha256)) {
+                tamano = Files.copy(conDigest, temporal, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HEX.formatHex(sha256.digest());
+            String ruta = rutaDe(hash);
+
+            registrarReferencia(hash, ruta, tamano);
+            // Con la referencia ya tomada: si el archivo falta (nuevo o purgado a la vez), se deja el temporal
+            ubicar(temporal, raiz.resolve(ruta));
+            return new ContenidoGuardado(hash, ruta, tamano);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Quita una referencia al contenido; si era la última, lo borra al confirmar la transacción.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void liberar(String hash) {
+        if (contenidoArchivoRepository.decrementarReferencias(hash) == 0) {
+            log.warn("Contenido {} sin referencias que liberar", hash);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                purgarSiNoSeUsa(hash);
+            }
+        });
+    }
+
+    /**
+     * Ruta absoluta de un archivo guardado; rechaza rutas que salgan del directorio de subidas.
+     */
+    public Path resolver(String ruta) {
+        Path archivo = raiz.resolve(ruta).normalize();
+        if (!archivo.startsWith(raiz)) {
+            throw new IllegalArgumentException("Ruta de archivo inválida: " + ruta);
+        }
+        return archivo;
+    }
+
+    /**
+     * Ruta legible de un archivo guardado. Si el contenido está en el almacén frío, antes lo devuelve
+     * al directorio de subidas; varias lecturas simultáneas esperan una sola restauración.
+     *
+     * @param hash hash del contenido, o null para archivos anteriores al almacén por contenido
+     */
+    public Path leer(String hash, String ruta) throws IOException {
+        Path archivo = resolver(ruta);
+        if (hash == null) {
+            return archivo;
+        }
+        if (Files.exists(archivo)) {
+            registrarAcceso(hash);
+            return archivo;
+        }
+        CompletableFuture<Void> nuevo = new CompletableFuture<>();
+        CompletableFuture<Void> existente = restaurando.putIfAbsent(hash, nuevo);
+        if (existente != null) {
+            esperar(existente);
+            return archivo;
+        }
+        try {
+            restaurar(hash, archivo);
+            nuevo.complete(null);
+        } catch (IOException | RuntimeException e) {
+            nuevo.completeExceptionally(e);
+            throw e;
+        } finally {
+            restaurando.remove(hash, nuevo);
+        }
+        return archivo;
+    }
+
+    /**
+     * Pasa el contenido al almacén frío (gzip si compensa). Su archivo del directorio de subidas se
+     * conserva hasta que {@link #borrarCopiasCalientes} lo borre pasada la gracia.
+     *
+     * @return bytes pasados al almacén frío; 0 si no se archivó
+     */
+    public long archivar(ContenidoArchivo contenido) throws IOException {
+        String hash = contenido.getHash();
+        Path caliente = resolver(contenido.getRuta());
+        if (!Files.exists(caliente)) {
+            return 0;
+        }
+
+        boolean comprimido = compensaComprimir(caliente);
+        Path destino = rutaFria(hash, comprimido);
+        Files.createDirectories(destino.getParent());
+        Path temporal = Files.createTempFile(destino.getParent(), "archivo-", ".tmp");
+        try {
+            if (comprimido) {
+                try (OutputStream salida = new GZIPOutputStream(Files.newOutputStream(temporal), BUFFER_COMPRESION)) {
+                    Files.copy(caliente, salida);
+                }
+                if (Files.size(temporal) > contenido.getTamanoBytes() * 9 / 10) {
+                    // Ahorra menos de un 10 %: se guarda tal cual y se lee sin descomprimir
+                    comprimido = false;
+                    destino = rutaFria(hash, false);
+                    Files.copy(caliente, temporal, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                Files.copy(caliente, temporal, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // En disco antes de borrar el original
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                canal.force(true);
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+
+        boolean comprimidoFinal = comprimido;
+        Integer marcados = transaccionNueva.execute(status ->
+                contenidoArchivoRepository.marcarFrio(hash, comprimidoFinal, LocalDateTime.now()));
+        if (marcados == null || marcados == 0) {
+            // Se liberó o lo archivó otro nodo a la vez; la copia fría la resuelve el barrido de huérfanos
+            return 0;
+        }
+        return contenido.getTamanoBytes();
+    }
+
+    /**
+     * Borra la copia del directorio de subidas de los contenidos archivados antes de {@code gracia}.
+     * Si alguno se leyó después de archivarlo vuelve a quedar caliente y se descarta su copia fría.
+     *
+     * @return bytes liberados en el directorio de subidas
+     */
+    public long borrarCopiasCalientes(Duration gracia) {
+        LocalDateTime limite = LocalDateTime.now().minus(gracia);
+        long liberados = 0;
+        for (ContenidoArchivo contenido : contenidoArchivoRepository.buscarCopiasCalientes(limite)) {
+            String hash = contenido.getHash();
+            try {
+                Integer quitadas = transaccionNueva.execute(status ->
+                        contenidoArchivoRepository.quitarCopiaCaliente(hash, limite));
+                if (quitadas != null && quitadas > 0) {
+                    if (Files.deleteIfExists(resolver(contenido.getRuta()))) {
+                        liberados += contenido.getTamanoBytes();
+                    }
+                } else {
+                    // Se leyó durante la gracia: sigue en uso
+                    descartarCopiaFria(hash);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se pudo borrar la copia caliente del contenido {}: {}", hash, e.getMessage());
+            }
+        }
+        return liberados;
+    }
+
+    /**
+     * Borra los contenidos que quedaron sin referencias desde antes de {@code gracia}
+     * (subidas cuya transacción falló después de registrar el contenido).
+     *
+     * @return cantidad de contenidos revisados
+     */
+    public int purgarSinReferencias(Duration gracia) {
+        List<String> hashes = contenidoArchivoRepository.buscarSinReferencias(LocalDateTime.now().minus(gracia));
+        hashes.forEach(this::purgarSiNoSeUsa);
+        return hashes.size();
+    }
+
+    /**
+     * Descarta la copia fría de un contenido que ya volvió al directorio de subidas.
+     */
+    public void descartarCopiaFria(String hash) throws IOException {
+        transaccionNueva.executeWithoutResult(status ->
+                contenidoArchivoRepository.marcarCaliente(hash, LocalDateTime.now()));
+        borrarCopiasFrias(hash);
+    }
+
+    public Path getRaiz() {
+        return raiz;
+    }
+
+    public Path getDirectorioFrio() {
+        return frios;
+    }
+
+    private void restaurar(String hash, Path destino) throws IOException {
+        ContenidoArchivo contenido = contenidoArchivoRepository.findById(hash).orElse(null);
+        if (contenido == null || !contenido.isFrio()) {
+            // No hay nada que restaurar: el llamador verá que el archivo no existe
+            return;
+        }
+        Path frio = rutaFria(hash, contenido.isComprimido());
+        Files.createDirectories(temporales);
+        Path temporal = Files.createTempFile(temporales, "restaurado-", ".tmp");
+        try {
+            try (InputStream entrada = contenido.isComprimido()
+                    ? new GZIPInputStream(Files.newInputStream(frio), BUFFER_COMPRESION)
+                    : Files.newInputStream(frio)) {
+                long copiados = Files.copy(entrada, temporal, StandardCopyOption.REPLACE_EXISTING);
+                if (copiados != contenido.getTamanoBytes()) {
+                    throw new IOException("Copia fría incompleta del contenido " + hash);
+                }
+            }
+            ubicar(temporal, destino);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+        descartarCopiaFria(hash);
+        log.info("Contenido {} restaurado del almacén frío", hash);
+    }
+
+    // Sin transacción del llamador: la lectura puede venir de una de solo lectura
+    private void registrarAcceso(String hash) {
+        long ahora = System.currentTimeMillis();
+        Long anterior = accesosRegistrados.get(hash);
+        if (anterior != null && ahora - anterior < intervaloAccesoMs) {
+            return;
+        }
+        if (accesosRegistrados.size() > MAX_ACCESOS) {
+            // Olvidarlos solo cuesta alguna escritura de más
+            accesosRegistrados.clear();
+        }
+        accesosRegistrados.put(hash, ahora);
+        try {
+            transaccionNueva.executeWithoutResult(status ->
+                    contenidoArchivoRepository.registrarAcceso(hash, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            accesosRegistrados.remove(hash, ahora);
+            log.debug("No se pudo registrar el acceso al contenido {}: {}", hash, e.getMessage());
+        }
+    }
+
+    private static void esperar(CompletableFuture<Void> futuro) throws IOException {
+        try {
+            futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Restauración interrumpida", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private void borrarCopiasFrias(String hash) throws IOException {
+        Files.deleteIfExists(rutaFria(hash, true));
+        Files.deleteIfExists(rutaFria(hash, false));
+    }
+
+    // Formatos que ya vienen comprimidos (JPEG, PNG, GIF, ZIP/Office, gzip): no se vuelven a comprimir
+    private static boolean compensaComprimir(Path archivo) throws IOException {
+        byte[] cabecera = new byte[4];
+        int leidos;
+        try (InputStream entrada = Files.newInputStream(archivo)) {
+            leidos = entrada.readNBytes(cabecera, 0, cabecera.length);
+        }
+        if (leidos < cabecera.length) {
+            return false;
+        }
+        int b0 = cabecera[0] & 0xFF;
+        int b1 = cabecera[1] & 0xFF;
+        return !((b0 == 0xFF && b1 == 0xD8)
+                || (b0 == 0x89 && b1 == 'P' && cabecera[2] == 'N' && cabecera[3] == 'G')
+                || (b0 == 'G' && b1 == 'I' && cabecera[2] == 'F')
+                || (b0 == 'P' && b1 == 'K' && cabecera[2] == 3 && cabecera[3] == 4)
+                || (b0 == 0x1F && b1 == 0x8B));
+    }
+
+    // La fila (en 0 referencias) se crea en su propia transacción antes de que la del llamador bloquee
+    // nada: en InnoDB, un UPDATE sobre un hash que aún no existe toma un gap lock, y el INSERT de la
+    // transacción nueva quedaría esperando a su propio llamador hasta agotar innodb_lock_wait_timeout.
+    // La referencia se suma después, en la transacción del llamador
+    private void registrarReferencia(String hash, String ruta, long tamano) {
+        try {
+            transaccionNueva.executeWithoutResult(status -> {
+                if (!contenidoArchivoRepository.existsById(hash)) {
+                    contenidoArchivoRepository.saveAndFlush(new ContenidoArchivo(hash, ruta, tamano));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otra subida lo registró primero
+        }
+        if (contenidoArchivoRepository.incrementarReferencias(hash) == 0) {
+            // Se purgó entre ambos pasos; no se reintenta aquí porque el UPDATE fallido ya dejó un gap lock
+            throw new IllegalStateException("El contenido " + hash + " se eliminó durante la subida; vuelva a intentarlo");
+        }
+    }
+
+    private static void ubicar(Path temporal, Path destino) throws IOException {
+        if (Files.exists(destino)) {
+            return;
+        }
+        Files.createDirectories(destino.getParent());
+        try {
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Otra subida del mismo contenido llegó antes: los bytes son idénticos
+        }
+    }
+
+    // El archivo se borra antes de confirmar el borrado de la fila: una subida del mismo contenido
+    // que llegue a la vez espera por la fila y, al no encontrar el archivo, deja el suyo
+    private void purgarSiNoSeUsa(String hash) {
+        Boolean eliminado;
+        try {
+            eliminado = transaccionNueva.execute(status -> {
+                if (contenidoArchivoRepository.eliminarSinReferencias(hash) == 0) {
+                    return false;
+                }
+                try {
+                    Files.deleteIfExists(resolver(rutaDe(hash)));
+                    borrarCopiasFrias(hash);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            });
+        } catch (RuntimeException e) {
+            log.warn("No se pudo borrar el contenido sin referencias {}: {}", hash, e.getMessage());
+            return;
+        }
+        if (Boolean.TRUE.equals(eliminado)) {
+            // Miniaturas y demás derivados del contenido
+            eventPublisher.publishEvent(new ContenidoArchivoEliminadoEvent(hash));
+        }
+    }
+
+    static String rutaDe(String hash) {
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    Path rutaFria(String hash, boolean comprimido) {
+        return frios.resolve(rutaDe(hash) + (comprimido ? EXTENSION_COMPRIMIDO : ""));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
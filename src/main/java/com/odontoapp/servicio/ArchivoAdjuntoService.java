@@ -5,6 +5,8 @@ import com.odontoapp.entidad.ArchivoAdjunto;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,6 +47,17 @@ public interface ArchivoAdjuntoService {
      */
     Resource cargarArchivoComoRecurso(Long id);
 
+    /**
+     * Resuelve la ruta en disco del contenido de un archivo adjunto; si el contenido está en el
+     * almacén frío, lo restaura antes.
+     *
+     * @param archivo Archivo adjunto
+     * @return Ruta absoluta del archivo físico
+     * @throws java.io.FileNotFoundException si el archivo físico no existe o no es legible
+     * @throws IOException si no se pudo restaurar desde el almacén frío
+     */
+    Path obtenerRutaArchivo(ArchivoAdjunto archivo) throws IOException;
+
     /**
      * Elimina un archivo adjunto (soft delete) y opcionalmente el archivo físico.
      *
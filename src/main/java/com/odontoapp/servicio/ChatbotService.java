@@ -2,6 +2,7 @@ package com.odontoapp.servicio;
 
 import com.odontoapp.dto.ChatRequest;
 import com.odontoapp.dto.ChatResponse;
+import com.odontoapp.dto.MiembroPersonalDTO;
 import com.odontoapp.entidad.*;
 import com.odontoapp.repositorio.*;
 import lombok.RequiredArgsConstructor;
@@ -36,7 +37,7 @@ public class ChatbotService {
     private final TratamientoRealizadoRepository tratamientoRealizadoRepository;
     private final ComprobanteRepository comprobanteRepository;
     private final ProcedimientoRepository procedimientoRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final DirectorioPersonalService directorioPersonalService;
     private final CategoriaProcedimientoRepository categoriaProcedimientoRepository;
     private final EstadoCitaRepository estadoCitaRepository;
     private final MetodoPagoRepository metodoPagoRepository;
@@ -263,10 +264,10 @@ public class ChatbotService {
         contexto.append("=== ODONTÓLOGOS DISPONIBLES ===\n");
 
         try {
-            List<Usuario> odontologos = usuarioRepository.findActiveByRolesNombre("ODONTOLOGO");
+            List<MiembroPersonalDTO> odontologos = directorioPersonalService.listarActivosPorRol("ODONTOLOGO");
 
             if (!odontologos.isEmpty()) {
-                for (Usuario odontologo : odontologos) {
+                for (MiembroPersonalDTO odontologo : odontologos) {
                     contexto.append("• Dr(a). ").append(odontologo.getNombreCompleto());
 
                     if (odontologo.getTelefono() != null && !odontologo.getTelefono().isEmpty()) {
@@ -0,0 +1,15 @@
+package com.odontoapp.servicio;
+
+/**
+ * Bandeja de salida de correos: envía en segundo plano los correos encolados en
+ * {@code correos_pendientes} (p. ej. las activaciones de la importación masiva de pacientes).
+ */
+public interface CorreoPendienteService {
+
+    /**
+     * Envía el siguiente lote de correos pendientes.
+     *
+     * @return cantidad de correos enviados correctamente
+     */
+    int procesarPendientes();
+}
@@ -0,0 +1,56 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.CostoProcedimientoDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Servicio que mantiene en caché el costo de materiales y el margen de cada
+ * procedimiento, calculados a partir de su lista de insumos por defecto.
+ * La caché se recalcula de forma incremental: solo se actualizan los
+ * procedimientos afectados por un cambio.
+ */
+public interface CostoProcedimientoService {
+
+    /**
+     * Obtiene el costo de materiales y margen de un procedimiento.
+     *
+     * @param procedimientoId ID del procedimiento
+     * @return El costo si el procedimiento existe
+     */
+    Optional<CostoProcedimientoDTO> obtenerCosto(Long procedimientoId);
+
+    /**
+     * Obtiene los costos de varios procedimientos, calculando solo los que
+     * aún no están en caché.
+     *
+     * @param procedimientoIds IDs de los procedimientos
+     * @return Mapa procedimientoId -> costo
+     */
+    Map<Long, CostoProcedimientoDTO> obtenerCostos(Collection<Long> procedimientoIds);
+
+    /**
+     * Lista los costos de todos los procedimientos activos.
+     *
+     * @return Lista de costos ordenada por nombre de procedimiento
+     */
+    List<CostoProcedimientoDTO> listarCostos();
+
+    /**
+     * Recalcula el costo de los procedimientos indicados y actualiza la caché.
+     * Los procedimientos que ya no existen se retiran de la caché.
+     *
+     * @param procedimientoIds IDs de los procedimientos a recalcular
+     */
+    void recalcular(Collection<Long> procedimientoIds);
+
+    /**
+     * Recalcula solo los procedimientos que usan el insumo indicado.
+     *
+     * @param insumoId ID del insumo cuyo precio cambió
+     */
+    void recalcularPorInsumo(Long insumoId);
+}
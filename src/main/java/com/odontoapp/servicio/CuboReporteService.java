@@ -0,0 +1,85 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.MemoriaCuboDTO;
+import com.odontoapp.dto.ResultadoCuboDTO;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cubo en memoria (columnar) sobre los resúmenes diarios de ingresos, citas y tratamientos.
+ * Permite filtrar (slice/dice), agrupar y profundizar sin consultar la base de datos.
+ */
+public interface CuboReporteService {
+
+    /**
+     * Dimensiones del cubo. Formato de los valores en filtros y claves:
+     * año "2025", mes "2025-03", día "2025-03-14", odontólogo y procedimiento por ID,
+     * categoría, método de pago y estado por nombre.
+     */
+    enum Dimension {
+        ANIO("anio"), MES("mes"), DIA("dia"),
+        ODONTOLOGO("odontologo"), PROCEDIMIENTO("procedimiento"), CATEGORIA("categoria"),
+        METODO_PAGO("metodoPago"), ESTADO("estado");
+
+        private final String parametro;
+
+        Dimension(String parametro) {
+            this.parametro = parametro;
+        }
+
+        public String getParametro() {
+            return parametro;
+        }
+
+        public boolean esTemporal() {
+            return this == ANIO || this == MES || this == DIA;
+        }
+
+        /**
+         * Nivel inmediatamente inferior de la jerarquía (año → mes → día, categoría → procedimiento),
+         * o null si la dimensión no se puede profundizar.
+         */
+        public Dimension hija() {
+            return switch (this) {
+                case ANIO -> MES;
+                case MES -> DIA;
+                case CATEGORIA -> PROCEDIMIENTO;
+                default -> null;
+            };
+        }
+
+        public static Dimension desde(String parametro) {
+            for (Dimension dimension : values()) {
+                if (dimension.parametro.equalsIgnoreCase(parametro) || dimension.name().equalsIgnoreCase(parametro)) {
+                    return dimension;
+                }
+            }
+            throw new IllegalArgumentException("Dimensión no válida: " + parametro);
+        }
+    }
+
+    /**
+     * Agrega la medida del hecho indicado agrupando por hasta tres dimensiones.
+     * Las fechas son opcionales; los filtros aceptan varios valores por dimensión.
+     */
+    ResultadoCuboDTO consultar(TipoResumen hecho, List<Dimension> agrupar, Map<Dimension, Set<String>> filtros,
+            LocalDate fechaInicio, LocalDate fechaFin);
+
+    /**
+     * Fija la dimensión en el valor indicado y agrupa por su nivel inferior
+     * (p. ej. mes "2025-03" → días de marzo).
+     */
+    ResultadoCuboDTO profundizar(TipoResumen hecho, Dimension dimension, String valor,
+            Map<Dimension, Set<String>> filtros, LocalDate fechaInicio, LocalDate fechaFin);
+
+    MemoriaCuboDTO obtenerMemoria();
+
+    /**
+     * Reconstruye el cubo completo desde los resúmenes diarios.
+     */
+    void construir();
+}
@@ -15,6 +15,12 @@ public interface DashboardService {
      */
     Map<String, Object> obtenerEstadisticasGenerales();
 
+    /**
+     * Descarta las estadísticas generales en caché para que la próxima
+     * consulta las vuelva a calcular
+     */
+    void invalidarCache();
+
     /**
      * Obtiene el número de citas para hoy
      * @return Número de citas
@@ -0,0 +1,28 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.MiembroPersonalDTO;
+
+import java.util.List;
+
+/**
+ * Directorio del personal de la clínica indexado por rol.
+ * Reemplaza las búsquedas por rol que cargaban todos los usuarios en cada petición; se mantiene
+ * en memoria y se invalida cuando cambian usuarios, roles o su estado.
+ */
+public interface DirectorioPersonalService {
+
+    /**
+     * Usuarios activos con el rol indicado (y el rol activo), ordenados por nombre.
+     */
+    List<MiembroPersonalDTO> listarActivosPorRol(String rol);
+
+    /**
+     * Todos los usuarios no eliminados con el rol indicado, activos o no (p. ej. filtros de reportes).
+     */
+    List<MiembroPersonalDTO> listarPorRol(String rol);
+
+    /**
+     * Descarta el directorio; se vuelve a cargar en la próxima consulta.
+     */
+    void invalidar();
+}
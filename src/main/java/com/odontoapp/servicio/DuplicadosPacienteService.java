@@ -0,0 +1,45 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.DuplicadoPacienteDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Map;
+
+/**
+ * Detección aproximada de pacientes duplicados (misma persona registrada dos veces con un documento
+ * mal tipeado, otro email, etc.), cola de revisión y fusión de los registros.
+ */
+public interface DuplicadosPacienteService {
+
+    /**
+     * Recorre los pacientes activos, compara solo los que comparten una clave de bloque
+     * (código fonético del nombre, fecha de nacimiento o final del teléfono) y encola como
+     * PENDIENTE los pares cuyo puntaje supera el umbral.
+     *
+     * Las ejecuciones concurrentes se serializan.
+     *
+     * @return estadísticas de la ejecución (pacientes, pares comparados, candidatos, nuevos, duración)
+     */
+    Map<String, Object> detectar();
+
+    /**
+     * Pares pendientes de revisión, de mayor a menor puntaje.
+     */
+    Page<DuplicadoPacienteDTO> listarPendientes(Pageable pageable);
+
+    /**
+     * Fusiona el par: reasigna al paciente conservado las citas, comprobantes, odontograma, archivos
+     * adjuntos y demás historial del otro, completa los datos vacíos del conservado y elimina
+     * (borrado lógico) al paciente absorbido y su usuario.
+     *
+     * @param pacienteConservadoId uno de los dos pacientes del par
+     * @return filas reasignadas por tabla
+     */
+    Map<String, Object> fusionar(Long duplicadoId, Long pacienteConservadoId);
+
+    /**
+     * Marca el par como falso positivo; no se volverá a proponer.
+     */
+    void descartar(Long duplicadoId);
+}
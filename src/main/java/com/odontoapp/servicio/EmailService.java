@@ -22,6 +22,19 @@ public class EmailService {
     // Este método envía el link para que el ADMIN creado por el sistema establezca
     // su password
     public void enviarEmailActivacionAdmin(String para, String nombre, String token) {
+        try {
+            intentarEnviarEmailActivacionAdmin(para, nombre, token);
+        } catch (MessagingException e) {
+            System.err.println("Error al enviar email de activación para ADMIN: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Igual que {@link #enviarEmailActivacionAdmin} pero propaga el error, para que la bandeja
+     * de salida pueda reintentar el envío.
+     */
+    public void intentarEnviarEmailActivacionAdmin(String para, String nombre, String token)
+            throws MessagingException {
         String urlActivacion = "http://159.112.151.106:8080/activar-cuenta?token=" + token;
         String subject = "Activa tu cuenta en OdontoApp (Personal)";
         String content = "<p>Hola " + nombre + ",</p>"
@@ -29,11 +42,7 @@ public class EmailService {
                 + "<p>Haz clic en el siguiente enlace para establecer tu contraseña y activar tu acceso:</p>"
                 + "<h3><a href=\"" + urlActivacion + "\">Establecer Contraseña</a></h3>"
                 + "<p>Si no esperabas este email, por favor contacta al administrador.</p>";
-        try {
-            enviarEmail(para, subject, content);
-        } catch (MessagingException e) {
-            System.err.println("Error al enviar email de activación para ADMIN: " + e.getMessage());
-        }
+        enviarEmail(para, subject, content);
     }
 
     // 🔥 NUEVO MÉTODO para el link de registro de PACIENTE (Flujo Self-Service)
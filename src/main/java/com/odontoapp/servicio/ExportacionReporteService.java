@@ -0,0 +1,33 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.util.EscritorTabular;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Servicio para exportar los reportes (CSV/XLSX) y las filas de detalle que los originan.
+ */
+public interface ExportacionReporteService {
+
+    /**
+     * Indica si existe un reporte resumido con la clave indicada
+     * (ingresos-metodo, ingresos-mes, citas-estado, top-tratamientos, nuevos-pacientes, margen-servicios).
+     */
+    boolean existeReporte(String reporte);
+
+    /**
+     * Indica si existe un detalle exportable con la clave indicada (pagos, citas, tratamientos).
+     */
+    boolean existeDetalle(String detalle);
+
+    void exportarReporte(String reporte, LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId,
+            EscritorTabular escritor) throws IOException;
+
+    /**
+     * Exporta las filas de detalle leyendo con un cursor JDBC de solo avance,
+     * sin cargar el resultado completo en memoria.
+     */
+    void exportarDetalle(String detalle, LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId,
+            EscritorTabular escritor) throws IOException;
+}
@@ -0,0 +1,28 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.ResumenImportacionDTO;
+import com.odontoapp.util.EscritorTabular;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Importación masiva de pacientes desde CSV.
+ */
+public interface ImportacionPacientesService {
+
+    /**
+     * Lee el CSV fila a fila, descarta duplicados (documento, email o teléfono ya registrados o
+     * repetidos en el archivo) e inserta usuario, rol y paciente por lotes. Los correos de activación
+     * se encolan en la bandeja de salida. Escribe en {@code reporte} una fila por cada fila de datos
+     * (IMPORTADO, DUPLICADO o ERROR) en el mismo orden del archivo, más una fila final de resumen.
+     *
+     * Columnas reconocidas (encabezado sin importar mayúsculas ni tildes): tipo_documento,
+     * numero_documento, nombre_completo, email, telefono, fecha_nacimiento, direccion, alergias,
+     * antecedentes_medicos. Son obligatorias numero_documento, nombre_completo y email.
+     *
+     * @throws IllegalArgumentException si el archivo está vacío o faltan columnas obligatorias
+     *                                  (antes de escribir nada en el reporte)
+     */
+    ResumenImportacionDTO importar(InputStream csv, EscritorTabular reporte) throws IOException;
+}
@@ -0,0 +1,40 @@
+package com.odontoapp.servicio;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Índices de búsqueda de texto en memoria para pacientes, usuarios e insumos.
+ * Reemplazan las búsquedas LIKE '%palabra%': sin tildes, por prefijo y tolerantes a errores de tipeo.
+ */
+public interface IndiceBusquedaService {
+
+    enum TipoIndice {
+        PACIENTE, USUARIO, INSUMO
+    }
+
+    /**
+     * IDs que coinciden con la consulta, ordenados por relevancia.
+     * Vacío si el índice aún no está listo o la consulta es demasiado corta; en ese caso se debe
+     * usar la consulta LIKE del repositorio.
+     */
+    Optional<List<Long>> buscar(TipoIndice tipo, String consulta);
+
+    /**
+     * Agrega o reemplaza un documento con sus campos de búsqueda.
+     */
+    void indexar(TipoIndice tipo, Long id, String... campos);
+
+    void eliminar(TipoIndice tipo, Long id);
+
+    /**
+     * Reconstruye todos los índices desde la base de datos (sin dejar de atender búsquedas).
+     */
+    void reconstruir();
+
+    /**
+     * Estado de cada índice: documentos, proporción eliminada y memoria estimada.
+     */
+    Map<String, Object> obtenerEstado();
+}
@@ -4,36 +4,51 @@ import com.odontoapp.dto.InsumoDTO;
 import com.odontoapp.entidad.CategoriaInsumo;
 import com.odontoapp.entidad.Insumo;
 import com.odontoapp.entidad.UnidadMedida;
+import com.odontoapp.evento.PrecioInsumoModificadoEvent;
 import com.odontoapp.repositorio.CategoriaInsumoRepository;
 import com.odontoapp.repositorio.InsumoRepository;
 import com.odontoapp.repositorio.MovimientoInventarioRepository;
 import com.odontoapp.repositorio.ProcedimientoInsumoRepository;
 import com.odontoapp.repositorio.UnidadMedidaRepository;
+import com.odontoapp.servicio.IndiceBusquedaService.TipoIndice;
+import com.odontoapp.util.PaginacionPorIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class InsumoServiceImpl implements InsumoService {
 
+    private static final Logger log = LoggerFactory.getLogger(InsumoServiceImpl.class);
+
     private final InsumoRepository insumoRepository;
     private final CategoriaInsumoRepository categoriaInsumoRepository;
     private final UnidadMedidaRepository unidadMedidaRepository;
     private final MovimientoInventarioRepository movimientoInventarioRepository;
     private final ProcedimientoInsumoRepository procedimientoInsumoRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IndiceBusquedaService indiceBusquedaService;
 
     public InsumoServiceImpl(InsumoRepository insumoRepository, CategoriaInsumoRepository categoriaInsumoRepository,
             UnidadMedidaRepository unidadMedidaRepository, MovimientoInventarioRepository movimientoInventarioRepository,
-            ProcedimientoInsumoRepository procedimientoInsumoRepository) {
+            ProcedimientoInsumoRepository procedimientoInsumoRepository, ApplicationEventPublisher eventPublisher,
+            IndiceBusquedaService indiceBusquedaService) {
         this.insumoRepository = insumoRepository;
         this.categoriaInsumoRepository = categoriaInsumoRepository;
         this.unidadMedidaRepository = unidadMedidaRepository;
         this.movimientoInventarioRepository = movimientoInventarioRepository;
         this.procedimientoInsumoRepository = procedimientoInsumoRepository;
+        this.eventPublisher = eventPublisher;
+        this.indiceBusquedaService = indiceBusquedaService;
     }
 
     @Override
@@ -56,6 +71,11 @@ public class InsumoServiceImpl implements InsumoService {
         } else {
             // Sin filtro de categoría, buscar por keyword o listar todos
             if (keyword != null && !keyword.isBlank()) {
+                Optional<List<Long>> ids = indiceBusquedaService.buscar(TipoIndice.INSUMO, keyword);
+                if (ids.isPresent()) {
+                    return PaginacionPorIds.paginar(ids.get(), pageable, insumoRepository::findAllWithRelationsByIdIn,
+                            Insumo::getId);
+                }
                 return insumoRepository.findByKeyword(keyword, pageable);
             }
             return insumoRepository.findAllWithRelations(pageable);
@@ -123,6 +143,9 @@ public class InsumoServiceImpl implements InsumoService {
             throw new IllegalStateException("No se puede usar una unidad de medida eliminada.");
         }
 
+        // Guardar el precio anterior para detectar cambios que afecten el costo de procedimientos
+        BigDecimal precioAnterior = insumo.getPrecioUnitario();
+
         insumo.setCodigo(dto.getCodigo());
         insumo.setNombre(dto.getNombre());
         insumo.setDescripcion(dto.getDescripcion());
@@ -135,7 +158,18 @@ public class InsumoServiceImpl implements InsumoService {
         insumo.setCategoria(categoria);
         insumo.setUnidadMedida(unidad);
 
-        return insumoRepository.save(insumo);
+        Insumo guardado = insumoRepository.save(insumo);
+        if (dto.getId() != null && !mismoPrecio(precioAnterior, dto.getPrecioUnitario())) {
+            eventPublisher.publishEvent(new PrecioInsumoModificadoEvent(guardado.getId()));
+        }
+        return guardado;
+    }
+
+    private boolean mismoPrecio(BigDecimal anterior, BigDecimal nuevo) {
+        if (anterior == null || nuevo == null) {
+            return Objects.equals(anterior, nuevo);
+        }
+        return anterior.compareTo(nuevo) == 0;
     }
 
     @Override
@@ -178,6 +212,6 @@ public class InsumoServiceImpl implements InsumoService {
         insumo.setEliminado(false);
         insumoRepository.save(insumo);
 
-        System.out.println("✅ Insumo '" + insumo.getNombre() + "' restablecido exitosamente.");
+        log.info("Insumo '{}' restablecido", insumo.getNombre());
     }
 }
\ No newline at end of file
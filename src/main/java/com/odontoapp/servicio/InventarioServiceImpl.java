@@ -7,6 +7,7 @@ import com.odontoapp.entidad.MotivoMovimiento;
 import com.odontoapp.entidad.Procedimiento;
 import com.odontoapp.entidad.ProcedimientoInsumo;
 import com.odontoapp.entidad.TipoMovimiento;
+import com.odontoapp.evento.InventarioModificadoEvent;
 import com.odontoapp.repositorio.InsumoRepository;
 import com.odontoapp.repositorio.MovimientoInventarioRepository;
 import com.odontoapp.repositorio.MotivoMovimientoRepository;
@@ -14,6 +15,7 @@ import com.odontoapp.repositorio.ProcedimientoInsumoRepository;
 import com.odontoapp.repositorio.ProcedimientoRepository;
 import com.odontoapp.repositorio.TipoMovimientoRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.data.domain.Page;
@@ -31,19 +33,22 @@ public class InventarioServiceImpl implements InventarioService {
     private final MotivoMovimientoRepository motivoMovimientoRepository;
     private final ProcedimientoRepository procedimientoRepository;
     private final ProcedimientoInsumoRepository procedimientoInsumoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public InventarioServiceImpl(InsumoRepository insumoRepository,
             MovimientoInventarioRepository movimientoRepository,
             TipoMovimientoRepository tipoMovimientoRepository,
             MotivoMovimientoRepository motivoMovimientoRepository,
             ProcedimientoRepository procedimientoRepository,
-            ProcedimientoInsumoRepository procedimientoInsumoRepository) {
+            ProcedimientoInsumoRepository procedimientoInsumoRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.insumoRepository = insumoRepository;
         this.movimientoRepository = movimientoRepository;
         this.tipoMovimientoRepository = tipoMovimientoRepository;
         this.motivoMovimientoRepository = motivoMovimientoRepository;
         this.procedimientoRepository = procedimientoRepository;
         this.procedimientoInsumoRepository = procedimientoInsumoRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -114,6 +119,7 @@ public class InventarioServiceImpl implements InventarioService {
         // 2. Actualizar el stock del insumo
         insumo.setStockActual(stockNuevo);
         insumoRepository.save(insumo);
+        eventPublisher.publishEvent(new InventarioModificadoEvent(insumo.getId()));
     }
 
     @Override
@@ -213,6 +219,7 @@ public class InventarioServiceImpl implements InventarioService {
         // Actualizar el stock del insumo
         insumo.setStockActual(stockNuevo);
         insumoRepository.save(insumo);
+        eventPublisher.publishEvent(new InventarioModificadoEvent(insumo.getId()));
     }
 
     /**
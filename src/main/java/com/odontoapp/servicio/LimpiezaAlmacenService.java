@@ -0,0 +1,365 @@
+package com.odontoapp.servicio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Barrido de archivos huérfanos: concilia lo que hay en disco con {@code contenidos_archivo},
+ * {@code archivos_adjuntos} y {@code paciente_imagenes}.
+ *
+ * - Contenidos ({@code ab/cd/<hash>}) sin fila en contenidos_archivo.
+ * - Archivos sueltos en la raíz (anteriores al almacén por contenido) que ningún adjunto ni imagen
+ *   vigente referencia, incluidos los de adjuntos ya eliminados.
+ * - Temporales de subidas interrumpidas, miniaturas de contenidos que ya no existen y copias frías
+ *   que sobran.
+ *
+ * Los directorios se recorren en paralelo, uno por tarea, sin listar nada entero en memoria: los
+ * archivos se comprueban contra la BD en lotes mientras se recorren. Solo se tocan archivos con
+ * más antigüedad que la gracia, para no competir con subidas en curso.
+ */
+@Service
+public class LimpiezaAlmacenService {
+
+    private static final Logger log = LoggerFactory.getLogger(LimpiezaAlmacenService.class);
+
+    private static final int TAMANO_LOTE = 500;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern FRAGMENTO_HASH = Pattern.compile("[0-9a-f]{2}");
+    private static final String PREFIJO_LEGADO = "adjunto-";
+
+    private static final String SQL_CONTENIDOS = "SELECT hash, frio, fecha_archivado IS NOT NULL "
+            + "FROM contenidos_archivo WHERE hash IN (%s)";
+    private static final String SQL_RUTAS = "SELECT ruta_archivo FROM archivos_adjuntos "
+            + "WHERE eliminado = false AND ruta_archivo IN (%1$s) "
+            + "UNION SELECT ruta_archivo FROM paciente_imagenes WHERE eliminado = false AND ruta_archivo IN (%1$s)";
+    private static final String SQL_ADJUNTOS = "SELECT id FROM archivos_adjuntos WHERE eliminado = false AND id IN (%s)";
+
+    /**
+     * Resumen de un barrido.
+     */
+    public record Resultado(int revisados, int borrados, long bytesLiberados) {
+    }
+
+    // Estado de un contenido registrado; copiaCaliente: archivado y aún dentro de la gracia
+    private record Registro(boolean frio, boolean copiaCaliente) {
+    }
+
+    private static final class Acumulador {
+        private final AtomicInteger revisados = new AtomicInteger();
+        private final AtomicInteger borrados = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+
+    private final AlmacenArchivosService almacenArchivosService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public LimpiezaAlmacenService(AlmacenArchivosService almacenArchivosService, JdbcTemplate jdbcTemplate) {
+        this.almacenArchivosService = almacenArchivosService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Recorre el directorio de subidas y el almacén frío y borra lo que no está referenciado.
+     *
+     * @param gracia antigüedad mínima de un archivo para poder borrarlo
+     * @param hilos directorios que se recorren a la vez
+     */
+    public Resultado barrer(Duration gracia, int hilos) throws IOException {
+        Path raiz = almacenArchivosService.getRaiz();
+        Path frios = almacenArchivosService.getDirectorioFrio();
+        if (!Files.isDirectory(raiz)) {
+            return new Resultado(0, 0, 0);
+        }
+        long limite = System.currentTimeMillis() - gracia.toMillis();
+        Acumulador acumulador = new Acumulador();
+
+        AtomicInteger numero = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, hilos), r -> {
+            Thread hilo = new Thread(r, "limpieza-almacen-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            try (DirectoryStream<Path> entradas = Files.newDirectoryStream(raiz)) {
+                for (Path entrada : entradas) {
+                    String nombre = entrada.getFileName().toString();
+                    if (entrada.equals(frios)) {
+                        continue;
+                    }
+                    if (Files.isRegularFile(entrada)) {
+                        continue; // Los archivos sueltos de la raíz van en su propia tarea
+                    }
+                    if (FRAGMENTO_HASH.matcher(nombre).matches()) {
+                        tareas.add(executor.submit(() -> recorrer(entrada, limite, acumulador,
+                                lote -> conciliarContenidos(lote, acumulador))));
+                    } else if (nombre.equals(".tmp")) {
+                        tareas.add(executor.submit(() -> recorrer(entrada, limite, acumulador,
+                                lote -> lote.forEach(archivo -> borrar(archivo, acumulador)))));
+                    } else if (nombre.equals(".derivados")) {
+                        tareas.add(executor.submit(() -> recorrer(entrada, limite, acumulador,
+                                lote -> conciliarDerivados(lote, acumulador))));
+                    }
+                }
+            }
+            tareas.add(executor.submit(() -> recorrerRaiz(raiz, limite, acumulador)));
+            if (Files.isDirectory(frios)) {
+                try (DirectoryStream<Path> fragmentos = Files.newDirectoryStream(frios, Files::isDirectory)) {
+                    for (Path fragmento : fragmentos) {
+                        tareas.add(executor.submit(() -> recorrer(fragmento, limite, acumulador,
+                                lote -> conciliarFrios(lote, acumulador))));
+                    }
+                }
+            }
+            for (Future<?> tarea : tareas) {
+                esperar(tarea);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Resultado(acumulador.revisados.get(), acumulador.borrados.get(), acumulador.bytes.get());
+    }
+
+    /**
+     * Recorre un árbol y entrega sus archivos en lotes de {@link #TAMANO_LOTE}.
+     */
+    private void recorrer(Path directorio, long limite, Acumulador acumulador, Consumer<List<Path>> procesar) {
+        List<Path> lote = new ArrayList<>(TAMANO_LOTE);
+        try {
+            Files.walkFileTree(directorio, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) {
+                    if (atributos.isRegularFile() && atributos.lastModifiedTime().toMillis() < limite) {
+                        acumulador.revisados.incrementAndGet();
+                        lote.add(archivo);
+                        if (lote.size() == TAMANO_LOTE) {
+                            procesar.accept(List.copyOf(lote));
+                            lote.clear();
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+                    log.warn("No se pudo revisar {}: {}", archivo, e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("No se pudo recorrer {}: {}", directorio, e.getMessage());
+        }
+        if (!lote.isEmpty()) {
+            procesar.accept(lote);
+        }
+    }
+
+    // Solo el primer nivel: los subdirectorios de la raíz tienen sus propias tareas
+    private void recorrerRaiz(Path raiz, long limite, Acumulador acumulador) {
+        List<Path> lote = new ArrayList<>(TAMANO_LOTE);
+        try (DirectoryStream<Path> entradas = Files.newDirectoryStream(raiz, Files::isRegularFile)) {
+            for (Path archivo : entradas) {
+                if (Files.getLastModifiedTime(archivo).toMillis() >= limite) {
+                    continue;
+                }
+                acumulador.revisados.incrementAndGet();
+                lote.add(archivo);
+                if (lote.size() == TAMANO_LOTE) {
+                    conciliarLegado(raiz, lote, acumulador);
+                    lote.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo recorrer {}: {}", raiz, e.getMessage());
+        }
+        if (!lote.isEmpty()) {
+            conciliarLegado(raiz, lote, acumulador);
+        }
+    }
+
+    private void conciliarContenidos(List<Path> lote, Acumulador acumulador) {
+        Map<String, Path> porHash = porHash(lote, "");
+        Map<String, Registro> registrados = contenidos(porHash.keySet());
+        porHash.forEach((hash, archivo) -> {
+            if (!registrados.containsKey(hash)) {
+                borrar(archivo, acumulador);
+            }
+        });
+    }
+
+    // Se aceptan la ruta relativa y la absoluta: paciente_imagenes no siempre guardó la relativa
+    private void conciliarLegado(Path raiz, List<Path> lote, Acumulador acumulador) {
+        List<String> rutas = new ArrayList<>(lote.size() * 2);
+        for (Path archivo : lote) {
+            rutas.add(archivo.getFileName().toString());
+            rutas.add(archivo.toString());
+        }
+        String marcadores = String.join(",", Collections.nCopies(rutas.size(), "?"));
+        List<Object> parametros = new ArrayList<>(rutas);
+        parametros.addAll(rutas);
+        Set<String> referenciadas = new HashSet<>(jdbcTemplate.queryForList(
+                SQL_RUTAS.formatted(marcadores), String.class, parametros.toArray()));
+        for (Path archivo : lote) {
+            if (!referenciadas.contains(archivo.getFileName().toString())
+                    && !referenciadas.contains(archivo.toString())
+                    && !referenciadas.contains(raiz.relativize(archivo).toString())) {
+                borrar(archivo, acumulador);
+            }
+        }
+    }
+
+    // Derivados: <hash>.jpg, o adjunto-<id>.jpg para adjuntos sin hash
+    private void conciliarDerivados(List<Path> lote, Acumulador acumulador) {
+        Map<String, List<Path>> porHash = new HashMap<>();
+        Map<Long, List<Path>> porAdjunto = new HashMap<>();
+        for (Path archivo : lote) {
+            String nombre = sinExtension(archivo.getFileName().toString());
+            if (HASH.matcher(nombre).matches()) {
+                porHash.computeIfAbsent(nombre, k -> new ArrayList<>()).add(archivo);
+            } else if (nombre.startsWith(PREFIJO_LEGADO)) {
+                try {
+                    porAdjunto.computeIfAbsent(Long.parseLong(nombre.substring(PREFIJO_LEGADO.length())),
+                            k -> new ArrayList<>()).add(archivo);
+                } catch (NumberFormatException e) {
+                    borrar(archivo, acumulador);
+                }
+            } else {
+                // Temporales de una generación interrumpida
+                borrar(archivo, acumulador);
+            }
+        }
+        Map<String, Registro> registrados = contenidos(porHash.keySet());
+        porHash.forEach((hash, archivos) -> {
+            if (!registrados.containsKey(hash)) {
+                archivos.forEach(archivo -> borrar(archivo, acumulador));
+            }
+        });
+        if (!porAdjunto.isEmpty()) {
+            String marcadores = String.join(",", Collections.nCopies(porAdjunto.size(), "?"));
+            Set<Long> vigentes = new HashSet<>(jdbcTemplate.queryForList(
+                    SQL_ADJUNTOS.formatted(marcadores), Long.class, porAdjunto.keySet().toArray()));
+            porAdjunto.forEach((id, archivos) -> {
+                if (!vigentes.contains(id)) {
+                    archivos.forEach(archivo -> borrar(archivo, acumulador));
+                }
+            });
+        }
+    }
+
+    /**
+     * Una copia fría sobra si el contenido ya no existe, o si ya volvió al directorio de subidas.
+     * Si el contenido sigue marcado como frío pero el original está en su sitio (se volvió a subir),
+     * se corrige la marca; salvo recién archivado, cuando el original solo espera la gracia para
+     * borrarse.
+     */
+    private void conciliarFrios(List<Path> lote, Acumulador acumulador) {
+        Map<String, Path> porHash = porHash(lote, ".gz");
+        Map<String, Registro> registrados = contenidos(porHash.keySet());
+        porHash.forEach((hash, archivo) -> {
+            Registro registro = registrados.get(hash);
+            if (registro == null) {
+                borrar(archivo, acumulador);
+                return;
+            }
+            if (registro.copiaCaliente()
+                    || !Files.exists(almacenArchivosService.resolver(AlmacenArchivosService.rutaDe(hash)))) {
+                return;
+            }
+            if (!registro.frio()) {
+                borrar(archivo, acumulador);
+                return;
+            }
+            try {
+                long tamano = Files.size(archivo);
+                almacenArchivosService.descartarCopiaFria(hash);
+                acumulador.borrados.incrementAndGet();
+                acumulador.bytes.addAndGet(tamano);
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se pudo descartar la copia fría de {}: {}", hash, e.getMessage());
+            }
+        });
+    }
+
+    private Map<String, Registro> contenidos(Set<String> hashes) {
+        Map<String, Registro> registrados = new HashMap<>(hashes.size() * 2);
+        if (hashes.isEmpty()) {
+            return registrados;
+        }
+        String marcadores = String.join(",", Collections.nCopies(hashes.size(), "?"));
+        jdbcTemplate.query(SQL_CONTENIDOS.formatted(marcadores),
+                (RowCallbackHandler) rs -> registrados.put(rs.getString(1),
+                        new Registro(rs.getBoolean(2), rs.getBoolean(3))), hashes.toArray());
+        return registrados;
+    }
+
+    // Los nombres que no son un hash se dejan: no los escribió el almacén
+    private static Map<String, Path> porHash(List<Path> lote, String extension) {
+        Map<String, Path> porHash = new HashMap<>(lote.size() * 2);
+        for (Path archivo : lote) {
+            String nombre = archivo.getFileName().toString();
+            if (!extension.isEmpty() && nombre.endsWith(extension)) {
+                nombre = nombre.substring(0, nombre.length() - extension.length());
+            }
+            if (HASH.matcher(nombre).matches()) {
+                porHash.put(nombre, archivo);
+            }
+        }
+        return porHash;
+    }
+
+    private static String sinExtension(String nombre) {
+        int punto = nombre.lastIndexOf('.');
+        return punto > 0 ? nombre.substring(0, punto) : nombre;
+    }
+
+    private static void borrar(Path archivo, Acumulador acumulador) {
+        try {
+            long tamano = Files.size(archivo);
+            if (Files.deleteIfExists(archivo)) {
+                acumulador.borrados.incrementAndGet();
+                acumulador.bytes.addAndGet(tamano);
+                log.debug("Archivo huérfano borrado: {}", archivo);
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el archivo huérfano {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    private static void esperar(Future<?> tarea) throws IOException {
+        try {
+            tarea.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Barrido de huérfanos interrumpido", e);
+        } catch (ExecutionException e) {
+            log.warn("Falló una tarea del barrido de huérfanos: {}", e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
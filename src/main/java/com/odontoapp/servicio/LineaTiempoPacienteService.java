@@ -0,0 +1,25 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.EventoLineaTiempoDTO.TipoEvento;
+import com.odontoapp.dto.LineaTiempoDTO;
+
+import java.util.Set;
+
+/**
+ * Línea de tiempo unificada del paciente (vista 360): citas, tratamientos realizados, comprobantes,
+ * cambios de odontograma y archivos adjuntos, paginada con cursor.
+ */
+public interface LineaTiempoPacienteService {
+
+    /**
+     * Siguiente página de eventos anteriores al cursor.
+     *
+     * @param pacienteId ID del paciente (no del usuario)
+     * @param cursor     valor de {@code siguienteCursor} de la página anterior, o null para empezar
+     * @param limite     cantidad máxima de eventos
+     * @param tipos      tipos a incluir; null o vacío para todos
+     * @throws jakarta.persistence.EntityNotFoundException si el paciente no existe
+     * @throws IllegalArgumentException                    si el cursor no es válido
+     */
+    LineaTiempoDTO obtenerPagina(Long pacienteId, String cursor, int limite, Set<TipoEvento> tipos);
+}
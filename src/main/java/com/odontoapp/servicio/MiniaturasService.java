@@ -0,0 +1,403 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.entidad.ArchivoAdjunto;
+import com.odontoapp.evento.ArchivoAdjuntoGuardadoEvent;
+import com.odontoapp.evento.ContenidoArchivoEliminadoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Miniaturas y vistas previas JPEG de las imágenes clínicas y de la primera página de los PDFs.
+ *
+ * - Se generan en segundo plano al confirmar la subida, en un ejecutor acotado
+ *   ({@code miniaturas.hilos}, cola de {@code miniaturas.cola}); con la cola llena no se encolan y
+ *   quedan para la primera petición.
+ * - Se guardan bajo {@code file.upload-dir/.derivados}, por hash de contenido: un mismo archivo
+ *   subido varias veces comparte sus derivados. Los adjuntos sin hash usan su ID.
+ * - Si una petición llega antes de que existan, se generan en ese momento. Las peticiones
+ *   simultáneas del mismo archivo esperan una sola generación.
+ * - Una decodificación produce todas las variantes. Las imágenes grandes se leen submuestreadas,
+ *   sin cargar la resolución completa en memoria.
+ */
+@Service
+public class MiniaturasService {
+
+    private static final Logger log = LoggerFactory.getLogger(MiniaturasService.class);
+
+    private static final float CALIDAD_JPEG = 0.82f;
+    // Tope de resolución del render de PDFs, aunque la página sea pequeña
+    private static final float DPI_MAXIMO_PDF = 150f;
+
+    /**
+     * Tamaños generados; el lado mayor de la imagen se reduce a {@code ladoMaximo} píxeles.
+     */
+    public enum Variante {
+        MINIATURA("miniatura", 200),
+        VISTA_PREVIA("vista-previa", 1024);
+
+        private final String carpeta;
+        private final int ladoMaximo;
+
+        Variante(String carpeta, int ladoMaximo) {
+            this.carpeta = carpeta;
+            this.ladoMaximo = ladoMaximo;
+        }
+
+        public String getCarpeta() {
+            return carpeta;
+        }
+    }
+
+    private final Path raiz;
+    private final AlmacenArchivosService almacenArchivosService;
+    private final ThreadPoolExecutor executor;
+    private final long esperaMs;
+
+    // Clave del contenido -> generación en curso
+    private final Map<String, CompletableFuture<Void>> enCurso = new ConcurrentHashMap<>();
+
+    private final Timer duracion;
+    private final Counter fallidos;
+
+    public MiniaturasService(@Value("${file.upload-dir}") String uploadDir,
+            AlmacenArchivosService almacenArchivosService,
+            @Value("${miniaturas.hilos:2}") int hilos,
+            @Value("${miniaturas.cola:200}") int capacidadCola,
+            @Value("${miniaturas.espera-ms:15000}") long esperaMs,
+            MeterRegistry meterRegistry) {
+        this.raiz = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(".derivados");
+        this.almacenArchivosService = almacenArchivosService;
+        this.esperaMs = esperaMs;
+
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), r -> {
+                    Thread hilo = new Thread(r, "miniaturas-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    // Por debajo de los hilos que atienden peticiones
+                    hilo.setPriority(Thread.NORM_PRIORITY - 1);
+                    return hilo;
+                });
+
+        Gauge.builder("odontoapp.miniaturas.cola", executor, e -> e.getQueue().size())
+                .description("Archivos esperando la generación de miniaturas")
+                .register(meterRegistry);
+        this.duracion = Timer.builder("odontoapp.miniaturas.duracion")
+                .description("Tiempo de generación de las miniaturas de un archivo")
+                .register(meterRegistry);
+        this.fallidos = Counter.builder("odontoapp.miniaturas.fallidos")
+                .description("Archivos cuyas miniaturas no se pudieron generar")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica si se pueden generar miniaturas para el tipo de contenido.
+     */
+    public boolean soportado(String tipoMime) {
+        if (tipoMime == null) {
+            return false;
+        }
+        return esPdf(tipoMime) || (tipoMime.startsWith("image/") && ImageIO.getImageReadersByMIMEType(tipoMime).hasNext());
+    }
+
+    /**
+     * Encola la generación tras confirmar la subida; no espera ni falla si el ejecutor está lleno.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onArchivoGuardado(ArchivoAdjuntoGuardadoEvent evento) {
+        if (!soportado(evento.tipoMime())) {
+            return;
+        }
+        String clave = clave(evento.archivoId(), evento.hashContenido());
+        if (generado(clave)) {
+            return;
+        }
+        CompletableFuture<Void> nuevo = new CompletableFuture<>();
+        if (enCurso.putIfAbsent(clave, nuevo) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> generar(clave, evento.hashContenido(), evento.rutaArchivo(), evento.tipoMime(), nuevo));
+        } catch (RejectedExecutionException e) {
+            enCurso.remove(clave, nuevo);
+            nuevo.completeExceptionally(new IOException("Cola de miniaturas llena"));
+            log.debug("Cola de miniaturas llena; el archivo {} se procesará al pedirlo", evento.archivoId());
+        }
+    }
+
+    /**
+     * Ruta de la variante pedida, generándola si todavía no existe.
+     *
+     * @param archivo archivo adjunto
+     * @throws IllegalArgumentException si el tipo de archivo no admite miniaturas
+     * @throws IOException si el archivo no se pudo decodificar
+     * @throws TimeoutException si la generación no terminó en {@code miniaturas.espera-ms}
+     */
+    public Path obtener(ArchivoAdjunto archivo, Variante variante) throws IOException, TimeoutException {
+        if (!soportado(archivo.getTipoMime())) {
+            throw new IllegalArgumentException("El tipo " + archivo.getTipoMime() + " no admite miniaturas");
+        }
+        String clave = clave(archivo.getId(), archivo.getHashContenido());
+        Path derivado = rutaDerivado(clave, variante);
+        if (Files.exists(derivado)) {
+            return derivado;
+        }
+
+        CompletableFuture<Void> nuevo = new CompletableFuture<>();
+        CompletableFuture<Void> existente = enCurso.putIfAbsent(clave, nuevo);
+        CompletableFuture<Void> futuro = existente != null ? existente : nuevo;
+        if (existente == null) {
+            if (Files.exists(derivado)) {
+                // Terminó otra generación entre la comprobación y el registro
+                enCurso.remove(clave, nuevo);
+                nuevo.complete(null);
+                return derivado;
+            }
+            try {
+                executor.execute(() -> generar(clave, archivo.getHashContenido(), archivo.getRutaArchivo(),
+                        archivo.getTipoMime(), nuevo));
+            } catch (RejectedExecutionException e) {
+                // Ejecutor saturado: quien pide la imagen no se queda sin ella
+                generar(clave, archivo.getHashContenido(), archivo.getRutaArchivo(), archivo.getTipoMime(), nuevo);
+            }
+        }
+
+        try {
+            futuro.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación de miniaturas interrumpida", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        return derivado;
+    }
+
+    /**
+     * Borra los derivados de un contenido que ya no se usa.
+     */
+    @EventListener
+    public void onContenidoEliminado(ContenidoArchivoEliminadoEvent evento) {
+        eliminarDerivados(evento.hashContenido());
+    }
+
+    /**
+     * Borra los derivados de un adjunto sin hash de contenido.
+     */
+    public void eliminarDerivados(ArchivoAdjunto archivo) {
+        eliminarDerivados(clave(archivo.getId(), archivo.getHashContenido()));
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private void eliminarDerivados(String clave) {
+        for (Variante variante : Variante.values()) {
+            try {
+                Files.deleteIfExists(rutaDerivado(clave, variante));
+            } catch (IOException e) {
+                log.warn("No se pudo borrar la {} de {}: {}", variante.getCarpeta(), clave, e.getMessage());
+            }
+        }
+    }
+
+    // El original solo se lee (y se restaura del almacén frío) si de verdad hay que generar
+    private void generar(String clave, String hash, String ruta, String tipoMime, CompletableFuture<Void> resultado) {
+        try {
+            if (!generado(clave)) {
+                long inicio = System.nanoTime();
+                Path origen = almacenArchivosService.leer(hash, ruta);
+                BufferedImage imagen = esPdf(tipoMime) ? renderizarPrimeraPagina(origen) : leerImagen(origen);
+                // Cada variante sale de la anterior: la miniatura se reduce desde la vista previa
+                for (Variante variante : new Variante[] { Variante.VISTA_PREVIA, Variante.MINIATURA }) {
+                    imagen = escalar(imagen, variante.ladoMaximo);
+                    escribirJpeg(imagen, rutaDerivado(clave, variante));
+                }
+                duracion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+            resultado.complete(null);
+        } catch (IOException | RuntimeException e) {
+            fallidos.increment();
+            log.warn("No se pudieron generar las miniaturas de {}: {}", clave, e.getMessage());
+            resultado.completeExceptionally(e);
+        } finally {
+            enCurso.remove(clave, resultado);
+        }
+    }
+
+    private boolean generado(String clave) {
+        for (Variante variante : Variante.values()) {
+            if (!Files.exists(rutaDerivado(clave, variante))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Se decodifica saltando píxeles hasta quedar cerca del doble de la vista previa
+    private static BufferedImage leerImagen(Path origen) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(origen.toFile())) {
+            if (entrada == null) {
+                throw new IOException("No se pudo abrir " + origen.getFileName());
+            }
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                throw new IOException("Formato de imagen no reconocido");
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ladoMayor = Math.max(lector.getWidth(0), lector.getHeight(0));
+                int paso = Math.max(1, ladoMayor / (2 * Variante.VISTA_PREVIA.ladoMaximo));
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                parametros.setSourceSubsampling(paso, paso, 0, 0);
+                return lector.read(0, parametros);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage renderizarPrimeraPagina(Path origen) throws IOException {
+        try (PDDocument documento = Loader.loadPDF(origen.toFile())) {
+            if (documento.getNumberOfPages() == 0) {
+                throw new IOException("PDF sin páginas");
+            }
+            PDRectangle pagina = documento.getPage(0).getCropBox();
+            float ladoPuntos = Math.max(pagina.getWidth(), pagina.getHeight());
+            float dpi = Math.min(DPI_MAXIMO_PDF, Variante.VISTA_PREVIA.ladoMaximo * 72f / ladoPuntos);
+            return new PDFRenderer(documento).renderImageWithDPI(0, dpi, ImageType.RGB);
+        }
+    }
+
+    static BufferedImage escalar(BufferedImage imagen, int ladoMaximo) {
+        BufferedImage actual = imagen;
+        for (int[] paso : pasosEscalado(imagen.getWidth(), imagen.getHeight(), ladoMaximo)) {
+            actual = redimensionar(actual, paso[0], paso[1]);
+        }
+        return actual;
+    }
+
+    /**
+     * Tamaños {ancho, alto} de cada reducción, el último el final. Se reduce a la mitad en cada paso
+     * porque con bilineal en un solo paso se pierden detalles finos. Nunca se amplía; una imagen que
+     * ya cabe da un único paso a su mismo tamaño, que la pasa a RGB.
+     */
+    static List<int[]> pasosEscalado(int ancho, int alto, int ladoMaximo) {
+        double escala = Math.min(1.0, (double) ladoMaximo / Math.max(ancho, alto));
+        int anchoFinal = Math.max(1, (int) Math.round(ancho * escala));
+        int altoFinal = Math.max(1, (int) Math.round(alto * escala));
+
+        List<int[]> pasos = new ArrayList<>();
+        do {
+            ancho = Math.max(anchoFinal, ancho / 2);
+            alto = Math.max(altoFinal, alto / 2);
+            pasos.add(new int[] { ancho, alto });
+        } while (ancho != anchoFinal || alto != altoFinal);
+        return pasos;
+    }
+
+    // Siempre a RGB con fondo blanco: JPEG no admite transparencia
+    private static BufferedImage redimensionar(BufferedImage imagen, int ancho, int alto) {
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, ancho, alto);
+            g.drawImage(imagen, 0, 0, ancho, alto, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    private static void escribirJpeg(BufferedImage imagen, Path destino) throws IOException {
+        Files.createDirectories(destino.getParent());
+        Path temporal = Files.createTempFile(destino.getParent(), "derivado-", ".tmp");
+        try {
+            ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream salida = ImageIO.createImageOutputStream(temporal.toFile())) {
+                ImageWriteParam parametros = escritor.getDefaultWriteParam();
+                parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                parametros.setCompressionQuality(CALIDAD_JPEG);
+                // Progresivo: en conexiones lentas se ve una versión borrosa antes de terminar
+                parametros.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                escritor.setOutput(salida);
+                escritor.write(null, new IIOImage(imagen, null, null), parametros);
+            } finally {
+                escritor.dispose();
+            }
+            try {
+                Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private Path rutaDerivado(String clave, Variante variante) {
+        String carpeta = clave.startsWith("adjunto-") ? "legado" : clave.substring(0, 2);
+        return raiz.resolve(variante.carpeta).resolve(carpeta).resolve(clave + ".jpg");
+    }
+
+    // El hash de contenido cuando existe; si no, el ID del adjunto
+    private static String clave(Long archivoId, String hashContenido) {
+        return hashContenido != null ? hashContenido : "adjunto-" + archivoId;
+    }
+
+    private static boolean esPdf(String tipoMime) {
+        return "application/pdf".equals(tipoMime);
+    }
+}
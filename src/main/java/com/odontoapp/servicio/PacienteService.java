@@ -2,11 +2,13 @@
 package com.odontoapp.servicio;
 
 import com.odontoapp.dto.PacienteDTO;
+import com.odontoapp.dto.PacienteSugerenciaDTO;
 import com.odontoapp.dto.RegistroPacienteDTO; // Importar nuevo DTO
 import com.odontoapp.entidad.Paciente;
 import com.odontoapp.entidad.Usuario; // Importar Usuario
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import java.util.Optional;
 
 public interface PacienteService {
@@ -19,6 +21,12 @@ public interface PacienteService {
 
     Page<Paciente> listarTodosLosPacientes(String keyword, Pageable pageable);
 
+    /**
+     * Pacientes con usuario activo para los selectores con búsqueda, sin cargar entidades.
+     * Usa el índice de búsqueda (por relevancia) o, si no está disponible, prefijo de nombre o documento.
+     */
+    Slice<PacienteSugerenciaDTO> buscarSugerencias(String termino, Pageable pageable);
+
     Optional<Paciente> buscarPorId(Long id);
 
     void eliminarPaciente(Long id);
@@ -1,6 +1,10 @@
 // Archivo: C:\proyectos\nuevo\odontoapp\src\main\java\com\odontoapp\servicio\PacienteServiceImpl.java
 package com.odontoapp.servicio;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -9,10 +13,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import com.odontoapp.dto.PacienteDTO;
+import com.odontoapp.dto.PacienteSugerenciaDTO;
 import com.odontoapp.dto.RegistroPacienteDTO;
 import com.odontoapp.entidad.Paciente;
 import com.odontoapp.entidad.Rol;
@@ -23,11 +30,17 @@ import com.odontoapp.repositorio.PacienteRepository;
 import com.odontoapp.repositorio.RolRepository;
 import com.odontoapp.repositorio.TipoDocumentoRepository;
 import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.IndiceBusquedaService.TipoIndice;
+import com.odontoapp.util.PaginacionPorIds;
+import com.odontoapp.util.ValidadorTelefono;
 
 import jakarta.transaction.Transactional;
 
 @Service
 public class PacienteServiceImpl implements PacienteService {
+    // IDs del ranking que se consultan por vuelta al armar una página de sugerencias
+    private static final int BLOQUE_SUGERENCIAS = 100;
+
     private final CitaRepository citaRepository;
     private final PacienteRepository pacienteRepository;
     private final RolRepository rolRepository;
@@ -36,12 +49,14 @@ public class PacienteServiceImpl implements PacienteService {
     private final UsuarioService usuarioService;
     private final UsuarioRepository usuarioRepository;
     private final TipoDocumentoRepository tipoDocumentoRepository;
+    private final IndiceBusquedaService indiceBusquedaService;
 
     @Autowired
     public PacienteServiceImpl(PacienteRepository pacienteRepository, RolRepository rolRepository,
             PasswordEncoder passwordEncoder, EmailService emailService,
             UsuarioService usuarioService, UsuarioRepository usuarioRepository,
-            TipoDocumentoRepository tipoDocumentoRepository, CitaRepository citaRepository) {
+            TipoDocumentoRepository tipoDocumentoRepository, CitaRepository citaRepository,
+            IndiceBusquedaService indiceBusquedaService) {
         this.pacienteRepository = pacienteRepository;
         this.rolRepository = rolRepository;
         this.passwordEncoder = passwordEncoder;
@@ -50,6 +65,7 @@ public class PacienteServiceImpl implements PacienteService {
         this.usuarioRepository = usuarioRepository;
         this.tipoDocumentoRepository = tipoDocumentoRepository;
         this.citaRepository = citaRepository;
+        this.indiceBusquedaService = indiceBusquedaService;
     }
 
     // Método modificado para validar DNI también en Usuarios
@@ -104,37 +120,7 @@ public class PacienteServiceImpl implements PacienteService {
      * - No puede ser una secuencia ascendente/descendente (ej: 123456789, 987654321)
      */
     private void validarFormatoTelefono(String telefono) {
-        if (telefono == null || telefono.trim().isEmpty()) {
-            return; // Campo opcional
-        }
-
-        // Remover espacios y guiones
-        String telefonoLimpio = telefono.replaceAll("[\\s\\-]", "");
-
-        // Validar que solo contenga dígitos
-        if (!telefonoLimpio.matches("\\d+")) {
-            throw new IllegalArgumentException("El teléfono solo debe contener números.");
-        }
-
-        // Validar longitud (9 dígitos para celulares peruanos)
-        if (telefonoLimpio.length() != 9) {
-            throw new IllegalArgumentException("El teléfono debe tener exactamente 9 dígitos.");
-        }
-
-        // Validar que empiece con 9 (celulares peruanos)
-        if (!telefonoLimpio.startsWith("9")) {
-            throw new IllegalArgumentException("El número celular debe empezar con 9.");
-        }
-
-        // Validar que no sea un número repetido (ej: 999999999, 111111111)
-        if (telefonoLimpio.matches("(\\d)\\1{8}")) {
-            throw new IllegalArgumentException("El teléfono no puede tener todos los dígitos iguales.");
-        }
-
-        // Validar que no sea una secuencia ascendente (123456789) o descendente (987654321)
-        if (telefonoLimpio.equals("123456789") || telefonoLimpio.equals("987654321")) {
-            throw new IllegalArgumentException("El teléfono no puede ser una secuencia numérica simple.");
-        }
+        ValidadorTelefono.validar(telefono);
     }
 
     @Override
@@ -368,6 +354,14 @@ public class PacienteServiceImpl implements PacienteService {
     @Override
     public Page<Paciente> listarTodosLosPacientes(String keyword, Pageable pageable) {
         if (keyword != null && !keyword.isEmpty()) {
+            // Índice en memoria (ordenado por relevancia); LIKE mientras el índice no esté listo
+            Optional<List<Long>> ids = indiceBusquedaService.buscar(TipoIndice.PACIENTE, keyword);
+            if (ids.isPresent()) {
+                List<Long> visibles = PaginacionPorIds.filtrar(ids.get(),
+                        pacienteRepository::findIdsConSoloRolPaciente);
+                return PaginacionPorIds.paginar(visibles, pageable, pacienteRepository::findAllById,
+                        Paciente::getId);
+            }
             return pacienteRepository.findByKeyword(keyword, pageable);
         }
         // ⚠️ IMPORTANTE: Solo mostrar pacientes con rol PACIENTE únicamente
@@ -375,6 +369,48 @@ public class PacienteServiceImpl implements PacienteService {
         return pacienteRepository.findPacientesConSoloRolPaciente(pageable);
     }
 
+    @Override
+    public Slice<PacienteSugerenciaDTO> buscarSugerencias(String termino, Pageable pageable) {
+        String texto = termino == null ? "" : termino.trim();
+        Optional<List<Long>> ids = texto.isEmpty()
+                ? Optional.empty()
+                : indiceBusquedaService.buscar(TipoIndice.PACIENTE, texto);
+        if (ids.isEmpty()) {
+            return pacienteRepository.findSugerenciasPorPrefijo(texto, pageable);
+        }
+
+        // Se recorre el ranking por bloques descartando pacientes inactivos hasta llenar la página
+        // (uno más para saber si hay página siguiente)
+        List<Long> ranking = ids.get();
+        long saltar = pageable.getOffset();
+        int necesarios = pageable.getPageSize() + 1;
+        List<PacienteSugerenciaDTO> pagina = new ArrayList<>(necesarios);
+        for (int desde = 0; desde < ranking.size() && pagina.size() < necesarios; desde += BLOQUE_SUGERENCIAS) {
+            List<Long> bloque = ranking.subList(desde, Math.min(desde + BLOQUE_SUGERENCIAS, ranking.size()));
+            Map<Long, PacienteSugerenciaDTO> activos = new HashMap<>();
+            for (PacienteSugerenciaDTO sugerencia : pacienteRepository.findSugerenciasByIdIn(bloque)) {
+                activos.put(sugerencia.getId(), sugerencia);
+            }
+            for (Long id : bloque) {
+                PacienteSugerenciaDTO sugerencia = activos.get(id);
+                if (sugerencia == null) {
+                    continue;
+                }
+                if (saltar > 0) {
+                    saltar--;
+                } else if (pagina.size() < necesarios) {
+                    pagina.add(sugerencia);
+                }
+            }
+        }
+
+        boolean hayMas = pagina.size() > pageable.getPageSize();
+        if (hayMas) {
+            pagina.remove(pagina.size() - 1);
+        }
+        return new SliceImpl<>(pagina, pageable, hayMas);
+    }
+
     @Override
     public Optional<Paciente> buscarPorId(Long id) {
         return pacienteRepository.findById(id);
@@ -5,11 +5,13 @@ import com.odontoapp.entidad.CategoriaProcedimiento;
 import com.odontoapp.entidad.Procedimiento;
 import com.odontoapp.entidad.ProcedimientoInsumo;
 import com.odontoapp.entidad.Insumo;
+import com.odontoapp.evento.ProcedimientoModificadoEvent;
 import com.odontoapp.repositorio.CategoriaProcedimientoRepository;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.ProcedimientoRepository;
 import com.odontoapp.repositorio.ProcedimientoInsumoRepository;
 import com.odontoapp.repositorio.InsumoRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -27,17 +29,20 @@ public class ProcedimientoServiceImpl implements ProcedimientoService {
     private final CitaRepository citaRepository;
     private final ProcedimientoInsumoRepository procedimientoInsumoRepository;
     private final InsumoRepository insumoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ProcedimientoServiceImpl(ProcedimientoRepository procedimientoRepository,
                                      CategoriaProcedimientoRepository categoriaRepository,
                                      CitaRepository citaRepository,
                                      ProcedimientoInsumoRepository procedimientoInsumoRepository,
-                                     InsumoRepository insumoRepository) {
+                                     InsumoRepository insumoRepository,
+                                     ApplicationEventPublisher eventPublisher) {
         this.procedimientoRepository = procedimientoRepository;
         this.categoriaRepository = categoriaRepository;
         this.citaRepository = citaRepository;
         this.procedimientoInsumoRepository = procedimientoInsumoRepository;
         this.insumoRepository = insumoRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -111,6 +116,9 @@ public class ProcedimientoServiceImpl implements ProcedimientoService {
                 procedimientoInsumoRepository.save(procedimientoInsumo);
             }
         }
+
+        // El precio o los insumos pudieron cambiar: recalcular su costo
+        eventPublisher.publishEvent(new ProcedimientoModificadoEvent(procedimiento.getId()));
     }
 
     @Override
@@ -129,6 +137,7 @@ public class ProcedimientoServiceImpl implements ProcedimientoService {
         // Soft delete manual
         procedimiento.setEliminado(true);
         procedimientoRepository.save(procedimiento);
+        eventPublisher.publishEvent(new ProcedimientoModificadoEvent(id));
     }
 
     @Override
@@ -144,6 +153,7 @@ public class ProcedimientoServiceImpl implements ProcedimientoService {
         // Restablecer el procedimiento
         procedimiento.setEliminado(false);
         procedimientoRepository.save(procedimiento);
+        eventPublisher.publishEvent(new ProcedimientoModificadoEvent(id));
 
         System.out.println("✅ Procedimiento '" + procedimiento.getNombre() + "' restablecido exitosamente.");
     }
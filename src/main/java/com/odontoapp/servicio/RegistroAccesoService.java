@@ -0,0 +1,144 @@
+package com.odontoapp.servicio;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro diferido (write-behind) de los datos de login de cada usuario: último acceso y limpieza
+ * de un bloqueo por intentos fallidos ya vencido.
+ *
+ * El login solo deja el dato en una cola en memoria, agrupada por usuario (varios logins del mismo
+ * usuario entre dos vaciados se quedan en una sola fila). Cada pocos segundos se escriben con
+ * UPDATE por lotes vía JDBC, sin cargar la entidad ni pasar por sus listeners. Al apagar la
+ * aplicación se vacía lo pendiente.
+ */
+@Service
+public class RegistroAccesoService {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroAccesoService.class);
+
+    // Nunca retrocede: un lote atrasado no pisa un acceso más reciente
+    private static final String SQL_ULTIMO_ACCESO = "UPDATE usuarios SET ultimo_acceso = ? "
+            + "WHERE id = ? AND (ultimo_acceso IS NULL OR ultimo_acceso < ?)";
+    // Solo limpia bloqueos vencidos: un bloqueo nuevo posterior al login se respeta
+    private static final String SQL_DESBLOQUEO = "UPDATE usuarios SET intentos_fallidos = 0, fecha_bloqueo = NULL "
+            + "WHERE id = ? AND (fecha_bloqueo IS NULL OR fecha_bloqueo <= ?) "
+            + "AND (intentos_fallidos <> 0 OR fecha_bloqueo IS NOT NULL)";
+
+    /**
+     * Cambios pendientes de un usuario, ya combinados.
+     */
+    private record Pendiente(LocalDateTime ultimoAcceso, boolean desbloquear) {
+
+        Pendiente combinar(Pendiente otro) {
+            LocalDateTime acceso = ultimoAcceso == null || (otro.ultimoAcceso != null
+                    && otro.ultimoAcceso.isAfter(ultimoAcceso)) ? otro.ultimoAcceso : ultimoAcceso;
+            return new Pendiente(acceso, desbloquear || otro.desbloquear);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int bloqueoMinutos;
+
+    // ID de usuario -> cambios pendientes
+    private final Map<Long, Pendiente> pendientes = new ConcurrentHashMap<>();
+
+    public RegistroAccesoService(JdbcTemplate jdbcTemplate,
+            @Value("${seguridad.login.bloqueo-minutos:15}") int bloqueoMinutos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bloqueoMinutos = bloqueoMinutos;
+    }
+
+    /**
+     * Encola el último acceso del usuario.
+     */
+    public void registrarAcceso(Long usuarioId, LocalDateTime fecha) {
+        if (usuarioId != null) {
+            pendientes.merge(usuarioId, new Pendiente(fecha, false), Pendiente::combinar);
+        }
+    }
+
+    /**
+     * Encola la limpieza de intentos fallidos de un usuario cuyo bloqueo ya venció.
+     */
+    public void registrarDesbloqueo(Long usuarioId) {
+        if (usuarioId != null) {
+            pendientes.merge(usuarioId, new Pendiente(null, true), Pendiente::combinar);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${usuarios.accesos.vaciado-ms:5000}")
+    public void vaciarProgramado() {
+        vaciar();
+    }
+
+    @PreDestroy
+    void alApagar() {
+        int cantidad = vaciar();
+        if (cantidad > 0) {
+            log.info("Registro de accesos: {} usuarios pendientes escritos al apagar", cantidad);
+        }
+    }
+
+    /**
+     * Escribe los cambios pendientes con dos UPDATE por lotes.
+     *
+     * @return cantidad de usuarios escritos
+     */
+    synchronized int vaciar() {
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+        // Ordenado por ID: los lotes bloquean las filas siempre en el mismo orden
+        Map<Long, Pendiente> lote = new TreeMap<>();
+        for (Long id : pendientes.keySet()) {
+            Pendiente pendiente = pendientes.remove(id);
+            if (pendiente != null) {
+                lote.put(id, pendiente);
+            }
+        }
+
+        List<Object[]> accesos = new ArrayList<>();
+        List<Object[]> desbloqueos = new ArrayList<>();
+        Timestamp limiteBloqueo = Timestamp.valueOf(LocalDateTime.now().minusMinutes(bloqueoMinutos));
+        lote.forEach((id, pendiente) -> {
+            if (pendiente.ultimoAcceso() != null) {
+                Timestamp fecha = Timestamp.valueOf(pendiente.ultimoAcceso());
+                accesos.add(new Object[] { fecha, id, fecha });
+            }
+            if (pendiente.desbloquear()) {
+                desbloqueos.add(new Object[] { id, limiteBloqueo });
+            }
+        });
+
+        try {
+            if (!accesos.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_ULTIMO_ACCESO, accesos);
+            }
+            if (!desbloqueos.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_DESBLOQUEO, desbloqueos);
+            }
+        } catch (RuntimeException e) {
+            // Se reintentan en el próximo vaciado (los UPDATE son idempotentes)
+            lote.forEach((id, pendiente) -> pendientes.merge(id, pendiente, Pendiente::combinar));
+            log.warn("No se pudo escribir el registro de accesos de {} usuarios; se reintentará", lote.size(), e);
+            return 0;
+        }
+        log.debug("Registro de accesos: {} últimos accesos y {} desbloqueos escritos",
+                accesos.size(), desbloqueos.size());
+        return lote.size();
+    }
+}
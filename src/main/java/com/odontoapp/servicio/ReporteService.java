@@ -16,5 +16,6 @@ public interface ReporteService {
 
         List<ReporteDTO> obtenerNuevosPacientesPorMes(java.time.LocalDate fechaInicio, java.time.LocalDate fechaFin);
 
-        
+        // Servicios con menor margen (precio base - costo de materiales), desde la caché de costos
+        List<ReporteDTO> obtenerMargenPorServicio();
 }
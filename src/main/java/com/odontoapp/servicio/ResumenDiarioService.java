@@ -0,0 +1,33 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Servicio que mantiene las tablas de resúmenes diarios usadas por el módulo de reportes.
+ * Cada día se regenera completo (borrar + agregar), por lo que todas las operaciones son idempotentes.
+ */
+public interface ResumenDiarioService {
+
+    /**
+     * Regenera todos los tipos de resumen para el rango de días indicado (inclusive).
+     */
+    void reconstruir(LocalDate desde, LocalDate hasta);
+
+    /**
+     * Regenera los resúmenes desde la primera fecha con datos hasta hoy.
+     */
+    void reconstruirTodo();
+
+    /**
+     * Regenera un tipo de resumen solo para los días indicados.
+     */
+    void recalcularDias(TipoResumen tipo, Collection<LocalDate> dias);
+
+    /**
+     * Indica si todavía no existe ningún resumen generado.
+     */
+    boolean estaVacio();
+}
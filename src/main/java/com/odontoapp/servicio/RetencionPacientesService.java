@@ -0,0 +1,42 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.CohorteRetencionDTO;
+import com.odontoapp.dto.PacienteRecallDTO;
+import com.odontoapp.util.EscritorTabular;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Analítica de retención de pacientes por cohorte y lista de pacientes con limpieza de control vencida.
+ * Los resultados se calculan en lote y se mantienen en memoria hasta el siguiente cálculo; hasta
+ * el primero, las consultas devuelven listas vacías.
+ */
+public interface RetencionPacientesService {
+
+    /**
+     * Cohortes por mes de primera visita con los pacientes que volvieron a los 3, 6 y 12 meses.
+     */
+    List<CohorteRetencionDTO> obtenerCohortes();
+
+    /**
+     * Pacientes con la limpieza vencida, ordenados de más a menos días de atraso.
+     */
+    List<PacienteRecallDTO> obtenerRecallPendiente();
+
+    /**
+     * Fecha del último cálculo, o null si aún no se ha calculado.
+     */
+    LocalDateTime obtenerFechaCalculo();
+
+    /**
+     * Recalcula cohortes y recall con una única lectura del historial de citas y tratamientos.
+     */
+    void recalcular();
+
+    /**
+     * Exporta la lista de recall (con email y teléfono) para el envío de recordatorios.
+     */
+    void exportarRecall(EscritorTabular escritor) throws IOException;
+}
@@ -4,6 +4,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException; // Asegúrate de importar Set
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Service;
 import com.odontoapp.dto.RolDTO;
 import com.odontoapp.entidad.Permiso;
 import com.odontoapp.entidad.Rol;
+import com.odontoapp.evento.PersonalModificadoEvent;
 import com.odontoapp.repositorio.PermisoRepository;
 import com.odontoapp.repositorio.RolRepository; // Importar Usuario
 import com.odontoapp.repositorio.UsuarioRepository;
@@ -25,6 +27,7 @@ public class RolServiceImpl implements RolService {
     private final PermisoRepository permisoRepository;
     private final SessionInvalidationService sessionInvalidationService;
     private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Nombres de roles protegidos (constantes para evitar errores tipográficos)
     private static final String ROL_ADMIN = "ADMIN";
@@ -33,11 +36,13 @@ public class RolServiceImpl implements RolService {
 
     public RolServiceImpl(RolRepository rolRepository, PermisoRepository permisoRepository,
                           SessionInvalidationService sessionInvalidationService,
-                          UsuarioRepository usuarioRepository) {
+                          UsuarioRepository usuarioRepository,
+                          ApplicationEventPublisher eventPublisher) {
         this.rolRepository = rolRepository;
         this.permisoRepository = permisoRepository;
         this.sessionInvalidationService = sessionInvalidationService;
         this.usuarioRepository = usuarioRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -99,7 +104,9 @@ public class RolServiceImpl implements RolService {
             rol.getPermisos().addAll(permisosSeleccionados); // Añadir los nuevos permisos
         }
 
+        marcarCambioDePermisos(rol);
         rolRepository.save(rol);
+        eventPublisher.publishEvent(new PersonalModificadoEvent(null, rol.getId()));
 
         // ⚠️ INVALIDAR SESIONES: Si se modificaron los permisos de un rol existente,
         // forzar logout a todos los usuarios con ese rol para que obtengan los nuevos permisos
@@ -147,7 +154,9 @@ public class RolServiceImpl implements RolService {
 
         // Soft delete manual para preservar relaciones con permisos
         rol.setEliminado(true);
+        marcarCambioDePermisos(rol);
         rolRepository.save(rol);
+        eventPublisher.publishEvent(new PersonalModificadoEvent(null, rol.getId()));
     }
 
     @Override
@@ -177,7 +186,9 @@ public class RolServiceImpl implements RolService {
         // --- CAMBIO DE ESTADO ---
         boolean nuevoEstado = !rol.isEstaActivo();
         rol.setEstaActivo(nuevoEstado);
+        marcarCambioDePermisos(rol);
         rolRepository.save(rol);
+        eventPublisher.publishEvent(new PersonalModificadoEvent(null, rol.getId()));
 
         // ⚠️ INVALIDAR SESIONES: Forzar logout a usuarios con este rol
         // para que reflejen el cambio de estado
@@ -199,9 +210,19 @@ public class RolServiceImpl implements RolService {
 
         // Restablecer el rol
         rol.setEliminado(false);
+        marcarCambioDePermisos(rol);
         rolRepository.save(rol);
+        eventPublisher.publishEvent(new PersonalModificadoEvent(null, rol.getId()));
 
         System.out.println("✅ Rol '" + rol.getNombre() + "' restablecido exitosamente.");
     }
 
+    /**
+     * Lleva la generación del rol por encima del máximo actual: los demás nodos lo ven en su
+     * próxima verificación y recompilan sus permisos (este lo hace con el evento tras el commit).
+     */
+    private void marcarCambioDePermisos(Rol rol) {
+        rol.setGeneracionPermisos(rolRepository.maxGeneracionPermisos() + 1);
+    }
+
 }
@@ -0,0 +1,175 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.entidad.Usuario;
+import com.odontoapp.evento.PersonalModificadoEvent;
+import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.seguridad.UsuarioSesion;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Instantánea del usuario autenticado guardada en la sesión ({@link UsuarioSesion}).
+ *
+ * Se construye una vez al iniciar sesión y se reutiliza en cada petición. Cuando un usuario cambia
+ * (listener de la entidad, {@link PersonalModificadoEvent} o {@link SessionInvalidationService})
+ * se registra una marca con un número de secuencia; la próxima petición de cualquier sesión de ese
+ * usuario ve que su instantánea es anterior a la marca y la reconstruye con una sola consulta.
+ *
+ * Las marcas son locales a cada nodo. Con sesiones compartidas, un nodo que no vio el cambio no
+ * tiene marca que comparar; para acotar ese desfase cada instantánea se reconstruye además cuando
+ * supera {@code sesiones.instantanea.vigencia} (5 minutos por defecto). Los permisos no dependen de
+ * esto: los cambios de roles expiran las sesiones en el registro compartido (SessionInvalidationService).
+ */
+@Service
+public class SesionUsuarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(SesionUsuarioService.class);
+
+    public static final String ATRIBUTO_SESION = "usuarioSesion";
+    // Por encima de esta cantidad de marcas se cambian por una marca global
+    private static final int MAX_MARCAS = 10_000;
+
+    private final UsuarioRepository usuarioRepository;
+    private final long vigenciaMs;
+
+    // Sigue al reloj (en ms) para que las versiones de instantáneas creadas en otro nodo, con
+    // sesiones compartidas, sean comparables con las marcas de este
+    private final AtomicLong secuencia = new AtomicLong();
+    // Instantáneas con versión menor a este valor están desactualizadas (cambio de un rol)
+    private final AtomicLong marcaGlobal = new AtomicLong();
+    // ID de usuario -> secuencia de su último cambio
+    private final Map<Long, Long> marcas = new ConcurrentHashMap<>();
+
+    public SesionUsuarioService(UsuarioRepository usuarioRepository,
+            @Value("${sesiones.instantanea.vigencia:5m}") Duration vigencia) {
+        this.usuarioRepository = usuarioRepository;
+        this.vigenciaMs = vigencia.toMillis();
+    }
+
+    /**
+     * Instantánea del usuario de la petición actual, o null si no hay usuario autenticado.
+     */
+    public UsuarioSesion obtenerActual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getPrincipal())) {
+            return null;
+        }
+        HttpSession session = null;
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos) {
+            session = atributos.getRequest().getSession(false);
+        }
+        return obtener(session, authentication.getName());
+    }
+
+    /**
+     * Instantánea guardada en la sesión; se reconstruye si falta, es de otro usuario o quedó
+     * desactualizada. Sin sesión se construye sin guardarla.
+     */
+    public UsuarioSesion obtener(HttpSession session, String email) {
+        UsuarioSesion actual = session != null ? leer(session) : null;
+        if (actual == null || !actual.getEmail().equalsIgnoreCase(email) || estaDesactualizada(actual)) {
+            long version = secuencia.updateAndGet(v -> Math.max(v, System.currentTimeMillis()));
+            Usuario usuario = usuarioRepository.findByEmail(email).orElse(null);
+            if (usuario == null) {
+                return null;
+            }
+            if (actual != null) {
+                log.debug("Reconstruyendo datos de sesión de {}", email);
+            }
+            actual = crear(usuario, version, session);
+            if (session != null) {
+                session.setAttribute(ATRIBUTO_SESION, actual);
+            }
+            return actual;
+        }
+        // El selector de roles guarda el rol activo directamente en la sesión
+        String rolActivo = (String) session.getAttribute("rolActivo");
+        if (!Objects.equals(rolActivo, actual.getRolActivo())) {
+            actual = actual.conRolActivo(rolActivo);
+            session.setAttribute(ATRIBUTO_SESION, actual);
+        }
+        return actual;
+    }
+
+    /**
+     * Guarda la instantánea de un usuario recién autenticado y ya cargado.
+     */
+    public UsuarioSesion registrar(HttpSession session, Usuario usuario) {
+        UsuarioSesion instantanea = crear(usuario,
+                secuencia.updateAndGet(v -> Math.max(v, System.currentTimeMillis())), session);
+        session.setAttribute(ATRIBUTO_SESION, instantanea);
+        return instantanea;
+    }
+
+    public void marcarDesactualizado(Long usuarioId) {
+        if (usuarioId == null) {
+            return;
+        }
+        marcas.put(usuarioId, siguienteMarca());
+        if (marcas.size() > MAX_MARCAS) {
+            marcarTodosDesactualizados();
+            marcas.clear();
+        }
+    }
+
+    public void marcarTodosDesactualizados() {
+        marcaGlobal.set(siguienteMarca());
+    }
+
+    // Estrictamente mayor que cualquier versión ya entregada en este nodo
+    private long siguienteMarca() {
+        return secuencia.updateAndGet(v -> Math.max(v + 1, System.currentTimeMillis()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonalModificado(PersonalModificadoEvent evento) {
+        if (evento.usuarioId() != null) {
+            marcarDesactualizado(evento.usuarioId());
+        } else if (evento.rolId() != null) {
+            // Cambió un rol: no se sabe qué sesiones lo tienen
+            marcarTodosDesactualizados();
+        }
+    }
+
+    // La versión es la hora (ms) en que se construyó la instantánea
+    private boolean estaDesactualizada(UsuarioSesion instantanea) {
+        return instantanea.getVersion() < System.currentTimeMillis() - vigenciaMs
+                || instantanea.getVersion() < marcaGlobal.get()
+                || instantanea.getVersion() < marcas.getOrDefault(instantanea.getId(), 0L);
+    }
+
+    private static UsuarioSesion leer(HttpSession session) {
+        try {
+            return session.getAttribute(ATRIBUTO_SESION) instanceof UsuarioSesion u ? u : null;
+        } catch (IllegalStateException e) {
+            // Sesión invalidada durante la petición
+            return null;
+        }
+    }
+
+    private static UsuarioSesion crear(Usuario usuario, long version, HttpSession session) {
+        Set<String> roles = usuario.getRoles() == null ? Set.of()
+                : usuario.getRoles().stream().map(Rol::getNombre).collect(Collectors.toUnmodifiableSet());
+        String rolActivo = session != null ? (String) session.getAttribute("rolActivo") : null;
+        return new UsuarioSesion(usuario.getId(), usuario.getEmail(), usuario.getNombreCompleto(), roles,
+                rolActivo, usuario.isEstaActivo(), usuario.isDebeActualizarPassword(), version);
+    }
+}
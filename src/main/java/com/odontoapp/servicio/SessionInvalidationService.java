@@ -1,11 +1,11 @@
 package com.odontoapp.servicio;
 
 import org.springframework.security.core.session.SessionInformation;
-import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.stereotype.Service;
 
 import com.odontoapp.entidad.Rol;
 import com.odontoapp.entidad.Usuario;
+import com.odontoapp.seguridad.IndiceSesiones;
 
 import java.util.List;
 
@@ -15,10 +15,14 @@ import java.util.List;
 @Service
 public class SessionInvalidationService {
 
-    private final SessionRegistry sessionRegistry;
+    // Registro en memoria o, con sesiones compartidas, el de la BD (alcanza a todos los nodos)
+    private final IndiceSesiones sessionRegistry;
+    private final SesionUsuarioService sesionUsuarioService;
 
-    public SessionInvalidationService(SessionRegistry sessionRegistry) {
+    public SessionInvalidationService(IndiceSesiones sessionRegistry,
+            SesionUsuarioService sesionUsuarioService) {
         this.sessionRegistry = sessionRegistry;
+        this.sesionUsuarioService = sesionUsuarioService;
     }
 
     /**
@@ -29,28 +33,11 @@ public class SessionInvalidationService {
      * @return Cantidad de sesiones invalidadas
      */
     public int invalidarSesionesPorRol(Rol rol) {
-        int sesionesInvalidadas = 0;
+        // Sesiones que no estén en el registro releen sus datos en la próxima petición
+        sesionUsuarioService.marcarTodosDesactualizados();
 
-        // Obtener todos los principals (usuarios autenticados)
-        List<Object> allPrincipals = sessionRegistry.getAllPrincipals();
-
-        for (Object principal : allPrincipals) {
-            if (principal instanceof org.springframework.security.core.userdetails.User) {
-                org.springframework.security.core.userdetails.User userDetails =
-                    (org.springframework.security.core.userdetails.User) principal;
-
-                // Verificar si el usuario tiene el rol modificado
-                String roleName = "ROLE_" + rol.getNombre();
-                boolean tieneRol = userDetails.getAuthorities().stream()
-                    .anyMatch(auth -> auth.getAuthority().equals(roleName));
-
-                if (tieneRol) {
-                    sesionesInvalidadas += invalidarSesionesUsuario(principal);
-                }
-            }
-        }
-
-        return sesionesInvalidadas;
+        // Solo las sesiones indexadas con el rol, sin recorrer a todos los usuarios conectados
+        return expirar(sessionRegistry.getSesionesPorRol(rol.getNombre()));
     }
 
     /**
@@ -61,38 +48,15 @@ public class SessionInvalidationService {
      * @return Cantidad de sesiones invalidadas
      */
     public int invalidarSesionesPorUsuario(Usuario usuario) {
-        int sesionesInvalidadas = 0;
-
-        List<Object> allPrincipals = sessionRegistry.getAllPrincipals();
-
-        for (Object principal : allPrincipals) {
-            if (principal instanceof org.springframework.security.core.userdetails.User) {
-                org.springframework.security.core.userdetails.User userDetails =
-                    (org.springframework.security.core.userdetails.User) principal;
-
-                // Comparar por email (username)
-                if (userDetails.getUsername().equals(usuario.getEmail())) {
-                    sesionesInvalidadas += invalidarSesionesUsuario(principal);
-                }
-            }
-        }
+        sesionUsuarioService.marcarDesactualizado(usuario.getId());
 
-        return sesionesInvalidadas;
+        return expirar(sessionRegistry.getSesionesPorEmail(usuario.getEmail()));
     }
 
-    /**
-     * Invalida todas las sesiones de un principal específico.
-     *
-     * @param principal El principal cuyas sesiones serán invalidadas
-     * @return Cantidad de sesiones invalidadas
-     */
-    private int invalidarSesionesUsuario(Object principal) {
-        List<SessionInformation> sessions = sessionRegistry.getAllSessions(principal, false);
-
+    private int expirar(List<SessionInformation> sessions) {
         for (SessionInformation session : sessions) {
             session.expireNow();
         }
-
         return sessions.size();
     }
 
@@ -102,13 +66,7 @@ public class SessionInvalidationService {
      * @return Cantidad de sesiones invalidadas
      */
     public int invalidarTodasLasSesiones() {
-        int sesionesInvalidadas = 0;
-        List<Object> allPrincipals = sessionRegistry.getAllPrincipals();
-
-        for (Object principal : allPrincipals) {
-            sesionesInvalidadas += invalidarSesionesUsuario(principal);
-        }
-
-        return sesionesInvalidadas;
+        sesionUsuarioService.marcarTodosDesactualizados();
+        return expirar(sessionRegistry.getSesionesActivas());
     }
 }
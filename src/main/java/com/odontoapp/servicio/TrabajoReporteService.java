@@ -0,0 +1,33 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.ResultadoReporteDTO;
+import com.odontoapp.dto.TrabajoReporteDTO;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Cola de trabajos para generar los reportes fuera del hilo de la petición.
+ * Las solicitudes idénticas (mismo rango y odontólogo) en curso se comparten y los
+ * resultados terminados se guardan en caché por un tiempo limitado.
+ */
+public interface TrabajoReporteService {
+
+    /**
+     * Encola (o reutiliza) el trabajo para los parámetros indicados. Si el resultado está en caché
+     * se devuelve ya COMPLETADO con el id del trabajo que lo calculó, sin crear uno nuevo.
+     *
+     * @throws IllegalStateException si la cola de trabajos está llena
+     */
+    TrabajoReporteDTO enviar(LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId);
+
+    Optional<TrabajoReporteDTO> consultar(String trabajoId);
+
+    /**
+     * Devuelve el resultado en caché si existe y no ha expirado.
+     */
+    Optional<ResultadoReporteDTO> obtenerResultadoEnCache(LocalDate fechaInicio, LocalDate fechaFin,
+            Long odontologoId);
+
+    void invalidarCache();
+}
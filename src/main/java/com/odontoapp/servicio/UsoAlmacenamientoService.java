@@ -0,0 +1,142 @@
+package com.odontoapp.servicio;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uso del almacenamiento de archivos, total y por paciente.
+ *
+ * Se calcula con dos agregaciones en BD (no recorre el disco) al final del ciclo de vida del
+ * almacén y queda en memoria hasta el siguiente cálculo. Por paciente se suman sus adjuntos e
+ * imágenes vigentes aunque compartan contenido con otros; el total por ubicación (caliente o frío)
+ * cuenta cada contenido una sola vez. Métricas: odontoapp.almacen.bytes{ubicacion},
+ * odontoapp.almacen.contenidos{ubicacion}, odontoapp.almacen.pacientes y
+ * odontoapp.almacen.paciente.maximo.
+ */
+@Service
+public class UsoAlmacenamientoService {
+
+    private static final String SQL_POR_PACIENTE = "SELECT paciente_usuario_id, SUM(bytes), COUNT(*) FROM ("
+            + "SELECT paciente_usuario_id, COALESCE(tamano_bytes, 0) AS bytes FROM archivos_adjuntos WHERE eliminado = false "
+            + "UNION ALL SELECT paciente_usuario_id, COALESCE(tamanio_bytes, 0) FROM paciente_imagenes WHERE eliminado = false"
+            + ") t GROUP BY paciente_usuario_id";
+    private static final String SQL_POR_UBICACION = "SELECT frio, COALESCE(SUM(tamano_bytes), 0), COUNT(*) "
+            + "FROM contenidos_archivo WHERE referencias > 0 GROUP BY frio";
+
+    /**
+     * Uso de un paciente: bytes y cantidad de archivos vigentes.
+     */
+    public record UsoPaciente(Long pacienteId, long bytes, long archivos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Map<Long, UsoPaciente> porPaciente = Map.of();
+    private volatile LocalDateTime fechaCalculo;
+
+    private final AtomicLong bytesCalientes = new AtomicLong();
+    private final AtomicLong bytesFrios = new AtomicLong();
+    private final AtomicLong contenidosCalientes = new AtomicLong();
+    private final AtomicLong contenidosFrios = new AtomicLong();
+    private final AtomicLong maximoPaciente = new AtomicLong();
+
+    public UsoAlmacenamientoService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        Gauge.builder("odontoapp.almacen.bytes", bytesCalientes, AtomicLong::get)
+                .tag("ubicacion", "caliente").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("odontoapp.almacen.bytes", bytesFrios, AtomicLong::get)
+                .tag("ubicacion", "frio").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("odontoapp.almacen.contenidos", contenidosCalientes, AtomicLong::get)
+                .tag("ubicacion", "caliente").register(meterRegistry);
+        Gauge.builder("odontoapp.almacen.contenidos", contenidosFrios, AtomicLong::get)
+                .tag("ubicacion", "frio").register(meterRegistry);
+        Gauge.builder("odontoapp.almacen.pacientes", this, s -> s.porPaciente.size())
+                .description("Pacientes con archivos guardados")
+                .register(meterRegistry);
+        Gauge.builder("odontoapp.almacen.paciente.maximo", maximoPaciente, AtomicLong::get)
+                .description("Bytes del paciente con más archivos")
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Recalcula el uso total y por paciente.
+     */
+    public void actualizar() {
+        Map<Long, UsoPaciente> nuevo = new HashMap<>();
+        jdbcTemplate.query(SQL_POR_PACIENTE, (RowCallbackHandler) rs -> {
+            Long pacienteId = rs.getLong(1);
+            nuevo.put(pacienteId, new UsoPaciente(pacienteId, rs.getLong(2), rs.getLong(3)));
+        });
+
+        long[] totales = new long[4];
+        jdbcTemplate.query(SQL_POR_UBICACION, (RowCallbackHandler) rs -> {
+            int desplazamiento = rs.getBoolean(1) ? 2 : 0;
+            totales[desplazamiento] = rs.getLong(2);
+            totales[desplazamiento + 1] = rs.getLong(3);
+        });
+
+        porPaciente = Map.copyOf(nuevo);
+        fechaCalculo = LocalDateTime.now();
+        bytesCalientes.set(totales[0]);
+        contenidosCalientes.set(totales[1]);
+        bytesFrios.set(totales[2]);
+        contenidosFrios.set(totales[3]);
+        maximoPaciente.set(nuevo.values().stream().mapToLong(UsoPaciente::bytes).max().orElse(0));
+    }
+
+    /**
+     * Uso de un paciente según el último cálculo; ceros si no tiene archivos.
+     */
+    public UsoPaciente usoDePaciente(Long pacienteId) {
+        return porPaciente.getOrDefault(pacienteId, new UsoPaciente(pacienteId, 0, 0));
+    }
+
+    /**
+     * Pacientes con más bytes guardados, de mayor a menor.
+     */
+    public List<UsoPaciente> mayoresUsos(int cantidad) {
+        Comparator<UsoPaciente> porBytes = Comparator.comparingLong(UsoPaciente::bytes);
+        PriorityQueue<UsoPaciente> mayores = new PriorityQueue<>(cantidad + 1, porBytes);
+        for (UsoPaciente uso : porPaciente.values()) {
+            mayores.offer(uso);
+            if (mayores.size() > cantidad) {
+                mayores.poll();
+            }
+        }
+        List<UsoPaciente> resultado = new ArrayList<>(mayores);
+        resultado.sort(porBytes.reversed());
+        return resultado;
+    }
+
+    /**
+     * Resumen para administración; la primera vez tras arrancar se calcula en el momento.
+     */
+    public Map<String, Object> obtenerEstado() {
+        if (fechaCalculo == null) {
+            actualizar();
+        }
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("fechaCalculo", fechaCalculo);
+        estado.put("bytesCalientes", bytesCalientes.get());
+        estado.put("contenidosCalientes", contenidosCalientes.get());
+        estado.put("bytesFrios", bytesFrios.get());
+        estado.put("contenidosFrios", contenidosFrios.get());
+        estado.put("pacientes", porPaciente.size());
+        estado.put("mayoresUsos", mayoresUsos(20));
+        return estado;
+    }
+}
@@ -1,7 +1,9 @@
 package com.odontoapp.servicio;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
@@ -21,7 +23,7 @@ public interface UsuarioService {
 
     void cambiarEstadoUsuario(Long id);
 
-    void procesarLoginFallido(String email);
+    void bloquearPorIntentosFallidos(String email);
 
     void resetearIntentosFallidos(String email);
 
@@ -33,4 +35,9 @@ public interface UsuarioService {
             LocalDate fechaContratacion, LocalDate fechaVigencia);
 
     List<Usuario> listarPorRol(String rol);
+
+    /**
+     * Reemplaza el horario regular semanal del usuario.
+     */
+    void actualizarHorarioRegular(Long id, Map<DayOfWeek, String> horarioRegular);
 }
\ No newline at end of file
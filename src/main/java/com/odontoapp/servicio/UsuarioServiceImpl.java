@@ -1,12 +1,16 @@
 package com.odontoapp.servicio;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime; // NUEVO import
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors; // NUEVO import
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page; // NUEVO import
 import org.springframework.data.domain.Pageable;
@@ -20,12 +24,17 @@ import com.odontoapp.entidad.Paciente;
 import com.odontoapp.entidad.Rol; // NUEVO import
 import com.odontoapp.entidad.TipoDocumento;
 import com.odontoapp.entidad.Usuario; // NUEVO import
+import com.odontoapp.evento.PersonalModificadoEvent;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.PacienteRepository;
 import com.odontoapp.repositorio.RolRepository;
 import com.odontoapp.repositorio.TipoDocumentoRepository;
 import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.seguridad.LimitadorIntentosLogin;
+import com.odontoapp.servicio.IndiceBusquedaService.TipoIndice;
+import com.odontoapp.util.PaginacionPorIds;
 import com.odontoapp.util.PasswordUtil;
+import com.odontoapp.util.ValidadorTelefono;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
@@ -42,12 +51,18 @@ public class UsuarioServiceImpl implements UsuarioService {
     private final PacienteRepository pacienteRepository;
     private final TipoDocumentoRepository tipoDocumentoRepository;
     private final CitaRepository citaRepository;
+    private final IndiceBusquedaService indiceBusquedaService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LimitadorIntentosLogin limitadorIntentosLogin;
+    private final int bloqueoMinutos;
 
     // Inyecta las dependencias necesarias
     public UsuarioServiceImpl(EmailService emailService, PacienteRepository pacienteRepository,
             PasswordEncoder passwordEncoder, RolRepository rolRepository,
             TipoDocumentoRepository tipoDocumentoRepository, UsuarioRepository usuarioRepository,
-            CitaRepository citaRepository) {
+            CitaRepository citaRepository, IndiceBusquedaService indiceBusquedaService,
+            ApplicationEventPublisher eventPublisher, LimitadorIntentosLogin limitadorIntentosLogin,
+            @Value("${seguridad.login.bloqueo-minutos:15}") int bloqueoMinutos) {
         this.emailService = emailService;
         this.pacienteRepository = pacienteRepository;
         this.passwordEncoder = passwordEncoder;
@@ -55,6 +70,10 @@ public class UsuarioServiceImpl implements UsuarioService {
         this.tipoDocumentoRepository = tipoDocumentoRepository;
         this.usuarioRepository = usuarioRepository;
         this.citaRepository = citaRepository;
+        this.indiceBusquedaService = indiceBusquedaService;
+        this.eventPublisher = eventPublisher;
+        this.limitadorIntentosLogin = limitadorIntentosLogin;
+        this.bloqueoMinutos = bloqueoMinutos;
     }
 
     @Override
@@ -347,6 +366,7 @@ public class UsuarioServiceImpl implements UsuarioService {
             if (esNuevo) {
                 crearPacienteParaUsuario(usuarioGuardado);
             }
+            eventPublisher.publishEvent(new PersonalModificadoEvent(usuarioGuardado.getId(), null));
 
         } catch (DataIntegrityViolationException e) {
             // Capturar específicamente constraint violations (ej. email duplicado a nivel
@@ -389,6 +409,13 @@ public class UsuarioServiceImpl implements UsuarioService {
     @Override
     public Page<Usuario> listarTodosLosUsuarios(String keyword, Pageable pageable) {
         if (keyword != null && !keyword.isEmpty()) {
+            Optional<List<Long>> ids = indiceBusquedaService.buscar(TipoIndice.USUARIO, keyword);
+            if (ids.isPresent()) {
+                List<Long> visibles = PaginacionPorIds.filtrar(ids.get(),
+                        usuarioRepository::findIdsConRolesDePersonal);
+                return PaginacionPorIds.paginar(visibles, pageable, usuarioRepository::findAllWithRolesByIdIn,
+                        Usuario::getId);
+            }
             return usuarioRepository.findUsuariosConRolesDePersonalByKeyword(keyword, pageable);
         }
         return usuarioRepository.findUsuariosConRolesDePersonal(pageable);
@@ -396,9 +423,7 @@ public class UsuarioServiceImpl implements UsuarioService {
 
     @Override
     public List<Usuario> listarPorRol(String rol) {
-        return usuarioRepository.findAll().stream()
-                .filter(u -> u.getRoles().stream().anyMatch(r -> r.getNombre().equalsIgnoreCase(rol)))
-                .collect(Collectors.toList());
+        return usuarioRepository.findByRolesNombreIgnoreCase(rol);
     }
 
     @Override
@@ -483,6 +508,7 @@ public class UsuarioServiceImpl implements UsuarioService {
             usuario.setFechaEliminacion(java.time.LocalDateTime.now());
             usuario.setEstaActivo(false); // Desactivar también al eliminar
             usuarioRepository.save(usuario); // Guardar cambios sin tocar la tabla usuarios_roles
+            eventPublisher.publishEvent(new PersonalModificadoEvent(usuario.getId(), null));
             System.out.println(
                     ">>> Usuario " + usuario.getEmail() + " eliminado (soft delete) con éxito. Roles preservados.");
         } catch (Exception e) {
@@ -546,22 +572,34 @@ public class UsuarioServiceImpl implements UsuarioService {
 
         usuario.setEstaActivo(activar);
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new PersonalModificadoEvent(usuario.getId(), null));
     }
 
     @Override
-    @Transactional // Añadir @Transactional
-    public void procesarLoginFallido(String email) {
-        Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(email); // Usar findByEmail normal
+    @Transactional
+    public void actualizarHorarioRegular(Long id, Map<DayOfWeek, String> horarioRegular) {
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        usuario.setHorarioRegular(horarioRegular);
+        usuarioRepository.save(usuario);
+        // El directorio de personal guarda los horarios en caché
+        eventPublisher.publishEvent(new PersonalModificadoEvent(usuario.getId(), null));
+    }
+
+    @Override
+    @Transactional
+    public void bloquearPorIntentosFallidos(String email) {
+        // Los fallos se cuentan en LimitadorIntentosLogin; aquí solo se persiste el bloqueo
+        Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(email);
         if (usuarioOpt.isPresent()) {
             Usuario usuario = usuarioOpt.get();
-            // Solo incrementar si no está ya bloqueado y está activo
-            if (usuario.isEstaActivo() && usuario.getFechaBloqueo() == null) {
-                usuario.setIntentosFallidos(usuario.getIntentosFallidos() + 1);
-                if (usuario.getIntentosFallidos() >= MAX_INTENTOS_FALLIDOS) {
-                    usuario.setFechaBloqueo(LocalDateTime.now());
-                    // Considera si quieres marcarlo como inactivo también
-                    // usuario.setEstaActivo(false);
-                }
+            // Solo bloquear si está activo y no tiene un bloqueo vigente (uno vencido puede seguir en
+            // la fila hasta que RegistroAccesoService lo limpie)
+            boolean bloqueoVigente = usuario.getFechaBloqueo() != null
+                    && usuario.getFechaBloqueo().plusMinutes(bloqueoMinutos).isAfter(LocalDateTime.now());
+            if (usuario.isEstaActivo() && !bloqueoVigente) {
+                usuario.setIntentosFallidos(MAX_INTENTOS_FALLIDOS);
+                usuario.setFechaBloqueo(LocalDateTime.now());
                 usuarioRepository.save(usuario);
             }
         }
@@ -570,6 +608,7 @@ public class UsuarioServiceImpl implements UsuarioService {
     @Override
     @Transactional // Añadir @Transactional
     public void resetearIntentosFallidos(String email) {
+        limitadorIntentosLogin.reiniciar(email);
         // Usar un método que pueda encontrarlo aunque esté inactivo o bloqueado
         // temporalmente
         // Necesitaríamos findByEmailIgnorandoSoftDelete si el bloqueo implica soft
@@ -625,6 +664,7 @@ public class UsuarioServiceImpl implements UsuarioService {
         usuario.setDebeActualizarPassword(true);
 
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new PersonalModificadoEvent(usuario.getId(), null));
 
         // ✅ RESTAURAR PACIENTE ASOCIADO (si existe y está eliminado)
         if (usuario.getPaciente() != null && usuario.getPaciente().isEliminado()) {
@@ -783,38 +823,7 @@ public class UsuarioServiceImpl implements UsuarioService {
      * 987654321)
      */
     private void validarFormatoTelefono(String telefono) {
-        if (!StringUtils.hasText(telefono)) {
-            return; // Campo opcional
-        }
-
-        // Remover espacios y guiones
-        String telefonoLimpio = telefono.replaceAll("[\\s\\-]", "");
-
-        // Validar que solo contenga dígitos
-        if (!telefonoLimpio.matches("\\d+")) {
-            throw new IllegalArgumentException("El teléfono solo debe contener números.");
-        }
-
-        // Validar longitud (9 dígitos para celulares peruanos)
-        if (telefonoLimpio.length() != 9) {
-            throw new IllegalArgumentException("El teléfono debe tener exactamente 9 dígitos.");
-        }
-
-        // Validar que empiece con 9 (celulares peruanos)
-        if (!telefonoLimpio.startsWith("9")) {
-            throw new IllegalArgumentException("El número celular debe empezar con 9.");
-        }
-
-        // Validar que no sea un número repetido (ej: 999999999, 111111111)
-        if (telefonoLimpio.matches("(\\d)\\1{8}")) {
-            throw new IllegalArgumentException("El teléfono no puede tener todos los dígitos iguales.");
-        }
-
-        // Validar que no sea una secuencia ascendente (123456789) o descendente
-        // (987654321)
-        if (telefonoLimpio.equals("123456789") || telefonoLimpio.equals("987654321")) {
-            throw new IllegalArgumentException("El teléfono no puede ser una secuencia numérica simple.");
-        }
+        ValidadorTelefono.validar(telefono);
     }
 
     // Método de validación de teléfono único - VALIDACIÓN CRUZADA USUARIOS Y
@@ -941,6 +950,7 @@ public class UsuarioServiceImpl implements UsuarioService {
         usuario.getRoles().addAll(nuevosRoles);
         // Guardar cambios
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new PersonalModificadoEvent(usuario.getId(), null));
         System.out.println(">>> Paciente " + paciente.getNombreCompleto() +
                 " promocionado exitosamente a personal con " + nuevosRoles.size() + " rol(es)");
     }
@@ -0,0 +1,21 @@
+package com.odontoapp.servicio;
+
+import com.odontoapp.dto.UtilizacionOdontologoDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Analítica de utilización del tiempo de sillón por odontólogo.
+ */
+public interface UtilizacionService {
+
+    /**
+     * Calcula, para cada odontólogo activo (o solo el indicado), los minutos disponibles según su
+     * horario frente a los minutos agendados, atendidos, cancelados y no asistidos.
+     *
+     * @param incluirDias si es true, incluye el detalle por día
+     */
+    List<UtilizacionOdontologoDTO> calcular(LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId,
+            boolean incluirDias);
+}
@@ -4,23 +4,25 @@ import com.odontoapp.dto.ArchivoAdjuntoDTO;
 import com.odontoapp.entidad.ArchivoAdjunto;
 import com.odontoapp.entidad.Cita;
 import com.odontoapp.entidad.Usuario;
+import com.odontoapp.evento.ArchivoAdjuntoGuardadoEvent;
 import com.odontoapp.repositorio.ArchivoAdjuntoRepository;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.AlmacenArchivosService;
 import com.odontoapp.servicio.ArchivoAdjuntoService;
+import com.odontoapp.servicio.MiniaturasService;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,25 +30,31 @@ import java.util.stream.Collectors;
 
 /**
  * Implementación del servicio de gestión de archivos adjuntos.
- * Maneja el almacenamiento en el sistema de archivos local.
+ * Los bytes se guardan en el sistema de archivos local a través de {@link AlmacenArchivosService}.
  */
 @Service
 @Transactional
 public class ArchivoAdjuntoServiceImpl implements ArchivoAdjuntoService {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
-
     private final ArchivoAdjuntoRepository archivoAdjuntoRepository;
     private final UsuarioRepository usuarioRepository;
     private final CitaRepository citaRepository;
+    private final AlmacenArchivosService almacenArchivosService;
+    private final MiniaturasService miniaturasService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ArchivoAdjuntoServiceImpl(ArchivoAdjuntoRepository archivoAdjuntoRepository,
                                     UsuarioRepository usuarioRepository,
-                                    CitaRepository citaRepository) {
+                                    CitaRepository citaRepository,
+                                    AlmacenArchivosService almacenArchivosService,
+                                    MiniaturasService miniaturasService,
+                                    ApplicationEventPublisher eventPublisher) {
         this.archivoAdjuntoRepository = archivoAdjuntoRepository;
         this.usuarioRepository = usuarioRepository;
         this.citaRepository = citaRepository;
+        this.almacenArchivosService = almacenArchivosService;
+        this.miniaturasService = miniaturasService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -81,13 +89,7 @@ public class ArchivoAdjuntoServiceImpl implements ArchivoAdjuntoService {
         }
 
         try {
-            // 6. Crear el directorio de subida si no existe
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // 7. Generar nombre de archivo único
+            // 6. Generar nombre de archivo único (identifica al adjunto; los bytes pueden ser compartidos)
             String originalFilename = archivo.getOriginalFilename();
             String extension = "";
             if (originalFilename != null && originalFilename.contains(".")) {
@@ -95,25 +97,28 @@ public class ArchivoAdjuntoServiceImpl implements ArchivoAdjuntoService {
             }
             String nombreArchivoUnico = UUID.randomUUID().toString() + extension;
 
-            // 8. Resolver la ruta de destino
-            Path targetLocation = uploadPath.resolve(nombreArchivoUnico);
-
-            // 9. Copiar el archivo al destino
-            Files.copy(archivo.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            // 7. Guardar por contenido: una radiografía o PDF repetido no se vuelve a escribir
+            AlmacenArchivosService.ContenidoGuardado contenido = almacenArchivosService.guardar(archivo.getInputStream());
 
-            // 10. Crear entidad ArchivoAdjunto
+            // 8. Crear entidad ArchivoAdjunto
             ArchivoAdjunto archivoAdjunto = new ArchivoAdjunto();
             archivoAdjunto.setPaciente(paciente);
             archivoAdjunto.setCita(cita);
             archivoAdjunto.setNombreArchivoOriginal(originalFilename);
             archivoAdjunto.setNombreArchivoGuardado(nombreArchivoUnico);
-            archivoAdjunto.setRutaArchivo(nombreArchivoUnico); // Solo guardamos el nombre del archivo
+            archivoAdjunto.setRutaArchivo(contenido.ruta()); // Relativa a uploadDir: ab/cd/<hash>
+            archivoAdjunto.setHashContenido(contenido.hash());
             archivoAdjunto.setTipoMime(contentType);
-            archivoAdjunto.setTamanoBytes(archivo.getSize());
+            archivoAdjunto.setTamanoBytes(contenido.tamanoBytes());
             archivoAdjunto.setDescripcion(descripcion);
 
-            // 11. Guardar en la base de datos
-            return archivoAdjuntoRepository.save(archivoAdjunto);
+            // 9. Guardar en la base de datos
+            ArchivoAdjunto guardado = archivoAdjuntoRepository.save(archivoAdjunto);
+
+            // 10. Miniaturas en segundo plano, tras el commit
+            eventPublisher.publishEvent(new ArchivoAdjuntoGuardadoEvent(guardado.getId(),
+                    guardado.getHashContenido(), guardado.getRutaArchivo(), guardado.getTipoMime()));
+            return guardado;
 
         } catch (IOException e) {
             throw new RuntimeException("Error al guardar el archivo: " + e.getMessage(), e);
@@ -134,8 +139,8 @@ public class ArchivoAdjuntoServiceImpl implements ArchivoAdjuntoService {
                 .orElseThrow(() -> new EntityNotFoundException("Archivo no encontrado con ID: " + id));
 
         try {
-            // 2. Resolver la ruta completa del archivo
-            Path filePath = Paths.get(uploadDir).resolve(archivoAdjunto.getRutaArchivo()).normalize();
+            // 2. Resolver la ruta completa del archivo (lo restaura si está en el almacén frío)
+            Path filePath = almacenArchivosService.leer(archivoAdjunto.getHashContenido(), archivoAdjunto.getRutaArchivo());
 
             // 3. Crear el recurso
             Resource resource = new UrlResource(filePath.toUri());
@@ -152,6 +157,16 @@ public class ArchivoAdjuntoServiceImpl implements ArchivoAdjuntoService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Path obtenerRutaArchivo(ArchivoAdjunto archivo) throws IOException {
+        Path filePath = almacenArchivosService.leer(archivo.getHashContenido(), archivo.getRutaArchivo());
+        if (!Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+            throw new FileNotFoundException("No se pudo leer el archivo: " + archivo.getNombreArchivoOriginal());
+        }
+        return filePath;
+    }
+
     @Override
     @Transactional
     public void eliminarArchivo(Long id) {
@@ -159,12 +174,18 @@ public class ArchivoAdjuntoServiceImpl implements ArchivoAdjuntoService {
         ArchivoAdjunto archivoAdjunto = archivoAdjuntoRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Archivo no encontrado con ID: " + id));
 
-        try {
-            // 2. Resolver la ruta completa del archivo
-            Path filePath = Paths.get(uploadDir).resolve(archivoAdjunto.getRutaArchivo());
+        // 2. Contenido compartido: se quita la referencia; los bytes se borran con la última
+        if (archivoAdjunto.getHashContenido() != null) {
+            archivoAdjuntoRepository.deleteById(id);
+            almacenArchivosService.liberar(archivoAdjunto.getHashContenido());
+            return;
+        }
 
-            // 3. Eliminar el archivo físico del disco
+        try {
+            // 3. Archivo anterior al almacén por contenido: no se comparte, se elimina del disco
+            Path filePath = almacenArchivosService.resolver(archivoAdjunto.getRutaArchivo());
             Files.deleteIfExists(filePath);
+            miniaturasService.eliminarDerivados(archivoAdjunto);
 
             // 4. Eliminar el registro de la base de datos (soft delete)
             archivoAdjuntoRepository.deleteById(id);
@@ -212,6 +233,11 @@ public class ArchivoAdjuntoServiceImpl implements ArchivoAdjuntoService {
         dto.setDescripcion(archivo.getDescripcion());
         dto.setFechaSubida(archivo.getFechaCreacion());
 
+        if (miniaturasService.soportado(archivo.getTipoMime())) {
+            dto.setUrlMiniatura("/archivos/miniatura/" + archivo.getId());
+            dto.setUrlVistaPrevia("/archivos/vista-previa/" + archivo.getId());
+        }
+
         // Calcular tamaño legible
         dto.setTamanoLegible(formatearTamano(archivo.getTamanoBytes()));
 
@@ -12,6 +12,7 @@ import com.odontoapp.entidad.TratamientoRealizado;
 import com.odontoapp.entidad.MovimientoInventario;
 import com.odontoapp.entidad.TipoMovimiento;
 import com.odontoapp.entidad.MotivoMovimiento;
+import com.odontoapp.evento.CitaModificadaEvent;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.EstadoCitaRepository;
 import com.odontoapp.repositorio.InsumoRepository;
@@ -29,6 +30,7 @@ import com.odontoapp.servicio.InventarioService;
 import com.odontoapp.servicio.FacturacionService;
 import java.math.BigDecimal;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -76,6 +78,7 @@ public class CitaServiceImpl implements CitaService {
     private final MotivoMovimientoRepository motivoMovimientoRepository;
     private final InventarioService inventarioService;
     private final FacturacionService facturacionService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public CitaServiceImpl(CitaRepository citaRepository,
             UsuarioRepository usuarioRepository,
@@ -90,7 +93,8 @@ public class CitaServiceImpl implements CitaService {
             TipoMovimientoRepository tipoMovimientoRepository,
             MotivoMovimientoRepository motivoMovimientoRepository,
             InventarioService inventarioService,
-            FacturacionService facturacionService) {
+            FacturacionService facturacionService,
+            ApplicationEventPublisher eventPublisher) {
         this.citaRepository = citaRepository;
         this.usuarioRepository = usuarioRepository;
         this.procedimientoRepository = procedimientoRepository;
@@ -105,6 +109,7 @@ public class CitaServiceImpl implements CitaService {
         this.motivoMovimientoRepository = motivoMovimientoRepository;
         this.inventarioService = inventarioService;
         this.facturacionService = facturacionService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -483,7 +488,9 @@ public class CitaServiceImpl implements CitaService {
         nuevaCita.setMotivoConsulta(motivoConsulta);
         nuevaCita.setNotas(notas);
 
-        return citaRepository.save(nuevaCita);
+        Cita citaGuardada = citaRepository.save(nuevaCita);
+        eventPublisher.publishEvent(new CitaModificadaEvent(citaGuardada.getId()));
+        return citaGuardada;
     }
 
     @Override
@@ -592,6 +599,7 @@ public class CitaServiceImpl implements CitaService {
         nuevaCita.setNotas(notas);
 
         Cita citaGuardada = citaRepository.save(nuevaCita);
+        eventPublisher.publishEvent(new CitaModificadaEvent(citaGuardada.getId()));
 
         // Enviar email de notificación al paciente
         try {
@@ -642,6 +650,7 @@ public class CitaServiceImpl implements CitaService {
         citaOriginal.setMotivoCancelacion(motivo);
         citaOriginal.setCitaReprogramada(nuevaCita);
         citaRepository.save(citaOriginal);
+        eventPublisher.publishEvent(new CitaModificadaEvent(citaOriginal.getId()));
 
         // Enviar email de reprogramación al paciente
         try {
@@ -690,6 +699,7 @@ public class CitaServiceImpl implements CitaService {
         }
 
         Cita citaCancelada = citaRepository.save(cita);
+        eventPublisher.publishEvent(new CitaModificadaEvent(citaCancelada.getId()));
 
         // Enviar email de cancelación al paciente
         try {
@@ -716,6 +726,7 @@ public class CitaServiceImpl implements CitaService {
 
         cita.setEstadoCita(estadoConfirmada);
         Cita citaConfirmada = citaRepository.save(cita);
+        eventPublisher.publishEvent(new CitaModificadaEvent(citaConfirmada.getId()));
 
         // Enviar email de confirmación al paciente
         try {
@@ -860,6 +871,7 @@ public class CitaServiceImpl implements CitaService {
         }
 
         Cita citaActualizada = citaRepository.save(cita);
+        eventPublisher.publishEvent(new CitaModificadaEvent(citaActualizada.getId()));
 
         // GENERAR COMPROBANTE AUTOMÁTICO cuando el paciente asiste
         if (asistio && cita.getProcedimiento() != null) {
@@ -0,0 +1,122 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.entidad.CorreoPendiente;
+import com.odontoapp.entidad.CorreoPendiente.EstadoCorreo;
+import com.odontoapp.repositorio.CorreoPendienteRepository;
+import com.odontoapp.servicio.CorreoPendienteService;
+import com.odontoapp.servicio.EmailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Implementación de la bandeja de salida.
+ *
+ * Cada pasada reclama su lote con un UPDATE condicionado (PENDIENTE → ENVIANDO con un reclamo
+ * propio), así que varios nodos o pasadas solapadas nunca envían el mismo correo. Cada correo se
+ * marca como ENVIADO o se le suma un intento tras enviarlo, fuera de cualquier transacción larga
+ * (el SMTP puede tardar segundos). Tras {@code correos.outbox.max-intentos} fallos queda como
+ * FALLIDO para revisión manual. Los reclamos de más de {@code correos.outbox.reclamo-minutos}
+ * (nodo detenido a mitad del lote) vuelven a PENDIENTE.
+ */
+@Service
+public class CorreoPendienteServiceImpl implements CorreoPendienteService {
+
+    private static final Logger log = LoggerFactory.getLogger(CorreoPendienteServiceImpl.class);
+
+    private static final int MAX_LONGITUD_ERROR = 500;
+
+    private final CorreoPendienteRepository correoPendienteRepository;
+    private final EmailService emailService;
+
+    @Value("${correos.outbox.lote:50}")
+    private int tamanoLote;
+
+    @Value("${correos.outbox.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${correos.outbox.reclamo-minutos:15}")
+    private long reclamoMinutos;
+
+    public CorreoPendienteServiceImpl(CorreoPendienteRepository correoPendienteRepository,
+            EmailService emailService) {
+        this.correoPendienteRepository = correoPendienteRepository;
+        this.emailService = emailService;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${correos.outbox.intervalo-ms:60000}")
+    public int procesarPendientes() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int liberados = correoPendienteRepository.liberarReclamosVencidos(ahora.minusMinutes(reclamoMinutos),
+                EstadoCorreo.ENVIANDO, EstadoCorreo.PENDIENTE);
+        if (liberados > 0) {
+            log.warn("Bandeja de salida: {} correos reclamados sin terminar vuelven a PENDIENTE", liberados);
+        }
+
+        List<Long> ids = correoPendienteRepository.findIdsByEstado(EstadoCorreo.PENDIENTE,
+                PageRequest.of(0, tamanoLote));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String reclamo = UUID.randomUUID().toString();
+        int reclamados = correoPendienteRepository.reclamar(ids, reclamo, ahora,
+                EstadoCorreo.PENDIENTE, EstadoCorreo.ENVIANDO);
+        if (reclamados == 0) {
+            // Otro nodo se llevó el lote
+            return 0;
+        }
+        List<CorreoPendiente> lote = correoPendienteRepository
+                .findByReclamoAndEstadoOrderByIdAsc(reclamo, EstadoCorreo.ENVIANDO);
+
+        int enviados = 0;
+        for (CorreoPendiente correo : lote) {
+            try {
+                enviar(correo);
+                correo.setEstado(EstadoCorreo.ENVIADO);
+                correo.setFechaEnvio(LocalDateTime.now());
+                correo.setUltimoError(null);
+                enviados++;
+            } catch (Exception e) {
+                correo.setIntentos(correo.getIntentos() + 1);
+                correo.setUltimoError(recortar(e.getMessage()));
+                if (correo.getIntentos() >= maxIntentos) {
+                    correo.setEstado(EstadoCorreo.FALLIDO);
+                    log.error("Correo {} a {} descartado tras {} intentos: {}", correo.getId(),
+                            correo.getDestinatario(), correo.getIntentos(), e.getMessage());
+                } else {
+                    correo.setEstado(EstadoCorreo.PENDIENTE);
+                    log.warn("Error enviando el correo {} a {} (intento {}): {}", correo.getId(),
+                            correo.getDestinatario(), correo.getIntentos(), e.getMessage());
+                }
+            }
+            correo.setReclamo(null);
+            correo.setFechaReclamo(null);
+            correoPendienteRepository.save(correo);
+        }
+        log.info("Bandeja de salida: {} de {} correos enviados", enviados, lote.size());
+        return enviados;
+    }
+
+    private void enviar(CorreoPendiente correo) throws Exception {
+        switch (correo.getTipo()) {
+            case ACTIVACION_CUENTA -> emailService.intentarEnviarEmailActivacionAdmin(
+                    correo.getDestinatario(), correo.getNombre(), correo.getToken());
+            default -> throw new IllegalStateException("Tipo de correo no soportado: " + correo.getTipo());
+        }
+    }
+
+    private static String recortar(String mensaje) {
+        if (mensaje == null) {
+            return null;
+        }
+        return mensaje.length() > MAX_LONGITUD_ERROR ? mensaje.substring(0, MAX_LONGITUD_ERROR) : mensaje;
+    }
+}
@@ -0,0 +1,166 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.CostoProcedimientoDTO;
+import com.odontoapp.entidad.Procedimiento;
+import com.odontoapp.entidad.ProcedimientoInsumo;
+import com.odontoapp.evento.PrecioInsumoModificadoEvent;
+import com.odontoapp.evento.ProcedimientoModificadoEvent;
+import com.odontoapp.repositorio.ProcedimientoInsumoRepository;
+import com.odontoapp.repositorio.ProcedimientoRepository;
+import com.odontoapp.servicio.CostoProcedimientoService;
+import com.odontoapp.servicio.ProcedimientoInsumoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación de la caché de costos de procedimientos.
+ * Escucha los eventos de cambio de procedimientos e insumos y, una vez
+ * confirmada la transacción, recalcula únicamente los procedimientos afectados.
+ */
+@Service
+public class CostoProcedimientoServiceImpl implements CostoProcedimientoService {
+
+    private static final Logger log = LoggerFactory.getLogger(CostoProcedimientoServiceImpl.class);
+
+    // Tamaño máximo de la cláusula IN por consulta
+    private static final int TAMANO_LOTE = 500;
+
+    private final ProcedimientoRepository procedimientoRepository;
+    private final ProcedimientoInsumoRepository procedimientoInsumoRepository;
+    private final ProcedimientoInsumoService procedimientoInsumoService;
+
+    private final Map<Long, CostoProcedimientoDTO> cache = new ConcurrentHashMap<>();
+
+    public CostoProcedimientoServiceImpl(ProcedimientoRepository procedimientoRepository,
+                                         ProcedimientoInsumoRepository procedimientoInsumoRepository,
+                                         ProcedimientoInsumoService procedimientoInsumoService) {
+        this.procedimientoRepository = procedimientoRepository;
+        this.procedimientoInsumoRepository = procedimientoInsumoRepository;
+        this.procedimientoInsumoService = procedimientoInsumoService;
+    }
+
+    @Override
+    public Optional<CostoProcedimientoDTO> obtenerCosto(Long procedimientoId) {
+        if (procedimientoId == null) {
+            throw new IllegalArgumentException("El ID del procedimiento no puede ser nulo");
+        }
+        return Optional.ofNullable(obtenerCostos(List.of(procedimientoId)).get(procedimientoId));
+    }
+
+    @Override
+    public Map<Long, CostoProcedimientoDTO> obtenerCostos(Collection<Long> procedimientoIds) {
+        List<Long> faltantes = procedimientoIds.stream()
+                .filter(id -> id != null && !cache.containsKey(id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!faltantes.isEmpty()) {
+            recalcular(faltantes);
+        }
+
+        Map<Long, CostoProcedimientoDTO> resultado = new HashMap<>();
+        for (Long id : procedimientoIds) {
+            CostoProcedimientoDTO costo = id != null ? cache.get(id) : null;
+            if (costo != null) {
+                resultado.put(id, costo);
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    public List<CostoProcedimientoDTO> listarCostos() {
+        List<Long> ids = procedimientoRepository.findAll().stream()
+                .map(Procedimiento::getId)
+                .collect(Collectors.toList());
+
+        return obtenerCostos(ids).values().stream()
+                .sorted(Comparator.comparing(CostoProcedimientoDTO::getNombre, String.CASE_INSENSITIVE_ORDER))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sincronizado para que dos recálculos concurrentes del mismo procedimiento
+     * no dejen en caché un valor leído antes que el otro.
+     */
+    @Override
+    public synchronized void recalcular(Collection<Long> procedimientoIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(procedimientoIds));
+        for (int i = 0; i < ids.size(); i += TAMANO_LOTE) {
+            recalcularLote(ids.subList(i, Math.min(i + TAMANO_LOTE, ids.size())));
+        }
+    }
+
+    @Override
+    public void recalcularPorInsumo(Long insumoId) {
+        // Índice inverso: solo los procedimientos que usan este insumo
+        Set<Long> afectados = procedimientoInsumoService.buscarProcedimientosPorInsumo(insumoId).stream()
+                .map(ProcedimientoInsumo::getProcedimiento)
+                .map(Procedimiento::getId)
+                .collect(Collectors.toSet());
+
+        if (!afectados.isEmpty()) {
+            recalcular(afectados);
+            log.debug("Costo recalculado para {} procedimiento(s) por cambio de precio del insumo {}",
+                    afectados.size(), insumoId);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void alModificarProcedimiento(ProcedimientoModificadoEvent evento) {
+        recalcular(List.of(evento.procedimientoId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void alModificarPrecioInsumo(PrecioInsumoModificadoEvent evento) {
+        recalcularPorInsumo(evento.insumoId());
+    }
+
+    private void recalcularLote(List<Long> ids) {
+        Map<Long, BigDecimal> costos = new HashMap<>();
+        for (Object[] fila : procedimientoInsumoRepository.sumarCostoMaterialesPorProcedimiento(ids)) {
+            costos.put((Long) fila[0], fila[1] != null ? new BigDecimal(fila[1].toString()) : BigDecimal.ZERO);
+        }
+
+        Set<Long> encontrados = new LinkedHashSet<>();
+        for (Procedimiento procedimiento : procedimientoRepository.findAllById(ids)) {
+            encontrados.add(procedimiento.getId());
+            cache.put(procedimiento.getId(),
+                    calcular(procedimiento, costos.getOrDefault(procedimiento.getId(), BigDecimal.ZERO)));
+        }
+
+        // Procedimientos eliminados: se retiran de la caché
+        ids.stream().filter(id -> !encontrados.contains(id)).forEach(cache::remove);
+    }
+
+    private CostoProcedimientoDTO calcular(Procedimiento procedimiento, BigDecimal costoMateriales) {
+        BigDecimal precio = procedimiento.getPrecioBase() != null ? procedimiento.getPrecioBase() : BigDecimal.ZERO;
+        BigDecimal costo = costoMateriales.setScale(2, RoundingMode.HALF_UP);
+        BigDecimal margen = precio.subtract(costo).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal margenPorcentaje = precio.signum() > 0
+                ? margen.multiply(BigDecimal.valueOf(100)).divide(precio, 2, RoundingMode.HALF_UP)
+                : null;
+
+        return new CostoProcedimientoDTO(procedimiento.getId(), procedimiento.getCodigo(),
+                procedimiento.getNombre(), precio, costo, margen, margenPorcentaje);
+    }
+}
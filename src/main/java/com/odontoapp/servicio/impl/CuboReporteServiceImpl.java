@@ -0,0 +1,713 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.FilaCuboDTO;
+import com.odontoapp.dto.MemoriaCuboDTO;
+import com.odontoapp.dto.ResultadoCuboDTO;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+import com.odontoapp.evento.ProcedimientoModificadoEvent;
+import com.odontoapp.evento.ResumenDiarioActualizadoEvent;
+import com.odontoapp.servicio.CuboReporteService;
+import com.odontoapp.util.CursorJdbc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Implementación del cubo de reportes.
+ *
+ * - Almacenamiento columnar: una columna primitiva por dimensión (códigos de diccionario o
+ *   epoch day) y por medida (cantidad y monto en céntimos).
+ * - La categoría no se guarda por fila: se deriva del procedimiento con un arreglo de traducción,
+ *   así un cambio de categoría no obliga a reescribir el cubo.
+ * - Construcción completa al arrancar (después de generar los resúmenes) y deltas por rango
+ *   de días cada vez que se regenera un resumen diario.
+ * - Las consultas toman el bloqueo de lectura; los deltas solo toman el de escritura para aplicar
+ *   las filas ya leídas de la base de datos.
+ */
+@Service
+public class CuboReporteServiceImpl implements CuboReporteService {
+
+    private static final Logger log = LoggerFactory.getLogger(CuboReporteServiceImpl.class);
+
+    private static final String SQL_RESUMENES =
+            "SELECT tipo, fecha, odontologo_id, procedimiento_id, procedimiento_nombre, metodo_pago, estado, " +
+            "cantidad, monto FROM resumenes_diarios";
+
+    private static final String SQL_PROCEDIMIENTOS =
+            "SELECT p.id, p.nombre, c.nombre FROM procedimientos p " +
+            "LEFT JOIN categorias_procedimiento c ON c.id = p.categoria_id";
+
+    private static final String SQL_ODONTOLOGOS =
+            "SELECT id, nombre_completo FROM usuarios WHERE id IN " +
+            "(SELECT DISTINCT odontologo_id FROM resumenes_diarios WHERE odontologo_id IS NOT NULL)";
+
+    private static final String SIN_ASIGNAR = "Sin asignar";
+    private static final byte ELIMINADA = -1;
+    private static final int MAX_DIMENSIONES = 3;
+    // Bits por dimensión en la clave compuesta de agrupación (3 × 21 = 63)
+    private static final int BITS_CLAVE = 21;
+    private static final long MASCARA_CLAVE = (1L << BITS_CLAVE) - 1;
+
+    /**
+     * Fila leída de resumenes_diarios, antes de codificarla en columnas.
+     */
+    private record FilaResumen(TipoResumen tipo, LocalDate fecha, Long odontologoId, Long procedimientoId,
+            String procedimientoNombre, String metodoPago, String estado, long cantidad, long montoCentimos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccionLectura;
+
+    @Value("${reportes.exportacion.fetch-size:500}")
+    private int fetchSize;
+
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    // Serializa construcción y deltas (lectura de BD + aplicación) para aplicarlos en orden
+    private final Object actualizacion = new Object();
+
+    private volatile Cubo cubo;
+    private volatile LocalDateTime fechaConstruccion;
+    private volatile long tiempoConstruccionMs;
+    private volatile LocalDateTime ultimaActualizacion;
+
+    public CuboReporteServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public void construir() {
+        synchronized (actualizacion) {
+            long inicio = System.nanoTime();
+            Cubo nuevo = new Cubo();
+            cargarProcedimientos(nuevo, "");
+            jdbcTemplate.query(SQL_ODONTOLOGOS, (RowCallbackHandler) rs ->
+                    nuevo.nombresOdontologo.put(rs.getLong(1), rs.getString(2)));
+            leerResumenes("", new Object[0], nuevo::agregar);
+            nuevo.ajustarCapacidad();
+
+            bloqueo.writeLock().lock();
+            try {
+                cubo = nuevo;
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+            tiempoConstruccionMs = (System.nanoTime() - inicio) / 1_000_000;
+            fechaConstruccion = LocalDateTime.now();
+            ultimaActualizacion = fechaConstruccion;
+            log.info("Cubo de reportes construido: {} filas en {} ms", nuevo.tamano, tiempoConstruccionMs);
+        }
+    }
+
+    /**
+     * Delta: reemplaza las filas del tipo y rango regenerados. Se escucha con @EventListener porque
+     * el resumen ya está confirmado (transacción propia) cuando se publica el evento.
+     */
+    @EventListener
+    public void alActualizarResumen(ResumenDiarioActualizadoEvent evento) {
+        try {
+            synchronized (actualizacion) {
+                Cubo actual = cubo;
+                if (actual == null) {
+                    return; // Aún no construido: la construcción leerá estos días
+                }
+                List<FilaResumen> filas = new ArrayList<>();
+                leerResumenes(" WHERE tipo = ? AND fecha BETWEEN ? AND ?",
+                        new Object[] { evento.tipo().name(), Date.valueOf(evento.desde()), Date.valueOf(evento.hasta()) },
+                        filas::add);
+                completarEtiquetas(actual, filas);
+
+                bloqueo.writeLock().lock();
+                try {
+                    actual.eliminar(evento.tipo(), evento.desde(), evento.hasta());
+                    for (FilaResumen fila : filas) {
+                        actual.agregar(fila);
+                    }
+                    actual.compactarSiHaceFalta();
+                } finally {
+                    bloqueo.writeLock().unlock();
+                }
+                ultimaActualizacion = LocalDateTime.now();
+            }
+        } catch (Exception e) {
+            log.error("No se pudo actualizar el cubo para {} {}..{}: {}", evento.tipo(), evento.desde(),
+                    evento.hasta(), e.getMessage());
+        }
+    }
+
+    /**
+     * Un procedimiento renombrado o movido de categoría solo cambia sus etiquetas.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarProcedimiento(ProcedimientoModificadoEvent evento) {
+        try {
+            synchronized (actualizacion) {
+                Cubo actual = cubo;
+                if (actual != null && evento.procedimientoId() != null) {
+                    cargarProcedimientos(actual, " WHERE p.id = ?", evento.procedimientoId());
+                }
+            }
+        } catch (Exception e) {
+            log.error("No se pudo actualizar el procedimiento {} en el cubo: {}", evento.procedimientoId(),
+                    e.getMessage());
+        }
+    }
+
+    @Override
+    public ResultadoCuboDTO consultar(TipoResumen hecho, List<Dimension> agrupar, Map<Dimension, Set<String>> filtros,
+            LocalDate fechaInicio, LocalDate fechaFin) {
+        if (hecho == null) {
+            throw new IllegalArgumentException("Debe indicar el hecho a consultar");
+        }
+        List<Dimension> dimensiones = agrupar != null ? agrupar : List.of();
+        if (dimensiones.size() > MAX_DIMENSIONES) {
+            throw new IllegalArgumentException("Se puede agrupar por un máximo de " + MAX_DIMENSIONES + " dimensiones");
+        }
+        if (dimensiones.stream().distinct().count() != dimensiones.size()) {
+            throw new IllegalArgumentException("Las dimensiones de agrupación no pueden repetirse");
+        }
+        if (fechaInicio != null && fechaFin != null && fechaInicio.isAfter(fechaFin)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin.");
+        }
+        Map<Dimension, Set<String>> filtrosEfectivos = filtros != null ? filtros : Map.of();
+
+        bloqueo.readLock().lock();
+        try {
+            Cubo actual = cubo;
+            if (actual == null) {
+                throw new IllegalStateException("El cubo de reportes todavía se está construyendo");
+            }
+            return actual.consultar(hecho, dimensiones, filtrosEfectivos, fechaInicio, fechaFin);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ResultadoCuboDTO profundizar(TipoResumen hecho, Dimension dimension, String valor,
+            Map<Dimension, Set<String>> filtros, LocalDate fechaInicio, LocalDate fechaFin) {
+        Dimension hija = dimension.hija();
+        if (hija == null) {
+            throw new IllegalArgumentException("La dimensión " + dimension.getParametro() + " no tiene un nivel inferior");
+        }
+        if (valor == null || valor.isBlank()) {
+            throw new IllegalArgumentException("Debe indicar el valor de " + dimension.getParametro());
+        }
+        Map<Dimension, Set<String>> filtrosDrill = new HashMap<>(filtros != null ? filtros : Map.of());
+        filtrosDrill.put(dimension, Set.of(valor));
+        return consultar(hecho, List.of(hija), filtrosDrill, fechaInicio, fechaFin);
+    }
+
+    @Override
+    public MemoriaCuboDTO obtenerMemoria() {
+        bloqueo.readLock().lock();
+        try {
+            Cubo actual = cubo;
+            if (actual == null) {
+                throw new IllegalStateException("El cubo de reportes todavía se está construyendo");
+            }
+            return actual.memoria(fechaConstruccion, tiempoConstruccionMs, ultimaActualizacion);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    // --- Lectura de la base de datos ---
+
+    private interface ConsumidorFila {
+        void aceptar(FilaResumen fila);
+    }
+
+    private void leerResumenes(String condicion, Object[] parametros, ConsumidorFila consumidor) {
+        transaccionLectura.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = CursorJdbc.prepararCursor(con, SQL_RESUMENES + condicion, fetchSize);
+            for (int i = 0; i < parametros.length; i++) {
+                ps.setObject(i + 1, parametros[i]);
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long odontologoId = rs.getLong(3);
+            Long odontologo = rs.wasNull() ? null : odontologoId;
+            long procedimientoId = rs.getLong(4);
+            Long procedimiento = rs.wasNull() ? null : procedimientoId;
+            BigDecimal monto = rs.getBigDecimal(9);
+            consumidor.aceptar(new FilaResumen(TipoResumen.valueOf(rs.getString(1)), rs.getDate(2).toLocalDate(),
+                    odontologo, procedimiento, rs.getString(5), rs.getString(6), rs.getString(7), rs.getLong(8),
+                    monto != null ? monto.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue() : 0L));
+        }));
+    }
+
+    private void cargarProcedimientos(Cubo destino, String condicion, Object... parametros) {
+        List<Object[]> filas = jdbcTemplate.query(SQL_PROCEDIMIENTOS + condicion, (rs, i) ->
+                new Object[] { rs.getLong(1), rs.getString(2), rs.getString(3) }, parametros);
+        bloqueo.writeLock().lock();
+        try {
+            for (Object[] fila : filas) {
+                destino.registrarProcedimiento((Long) fila[0], (String) fila[1], (String) fila[2]);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Carga etiquetas de odontólogos y procedimientos que aparecen por primera vez en un delta.
+     */
+    private void completarEtiquetas(Cubo destino, List<FilaResumen> filas) {
+        List<Long> odontologos = new ArrayList<>();
+        List<Long> procedimientos = new ArrayList<>();
+        for (FilaResumen fila : filas) {
+            if (fila.odontologoId() != null && !destino.nombresOdontologo.containsKey(fila.odontologoId())
+                    && !odontologos.contains(fila.odontologoId())) {
+                odontologos.add(fila.odontologoId());
+            }
+            if (fila.procedimientoId() != null && !destino.nombresProcedimiento.containsKey(fila.procedimientoId())
+                    && !procedimientos.contains(fila.procedimientoId())) {
+                procedimientos.add(fila.procedimientoId());
+            }
+        }
+        if (!odontologos.isEmpty()) {
+            Map<Long, String> nombres = new HashMap<>();
+            jdbcTemplate.query("SELECT id, nombre_completo FROM usuarios WHERE id IN (" + marcadores(odontologos) + ")",
+                    (RowCallbackHandler) rs -> nombres.put(rs.getLong(1), rs.getString(2)), odontologos.toArray());
+            bloqueo.writeLock().lock();
+            try {
+                destino.nombresOdontologo.putAll(nombres);
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        }
+        if (!procedimientos.isEmpty()) {
+            cargarProcedimientos(destino, " WHERE p.id IN (" + marcadores(procedimientos) + ")",
+                    procedimientos.toArray());
+        }
+    }
+
+    private static String marcadores(Collection<?> valores) {
+        return String.join(",", Collections.nCopies(valores.size(), "?"));
+    }
+
+    // --- Almacenamiento columnar ---
+
+    /**
+     * Asigna códigos enteros consecutivos a los valores de una dimensión. El código 0 es "sin valor".
+     */
+    private static final class Diccionario<K> {
+        private final Map<K, Integer> codigos = new HashMap<>();
+        private final List<K> valores = new ArrayList<>(Collections.singletonList(null));
+
+        int codigo(K valor) {
+            if (valor == null) {
+                return 0;
+            }
+            return codigos.computeIfAbsent(valor, v -> {
+                valores.add(v);
+                return valores.size() - 1;
+            });
+        }
+
+        int buscar(K valor) {
+            Integer codigo = codigos.get(valor);
+            return codigo != null ? codigo : -1;
+        }
+
+        K valor(int codigo) {
+            return valores.get(codigo);
+        }
+
+        int tamano() {
+            return valores.size();
+        }
+    }
+
+    private static final class Cubo {
+        private int tamano;
+        private int eliminadas;
+        private byte[] tipo = new byte[4096];
+        private int[] dia = new int[4096];
+        private int[] odontologo = new int[4096];
+        private int[] procedimiento = new int[4096];
+        private int[] metodoPago = new int[4096];
+        private int[] estado = new int[4096];
+        private long[] cantidad = new long[4096];
+        private long[] montoCentimos = new long[4096];
+        private int diaMinimo = Integer.MAX_VALUE;
+        private int diaMaximo = Integer.MIN_VALUE;
+
+        private final Diccionario<Long> odontologos = new Diccionario<>();
+        private final Diccionario<Long> procedimientos = new Diccionario<>();
+        private final Diccionario<String> metodosPago = new Diccionario<>();
+        private final Diccionario<String> estados = new Diccionario<>();
+        private final Diccionario<String> categorias = new Diccionario<>();
+        // Código de procedimiento → código de categoría
+        private int[] categoriaDeProcedimiento = new int[64];
+
+        private final Map<Long, String> nombresOdontologo = new HashMap<>();
+        private final Map<Long, String> nombresProcedimiento = new HashMap<>();
+
+        void registrarProcedimiento(Long id, String nombre, String categoria) {
+            int codigo = procedimientos.codigo(id);
+            asegurarCategorias(codigo);
+            categoriaDeProcedimiento[codigo] = categorias.codigo(categoria);
+            if (nombre != null) {
+                nombresProcedimiento.put(id, nombre);
+            }
+        }
+
+        void agregar(FilaResumen fila) {
+            if (tamano == tipo.length) {
+                redimensionar(tamano * 2);
+            }
+            int i = tamano++;
+            int epochDia = (int) fila.fecha().toEpochDay();
+            tipo[i] = (byte) fila.tipo().ordinal();
+            dia[i] = epochDia;
+            odontologo[i] = odontologos.codigo(fila.odontologoId());
+            int codigoProcedimiento = procedimientos.codigo(fila.procedimientoId());
+            asegurarCategorias(codigoProcedimiento);
+            procedimiento[i] = codigoProcedimiento;
+            metodoPago[i] = metodosPago.codigo(fila.metodoPago());
+            estado[i] = estados.codigo(fila.estado());
+            cantidad[i] = fila.cantidad();
+            montoCentimos[i] = fila.montoCentimos();
+            diaMinimo = Math.min(diaMinimo, epochDia);
+            diaMaximo = Math.max(diaMaximo, epochDia);
+            if (fila.procedimientoId() != null && fila.procedimientoNombre() != null) {
+                nombresProcedimiento.putIfAbsent(fila.procedimientoId(), fila.procedimientoNombre());
+            }
+        }
+
+        /**
+         * Marca como eliminadas las filas de un tipo dentro del rango; se compactan más tarde.
+         */
+        void eliminar(TipoResumen hecho, LocalDate desde, LocalDate hasta) {
+            byte codigoTipo = (byte) hecho.ordinal();
+            int inicio = (int) desde.toEpochDay();
+            int fin = (int) hasta.toEpochDay();
+            for (int i = 0; i < tamano; i++) {
+                if (tipo[i] == codigoTipo && dia[i] >= inicio && dia[i] <= fin) {
+                    tipo[i] = ELIMINADA;
+                    eliminadas++;
+                }
+            }
+        }
+
+        void compactarSiHaceFalta() {
+            if (eliminadas < 1024 || eliminadas * 4 < tamano) {
+                return;
+            }
+            int destino = 0;
+            for (int i = 0; i < tamano; i++) {
+                if (tipo[i] == ELIMINADA) {
+                    continue;
+                }
+                tipo[destino] = tipo[i];
+                dia[destino] = dia[i];
+                odontologo[destino] = odontologo[i];
+                procedimiento[destino] = procedimiento[i];
+                metodoPago[destino] = metodoPago[i];
+                estado[destino] = estado[i];
+                cantidad[destino] = cantidad[i];
+                montoCentimos[destino] = montoCentimos[i];
+                destino++;
+            }
+            tamano = destino;
+            eliminadas = 0;
+        }
+
+        void ajustarCapacidad() {
+            redimensionar(Math.max(tamano, 16));
+        }
+
+        private void redimensionar(int capacidad) {
+            tipo = Arrays.copyOf(tipo, capacidad);
+            dia = Arrays.copyOf(dia, capacidad);
+            odontologo = Arrays.copyOf(odontologo, capacidad);
+            procedimiento = Arrays.copyOf(procedimiento, capacidad);
+            metodoPago = Arrays.copyOf(metodoPago, capacidad);
+            estado = Arrays.copyOf(estado, capacidad);
+            cantidad = Arrays.copyOf(cantidad, capacidad);
+            montoCentimos = Arrays.copyOf(montoCentimos, capacidad);
+        }
+
+        private void asegurarCategorias(int codigoProcedimiento) {
+            if (codigoProcedimiento >= categoriaDeProcedimiento.length) {
+                categoriaDeProcedimiento = Arrays.copyOf(categoriaDeProcedimiento,
+                        Math.max(codigoProcedimiento + 1, categoriaDeProcedimiento.length * 2));
+            }
+        }
+
+        ResultadoCuboDTO consultar(TipoResumen hecho, List<Dimension> dimensiones, Map<Dimension, Set<String>> filtros,
+                LocalDate fechaInicio, LocalDate fechaFin) {
+            long inicioNanos = System.nanoTime();
+            byte codigoTipo = (byte) hecho.ordinal();
+
+            // Días permitidos y calendarios precalculados sobre el rango de días del cubo
+            int base = tamano > 0 ? diaMinimo : 0;
+            int span = tamano > 0 ? diaMaximo - diaMinimo + 1 : 0;
+            boolean[] diaPermitido = new boolean[span];
+            int[] anioDeDia = new int[span];
+            int[] mesDeDia = new int[span];
+            int desde = fechaInicio != null ? (int) fechaInicio.toEpochDay() : Integer.MIN_VALUE;
+            int hasta = fechaFin != null ? (int) fechaFin.toEpochDay() : Integer.MAX_VALUE;
+            Set<String> filtroAnio = filtros.get(Dimension.ANIO);
+            Set<String> filtroMes = filtros.get(Dimension.MES);
+            Set<String> filtroDia = filtros.get(Dimension.DIA);
+            LocalDate fecha = span > 0 ? LocalDate.ofEpochDay(base) : null;
+            for (int d = 0; d < span; d++, fecha = fecha.plusDays(1)) {
+                anioDeDia[d] = fecha.getYear();
+                mesDeDia[d] = fecha.getYear() * 12 + fecha.getMonthValue() - 1;
+                int epochDia = base + d;
+                diaPermitido[d] = epochDia >= desde && epochDia <= hasta
+                        && (filtroAnio == null || filtroAnio.contains(Integer.toString(fecha.getYear())))
+                        && (filtroMes == null || filtroMes.contains(YearMonth.from(fecha).toString()))
+                        && (filtroDia == null || filtroDia.contains(fecha.toString()));
+            }
+
+            boolean[] odontologoPermitido = permitidosPorId(odontologos, filtros.get(Dimension.ODONTOLOGO));
+            boolean[] metodoPermitido = permitidosPorNombre(metodosPago, filtros.get(Dimension.METODO_PAGO));
+            boolean[] estadoPermitido = permitidosPorNombre(estados, filtros.get(Dimension.ESTADO));
+            boolean[] procedimientoPermitido = permitidosPorId(procedimientos, filtros.get(Dimension.PROCEDIMIENTO));
+            boolean[] categoriaPermitida = permitidosPorNombre(categorias, filtros.get(Dimension.CATEGORIA));
+            if (categoriaPermitida != null) {
+                boolean[] combinado = new boolean[procedimientos.tamano()];
+                for (int p = 0; p < combinado.length; p++) {
+                    combinado[p] = categoriaPermitida[categoriaDeProcedimiento[p]]
+                            && (procedimientoPermitido == null || procedimientoPermitido[p]);
+                }
+                procedimientoPermitido = combinado;
+            }
+
+            int numeroDimensiones = dimensiones.size();
+            Dimension[] agrupar = dimensiones.toArray(new Dimension[0]);
+            Map<Long, long[]> grupos = new HashMap<>();
+            long totalCantidad = 0;
+            long totalMonto = 0;
+            int escaneadas = 0;
+
+            for (int i = 0; i < tamano; i++) {
+                if (tipo[i] != codigoTipo) {
+                    continue;
+                }
+                escaneadas++;
+                int d = dia[i] - base;
+                if (!diaPermitido[d]
+                        || (odontologoPermitido != null && !odontologoPermitido[odontologo[i]])
+                        || (procedimientoPermitido != null && !procedimientoPermitido[procedimiento[i]])
+                        || (metodoPermitido != null && !metodoPermitido[metodoPago[i]])
+                        || (estadoPermitido != null && !estadoPermitido[estado[i]])) {
+                    continue;
+                }
+
+                long clave = 0;
+                for (int k = 0; k < numeroDimensiones; k++) {
+                    int codigo = switch (agrupar[k]) {
+                        case ANIO -> anioDeDia[d];
+                        case MES -> mesDeDia[d];
+                        case DIA -> dia[i];
+                        case ODONTOLOGO -> odontologo[i];
+                        case PROCEDIMIENTO -> procedimiento[i];
+                        case CATEGORIA -> categoriaDeProcedimiento[procedimiento[i]];
+                        case METODO_PAGO -> metodoPago[i];
+                        case ESTADO -> estado[i];
+                    };
+                    clave = (clave << BITS_CLAVE) | (codigo & MASCARA_CLAVE);
+                }
+                long[] acumulado = grupos.computeIfAbsent(clave, c -> new long[2]);
+                acumulado[0] += cantidad[i];
+                acumulado[1] += montoCentimos[i];
+                totalCantidad += cantidad[i];
+                totalMonto += montoCentimos[i];
+            }
+
+            List<FilaCuboDTO> filas = new ArrayList<>(grupos.size());
+            for (Map.Entry<Long, long[]> grupo : grupos.entrySet()) {
+                List<String> claves = new ArrayList<>(numeroDimensiones);
+                List<String> etiquetas = new ArrayList<>(numeroDimensiones);
+                for (int k = 0; k < numeroDimensiones; k++) {
+                    int desplazamiento = (numeroDimensiones - 1 - k) * BITS_CLAVE;
+                    int codigo = (int) ((grupo.getKey() >>> desplazamiento) & MASCARA_CLAVE);
+                    decodificar(agrupar[k], codigo, claves, etiquetas);
+                }
+                filas.add(new FilaCuboDTO(claves, etiquetas, grupo.getValue()[0], centimosAMonto(grupo.getValue()[1])));
+            }
+            filas.sort(orden(agrupar, hecho));
+
+            List<String> nombresDimensiones = new ArrayList<>(numeroDimensiones);
+            for (Dimension dimension : agrupar) {
+                nombresDimensiones.add(dimension.getParametro());
+            }
+            double tiempoMs = Math.round((System.nanoTime() - inicioNanos) / 10_000.0) / 100.0;
+            return new ResultadoCuboDTO(hecho.name(), nombresDimensiones, filas, totalCantidad,
+                    centimosAMonto(totalMonto), escaneadas, tiempoMs);
+        }
+
+        /**
+         * Dimensiones temporales en orden cronológico; el resto por la medida principal descendente.
+         */
+        private Comparator<FilaCuboDTO> orden(Dimension[] agrupar, TipoResumen hecho) {
+            if (agrupar.length > 0 && agrupar[0].esTemporal()) {
+                return Comparator.comparing(f -> f.getClaves().get(0));
+            }
+            return hecho == TipoResumen.INGRESO
+                    ? Comparator.comparing(FilaCuboDTO::getMonto).reversed()
+                    : Comparator.comparingLong(FilaCuboDTO::getCantidad).reversed();
+        }
+
+        private void decodificar(Dimension dimension, int codigo, List<String> claves, List<String> etiquetas) {
+            String clave;
+            String etiqueta;
+            switch (dimension) {
+                case ANIO -> {
+                    clave = Integer.toString(codigo);
+                    etiqueta = clave;
+                }
+                case MES -> {
+                    clave = YearMonth.of(codigo / 12, codigo % 12 + 1).toString();
+                    etiqueta = clave;
+                }
+                case DIA -> {
+                    clave = LocalDate.ofEpochDay(codigo).toString();
+                    etiqueta = clave;
+                }
+                case ODONTOLOGO -> {
+                    Long id = odontologos.valor(codigo);
+                    clave = id != null ? id.toString() : "";
+                    etiqueta = id != null ? nombresOdontologo.getOrDefault(id, "Odontólogo #" + id) : SIN_ASIGNAR;
+                }
+                case PROCEDIMIENTO -> {
+                    Long id = procedimientos.valor(codigo);
+                    clave = id != null ? id.toString() : "";
+                    etiqueta = id != null ? nombresProcedimiento.getOrDefault(id, "Procedimiento #" + id) : SIN_ASIGNAR;
+                }
+                case CATEGORIA -> {
+                    clave = categorias.valor(codigo) != null ? categorias.valor(codigo) : "";
+                    etiqueta = codigo != 0 ? clave : SIN_ASIGNAR;
+                }
+                case METODO_PAGO -> {
+                    clave = metodosPago.valor(codigo) != null ? metodosPago.valor(codigo) : "";
+                    etiqueta = codigo != 0 ? clave : SIN_ASIGNAR;
+                }
+                case ESTADO -> {
+                    clave = estados.valor(codigo) != null ? estados.valor(codigo) : "";
+                    etiqueta = codigo != 0 ? clave : SIN_ASIGNAR;
+                }
+                default -> throw new IllegalStateException("Dimensión no soportada: " + dimension);
+            }
+            claves.add(clave);
+            etiquetas.add(etiqueta);
+        }
+
+        private static boolean[] permitidosPorNombre(Diccionario<String> diccionario, Set<String> valores) {
+            if (valores == null) {
+                return null;
+            }
+            boolean[] permitidos = new boolean[diccionario.tamano()];
+            for (String valor : valores) {
+                int codigo = valor.isEmpty() ? 0 : diccionario.buscar(valor);
+                if (codigo >= 0) {
+                    permitidos[codigo] = true;
+                }
+            }
+            return permitidos;
+        }
+
+        private static boolean[] permitidosPorId(Diccionario<Long> diccionario, Set<String> valores) {
+            if (valores == null) {
+                return null;
+            }
+            boolean[] permitidos = new boolean[diccionario.tamano()];
+            for (String valor : valores) {
+                if (valor.isEmpty()) {
+                    permitidos[0] = true;
+                    continue;
+                }
+                try {
+                    int codigo = diccionario.buscar(Long.valueOf(valor));
+                    if (codigo >= 0) {
+                        permitidos[codigo] = true;
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("ID no válido en el filtro: " + valor);
+                }
+            }
+            return permitidos;
+        }
+
+        private static BigDecimal centimosAMonto(long centimos) {
+            return BigDecimal.valueOf(centimos, 2);
+        }
+
+        MemoriaCuboDTO memoria(LocalDateTime fechaConstruccion, long tiempoConstruccionMs,
+                LocalDateTime ultimaActualizacion) {
+            int capacidad = tipo.length;
+            Map<String, Long> porColumna = new LinkedHashMap<>();
+            porColumna.put("tipo", (long) capacidad);
+            porColumna.put("dia", 4L * capacidad);
+            porColumna.put("odontologo", 4L * capacidad);
+            porColumna.put("procedimiento", 4L * capacidad);
+            porColumna.put("metodoPago", 4L * capacidad);
+            porColumna.put("estado", 4L * capacidad);
+            porColumna.put("cantidad", 8L * capacidad);
+            porColumna.put("monto", 8L * capacidad);
+            porColumna.put("categoriaDeProcedimiento", 4L * categoriaDeProcedimiento.length);
+            long bytesColumnas = porColumna.values().stream().mapToLong(Long::longValue).sum();
+
+            Map<String, Integer> cardinalidades = new LinkedHashMap<>();
+            cardinalidades.put("odontologo", odontologos.tamano() - 1);
+            cardinalidades.put("procedimiento", procedimientos.tamano() - 1);
+            cardinalidades.put("categoria", categorias.tamano() - 1);
+            cardinalidades.put("metodoPago", metodosPago.tamano() - 1);
+            cardinalidades.put("estado", estados.tamano() - 1);
+            cardinalidades.put("dia", tamano > 0 ? diaMaximo - diaMinimo + 1 : 0);
+
+            // Entrada de HashMap (~48 B) + Integer (16 B) + referencia en la lista (8 B) + clave
+            long bytesDiccionarios = (odontologos.tamano() + procedimientos.tamano()) * (72L + 16)
+                    + bytesTexto(categorias.valores) + bytesTexto(metodosPago.valores) + bytesTexto(estados.valores)
+                    + 72L * (categorias.tamano() + metodosPago.tamano() + estados.tamano())
+                    + bytesTexto(nombresOdontologo.values()) + bytesTexto(nombresProcedimiento.values())
+                    + (48L + 16) * (nombresOdontologo.size() + nombresProcedimiento.size());
+
+            return new MemoriaCuboDTO(tamano - eliminadas, eliminadas, capacidad, porColumna, bytesColumnas,
+                    cardinalidades, bytesDiccionarios, bytesColumnas + bytesDiccionarios,
+                    fechaConstruccion, tiempoConstruccionMs, ultimaActualizacion);
+        }
+
+        private static long bytesTexto(Collection<String> textos) {
+            long bytes = 0;
+            for (String texto : textos) {
+                if (texto != null) {
+                    bytes += 40 + texto.length();
+                }
+            }
+            return bytes;
+        }
+    }
+}
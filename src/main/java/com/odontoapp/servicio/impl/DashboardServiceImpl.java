@@ -3,10 +3,24 @@ package com.odontoapp.servicio.impl;
 import com.odontoapp.dto.CitaDTO;
 import com.odontoapp.dto.InsumoDTO;
 import com.odontoapp.entidad.*;
+import com.odontoapp.evento.CitaModificadaEvent;
+import com.odontoapp.evento.FacturacionModificadaEvent;
+import com.odontoapp.evento.InventarioModificadoEvent;
 import com.odontoapp.repositorio.*;
 import com.odontoapp.servicio.DashboardService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -14,35 +28,191 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * Implementación del servicio de Dashboard
+ * Implementación del servicio de Dashboard.
+ *
+ * Las estadísticas generales se calculan en paralelo (una métrica por hilo
+ * virtual, cada una con su propio timeout) y se guardan en una caché de corta
+ * duración. La caché se invalida cuando facturación, citas o inventario
+ * publican un cambio.
  */
 @Service
 @RequiredArgsConstructor
 public class DashboardServiceImpl implements DashboardService {
 
+    private static final Logger log = LoggerFactory.getLogger(DashboardServiceImpl.class);
+
     private final CitaRepository citaRepository;
     private final PacienteRepository pacienteRepository;
     private final ComprobanteRepository comprobanteRepository;
     private final InsumoRepository insumoRepository;
     private final EstadoPagoRepository estadoPagoRepository;
     private final PagoRepository pagoRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${dashboard.cache.ttl-segundos:30}")
+    private long ttlSegundos;
+
+    @Value("${dashboard.metricas.timeout-ms:3000}")
+    private long timeoutMetricaMs;
+
+    // Las métricas pasan casi todo el tiempo esperando a la base de datos
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Se incrementa en cada invalidación; evita guardar un cálculo que empezó antes de ella
+    private final AtomicLong version = new AtomicLong();
+    private final Object bloqueoCalculo = new Object();
+    private volatile EstadisticasEnCache cache;
+
+    private TransactionTemplate transaccionLectura;
+    private Counter aciertosCache;
+    private Counter fallosCache;
+
+    private record Metrica(String nombre, Supplier<Object> calculo, Object valorPorDefecto) {
+    }
+
+    private record EstadisticasEnCache(Map<String, Object> estadisticas, long version, long expiraEnNanos) {
+        boolean vigente(long versionActual) {
+            return version == versionActual && System.nanoTime() < expiraEnNanos;
+        }
+    }
+
+    @PostConstruct
+    void inicializar() {
+        transaccionLectura = new TransactionTemplate(transactionManager);
+        transaccionLectura.setReadOnly(true);
+
+        aciertosCache = meterRegistry.counter("odontoapp.dashboard.cache", "resultado", "acierto");
+        fallosCache = meterRegistry.counter("odontoapp.dashboard.cache", "resultado", "fallo");
+        Gauge.builder("odontoapp.dashboard.cache.tasa_aciertos", this, DashboardServiceImpl::tasaAciertos)
+                .description("Proporción de cargas del dashboard servidas desde caché")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
 
     @Override
     public Map<String, Object> obtenerEstadisticasGenerales() {
-        Map<String, Object> estadisticas = new HashMap<>();
+        EstadisticasEnCache actual = cache;
+        if (actual != null && actual.vigente(version.get())) {
+            aciertosCache.increment();
+            return actual.estadisticas();
+        }
 
-        estadisticas.put("citasDelDia", obtenerCitasDelDia());
-        estadisticas.put("pacientesNuevos", obtenerPacientesNuevosDelMes());
-        estadisticas.put("ingresosPendientes", obtenerIngresosPendientes());
-        estadisticas.put("ingresosDelMes", obtenerIngresosDelMes());
-        estadisticas.put("totalPacientes", obtenerTotalPacientes());
-        estadisticas.put("proximasCitas", obtenerProximasCitas());
-        estadisticas.put("insumosStockBajo", obtenerInsumosStockBajo());
+        // Un solo cálculo a la vez: el resto de peticiones espera y reutiliza el resultado
+        synchronized (bloqueoCalculo) {
+            long versionInicio = version.get();
+            actual = cache;
+            if (actual != null && actual.vigente(versionInicio)) {
+                aciertosCache.increment();
+                return actual.estadisticas();
+            }
+
+            fallosCache.increment();
+            Map<String, Object> estadisticas = new HashMap<>();
+            boolean completo = calcularEnParalelo(estadisticas);
+
+            // Un resultado parcial (alguna métrica falló) no se guarda en caché
+            if (completo) {
+                cache = new EstadisticasEnCache(Collections.unmodifiableMap(estadisticas), versionInicio,
+                        System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSegundos));
+            }
+            return estadisticas;
+        }
+    }
+
+    @Override
+    public void invalidarCache() {
+        version.incrementAndGet();
+        cache = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarCita(CitaModificadaEvent evento) {
+        invalidarCache();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarFacturacion(FacturacionModificadaEvent evento) {
+        invalidarCache();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarInventario(InventarioModificadoEvent evento) {
+        invalidarCache();
+    }
+
+    /**
+     * Lanza todas las métricas a la vez y espera cada una hasta su timeout.
+     * Las que fallan o vencen se reemplazan por su valor por defecto.
+     *
+     * @return true si todas las métricas se calcularon correctamente
+     */
+    private boolean calcularEnParalelo(Map<String, Object> estadisticas) {
+        List<Metrica> metricas = List.of(
+                new Metrica("citasDelDia", this::obtenerCitasDelDia, 0L),
+                new Metrica("pacientesNuevos", this::obtenerPacientesNuevosDelMes, 0L),
+                new Metrica("ingresosPendientes", this::obtenerIngresosPendientes, BigDecimal.ZERO),
+                new Metrica("ingresosDelMes", this::obtenerIngresosDelMes, BigDecimal.ZERO),
+                new Metrica("totalPacientes", this::obtenerTotalPacientes, 0L),
+                new Metrica("proximasCitas", this::obtenerProximasCitas, List.of()),
+                new Metrica("insumosStockBajo", this::obtenerInsumosStockBajo, List.of()));
+
+        Map<Metrica, Future<Object>> futuros = new LinkedHashMap<>();
+        for (Metrica metrica : metricas) {
+            // Cada métrica en su propia transacción de lectura (el hilo virtual no tiene sesión abierta)
+            futuros.put(metrica, executor.submit(() -> meterRegistry
+                    .timer("odontoapp.dashboard.metrica", "metrica", metrica.nombre())
+                    .recordCallable(() -> transaccionLectura.execute(status -> metrica.calculo().get()))));
+        }
+
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMetricaMs);
+        boolean completo = true;
+        for (Map.Entry<Metrica, Future<Object>> entrada : futuros.entrySet()) {
+            Metrica metrica = entrada.getKey();
+            Future<Object> futuro = entrada.getValue();
+            try {
+                long restante = Math.max(0, limite - System.nanoTime());
+                estadisticas.put(metrica.nombre(), futuro.get(restante, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                futuro.cancel(true);
+                meterRegistry.counter("odontoapp.dashboard.metrica.timeout", "metrica", metrica.nombre()).increment();
+                log.warn("Métrica del dashboard '{}' superó el timeout de {} ms", metrica.nombre(), timeoutMetricaMs);
+                estadisticas.put(metrica.nombre(), metrica.valorPorDefecto());
+                completo = false;
+            } catch (ExecutionException e) {
+                log.error("Error al calcular la métrica del dashboard '{}'", metrica.nombre(), e.getCause());
+                estadisticas.put(metrica.nombre(), metrica.valorPorDefecto());
+                completo = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futuros.values().forEach(f -> f.cancel(true));
+                completo = false;
+                break;
+            }
+        }
+        // Completar con valores por defecto si hubo interrupción
+        metricas.forEach(m -> estadisticas.putIfAbsent(m.nombre(), m.valorPorDefecto()));
+        return completo;
+    }
 
-        return estadisticas;
+    private double tasaAciertos() {
+        double total = aciertosCache.count() + fallosCache.count();
+        return total == 0 ? 0.0 : aciertosCache.count() / total;
     }
 
     @Override
@@ -0,0 +1,152 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.MiembroPersonalDTO;
+import com.odontoapp.evento.PersonalModificadoEvent;
+import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.DirectorioPersonalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementación del directorio de personal.
+ *
+ * Se carga con dos consultas de proyección (usuarios por rol y horarios regulares) y se guarda
+ * como una instantánea inmutable indexada por nombre de rol. Cualquier cambio de usuarios o roles
+ * publica {@link PersonalModificadoEvent} y la instantánea se descarta tras el commit; además
+ * caduca tras {@code personal.directorio.ttl-ms} por si hubo cambios por otras vías.
+ */
+@Service
+public class DirectorioPersonalServiceImpl implements DirectorioPersonalService {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectorioPersonalServiceImpl.class);
+
+    /**
+     * Listas por rol en mayúsculas: todos los no eliminados y solo los activos.
+     */
+    private record Instantanea(Map<String, List<MiembroPersonalDTO>> porRol,
+            Map<String, List<MiembroPersonalDTO>> activosPorRol, long cargadaEn) {
+    }
+
+    private final UsuarioRepository usuarioRepository;
+
+    @Value("${personal.directorio.ttl-ms:600000}")
+    private long ttlMs;
+
+    private volatile Instantanea instantanea;
+    // Se incrementa en cada invalidación para no publicar una carga iniciada antes del cambio
+    private final AtomicLong generacion = new AtomicLong();
+
+    public DirectorioPersonalServiceImpl(UsuarioRepository usuarioRepository) {
+        this.usuarioRepository = usuarioRepository;
+    }
+
+    @Override
+    public List<MiembroPersonalDTO> listarActivosPorRol(String rol) {
+        return obtenerInstantanea().activosPorRol().getOrDefault(clave(rol), List.of());
+    }
+
+    @Override
+    public List<MiembroPersonalDTO> listarPorRol(String rol) {
+        return obtenerInstantanea().porRol().getOrDefault(clave(rol), List.of());
+    }
+
+    @Override
+    public void invalidar() {
+        generacion.incrementAndGet();
+        instantanea = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonalModificado(PersonalModificadoEvent evento) {
+        invalidar();
+    }
+
+    private static String clave(String rol) {
+        return rol == null ? "" : rol.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private Instantanea obtenerInstantanea() {
+        Instantanea actual = instantanea;
+        if (actual != null && !estaVencida(actual)) {
+            return actual;
+        }
+        synchronized (this) {
+            actual = instantanea;
+            if (actual != null && !estaVencida(actual)) {
+                return actual;
+            }
+            long generacionInicial = generacion.get();
+            Instantanea nueva = cargar();
+            if (generacion.get() == generacionInicial) {
+                instantanea = nueva;
+            }
+            return nueva;
+        }
+    }
+
+    private boolean estaVencida(Instantanea actual) {
+        return System.currentTimeMillis() - actual.cargadaEn() > ttlMs;
+    }
+
+    private Instantanea cargar() {
+        long inicio = System.nanoTime();
+        List<Object[]> filas = usuarioRepository.findDirectorioPersonal();
+
+        // Un mismo usuario aparece una vez por rol: se crea un único DTO por ID
+        Map<Long, Object[]> filasPorId = new LinkedHashMap<>();
+        for (Object[] fila : filas) {
+            filasPorId.putIfAbsent(((Number) fila[2]).longValue(), fila);
+        }
+        Map<Long, Map<DayOfWeek, String>> horarios = cargarHorarios(filasPorId.keySet());
+        Map<Long, MiembroPersonalDTO> miembros = new HashMap<>();
+        filasPorId.forEach((id, fila) -> miembros.put(id, new MiembroPersonalDTO(id, (String) fila[3],
+                (String) fila[4], (String) fila[5], Boolean.TRUE.equals(fila[6]), horarios.get(id))));
+
+        Map<String, List<MiembroPersonalDTO>> porRol = new HashMap<>();
+        Map<String, List<MiembroPersonalDTO>> activosPorRol = new HashMap<>();
+        for (Object[] fila : filas) {
+            String rol = clave((String) fila[0]);
+            MiembroPersonalDTO miembro = miembros.get(((Number) fila[2]).longValue());
+            porRol.computeIfAbsent(rol, k -> new ArrayList<>()).add(miembro);
+            if (Boolean.TRUE.equals(fila[1]) && miembro.isActivo()) {
+                activosPorRol.computeIfAbsent(rol, k -> new ArrayList<>()).add(miembro);
+            }
+        }
+        porRol.replaceAll((rol, lista) -> Collections.unmodifiableList(lista));
+        activosPorRol.replaceAll((rol, lista) -> Collections.unmodifiableList(lista));
+
+        log.debug("Directorio de personal cargado: {} usuarios en {} ms", miembros.size(),
+                (System.nanoTime() - inicio) / 1_000_000);
+        return new Instantanea(porRol, activosPorRol, System.currentTimeMillis());
+    }
+
+    private Map<Long, Map<DayOfWeek, String>> cargarHorarios(Set<Long> ids) {
+        Map<Long, Map<DayOfWeek, String>> horarios = new HashMap<>();
+        if (ids.isEmpty()) {
+            return horarios;
+        }
+        for (Object[] fila : usuarioRepository.findHorariosRegularesByUsuarioIdIn(ids)) {
+            if (fila[1] == null || fila[2] == null) {
+                continue;
+            }
+            horarios.computeIfAbsent(((Number) fila[0]).longValue(), k -> new EnumMap<>(DayOfWeek.class))
+                    .put(DayOfWeek.valueOf(fila[1].toString()), fila[2].toString());
+        }
+        return horarios;
+    }
+}
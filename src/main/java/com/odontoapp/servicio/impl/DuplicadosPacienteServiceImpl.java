@@ -0,0 +1,457 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.DuplicadoPacienteDTO;
+import com.odontoapp.dto.DuplicadoPacienteDTO.FichaPaciente;
+import com.odontoapp.entidad.DuplicadoPaciente;
+import com.odontoapp.entidad.DuplicadoPaciente.EstadoDuplicado;
+import com.odontoapp.entidad.Paciente;
+import com.odontoapp.entidad.Usuario;
+import com.odontoapp.repositorio.DuplicadoPacienteRepository;
+import com.odontoapp.repositorio.PacienteRepository;
+import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.DuplicadosPacienteService;
+import com.odontoapp.util.CursorJdbc;
+import com.odontoapp.util.SimilitudTexto;
+import com.odontoapp.util.ValidadorTelefono;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de la detección y fusión de pacientes duplicados.
+ *
+ * Para no comparar todos contra todos (O(n²)), cada paciente se asigna a bloques por código fonético
+ * del nombre, fecha de nacimiento y últimos dígitos del teléfono; solo se puntúan los pares que
+ * comparten al menos un bloque. Los bloques más grandes que {@code pacientes.duplicados.max-bloque}
+ * (p. ej. una fecha por defecto cargada en masa) se omiten porque no discriminan. La puntuación,
+ * que es CPU pura sobre datos en memoria, se reparte entre los núcleos con un stream paralelo.
+ */
+@Service
+public class DuplicadosPacienteServiceImpl implements DuplicadosPacienteService {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicadosPacienteServiceImpl.class);
+
+    private static final String SQL_PACIENTES =
+            "SELECT id, tipo_documento_id, numero_documento, nombre_completo, email, telefono, fecha_nacimiento "
+                    + "FROM pacientes WHERE eliminado = false";
+
+    // Tablas cuyo historial se reasigna por el usuario del paciente al fusionar
+    private static final List<String> TABLAS_POR_USUARIO = List.of(
+            "citas", "comprobantes", "odontograma_dientes", "archivos_adjuntos",
+            "odontograma_historial", "paciente_imagenes", "tratamientos_planificados");
+
+    private static final int DIGITOS_SUFIJO_TELEFONO = 6;
+
+    // Pesos de cada criterio; los que faltan en alguno de los dos pacientes no cuentan
+    private static final double PESO_NOMBRE = 0.45;
+    private static final double PESO_DOCUMENTO = 0.25;
+    private static final double PESO_FECHA_NACIMIENTO = 0.15;
+    private static final double PESO_TELEFONO = 0.10;
+    private static final double PESO_EMAIL = 0.05;
+    // Por debajo de esta similitud de nombre no se considera la misma persona aunque coincida lo demás
+    private static final double MIN_SIMILITUD_NOMBRE = 0.75;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final TransactionTemplate transaccionLectura;
+    private final DuplicadoPacienteRepository duplicadoPacienteRepository;
+    private final PacienteRepository pacienteRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final AuditorAware<String> auditorAware;
+
+    @Value("${pacientes.duplicados.umbral:0.85}")
+    private double umbral;
+
+    @Value("${pacientes.duplicados.max-bloque:200}")
+    private int maxBloque;
+
+    @Value("${reportes.exportacion.fetch-size:500}")
+    private int fetchSize;
+
+    public DuplicadosPacienteServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            DuplicadoPacienteRepository duplicadoPacienteRepository, PacienteRepository pacienteRepository,
+            UsuarioRepository usuarioRepository, AuditorAware<String> auditorAware) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+        this.duplicadoPacienteRepository = duplicadoPacienteRepository;
+        this.pacienteRepository = pacienteRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.auditorAware = auditorAware;
+    }
+
+    /**
+     * Datos de un paciente ya normalizados para comparar.
+     */
+    private record Candidato(long id, Long tipoDocumentoId, String documento, String nombre, String codigoFonetico,
+            String emailLocal, String telefono, LocalDate fechaNacimiento) {
+    }
+
+    private record Coincidencia(long pacienteAId, long pacienteBId, double puntaje, String motivos) {
+    }
+
+    /**
+     * Detección nocturna.
+     * "0 45 2 * * *" = A las 02:45:00 todos los días
+     */
+    @Scheduled(cron = "${pacientes.duplicados.cron:0 45 2 * * *}")
+    public void deteccionProgramada() {
+        log.info("========== DETECTANDO PACIENTES DUPLICADOS ==========");
+        try {
+            detectar();
+        } catch (Exception e) {
+            log.error("Error detectando pacientes duplicados: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Object> detectar() {
+        long inicio = System.nanoTime();
+
+        List<Candidato> candidatos = new ArrayList<>();
+        transaccionLectura.executeWithoutResult(status -> jdbcTemplate.query(
+                con -> CursorJdbc.prepararCursor(con, SQL_PACIENTES, fetchSize),
+                (RowCallbackHandler) rs -> {
+                    long tipo = rs.getLong(2);
+                    Long tipoDocumentoId = rs.wasNull() ? null : tipo;
+                    Date fecha = rs.getDate(7);
+                    candidatos.add(crearCandidato(rs.getLong(1), tipoDocumentoId, rs.getString(3),
+                            rs.getString(4), rs.getString(5), rs.getString(6),
+                            fecha != null ? fecha.toLocalDate() : null));
+                }));
+
+        long[] pares = generarPares(candidatos);
+
+        List<Coincidencia> coincidencias = Arrays.stream(pares).parallel()
+                .mapToObj(par -> puntuar(candidatos.get((int) (par >>> 32)), candidatos.get((int) par)))
+                .filter(Objects::nonNull)
+                .toList();
+
+        int nuevos = guardarCoincidencias(coincidencias);
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("pacientes", candidatos.size());
+        resultado.put("paresComparados", pares.length);
+        resultado.put("candidatos", coincidencias.size());
+        resultado.put("nuevos", nuevos);
+        resultado.put("duracionMs", (System.nanoTime() - inicio) / 1_000_000);
+        log.info("Detección de duplicados: {}", resultado);
+        return resultado;
+    }
+
+    private static Candidato crearCandidato(long id, Long tipoDocumentoId, String documento, String nombre,
+            String email, String telefono, LocalDate fechaNacimiento) {
+        String telefonoLimpio = ValidadorTelefono.limpiar(telefono);
+        String emailLocal = null;
+        if (email != null && email.indexOf('@') > 0) {
+            emailLocal = email.substring(0, email.indexOf('@')).trim().toLowerCase(Locale.ROOT);
+        }
+        return new Candidato(id, tipoDocumentoId,
+                documento != null ? documento.trim().toUpperCase(Locale.ROOT) : null,
+                SimilitudTexto.nombreOrdenado(nombre), SimilitudTexto.codigoFonetico(nombre), emailLocal,
+                telefonoLimpio != null && !telefonoLimpio.isEmpty() ? telefonoLimpio : null, fechaNacimiento);
+    }
+
+    /**
+     * Pares de índices (i &lt; j, empaquetados en un long) que comparten al menos un bloque, sin repetir.
+     */
+    private long[] generarPares(List<Candidato> candidatos) {
+        Map<String, List<Integer>> bloques = new HashMap<>();
+        for (int i = 0; i < candidatos.size(); i++) {
+            Candidato c = candidatos.get(i);
+            if (!c.codigoFonetico().isEmpty()) {
+                bloques.computeIfAbsent("F:" + c.codigoFonetico(), k -> new ArrayList<>()).add(i);
+            }
+            if (c.fechaNacimiento() != null) {
+                bloques.computeIfAbsent("N:" + c.fechaNacimiento(), k -> new ArrayList<>()).add(i);
+            }
+            if (c.telefono() != null && c.telefono().length() >= DIGITOS_SUFIJO_TELEFONO) {
+                bloques.computeIfAbsent("T:" + c.telefono().substring(c.telefono().length() - DIGITOS_SUFIJO_TELEFONO),
+                        k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Set<Long> pares = new HashSet<>();
+        int omitidos = 0;
+        for (Map.Entry<String, List<Integer>> bloque : bloques.entrySet()) {
+            List<Integer> miembros = bloque.getValue();
+            if (miembros.size() < 2) {
+                continue;
+            }
+            if (miembros.size() > maxBloque) {
+                omitidos++;
+                log.debug("Bloque {} omitido: {} pacientes", bloque.getKey(), miembros.size());
+                continue;
+            }
+            for (int i = 0; i < miembros.size(); i++) {
+                for (int j = i + 1; j < miembros.size(); j++) {
+                    // Los índices se agregaron en orden, así que miembros[i] < miembros[j]
+                    pares.add(((long) miembros.get(i) << 32) | miembros.get(j));
+                }
+            }
+        }
+        if (omitidos > 0) {
+            log.warn("Detección de duplicados: {} bloques con más de {} pacientes omitidos", omitidos, maxBloque);
+        }
+        return pares.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private Coincidencia puntuar(Candidato a, Candidato b) {
+        double nombre = SimilitudTexto.jaroWinkler(a.nombre(), b.nombre());
+        if (nombre < MIN_SIMILITUD_NOMBRE) {
+            return null;
+        }
+        double suma = PESO_NOMBRE * nombre;
+        double pesos = PESO_NOMBRE;
+        List<String> motivos = new ArrayList<>();
+        motivos.add("Nombre " + porcentaje(nombre));
+
+        if (a.documento() != null && b.documento() != null && Objects.equals(a.tipoDocumentoId(), b.tipoDocumentoId())) {
+            double documento = SimilitudTexto.similitudLevenshtein(a.documento(), b.documento());
+            suma += PESO_DOCUMENTO * documento;
+            pesos += PESO_DOCUMENTO;
+            motivos.add("Documento " + porcentaje(documento));
+        }
+        if (a.fechaNacimiento() != null && b.fechaNacimiento() != null) {
+            boolean igual = a.fechaNacimiento().equals(b.fechaNacimiento());
+            suma += igual ? PESO_FECHA_NACIMIENTO : 0;
+            pesos += PESO_FECHA_NACIMIENTO;
+            motivos.add(igual ? "Misma fecha de nacimiento" : "Distinta fecha de nacimiento");
+        }
+        if (a.telefono() != null && b.telefono() != null) {
+            boolean igual = a.telefono().equals(b.telefono());
+            suma += igual ? PESO_TELEFONO : 0;
+            pesos += PESO_TELEFONO;
+            motivos.add(igual ? "Mismo teléfono" : "Distinto teléfono");
+        }
+        if (a.emailLocal() != null && b.emailLocal() != null) {
+            double email = SimilitudTexto.jaroWinkler(a.emailLocal(), b.emailLocal());
+            suma += PESO_EMAIL * email;
+            pesos += PESO_EMAIL;
+            motivos.add("Email " + porcentaje(email));
+        }
+
+        // Sin ningún dato que corrobore, un nombre parecido no basta (homónimos)
+        if (pesos == PESO_NOMBRE) {
+            return null;
+        }
+        double puntaje = suma / pesos;
+        if (puntaje < umbral) {
+            return null;
+        }
+        return new Coincidencia(Math.min(a.id(), b.id()), Math.max(a.id(), b.id()),
+                Math.round(puntaje * 1000) / 1000.0, String.join(", ", motivos));
+    }
+
+    private static String porcentaje(double similitud) {
+        return Math.round(similitud * 100) + "%";
+    }
+
+    /**
+     * Inserta los pares nuevos y actualiza el puntaje de los pendientes; los resueltos no se tocan.
+     */
+    private int guardarCoincidencias(List<Coincidencia> coincidencias) {
+        if (coincidencias.isEmpty()) {
+            return 0;
+        }
+        Integer nuevos = transaccion.execute(status -> {
+            Map<String, DuplicadoPaciente> existentes = duplicadoPacienteRepository.findAll().stream()
+                    .collect(Collectors.toMap(d -> d.getPacienteAId() + "|" + d.getPacienteBId(),
+                            Function.identity(), (x, y) -> x));
+            LocalDateTime ahora = LocalDateTime.now();
+            List<DuplicadoPaciente> aGuardar = new ArrayList<>();
+            int insertados = 0;
+            for (Coincidencia c : coincidencias) {
+                DuplicadoPaciente duplicado = existentes.get(c.pacienteAId() + "|" + c.pacienteBId());
+                if (duplicado == null) {
+                    duplicado = new DuplicadoPaciente();
+                    duplicado.setPacienteAId(c.pacienteAId());
+                    duplicado.setPacienteBId(c.pacienteBId());
+                    duplicado.setFechaDeteccion(ahora);
+                    insertados++;
+                } else if (duplicado.getEstado() != EstadoDuplicado.PENDIENTE) {
+                    continue;
+                }
+                duplicado.setPuntaje(c.puntaje());
+                duplicado.setMotivos(c.motivos());
+                aGuardar.add(duplicado);
+            }
+            duplicadoPacienteRepository.saveAll(aGuardar);
+            return insertados;
+        });
+        return nuevos != null ? nuevos : 0;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<DuplicadoPacienteDTO> listarPendientes(Pageable pageable) {
+        Page<DuplicadoPaciente> pagina = duplicadoPacienteRepository
+                .findByEstadoOrderByPuntajeDescIdAsc(EstadoDuplicado.PENDIENTE, pageable);
+        List<Long> ids = pagina.getContent().stream()
+                .flatMap(d -> Stream.of(d.getPacienteAId(), d.getPacienteBId()))
+                .distinct()
+                .toList();
+        // Los pacientes eliminados después de la detección no se encuentran (@Where): su ficha queda en null
+        Map<Long, FichaPaciente> fichas = pacienteRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Paciente::getId, this::crearFicha));
+        return pagina.map(d -> new DuplicadoPacienteDTO(d.getId(), d.getPuntaje(), d.getMotivos(),
+                d.getFechaDeteccion(), fichas.get(d.getPacienteAId()), fichas.get(d.getPacienteBId())));
+    }
+
+    private FichaPaciente crearFicha(Paciente paciente) {
+        return new FichaPaciente(paciente.getId(), paciente.getNombreCompleto(),
+                paciente.getTipoDocumento() != null ? paciente.getTipoDocumento().getCodigo() : null,
+                paciente.getNumeroDocumento(), paciente.getEmail(), paciente.getTelefono(),
+                paciente.getFechaNacimiento());
+    }
+
+    @Override
+    @Transactional
+    public Map<String, Object> fusionar(Long duplicadoId, Long pacienteConservadoId) {
+        DuplicadoPaciente duplicado = buscarPendiente(duplicadoId);
+        Long absorbidoId;
+        if (duplicado.getPacienteAId().equals(pacienteConservadoId)) {
+            absorbidoId = duplicado.getPacienteBId();
+        } else if (duplicado.getPacienteBId().equals(pacienteConservadoId)) {
+            absorbidoId = duplicado.getPacienteAId();
+        } else {
+            throw new IllegalArgumentException("El paciente a conservar debe ser uno de los dos del par.");
+        }
+
+        Paciente conservado = pacienteRepository.findById(pacienteConservadoId)
+                .orElseThrow(() -> new IllegalStateException("El paciente " + pacienteConservadoId
+                        + " no existe o fue eliminado."));
+        Paciente absorbido = pacienteRepository.findById(absorbidoId)
+                .orElseThrow(() -> new IllegalStateException("El paciente " + absorbidoId
+                        + " no existe o fue eliminado."));
+        Usuario usuarioConservado = conservado.getUsuario();
+        Usuario usuarioAbsorbido = absorbido.getUsuario();
+
+        if (usuarioAbsorbido != null) {
+            boolean soloEsPaciente = usuarioAbsorbido.getRoles().stream()
+                    .allMatch(rol -> "PACIENTE".equals(rol.getNombre()));
+            if (!soloEsPaciente) {
+                throw new IllegalStateException("El paciente " + absorbidoId
+                        + " tiene una cuenta de personal; consérvelo a él o fusione manualmente.");
+            }
+            if (usuarioConservado == null) {
+                throw new IllegalStateException("El paciente a conservar no tiene usuario asociado.");
+            }
+        }
+
+        // 1. Reasignar el historial en bloque (incluye registros con borrado lógico)
+        Map<String, Object> reasignadas = new LinkedHashMap<>();
+        if (usuarioAbsorbido != null) {
+            Long origen = usuarioAbsorbido.getId();
+            Long destino = usuarioConservado.getId();
+            // Un diente solo puede tener un estado por paciente: prevalece el del conservado
+            // (el historial del absorbido se conserva en odontograma_historial)
+            int dientesDescartados = jdbcTemplate.update("DELETE FROM odontograma_dientes "
+                    + "WHERE paciente_usuario_id = ? AND numero_diente IN (SELECT numero_diente FROM "
+                    + "(SELECT numero_diente FROM odontograma_dientes WHERE paciente_usuario_id = ?) conservados)",
+                    origen, destino);
+            reasignadas.put("odontograma_dientes_descartados", dientesDescartados);
+            for (String tabla : TABLAS_POR_USUARIO) {
+                reasignadas.put(tabla, jdbcTemplate.update(
+                        "UPDATE " + tabla + " SET paciente_usuario_id = ? WHERE paciente_usuario_id = ?",
+                        destino, origen));
+            }
+        }
+        reasignadas.put("chat_mensajes", jdbcTemplate.update(
+                "UPDATE chat_mensajes SET paciente_id = ? WHERE paciente_id = ?", conservado.getId(), absorbido.getId()));
+
+        // 2. Completar los datos que le falten al conservado
+        if (esVacio(conservado.getTelefono())) {
+            conservado.setTelefono(absorbido.getTelefono());
+        }
+        if (conservado.getFechaNacimiento() == null) {
+            conservado.setFechaNacimiento(absorbido.getFechaNacimiento());
+        }
+        if (esVacio(conservado.getDireccion())) {
+            conservado.setDireccion(absorbido.getDireccion());
+        }
+        if (esVacio(conservado.getAlergias())) {
+            conservado.setAlergias(absorbido.getAlergias());
+        }
+        if (esVacio(conservado.getAntecedentesMedicos())) {
+            conservado.setAntecedentesMedicos(absorbido.getAntecedentesMedicos());
+        }
+        pacienteRepository.save(conservado);
+
+        // 3. Soft delete del absorbido y su usuario (manual, igual que al eliminar un paciente)
+        LocalDateTime ahora = LocalDateTime.now();
+        if (usuarioAbsorbido != null) {
+            usuarioAbsorbido.setEliminado(true);
+            usuarioAbsorbido.setFechaEliminacion(ahora);
+            usuarioAbsorbido.setEstaActivo(false);
+            usuarioRepository.save(usuarioAbsorbido);
+        }
+        absorbido.setEliminado(true);
+        pacienteRepository.save(absorbido);
+
+        // 4. Cerrar el par y los demás pendientes del paciente absorbido
+        String usuario = auditorAware.getCurrentAuditor().orElse("sistema");
+        duplicado.setEstado(EstadoDuplicado.FUSIONADO);
+        duplicado.setFechaResolucion(ahora);
+        duplicado.setResueltoPor(usuario);
+        duplicado.setPacienteConservadoId(conservado.getId());
+        duplicadoPacienteRepository.save(duplicado);
+        duplicadoPacienteRepository.descartarPendientesDePaciente(absorbidoId, EstadoDuplicado.PENDIENTE,
+                EstadoDuplicado.DESCARTADO, ahora, usuario);
+
+        log.info("Paciente {} fusionado en {} por {}: {}", absorbidoId, conservado.getId(), usuario, reasignadas);
+        return reasignadas;
+    }
+
+    @Override
+    @Transactional
+    public void descartar(Long duplicadoId) {
+        DuplicadoPaciente duplicado = buscarPendiente(duplicadoId);
+        duplicado.setEstado(EstadoDuplicado.DESCARTADO);
+        duplicado.setFechaResolucion(LocalDateTime.now());
+        duplicado.setResueltoPor(auditorAware.getCurrentAuditor().orElse("sistema"));
+        duplicadoPacienteRepository.save(duplicado);
+    }
+
+    private DuplicadoPaciente buscarPendiente(Long duplicadoId) {
+        DuplicadoPaciente duplicado = duplicadoPacienteRepository.findById(duplicadoId)
+                .orElseThrow(() -> new EntityNotFoundException("Par de duplicados no encontrado con ID: " + duplicadoId));
+        if (duplicado.getEstado() != EstadoDuplicado.PENDIENTE) {
+            throw new IllegalStateException("El par ya fue resuelto (" + duplicado.getEstado() + ").");
+        }
+        return duplicado;
+    }
+
+    private static boolean esVacio(String valor) {
+        return valor == null || valor.isBlank();
+    }
+}
@@ -0,0 +1,174 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.ReporteDTO;
+import com.odontoapp.servicio.ExportacionReporteService;
+import com.odontoapp.servicio.ReporteService;
+import com.odontoapp.util.CursorJdbc;
+import com.odontoapp.util.EscritorTabular;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementación de las exportaciones de reportes.
+ * Los detalles se leen con JDBC (forward-only, read-only, con fetch size) y cada fila
+ * se escribe en la respuesta en cuanto llega, de modo que exportar un año de pagos o
+ * citas no materializa el resultado en el heap.
+ */
+@Service
+public class ExportacionReporteServiceImpl implements ExportacionReporteService {
+
+    /**
+     * Consulta de detalle: la columna de fecha filtra el rango y, si se indica,
+     * la columna de odontólogo filtra por profesional.
+     */
+    private record ConsultaDetalle(String select, String columnaFecha, String columnaOdontologo,
+            String ordenarPor, String[] encabezados) {
+    }
+
+    private static final Map<String, ConsultaDetalle> DETALLES = Map.of(
+            "pagos", new ConsultaDetalle(
+                    "SELECT p.fecha_pago, c.numero_comprobante, pac.nombre_completo, mp.nombre, p.monto, " +
+                            "odo.nombre_completo " +
+                            "FROM pagos p " +
+                            "JOIN comprobantes c ON c.id = p.comprobante_id " +
+                            "JOIN metodos_pago mp ON mp.id = p.metodo_pago_id " +
+                            "LEFT JOIN usuarios pac ON pac.id = c.paciente_usuario_id " +
+                            "LEFT JOIN citas ci ON ci.id = c.cita_id " +
+                            "LEFT JOIN usuarios odo ON odo.id = ci.odontologo_usuario_id " +
+                            "WHERE 1 = 1",
+                    "p.fecha_pago", "ci.odontologo_usuario_id", "p.fecha_pago, p.id",
+                    new String[] { "Fecha de pago", "Comprobante", "Paciente", "Método de pago", "Monto",
+                            "Odontólogo" }),
+            "citas", new ConsultaDetalle(
+                    "SELECT ci.fecha_hora_inicio, ci.fecha_hora_fin, pac.nombre_completo, odo.nombre_completo, " +
+                            "pr.nombre, ec.descripcion, ci.motivo_consulta " +
+                            "FROM citas ci " +
+                            "JOIN estados_cita ec ON ec.id = ci.estado_cita_id " +
+                            "LEFT JOIN usuarios pac ON pac.id = ci.paciente_usuario_id " +
+                            "LEFT JOIN usuarios odo ON odo.id = ci.odontologo_usuario_id " +
+                            "LEFT JOIN procedimientos pr ON pr.id = ci.procedimiento_id " +
+                            "WHERE ci.eliminado = false",
+                    "ci.fecha_hora_inicio", "ci.odontologo_usuario_id", "ci.fecha_hora_inicio, ci.id",
+                    new String[] { "Inicio", "Fin", "Paciente", "Odontólogo", "Procedimiento", "Estado",
+                            "Motivo de consulta" }),
+            "tratamientos", new ConsultaDetalle(
+                    "SELECT t.fecha_realizacion, pr.codigo, pr.nombre, odo.nombre_completo, pac.nombre_completo, " +
+                            "t.pieza_dental " +
+                            "FROM tratamientos_realizados t " +
+                            "JOIN procedimientos pr ON pr.id = t.procedimiento_id " +
+                            "LEFT JOIN usuarios odo ON odo.id = t.odontologo_usuario_id " +
+                            "LEFT JOIN citas ci ON ci.id = t.cita_id " +
+                            "LEFT JOIN usuarios pac ON pac.id = ci.paciente_usuario_id " +
+                            "WHERE 1 = 1",
+                    "t.fecha_realizacion", "t.odontologo_usuario_id", "t.fecha_realizacion, t.id",
+                    new String[] { "Fecha de realización", "Código", "Procedimiento", "Odontólogo", "Paciente",
+                            "Pieza dental" }));
+
+    private static final List<String> REPORTES = List.of(
+            "ingresos-metodo", "ingresos-mes", "citas-estado", "top-tratamientos", "nuevos-pacientes",
+            "margen-servicios");
+
+    private final ReporteService reporteService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${reportes.exportacion.fetch-size:500}")
+    private int fetchSize;
+
+    public ExportacionReporteServiceImpl(ReporteService reporteService, JdbcTemplate jdbcTemplate) {
+        this.reporteService = reporteService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean existeReporte(String reporte) {
+        return REPORTES.contains(reporte);
+    }
+
+    @Override
+    public boolean existeDetalle(String detalle) {
+        return DETALLES.containsKey(detalle);
+    }
+
+    @Override
+    public void exportarReporte(String reporte, LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId,
+            EscritorTabular escritor) throws IOException {
+        List<ReporteDTO> filas = switch (reporte) {
+            case "ingresos-metodo" -> reporteService.obtenerIngresosPorMetodoPago(fechaInicio, fechaFin);
+            case "ingresos-mes" -> reporteService.obtenerIngresosPorMes(fechaInicio, fechaFin);
+            case "citas-estado" -> reporteService.obtenerCitasPorEstado(fechaInicio, fechaFin, odontologoId);
+            case "top-tratamientos" -> reporteService.obtenerTopTratamientos(fechaInicio, fechaFin, odontologoId);
+            case "nuevos-pacientes" -> reporteService.obtenerNuevosPacientesPorMes(fechaInicio, fechaFin);
+            case "margen-servicios" -> reporteService.obtenerMargenPorServicio();
+            default -> throw new IllegalArgumentException("Reporte no encontrado: " + reporte);
+        };
+
+        escritor.escribirEncabezados("Concepto", "Valor");
+        for (ReporteDTO fila : filas) {
+            escritor.escribirFila(fila.getLabel(), fila.getValue());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportarDetalle(String detalle, LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId,
+            EscritorTabular escritor) throws IOException {
+        ConsultaDetalle consulta = DETALLES.get(detalle);
+        if (consulta == null) {
+            throw new IllegalArgumentException("Detalle no encontrado: " + detalle);
+        }
+
+        StringBuilder sql = new StringBuilder(consulta.select());
+        List<Object> parametros = new ArrayList<>();
+        if (fechaInicio != null) {
+            sql.append(" AND ").append(consulta.columnaFecha()).append(" >= ?");
+            parametros.add(Timestamp.valueOf(fechaInicio.atStartOfDay()));
+        }
+        if (fechaFin != null) {
+            sql.append(" AND ").append(consulta.columnaFecha()).append(" < ?");
+            parametros.add(Timestamp.valueOf(fechaFin.plusDays(1).atStartOfDay()));
+        }
+        if (odontologoId != null) {
+            sql.append(" AND ").append(consulta.columnaOdontologo()).append(" = ?");
+            parametros.add(odontologoId);
+        }
+        sql.append(" ORDER BY ").append(consulta.ordenarPor());
+
+        escritor.escribirEncabezados(consulta.encabezados());
+        int columnas = consulta.encabezados().length;
+
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = CursorJdbc.prepararCursor(con, sql.toString(), fetchSize);
+                for (int i = 0; i < parametros.size(); i++) {
+                    ps.setObject(i + 1, parametros.get(i));
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                Object[] fila = new Object[columnas];
+                for (int i = 0; i < columnas; i++) {
+                    fila[i] = rs.getObject(i + 1);
+                }
+                try {
+                    escritor.escribirFila(fila);
+                } catch (IOException e) {
+                    // El cliente cerró la conexión: se corta la lectura del cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
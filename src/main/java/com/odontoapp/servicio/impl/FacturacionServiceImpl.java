@@ -15,6 +15,7 @@ import com.odontoapp.entidad.Pago;
 import com.odontoapp.entidad.Procedimiento;
 import com.odontoapp.entidad.TipoMovimiento;
 import com.odontoapp.entidad.Usuario;
+import com.odontoapp.evento.FacturacionModificadaEvent;
 import jakarta.persistence.EntityNotFoundException;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.ComprobanteRepository;
@@ -31,6 +32,7 @@ import com.odontoapp.repositorio.UsuarioRepository;
 import com.odontoapp.servicio.FacturacionService;
 import com.odontoapp.servicio.InventarioService;
 import com.odontoapp.dto.MovimientoDTO;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -75,6 +77,7 @@ public class FacturacionServiceImpl implements FacturacionService {
     private final TipoMovimientoRepository tipoMovimientoRepository;
     private final MotivoMovimientoRepository motivoMovimientoRepository;
     private final InventarioService inventarioService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public FacturacionServiceImpl(ComprobanteRepository comprobanteRepository,
             DetalleComprobanteRepository detalleComprobanteRepository,
@@ -88,7 +91,8 @@ public class FacturacionServiceImpl implements FacturacionService {
             EstadoCitaRepository estadoCitaRepository,
             TipoMovimientoRepository tipoMovimientoRepository,
             MotivoMovimientoRepository motivoMovimientoRepository,
-            InventarioService inventarioService) {
+            InventarioService inventarioService,
+            ApplicationEventPublisher eventPublisher) {
         this.comprobanteRepository = comprobanteRepository;
         this.detalleComprobanteRepository = detalleComprobanteRepository;
         this.pagoRepository = pagoRepository;
@@ -102,6 +106,7 @@ public class FacturacionServiceImpl implements FacturacionService {
         this.tipoMovimientoRepository = tipoMovimientoRepository;
         this.motivoMovimientoRepository = motivoMovimientoRepository;
         this.inventarioService = inventarioService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -271,6 +276,7 @@ public class FacturacionServiceImpl implements FacturacionService {
         // 12. Guardar el comprobante (con CascadeType.ALL, los detalles se guardan
         // automáticamente)
         Comprobante comprobanteGuardado = comprobanteRepository.save(comprobante);
+        eventPublisher.publishEvent(new FacturacionModificadaEvent(comprobanteGuardado.getId()));
 
         return comprobanteGuardado;
     }
@@ -451,6 +457,7 @@ public class FacturacionServiceImpl implements FacturacionService {
 
         // 7. Guardar y devolver
         Comprobante comprobanteGuardado = comprobanteRepository.save(comprobante);
+        eventPublisher.publishEvent(new FacturacionModificadaEvent(comprobanteGuardado.getId()));
         return comprobanteGuardado;
     }
 
@@ -572,6 +579,7 @@ public class FacturacionServiceImpl implements FacturacionService {
 
         // 9. Guardar Comprobante actualizado
         comprobanteRepository.save(comprobante);
+        eventPublisher.publishEvent(new FacturacionModificadaEvent(comprobante.getId()));
 
         // 10. Devolver Pago
         return pagoGuardado;
@@ -711,6 +719,7 @@ public class FacturacionServiceImpl implements FacturacionService {
 
         // 7. Guardar y devolver
         Comprobante comprobanteGuardado = comprobanteRepository.save(comprobante);
+        eventPublisher.publishEvent(new FacturacionModificadaEvent(comprobanteGuardado.getId()));
         return comprobanteGuardado;
     }
 
@@ -870,6 +879,7 @@ public class FacturacionServiceImpl implements FacturacionService {
 
         // 8. Guardar y devolver
         Comprobante comprobanteGuardado = comprobanteRepository.save(comprobante);
+        eventPublisher.publishEvent(new FacturacionModificadaEvent(comprobanteGuardado.getId()));
         System.out.println("✅ Comprobante anulado con devolución selectiva: " + comprobante.getNumeroComprobante());
 
         return comprobanteGuardado;
@@ -0,0 +1,624 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.ResumenImportacionDTO;
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.entidad.TipoDocumento;
+import com.odontoapp.repositorio.RolRepository;
+import com.odontoapp.repositorio.TipoDocumentoRepository;
+import com.odontoapp.servicio.ImportacionPacientesService;
+import com.odontoapp.servicio.IndiceBusquedaService;
+import com.odontoapp.servicio.IndiceBusquedaService.TipoIndice;
+import com.odontoapp.util.CursorJdbc;
+import com.odontoapp.util.EscritorTabular;
+import com.odontoapp.util.LectorCsv;
+import com.odontoapp.util.NormalizadorTexto;
+import com.odontoapp.util.ValidadorTelefono;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Implementación de la importación masiva de pacientes.
+ *
+ * Antes de leer el archivo se cargan con un cursor las claves ya usadas (documento, email y teléfono,
+ * incluidos los registros eliminados, igual que en el alta individual) en conjuntos en memoria; cada
+ * fila aceptada añade sus claves, de modo que los duplicados dentro del mismo archivo también se
+ * detectan sin consultar la base. Las filas válidas se insertan con JDBC por lotes de
+ * {@code pacientes.importacion.lote} (usuario, rol PACIENTE, paciente y correo de activación en la
+ * bandeja de salida), cada lote en su propia transacción. Si un lote falla se reintenta fila por fila
+ * para aislar la fila problemática.
+ *
+ * Todos los usuarios importados comparten un mismo hash de una contraseña aleatoria que nadie conoce:
+ * el paciente define la suya con el enlace de activación, y así se evita calcular BCrypt por fila.
+ */
+@Service
+public class ImportacionPacientesServiceImpl implements ImportacionPacientesService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionPacientesServiceImpl.class);
+
+    private static final String IMPORTADO = "IMPORTADO";
+    private static final String DUPLICADO = "DUPLICADO";
+    private static final String ERROR = "ERROR";
+
+    private static final String TIPO_DOCUMENTO_POR_DEFECTO = "DNI";
+    private static final int MAX_LONGITUD_DOCUMENTO = 20;
+    private static final int MAX_LONGITUD_TEXTO = 255;
+    private static final int MAX_LONGITUD_MENSAJE = 300;
+    // Filas (importadas o no) que se retienen antes de volcarlas al reporte, en múltiplos del lote
+    private static final int FACTOR_VENTANA_REPORTE = 4;
+
+    private static final Pattern FORMATO_EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final List<DateTimeFormatter> FORMATOS_FECHA = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d/M/yyyy"),
+            DateTimeFormatter.ofPattern("d-M-yyyy"));
+
+    private enum Campo {
+        TIPO_DOCUMENTO, NUMERO_DOCUMENTO, NOMBRE_COMPLETO, EMAIL, TELEFONO,
+        FECHA_NACIMIENTO, DIRECCION, ALERGIAS, ANTECEDENTES_MEDICOS
+    }
+
+    /**
+     * Encabezados aceptados, ya normalizados (minúsculas, sin tildes, "_" entre palabras).
+     */
+    private static final Map<String, Campo> ALIAS = Map.ofEntries(
+            Map.entry("tipo_documento", Campo.TIPO_DOCUMENTO),
+            Map.entry("tipo_de_documento", Campo.TIPO_DOCUMENTO),
+            Map.entry("tipo_doc", Campo.TIPO_DOCUMENTO),
+            Map.entry("numero_documento", Campo.NUMERO_DOCUMENTO),
+            Map.entry("numero_de_documento", Campo.NUMERO_DOCUMENTO),
+            Map.entry("nro_documento", Campo.NUMERO_DOCUMENTO),
+            Map.entry("documento", Campo.NUMERO_DOCUMENTO),
+            Map.entry("dni", Campo.NUMERO_DOCUMENTO),
+            Map.entry("nombre_completo", Campo.NOMBRE_COMPLETO),
+            Map.entry("nombres_y_apellidos", Campo.NOMBRE_COMPLETO),
+            Map.entry("nombre", Campo.NOMBRE_COMPLETO),
+            Map.entry("paciente", Campo.NOMBRE_COMPLETO),
+            Map.entry("email", Campo.EMAIL),
+            Map.entry("e_mail", Campo.EMAIL),
+            Map.entry("correo", Campo.EMAIL),
+            Map.entry("correo_electronico", Campo.EMAIL),
+            Map.entry("telefono", Campo.TELEFONO),
+            Map.entry("celular", Campo.TELEFONO),
+            Map.entry("fecha_nacimiento", Campo.FECHA_NACIMIENTO),
+            Map.entry("fecha_de_nacimiento", Campo.FECHA_NACIMIENTO),
+            Map.entry("direccion", Campo.DIRECCION),
+            Map.entry("alergias", Campo.ALERGIAS),
+            Map.entry("antecedentes_medicos", Campo.ANTECEDENTES_MEDICOS),
+            Map.entry("antecedentes", Campo.ANTECEDENTES_MEDICOS));
+
+    // Claves existentes: se ignora el borrado lógico, como en PacienteServiceImpl.guardarPaciente
+    private static final String SQL_DOCUMENTOS =
+            "SELECT tipo_documento_id, numero_documento FROM pacientes WHERE numero_documento IS NOT NULL "
+                    + "UNION ALL SELECT tipo_documento_id, numero_documento FROM usuarios "
+                    + "WHERE tipo_documento_id IS NOT NULL AND numero_documento IS NOT NULL";
+    private static final String SQL_EMAILS =
+            "SELECT email FROM usuarios UNION ALL SELECT email FROM pacientes WHERE email IS NOT NULL";
+    private static final String SQL_TELEFONOS =
+            "SELECT telefono FROM pacientes WHERE telefono IS NOT NULL "
+                    + "UNION ALL SELECT telefono FROM usuarios WHERE telefono IS NOT NULL";
+
+    private static final String INSERT_USUARIO =
+            "INSERT INTO usuarios (nombre_completo, email, password, esta_activo, intentos_fallidos, "
+                    + "es_super_admin, verification_token, eliminado, debe_actualizar_password, "
+                    + "fecha_creacion, fecha_modificacion, creado_por, modificado_por) "
+                    + "VALUES (?, ?, ?, true, 0, false, ?, false, false, ?, ?, ?, ?)";
+    private static final String INSERT_USUARIO_ROL =
+            "INSERT INTO usuarios_roles (usuario_id, rol_id) VALUES (?, ?)";
+    private static final String INSERT_PACIENTE =
+            "INSERT INTO pacientes (numero_documento, tipo_documento_id, nombre_completo, email, telefono, "
+                    + "fecha_nacimiento, direccion, alergias, antecedentes_medicos, eliminado, usuario_id, "
+                    + "fecha_creacion, fecha_modificacion, creado_por, modificado_por) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, false, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CORREO =
+            "INSERT INTO correos_pendientes (tipo, destinatario, nombre, token, estado, intentos, fecha_creacion) "
+                    + "VALUES ('ACTIVACION_CUENTA', ?, ?, ?, 'PENDIENTE', 0, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final TransactionTemplate transaccionLectura;
+    private final TipoDocumentoRepository tipoDocumentoRepository;
+    private final RolRepository rolRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final IndiceBusquedaService indiceBusquedaService;
+    private final AuditorAware<String> auditorAware;
+
+    @Value("${pacientes.importacion.lote:500}")
+    private int tamanoLote;
+
+    @Value("${reportes.exportacion.fetch-size:500}")
+    private int fetchSize;
+
+    public ImportacionPacientesServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            TipoDocumentoRepository tipoDocumentoRepository, RolRepository rolRepository,
+            PasswordEncoder passwordEncoder, IndiceBusquedaService indiceBusquedaService,
+            AuditorAware<String> auditorAware) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+        this.tipoDocumentoRepository = tipoDocumentoRepository;
+        this.rolRepository = rolRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.indiceBusquedaService = indiceBusquedaService;
+        this.auditorAware = auditorAware;
+    }
+
+    /**
+     * Resultado de una fila del archivo, tal como se escribe en el reporte.
+     */
+    private static class ResultadoFila {
+        final long fila;
+        String resultado;
+        String mensaje;
+        Long pacienteId;
+
+        ResultadoFila(long fila, String resultado, String mensaje) {
+            this.fila = fila;
+            this.resultado = resultado;
+            this.mensaje = mensaje;
+        }
+    }
+
+    /**
+     * Fila validada a la espera de insertarse en el siguiente lote.
+     */
+    private static class FilaPendiente {
+        final ResultadoFila resultado;
+        final Long tipoDocumentoId;
+        final String numeroDocumento;
+        final String nombreCompleto;
+        final String email;
+        final String telefono;
+        final LocalDate fechaNacimiento;
+        final String direccion;
+        final String alergias;
+        final String antecedentesMedicos;
+        final String token = UUID.randomUUID().toString();
+        final String claveDocumento;
+        final String claveEmail;
+        Long usuarioId;
+        Long pacienteId;
+
+        FilaPendiente(ResultadoFila resultado, Long tipoDocumentoId, String numeroDocumento, String nombreCompleto,
+                String email, String telefono, LocalDate fechaNacimiento, String direccion, String alergias,
+                String antecedentesMedicos) {
+            this.resultado = resultado;
+            this.tipoDocumentoId = tipoDocumentoId;
+            this.numeroDocumento = numeroDocumento;
+            this.nombreCompleto = nombreCompleto;
+            this.email = email;
+            this.telefono = telefono;
+            this.fechaNacimiento = fechaNacimiento;
+            this.direccion = direccion;
+            this.alergias = alergias;
+            this.antecedentesMedicos = antecedentesMedicos;
+            this.claveDocumento = claveDocumento(tipoDocumentoId, numeroDocumento);
+            this.claveEmail = claveEmail(email);
+        }
+    }
+
+    @Override
+    public ResumenImportacionDTO importar(InputStream csv, EscritorTabular reporte) throws IOException {
+        long inicio = System.nanoTime();
+        try (LectorCsv lector = new LectorCsv(csv)) {
+            String[] encabezados = lector.leerFila();
+            if (encabezados == null) {
+                throw new IllegalArgumentException("El archivo está vacío.");
+            }
+            Importacion importacion = new Importacion(mapearColumnas(encabezados), reporte);
+
+            reporte.escribirEncabezados("Fila", "Resultado", "Mensaje", "Paciente ID");
+            String[] valores;
+            while ((valores = lector.leerFila()) != null) {
+                importacion.procesar(lector.getNumeroFila(), valores);
+            }
+            importacion.vaciar();
+
+            ResumenImportacionDTO resumen = importacion.resumen;
+            resumen.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+            reporte.escribirFila("RESUMEN", "", String.format(
+                    "%d filas: %d importadas, %d duplicadas, %d con error (%d ms)",
+                    resumen.getFilasLeidas(), resumen.getImportados(), resumen.getDuplicados(),
+                    resumen.getErrores(), resumen.getDuracionMs()), "");
+            log.info("Importación de pacientes: {} filas, {} importadas, {} duplicadas, {} con error en {} ms",
+                    resumen.getFilasLeidas(), resumen.getImportados(), resumen.getDuplicados(),
+                    resumen.getErrores(), resumen.getDuracionMs());
+            return resumen;
+        }
+    }
+
+    private static Map<Campo, Integer> mapearColumnas(String[] encabezados) {
+        Map<Campo, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < encabezados.length; i++) {
+            Campo campo = ALIAS.get(NormalizadorTexto.normalizar(encabezados[i]).replace(' ', '_'));
+            if (campo != null) {
+                columnas.putIfAbsent(campo, i);
+            }
+        }
+        for (Campo obligatorio : List.of(Campo.NUMERO_DOCUMENTO, Campo.NOMBRE_COMPLETO, Campo.EMAIL)) {
+            if (!columnas.containsKey(obligatorio)) {
+                throw new IllegalArgumentException("Falta la columna obligatoria '"
+                        + obligatorio.name().toLowerCase(Locale.ROOT) + "' en el encabezado.");
+            }
+        }
+        return columnas;
+    }
+
+    private static String claveDocumento(Long tipoDocumentoId, String numeroDocumento) {
+        return tipoDocumentoId + "|" + numeroDocumento.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String claveEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Estado de una importación en curso: claves conocidas, filas pendientes de insertar y
+     * resultados que aún no se han escrito en el reporte.
+     */
+    private class Importacion {
+        private final Map<Campo, Integer> columnas;
+        private final EscritorTabular reporte;
+        private final Map<String, Long> tiposDocumento = new HashMap<>();
+        private final Long tipoDocumentoPorDefecto;
+        private final Long rolPacienteId;
+        private final String passwordHash;
+        private final String auditor;
+
+        private final Set<String> documentos = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> telefonos = new HashSet<>();
+
+        private final List<FilaPendiente> pendientes = new ArrayList<>();
+        private final List<ResultadoFila> ventana = new ArrayList<>();
+        private final ResumenImportacionDTO resumen = new ResumenImportacionDTO();
+
+        Importacion(Map<Campo, Integer> columnas, EscritorTabular reporte) {
+            this.columnas = columnas;
+            this.reporte = reporte;
+            for (TipoDocumento tipo : tipoDocumentoRepository.findAll()) {
+                tiposDocumento.put(NormalizadorTexto.normalizar(tipo.getCodigo()), tipo.getId());
+                tiposDocumento.put(NormalizadorTexto.normalizar(tipo.getNombre()), tipo.getId());
+            }
+            this.tipoDocumentoPorDefecto = tiposDocumento.get(NormalizadorTexto.normalizar(TIPO_DOCUMENTO_POR_DEFECTO));
+            this.rolPacienteId = rolRepository.findByNombre("PACIENTE").map(Rol::getId)
+                    .orElseThrow(() -> new IllegalStateException("El rol 'PACIENTE' no se encuentra en el sistema."));
+            this.passwordHash = passwordEncoder.encode(UUID.randomUUID().toString());
+            this.auditor = auditorAware.getCurrentAuditor().orElse("sistema");
+            cargarClavesExistentes();
+        }
+
+        private void cargarClavesExistentes() {
+            long inicio = System.nanoTime();
+            transaccionLectura.executeWithoutResult(status -> {
+                jdbcTemplate.query(con -> CursorJdbc.prepararCursor(con, SQL_DOCUMENTOS, fetchSize),
+                        (RowCallbackHandler) rs -> documentos.add(claveDocumento(rs.getLong(1), rs.getString(2))));
+                jdbcTemplate.query(con -> CursorJdbc.prepararCursor(con, SQL_EMAILS, fetchSize),
+                        (RowCallbackHandler) rs -> emails.add(claveEmail(rs.getString(1))));
+                jdbcTemplate.query(con -> CursorJdbc.prepararCursor(con, SQL_TELEFONOS, fetchSize),
+                        (RowCallbackHandler) rs -> telefonos.add(ValidadorTelefono.limpiar(rs.getString(1))));
+            });
+            log.debug("Claves existentes cargadas: {} documentos, {} emails, {} teléfonos en {} ms",
+                    documentos.size(), emails.size(), telefonos.size(), (System.nanoTime() - inicio) / 1_000_000);
+        }
+
+        void procesar(long numeroFila, String[] valores) throws IOException {
+            resumen.setFilasLeidas(resumen.getFilasLeidas() + 1);
+            ResultadoFila resultado = new ResultadoFila(numeroFila, IMPORTADO, "");
+            ventana.add(resultado);
+            try {
+                FilaPendiente fila = validar(resultado, valores);
+                if (fila != null) {
+                    reservarClaves(fila);
+                    pendientes.add(fila);
+                }
+            } catch (IllegalArgumentException e) {
+                rechazar(resultado, ERROR, e.getMessage());
+            }
+            if (pendientes.size() >= tamanoLote || ventana.size() >= tamanoLote * FACTOR_VENTANA_REPORTE) {
+                vaciar();
+            }
+        }
+
+        /**
+         * Devuelve la fila lista para insertar, o null si es un duplicado (ya anotado en el resultado).
+         */
+        private FilaPendiente validar(ResultadoFila resultado, String[] valores) {
+            String numeroDocumento = obligatorio(valores, Campo.NUMERO_DOCUMENTO, "El número de documento");
+            String nombreCompleto = obligatorio(valores, Campo.NOMBRE_COMPLETO, "El nombre completo");
+            String email = obligatorio(valores, Campo.EMAIL, "El email");
+            if (numeroDocumento.length() > MAX_LONGITUD_DOCUMENTO) {
+                throw new IllegalArgumentException("El número de documento no puede superar "
+                        + MAX_LONGITUD_DOCUMENTO + " caracteres.");
+            }
+            if (!FORMATO_EMAIL.matcher(email).matches()) {
+                throw new IllegalArgumentException("El email '" + email + "' no tiene un formato válido.");
+            }
+
+            String tipoTexto = valor(valores, Campo.TIPO_DOCUMENTO);
+            Long tipoDocumentoId = tipoTexto == null ? tipoDocumentoPorDefecto
+                    : tiposDocumento.get(NormalizadorTexto.normalizar(tipoTexto));
+            if (tipoDocumentoId == null) {
+                throw new IllegalArgumentException(tipoTexto == null
+                        ? "No existe el tipo de documento por defecto '" + TIPO_DOCUMENTO_POR_DEFECTO + "'."
+                        : "Tipo de documento desconocido: '" + tipoTexto + "'.");
+            }
+
+            String telefono = valor(valores, Campo.TELEFONO);
+            ValidadorTelefono.validar(telefono);
+            telefono = ValidadorTelefono.limpiar(telefono);
+
+            FilaPendiente fila = new FilaPendiente(resultado, tipoDocumentoId, numeroDocumento, nombreCompleto,
+                    email, telefono, fecha(valor(valores, Campo.FECHA_NACIMIENTO)),
+                    texto(valores, Campo.DIRECCION, "La dirección"), valor(valores, Campo.ALERGIAS),
+                    valor(valores, Campo.ANTECEDENTES_MEDICOS));
+
+            if (documentos.contains(fila.claveDocumento)) {
+                rechazar(resultado, DUPLICADO, "El documento '" + numeroDocumento + "' ya está registrado.");
+            } else if (emails.contains(fila.claveEmail)) {
+                rechazar(resultado, DUPLICADO, "El email '" + email + "' ya está en uso.");
+            } else if (telefono != null && telefonos.contains(telefono)) {
+                rechazar(resultado, DUPLICADO, "El teléfono '" + telefono + "' ya está registrado.");
+            } else {
+                return fila;
+            }
+            return null;
+        }
+
+        private String valor(String[] valores, Campo campo) {
+            Integer indice = columnas.get(campo);
+            if (indice == null || indice >= valores.length) {
+                return null;
+            }
+            String valor = valores[indice].trim();
+            return valor.isEmpty() ? null : valor;
+        }
+
+        private String obligatorio(String[] valores, Campo campo, String descripcion) {
+            String valor = texto(valores, campo, descripcion);
+            if (valor == null) {
+                throw new IllegalArgumentException(descripcion + " es obligatorio.");
+            }
+            return valor;
+        }
+
+        private String texto(String[] valores, Campo campo, String descripcion) {
+            String valor = valor(valores, campo);
+            if (valor != null && valor.length() > MAX_LONGITUD_TEXTO) {
+                throw new IllegalArgumentException(descripcion + " no puede superar "
+                        + MAX_LONGITUD_TEXTO + " caracteres.");
+            }
+            return valor;
+        }
+
+        private LocalDate fecha(String valor) {
+            if (valor == null) {
+                return null;
+            }
+            for (DateTimeFormatter formato : FORMATOS_FECHA) {
+                try {
+                    LocalDate fecha = LocalDate.parse(valor, formato);
+                    if (fecha.isAfter(LocalDate.now())) {
+                        throw new IllegalArgumentException("La fecha de nacimiento no puede ser futura.");
+                    }
+                    return fecha;
+                } catch (DateTimeParseException e) {
+                    // Se prueba el siguiente formato
+                }
+            }
+            throw new IllegalArgumentException("Fecha de nacimiento no válida: '" + valor
+                    + "' (use AAAA-MM-DD o DD/MM/AAAA).");
+        }
+
+        private void reservarClaves(FilaPendiente fila) {
+            documentos.add(fila.claveDocumento);
+            emails.add(fila.claveEmail);
+            if (fila.telefono != null) {
+                telefonos.add(fila.telefono);
+            }
+        }
+
+        private void liberarClaves(FilaPendiente fila) {
+            documentos.remove(fila.claveDocumento);
+            emails.remove(fila.claveEmail);
+            if (fila.telefono != null) {
+                telefonos.remove(fila.telefono);
+            }
+        }
+
+        private void rechazar(ResultadoFila resultado, String tipo, String mensaje) {
+            resultado.resultado = tipo;
+            resultado.mensaje = mensaje;
+            if (DUPLICADO.equals(tipo)) {
+                resumen.setDuplicados(resumen.getDuplicados() + 1);
+            } else {
+                resumen.setErrores(resumen.getErrores() + 1);
+            }
+        }
+
+        /**
+         * Inserta las filas pendientes y escribe en el reporte todos los resultados retenidos.
+         */
+        void vaciar() throws IOException {
+            if (!pendientes.isEmpty()) {
+                guardar(new ArrayList<>(pendientes));
+                pendientes.clear();
+            }
+            for (ResultadoFila resultado : ventana) {
+                reporte.escribirFila(resultado.fila, resultado.resultado, resultado.mensaje, resultado.pacienteId);
+            }
+            ventana.clear();
+        }
+
+        private void guardar(List<FilaPendiente> lote) {
+            List<FilaPendiente> guardadas = new ArrayList<>(lote.size());
+            try {
+                transaccion.executeWithoutResult(status -> insertar(lote));
+                guardadas.addAll(lote);
+            } catch (RuntimeException e) {
+                log.warn("Lote de {} pacientes rechazado, se reintenta fila por fila: {}", lote.size(),
+                        NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                for (FilaPendiente fila : lote) {
+                    try {
+                        transaccion.executeWithoutResult(status -> insertar(List.of(fila)));
+                        guardadas.add(fila);
+                    } catch (RuntimeException ex) {
+                        liberarClaves(fila);
+                        rechazar(fila.resultado, ERROR, recortar(
+                                "No se pudo guardar: " + NestedExceptionUtils.getMostSpecificCause(ex).getMessage()));
+                    }
+                }
+            }
+
+            for (FilaPendiente fila : guardadas) {
+                fila.resultado.pacienteId = fila.pacienteId;
+                indiceBusquedaService.indexar(TipoIndice.PACIENTE, fila.pacienteId,
+                        fila.nombreCompleto, fila.numeroDocumento, fila.email);
+                indiceBusquedaService.indexar(TipoIndice.USUARIO, fila.usuarioId,
+                        fila.nombreCompleto, fila.email, null);
+            }
+            resumen.setImportados(resumen.getImportados() + guardadas.size());
+        }
+
+        private void insertar(List<FilaPendiente> lote) {
+            Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+            List<Long> usuarioIds = insertarConClaves(INSERT_USUARIO, lote, (ps, fila) -> {
+                ps.setString(1, fila.nombreCompleto);
+                ps.setString(2, fila.email);
+                ps.setString(3, passwordHash);
+                ps.setString(4, fila.token);
+                ps.setTimestamp(5, ahora);
+                ps.setTimestamp(6, ahora);
+                ps.setString(7, auditor);
+                ps.setString(8, auditor);
+            });
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).usuarioId = usuarioIds.get(i);
+            }
+
+            jdbcTemplate.batchUpdate(INSERT_USUARIO_ROL, lote, lote.size(), (ps, fila) -> {
+                ps.setLong(1, fila.usuarioId);
+                ps.setLong(2, rolPacienteId);
+            });
+
+            List<Long> pacienteIds = insertarConClaves(INSERT_PACIENTE, lote, (ps, fila) -> {
+                ps.setString(1, fila.numeroDocumento);
+                ps.setLong(2, fila.tipoDocumentoId);
+                ps.setString(3, fila.nombreCompleto);
+                ps.setString(4, fila.email);
+                ps.setString(5, fila.telefono);
+                if (fila.fechaNacimiento != null) {
+                    ps.setDate(6, java.sql.Date.valueOf(fila.fechaNacimiento));
+                } else {
+                    ps.setNull(6, Types.DATE);
+                }
+                ps.setString(7, fila.direccion);
+                asignarTextoLargo(ps, 8, fila.alergias);
+                asignarTextoLargo(ps, 9, fila.antecedentesMedicos);
+                ps.setLong(10, fila.usuarioId);
+                ps.setTimestamp(11, ahora);
+                ps.setTimestamp(12, ahora);
+                ps.setString(13, auditor);
+                ps.setString(14, auditor);
+            });
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).pacienteId = pacienteIds.get(i);
+            }
+
+            jdbcTemplate.batchUpdate(INSERT_CORREO, lote, lote.size(), (ps, fila) -> {
+                ps.setString(1, fila.email);
+                ps.setString(2, fila.nombreCompleto);
+                ps.setString(3, fila.token);
+                ps.setTimestamp(4, ahora);
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface AsignadorFila {
+        void asignar(PreparedStatement ps, FilaPendiente fila) throws SQLException;
+    }
+
+    /**
+     * Inserta el lote en un solo batch y devuelve los IDs generados en el mismo orden.
+     */
+    private List<Long> insertarConClaves(String sql, List<FilaPendiente> lote, AsignadorFila asignador) {
+        GeneratedKeyHolder claves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(sql, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        asignador.asignar(ps, lote.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return lote.size();
+                    }
+                }, claves);
+
+        List<Map<String, Object>> filas = claves.getKeyList();
+        if (filas.size() != lote.size()) {
+            throw new IllegalStateException("El driver devolvió " + filas.size() + " claves para "
+                    + lote.size() + " filas insertadas.");
+        }
+        List<Long> ids = new ArrayList<>(filas.size());
+        for (Map<String, Object> fila : filas) {
+            // MySQL devuelve la clave como GENERATED_KEY y PostgreSQL como "id"
+            Object id = fila.containsKey("id") ? fila.get("id") : fila.values().iterator().next();
+            ids.add(((Number) id).longValue());
+        }
+        return ids;
+    }
+
+    /**
+     * Columnas @Lob: setClob funciona tanto con TEXT (MySQL) como con OID (PostgreSQL).
+     */
+    private static void asignarTextoLargo(PreparedStatement ps, int indice, String valor) throws SQLException {
+        if (valor == null) {
+            ps.setNull(indice, Types.CLOB);
+        } else {
+            ps.setClob(indice, new StringReader(valor));
+        }
+    }
+
+    private static String recortar(String mensaje) {
+        if (mensaje == null) {
+            return "";
+        }
+        return mensaje.length() > MAX_LONGITUD_MENSAJE ? mensaje.substring(0, MAX_LONGITUD_MENSAJE) : mensaje;
+    }
+}
@@ -0,0 +1,162 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.servicio.IndiceBusquedaService;
+import com.odontoapp.util.CursorJdbc;
+import com.odontoapp.util.IndiceTexto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de los índices de búsqueda.
+ *
+ * Cada índice se carga con una lectura de solo avance de la tabla y se mantiene al día con
+ * {@link #indexar}/{@link #eliminar}, que invoca el listener JPA después de cada commit.
+ * Durante una reconstrucción las escrituras se aplican al índice vigente y además se encolan
+ * para repetirlas sobre el nuevo antes de reemplazarlo, de modo que no se pierde ninguna.
+ */
+@Service
+public class IndiceBusquedaServiceImpl implements IndiceBusquedaService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceBusquedaServiceImpl.class);
+
+    private static final Map<TipoIndice, String> CONSULTAS = Map.of(
+            TipoIndice.PACIENTE,
+            "SELECT id, nombre_completo, numero_documento, email FROM pacientes WHERE eliminado = false",
+            TipoIndice.USUARIO,
+            "SELECT id, nombre_completo, email, numero_documento FROM usuarios WHERE eliminado = false",
+            TipoIndice.INSUMO,
+            "SELECT id, nombre, codigo, marca FROM insumos WHERE eliminado = false");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccionLectura;
+
+    @Value("${busqueda.indice.max-resultados:2000}")
+    private int maxResultados;
+
+    @Value("${reportes.exportacion.fetch-size:500}")
+    private int fetchSize;
+
+    // Protegidos por synchronized (this)
+    private final Map<TipoIndice, IndiceTexto> indices = new EnumMap<>(TipoIndice.class);
+    private final Map<TipoIndice, List<Consumer<IndiceTexto>>> pendientes = new EnumMap<>(TipoIndice.class);
+    private final Map<TipoIndice, LocalDateTime> fechasConstruccion = new EnumMap<>(TipoIndice.class);
+
+    public IndiceBusquedaServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public Optional<List<Long>> buscar(TipoIndice tipo, String consulta) {
+        IndiceTexto indice;
+        synchronized (this) {
+            indice = indices.get(tipo);
+        }
+        if (indice == null || consulta == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(indice.buscar(consulta, maxResultados));
+    }
+
+    @Override
+    public void indexar(TipoIndice tipo, Long id, String... campos) {
+        if (id != null) {
+            aplicar(tipo, indice -> indice.indexar(id, campos));
+        }
+    }
+
+    @Override
+    public void eliminar(TipoIndice tipo, Long id) {
+        if (id != null) {
+            aplicar(tipo, indice -> indice.eliminar(id));
+        }
+    }
+
+    private synchronized void aplicar(TipoIndice tipo, Consumer<IndiceTexto> cambio) {
+        IndiceTexto actual = indices.get(tipo);
+        if (actual != null) {
+            cambio.accept(actual);
+        }
+        List<Consumer<IndiceTexto>> enEspera = pendientes.get(tipo);
+        if (enEspera != null) {
+            enEspera.add(cambio);
+        }
+    }
+
+    @Override
+    public void reconstruir() {
+        for (TipoIndice tipo : TipoIndice.values()) {
+            try {
+                reconstruir(tipo);
+            } catch (Exception e) {
+                synchronized (this) {
+                    pendientes.remove(tipo);
+                }
+                log.error("Error reconstruyendo el índice de búsqueda {}: {}", tipo, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void reconstruir(TipoIndice tipo) {
+        synchronized (this) {
+            if (pendientes.containsKey(tipo)) {
+                log.warn("El índice de búsqueda {} ya se está reconstruyendo", tipo);
+                return;
+            }
+            pendientes.put(tipo, new ArrayList<>());
+        }
+
+        long inicio = System.nanoTime();
+        IndiceTexto nuevo = new IndiceTexto();
+        transaccionLectura.executeWithoutResult(status -> jdbcTemplate.query(
+                con -> CursorJdbc.prepararCursor(con, CONSULTAS.get(tipo), fetchSize),
+                (RowCallbackHandler) rs -> nuevo.indexar(rs.getLong(1),
+                        rs.getString(2), rs.getString(3), rs.getString(4))));
+
+        synchronized (this) {
+            // Escrituras confirmadas mientras se leía la tabla
+            for (Consumer<IndiceTexto> cambio : pendientes.remove(tipo)) {
+                cambio.accept(nuevo);
+            }
+            indices.put(tipo, nuevo);
+            fechasConstruccion.put(tipo, LocalDateTime.now());
+        }
+        log.info("Índice de búsqueda {} construido: {} documentos en {} ms", tipo, nuevo.tamano(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    @Override
+    public synchronized Map<String, Object> obtenerEstado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        for (TipoIndice tipo : TipoIndice.values()) {
+            IndiceTexto indice = indices.get(tipo);
+            Map<String, Object> detalle = new LinkedHashMap<>();
+            detalle.put("listo", indice != null);
+            detalle.put("reconstruyendo", pendientes.containsKey(tipo));
+            if (indice != null) {
+                detalle.put("documentos", indice.tamano());
+                detalle.put("fraccionEliminada", Math.round(indice.fraccionEliminada() * 1000) / 1000.0);
+                detalle.put("bytesEstimados", indice.bytesEstimados());
+                detalle.put("fechaConstruccion", String.valueOf(fechasConstruccion.get(tipo)));
+            }
+            estado.put(tipo.name(), detalle);
+        }
+        return estado;
+    }
+}
@@ -0,0 +1,279 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.EventoLineaTiempoDTO;
+import com.odontoapp.dto.EventoLineaTiempoDTO.TipoEvento;
+import com.odontoapp.dto.LineaTiempoDTO;
+import com.odontoapp.servicio.LineaTiempoPacienteService;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Implementación de la línea de tiempo del paciente.
+ *
+ * Cada fuente se lee con una proyección JDBC mínima, ordenada por (fecha, id) descendente y limitada
+ * a {@code limite + 1} filas a partir del cursor (keyset, sin OFFSET). Las fuentes se consultan en
+ * paralelo en hilos virtuales y sus listas ya ordenadas se combinan con una mezcla k-way sobre un
+ * montículo, de modo que cada página cuesta lo mismo aunque el historial tenga años.
+ *
+ * Orden total: fecha desc, tipo desc, id desc. El cursor guarda esa terna del último evento devuelto.
+ */
+@Service
+public class LineaTiempoPacienteServiceImpl implements LineaTiempoPacienteService {
+
+    private static final int MAX_LONGITUD_DETALLE = 300;
+    // Sin cursor se parte desde una fecha posterior a cualquier registro
+    private static final Timestamp SIN_CURSOR = Timestamp.valueOf(LocalDateTime.of(9999, 12, 31, 23, 59, 59));
+
+    private static final Comparator<EventoLineaTiempoDTO> ORDEN = Comparator
+            .comparing(EventoLineaTiempoDTO::getFecha)
+            .thenComparing(EventoLineaTiempoDTO::getTipo)
+            .thenComparing(EventoLineaTiempoDTO::getId)
+            .reversed();
+
+    /**
+     * Consulta de una fuente. Parámetros: usuario del paciente, fecha del cursor (dos veces),
+     * ID límite para la misma fecha y cantidad de filas.
+     */
+    private record Fuente(String sql, RowMapper<EventoLineaTiempoDTO> mapper) {
+    }
+
+    private static final Map<TipoEvento, Fuente> FUENTES = new EnumMap<>(TipoEvento.class);
+
+    static {
+        FUENTES.put(TipoEvento.CITA, new Fuente(
+                "SELECT c.id, c.fecha_hora_inicio, p.nombre, ec.nombre, u.nombre_completo, c.motivo_consulta "
+                        + "FROM citas c JOIN estados_cita ec ON ec.id = c.estado_cita_id "
+                        + "LEFT JOIN procedimientos p ON p.id = c.procedimiento_id "
+                        + "LEFT JOIN usuarios u ON u.id = c.odontologo_usuario_id "
+                        + "WHERE c.paciente_usuario_id = ? AND c.eliminado = false "
+                        + "AND (c.fecha_hora_inicio < ? OR (c.fecha_hora_inicio = ? AND c.id < ?)) "
+                        + "ORDER BY c.fecha_hora_inicio DESC, c.id DESC LIMIT ?",
+                (rs, i) -> new EventoLineaTiempoDTO(TipoEvento.CITA, rs.getLong(1),
+                        rs.getTimestamp(2).toLocalDateTime(),
+                        rs.getString(3) != null ? "Cita: " + rs.getString(3) : "Cita",
+                        unir("Odontólogo: " + rs.getString(5), rs.getString(6)), rs.getString(4), null)));
+
+        FUENTES.put(TipoEvento.TRATAMIENTO, new Fuente(
+                "SELECT tr.id, tr.fecha_realizacion, p.nombre, tr.pieza_dental, u.nombre_completo, "
+                        + "tr.descripcion_trabajo "
+                        + "FROM tratamientos_realizados tr JOIN citas c ON c.id = tr.cita_id "
+                        + "JOIN procedimientos p ON p.id = tr.procedimiento_id "
+                        + "LEFT JOIN usuarios u ON u.id = tr.odontologo_usuario_id "
+                        + "WHERE c.paciente_usuario_id = ? "
+                        + "AND (tr.fecha_realizacion < ? OR (tr.fecha_realizacion = ? AND tr.id < ?)) "
+                        + "ORDER BY tr.fecha_realizacion DESC, tr.id DESC LIMIT ?",
+                (rs, i) -> new EventoLineaTiempoDTO(TipoEvento.TRATAMIENTO, rs.getLong(1),
+                        rs.getTimestamp(2).toLocalDateTime(), "Tratamiento: " + rs.getString(3),
+                        unir(rs.getString(4) != null ? "Pieza " + rs.getString(4) : null,
+                                "Odontólogo: " + rs.getString(5), rs.getString(6)),
+                        "REALIZADO", null)));
+
+        FUENTES.put(TipoEvento.COMPROBANTE, new Fuente(
+                "SELECT co.id, co.fecha_emision, co.numero_comprobante, ep.nombre, co.tipo_comprobante, "
+                        + "co.descripcion, co.monto_total "
+                        + "FROM comprobantes co JOIN estados_pago ep ON ep.id = co.estado_pago_id "
+                        + "WHERE co.paciente_usuario_id = ? AND co.eliminado = false "
+                        + "AND (co.fecha_emision < ? OR (co.fecha_emision = ? AND co.id < ?)) "
+                        + "ORDER BY co.fecha_emision DESC, co.id DESC LIMIT ?",
+                (rs, i) -> new EventoLineaTiempoDTO(TipoEvento.COMPROBANTE, rs.getLong(1),
+                        rs.getTimestamp(2).toLocalDateTime(), "Comprobante " + rs.getString(3),
+                        unir(rs.getString(5), rs.getString(6)), rs.getString(4), rs.getBigDecimal(7))));
+
+        FUENTES.put(TipoEvento.ODONTOGRAMA, new Fuente(
+                "SELECT oh.id, oh.fecha_cambio, oh.numero_diente, oh.estado_anterior, oh.estado_nuevo, oh.notas "
+                        + "FROM odontograma_historial oh "
+                        + "WHERE oh.paciente_usuario_id = ? "
+                        + "AND (oh.fecha_cambio < ? OR (oh.fecha_cambio = ? AND oh.id < ?)) "
+                        + "ORDER BY oh.fecha_cambio DESC, oh.id DESC LIMIT ?",
+                (rs, i) -> new EventoLineaTiempoDTO(TipoEvento.ODONTOGRAMA, rs.getLong(1),
+                        rs.getTimestamp(2).toLocalDateTime(), "Diente " + rs.getString(3),
+                        unir((rs.getString(4) != null ? rs.getString(4) : "—") + " → " + rs.getString(5),
+                                rs.getString(6)),
+                        rs.getString(5), null)));
+
+        FUENTES.put(TipoEvento.ARCHIVO, new Fuente(
+                "SELECT a.id, a.fecha_creacion, a.nombre_archivo_original, a.tipo_mime, a.descripcion "
+                        + "FROM archivos_adjuntos a "
+                        + "WHERE a.paciente_usuario_id = ? AND a.eliminado = false "
+                        + "AND (a.fecha_creacion < ? OR (a.fecha_creacion = ? AND a.id < ?)) "
+                        + "ORDER BY a.fecha_creacion DESC, a.id DESC LIMIT ?",
+                (rs, i) -> new EventoLineaTiempoDTO(TipoEvento.ARCHIVO, rs.getLong(1),
+                        rs.getTimestamp(2).toLocalDateTime(), "Archivo: " + rs.getString(3),
+                        unir(rs.getString(4), rs.getString(5)), null, null)));
+    }
+
+    /**
+     * Posición del último evento devuelto.
+     */
+    private record Cursor(LocalDateTime fecha, TipoEvento tipo, long id) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    // Limita las consultas simultáneas de todas las peticiones para no agotar el pool de conexiones
+    private final Semaphore consultasSimultaneas;
+
+    public LineaTiempoPacienteServiceImpl(JdbcTemplate jdbcTemplate,
+            @Value("${pacientes.linea-tiempo.max-consultas:8}") int maxConsultas) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.consultasSimultaneas = new Semaphore(Math.max(1, maxConsultas));
+    }
+
+    @Override
+    public LineaTiempoDTO obtenerPagina(Long pacienteId, String cursorTexto, int limite, Set<TipoEvento> tipos) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite debe ser mayor que cero.");
+        }
+        List<Long> usuarioIds = jdbcTemplate.queryForList(
+                "SELECT usuario_id FROM pacientes WHERE id = ? AND eliminado = false", Long.class, pacienteId);
+        if (usuarioIds.isEmpty()) {
+            throw new EntityNotFoundException("Paciente no encontrado con ID: " + pacienteId);
+        }
+        Long usuarioId = usuarioIds.get(0);
+        if (usuarioId == null) {
+            return new LineaTiempoDTO(List.of(), null);
+        }
+
+        Cursor cursor = decodificar(cursorTexto);
+        Set<TipoEvento> incluidos = tipos == null || tipos.isEmpty()
+                ? EnumSet.allOf(TipoEvento.class) : EnumSet.copyOf(tipos);
+
+        List<List<EventoLineaTiempoDTO>> listas = consultarEnParalelo(usuarioId, cursor, limite + 1, incluidos);
+        List<EventoLineaTiempoDTO> eventos = mezclar(listas, limite);
+
+        boolean hayMas = listas.stream().mapToInt(List::size).sum() > eventos.size();
+        String siguiente = null;
+        if (hayMas) {
+            EventoLineaTiempoDTO ultimo = eventos.get(eventos.size() - 1);
+            siguiente = codificar(new Cursor(ultimo.getFecha(), ultimo.getTipo(), ultimo.getId()));
+        }
+        return new LineaTiempoDTO(eventos, siguiente);
+    }
+
+    private List<List<EventoLineaTiempoDTO>> consultarEnParalelo(Long usuarioId, Cursor cursor, int filas,
+            Set<TipoEvento> tipos) {
+        List<List<EventoLineaTiempoDTO>> listas = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<EventoLineaTiempoDTO>>> tareas = new ArrayList<>();
+            for (TipoEvento tipo : tipos) {
+                tareas.add(executor.submit(() -> {
+                    consultasSimultaneas.acquire();
+                    try {
+                        return consultar(tipo, usuarioId, cursor, filas);
+                    } finally {
+                        consultasSimultaneas.release();
+                    }
+                }));
+            }
+            for (Future<List<EventoLineaTiempoDTO>> tarea : tareas) {
+                listas.add(tarea.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta de la línea de tiempo interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No se pudo obtener la línea de tiempo: " + e.getCause().getMessage(),
+                    e.getCause());
+        }
+        return listas;
+    }
+
+    private List<EventoLineaTiempoDTO> consultar(TipoEvento tipo, Long usuarioId, Cursor cursor, int filas) {
+        Timestamp fecha = cursor != null ? Timestamp.valueOf(cursor.fecha()) : SIN_CURSOR;
+        long idLimite;
+        if (cursor == null || tipo.compareTo(cursor.tipo()) < 0) {
+            // Con la misma fecha, los tipos menores van después del cursor: entran todos
+            idLimite = Long.MAX_VALUE;
+        } else if (tipo == cursor.tipo()) {
+            idLimite = cursor.id();
+        } else {
+            // Los tipos mayores con la misma fecha ya se devolvieron
+            idLimite = Long.MIN_VALUE;
+        }
+        Fuente fuente = FUENTES.get(tipo);
+        return jdbcTemplate.query(fuente.sql(), fuente.mapper(), usuarioId, fecha, fecha, idLimite, filas);
+    }
+
+    /**
+     * Mezcla k-way de listas ya ordenadas: un montículo con la cabeza de cada lista.
+     */
+    private static List<EventoLineaTiempoDTO> mezclar(List<List<EventoLineaTiempoDTO>> listas, int limite) {
+        record Cabeza(EventoLineaTiempoDTO evento, Iterator<EventoLineaTiempoDTO> resto) {
+        }
+        PriorityQueue<Cabeza> monticulo = new PriorityQueue<>(Math.max(1, listas.size()),
+                Comparator.comparing(Cabeza::evento, ORDEN));
+        for (List<EventoLineaTiempoDTO> lista : listas) {
+            Iterator<EventoLineaTiempoDTO> iterador = lista.iterator();
+            if (iterador.hasNext()) {
+                monticulo.add(new Cabeza(iterador.next(), iterador));
+            }
+        }
+        List<EventoLineaTiempoDTO> resultado = new ArrayList<>(limite);
+        while (resultado.size() < limite && !monticulo.isEmpty()) {
+            Cabeza cabeza = monticulo.poll();
+            resultado.add(cabeza.evento());
+            if (cabeza.resto().hasNext()) {
+                monticulo.add(new Cabeza(cabeza.resto().next(), cabeza.resto()));
+            }
+        }
+        return resultado;
+    }
+
+    private static String codificar(Cursor cursor) {
+        String texto = cursor.fecha() + "|" + cursor.tipo().name() + "|" + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodificar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(texto), StandardCharsets.UTF_8).split("\\|");
+            if (partes.length != 3) {
+                throw new IllegalArgumentException("Cursor no válido.");
+            }
+            return new Cursor(LocalDateTime.parse(partes[0]), TipoEvento.valueOf(partes[1]), Long.parseLong(partes[2]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException es una IllegalArgumentException
+            throw new IllegalArgumentException("Cursor no válido.", e);
+        }
+    }
+
+    private static String unir(String... partes) {
+        StringBuilder texto = new StringBuilder();
+        for (String parte : partes) {
+            if (parte != null && !parte.isBlank()) {
+                if (texto.length() > 0) {
+                    texto.append(" · ");
+                }
+                texto.append(parte.trim());
+            }
+        }
+        return texto.length() > MAX_LONGITUD_DETALLE
+                ? texto.substring(0, MAX_LONGITUD_DETALLE) + "…"
+                : texto.toString();
+    }
+}
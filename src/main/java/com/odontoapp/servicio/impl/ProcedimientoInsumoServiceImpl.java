@@ -4,11 +4,13 @@ import com.odontoapp.dto.ProcedimientoInsumoDTO;
 import com.odontoapp.entidad.Insumo;
 import com.odontoapp.entidad.Procedimiento;
 import com.odontoapp.entidad.ProcedimientoInsumo;
+import com.odontoapp.evento.ProcedimientoModificadoEvent;
 import com.odontoapp.repositorio.InsumoRepository;
 import com.odontoapp.repositorio.ProcedimientoInsumoRepository;
 import com.odontoapp.repositorio.ProcedimientoRepository;
 import com.odontoapp.servicio.ProcedimientoInsumoService;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,13 +29,16 @@ public class ProcedimientoInsumoServiceImpl implements ProcedimientoInsumoServic
     private final ProcedimientoInsumoRepository procedimientoInsumoRepository;
     private final ProcedimientoRepository procedimientoRepository;
     private final InsumoRepository insumoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ProcedimientoInsumoServiceImpl(ProcedimientoInsumoRepository procedimientoInsumoRepository,
                                          ProcedimientoRepository procedimientoRepository,
-                                         InsumoRepository insumoRepository) {
+                                         InsumoRepository insumoRepository,
+                                         ApplicationEventPublisher eventPublisher) {
         this.procedimientoInsumoRepository = procedimientoInsumoRepository;
         this.procedimientoRepository = procedimientoRepository;
         this.insumoRepository = insumoRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -82,8 +87,10 @@ public class ProcedimientoInsumoServiceImpl implements ProcedimientoInsumoServic
         nuevaRelacion.setInsumo(insumo);
         nuevaRelacion.setCantidadDefecto(dto.getCantidadDefault());
 
-        // Guardar y retornar
-        return procedimientoInsumoRepository.save(nuevaRelacion);
+        // Guardar, notificar el cambio de costo y retornar
+        ProcedimientoInsumo guardada = procedimientoInsumoRepository.save(nuevaRelacion);
+        eventPublisher.publishEvent(new ProcedimientoModificadoEvent(procedimiento.getId()));
+        return guardada;
     }
 
     @Override
@@ -107,21 +114,24 @@ public class ProcedimientoInsumoServiceImpl implements ProcedimientoInsumoServic
         // Actualizar la cantidad
         relacion.setCantidadDefecto(nuevaCantidad);
 
-        // Guardar y retornar
-        return procedimientoInsumoRepository.save(relacion);
+        // Guardar, notificar el cambio de costo y retornar
+        ProcedimientoInsumo guardada = procedimientoInsumoRepository.save(relacion);
+        eventPublisher.publishEvent(new ProcedimientoModificadoEvent(relacion.getProcedimiento().getId()));
+        return guardada;
     }
 
     @Override
     @Transactional
     public void quitarInsumoDeProcedimiento(Long procedimientoInsumoId) {
         // Verificar que la relación existe antes de eliminar
-        if (!procedimientoInsumoRepository.existsById(procedimientoInsumoId)) {
-            throw new EntityNotFoundException(
-                "No se encontró la relación procedimiento-insumo con ID: " + procedimientoInsumoId);
-        }
+        ProcedimientoInsumo relacion = procedimientoInsumoRepository.findById(procedimientoInsumoId)
+            .orElseThrow(() -> new EntityNotFoundException(
+                "No se encontró la relación procedimiento-insumo con ID: " + procedimientoInsumoId));
+        Long procedimientoId = relacion.getProcedimiento().getId();
 
-        // Eliminar la relación
-        procedimientoInsumoRepository.deleteById(procedimientoInsumoId);
+        // Eliminar la relación y notificar el cambio de costo
+        procedimientoInsumoRepository.delete(relacion);
+        eventPublisher.publishEvent(new ProcedimientoModificadoEvent(procedimientoId));
     }
 
     @Override
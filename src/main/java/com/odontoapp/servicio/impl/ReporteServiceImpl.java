@@ -1,64 +1,102 @@
 package com.odontoapp.servicio.impl;
 
+import com.odontoapp.dto.CostoProcedimientoDTO;
 import com.odontoapp.dto.ReporteDTO;
-import com.odontoapp.repositorio.CitaRepository;
-import com.odontoapp.repositorio.PacienteRepository;
-import com.odontoapp.repositorio.PagoRepository;
-import com.odontoapp.repositorio.TratamientoRealizadoRepository;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+import com.odontoapp.repositorio.ResumenDiarioRepository;
+import com.odontoapp.servicio.CostoProcedimientoService;
 import com.odontoapp.servicio.ReporteService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
+/**
+ * Los reportes se leen de las tablas de resúmenes diarios (ver {@link ResumenDiarioServiceImpl}),
+ * por lo que un rango de varios años recorre a lo sumo unas pocas miles de filas.
+ */
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class ReporteServiceImpl implements ReporteService {
 
-    private final PagoRepository pagoRepository;
-    private final CitaRepository citaRepository;
-    private final TratamientoRealizadoRepository tratamientoRealizadoRepository;
-    private final PacienteRepository pacienteRepository;
+    // Límites usados cuando el filtro de fechas viene vacío
+    private static final LocalDate FECHA_MINIMA = LocalDate.of(1900, 1, 1);
+    private static final LocalDate FECHA_MAXIMA = LocalDate.of(9999, 12, 31);
+
+    private final ResumenDiarioRepository resumenDiarioRepository;
+    private final CostoProcedimientoService costoProcedimientoService;
 
     @Override
     public List<ReporteDTO> obtenerIngresosPorMetodoPago(LocalDate fechaInicio, LocalDate fechaFin) {
-        return pagoRepository.obtenerIngresosPorMetodoPago(atStartOfDay(fechaInicio), atEndOfDay(fechaFin));
+        return resumenDiarioRepository.sumarMontoPorMetodoPago(TipoResumen.INGRESO,
+                desde(fechaInicio), hasta(fechaFin));
     }
 
     @Override
     public List<ReporteDTO> obtenerIngresosPorMes(LocalDate fechaInicio, LocalDate fechaFin) {
-        return pagoRepository.obtenerIngresosPorMes(atStartOfDay(fechaInicio), atEndOfDay(fechaFin));
+        Map<YearMonth, BigDecimal> porMes = new TreeMap<>();
+        for (Object[] fila : resumenDiarioRepository.sumarPorDia(TipoResumen.INGRESO,
+                desde(fechaInicio), hasta(fechaFin))) {
+            BigDecimal monto = fila[1] != null ? (BigDecimal) fila[1] : BigDecimal.ZERO;
+            porMes.merge(YearMonth.from((LocalDate) fila[0]), monto, BigDecimal::add);
+        }
+        return porMes.entrySet().stream()
+                .map(e -> new ReporteDTO(e.getKey().toString(), e.getValue()))
+                .collect(Collectors.toList());
     }
 
     @Override
     public List<ReporteDTO> obtenerCitasPorEstado(LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId) {
-        return citaRepository.obtenerCitasPorEstado(atStartOfDay(fechaInicio), atEndOfDay(fechaFin), odontologoId);
+        return resumenDiarioRepository.sumarCantidadPorEstado(TipoResumen.CITA,
+                desde(fechaInicio), hasta(fechaFin), odontologoId);
     }
 
     @Override
     public List<ReporteDTO> obtenerTopTratamientos(LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId) {
-        return tratamientoRealizadoRepository.obtenerTopTratamientos(
-                atStartOfDay(fechaInicio),
-                atEndOfDay(fechaFin),
+        return resumenDiarioRepository.sumarCantidadPorProcedimiento(TipoResumen.TRATAMIENTO,
+                desde(fechaInicio),
+                hasta(fechaFin),
                 odontologoId,
                 PageRequest.of(0, 10)); // Top 10
     }
 
     @Override
     public List<ReporteDTO> obtenerNuevosPacientesPorMes(LocalDate fechaInicio, LocalDate fechaFin) {
-        return pacienteRepository.obtenerNuevosPacientesPorMes(atStartOfDay(fechaInicio), atEndOfDay(fechaFin));
+        Map<YearMonth, Long> porMes = new TreeMap<>();
+        for (Object[] fila : resumenDiarioRepository.sumarPorDia(TipoResumen.PACIENTE_NUEVO,
+                desde(fechaInicio), hasta(fechaFin))) {
+            long cantidad = fila[2] != null ? ((Number) fila[2]).longValue() : 0L;
+            porMes.merge(YearMonth.from((LocalDate) fila[0]), cantidad, Long::sum);
+        }
+        return porMes.entrySet().stream()
+                .map(e -> new ReporteDTO(e.getKey().toString(), e.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ReporteDTO> obtenerMargenPorServicio() {
+        return costoProcedimientoService.listarCostos().stream()
+                .sorted(Comparator.comparing(CostoProcedimientoDTO::getMargen))
+                .limit(10) // Los 10 de menor margen
+                .map(c -> new ReporteDTO(c.getNombre(), c.getMargen()))
+                .collect(Collectors.toList());
     }
 
-    private LocalDateTime atStartOfDay(LocalDate date) {
-        return date != null ? date.atStartOfDay() : LocalDateTime.MIN;
+    private LocalDate desde(LocalDate date) {
+        return date != null ? date : FECHA_MINIMA;
     }
 
-    private LocalDateTime atEndOfDay(LocalDate date) {
-        return date != null ? date.atTime(23, 59, 59) : LocalDateTime.MAX;
+    private LocalDate hasta(LocalDate date) {
+        return date != null ? date : FECHA_MAXIMA;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,255 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.entidad.ResumenDiario;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+import com.odontoapp.evento.CitaModificadaEvent;
+import com.odontoapp.evento.FacturacionModificadaEvent;
+import com.odontoapp.evento.ResumenDiarioActualizadoEvent;
+import com.odontoapp.evento.TratamientoRealizadoModificadoEvent;
+import com.odontoapp.repositorio.CitaRepository;
+import com.odontoapp.repositorio.PacienteRepository;
+import com.odontoapp.repositorio.PagoRepository;
+import com.odontoapp.repositorio.ResumenDiarioRepository;
+import com.odontoapp.repositorio.TratamientoRealizadoRepository;
+import com.odontoapp.servicio.ResumenDiarioService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de los resúmenes diarios del módulo de reportes.
+ * Cada día se borra y se vuelve a agregar desde las tablas de origen, de modo que
+ * la carga nocturna, el refresco del día en curso y los deltas por evento pueden
+ * solaparse sin duplicar datos.
+ * Los deltas regeneran los días actuales del registro: las fechas de citas, pagos y tratamientos
+ * no cambian una vez guardadas (reprogramar crea otra cita). El tratamiento lleva su fecha en el
+ * evento porque tras eliminarlo ya no se puede leer.
+ */
+@Service
+public class ResumenDiarioServiceImpl implements ResumenDiarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenDiarioServiceImpl.class);
+
+    // Días agregados por transacción durante una reconstrucción
+    private static final int DIAS_POR_LOTE = 31;
+
+    private final ResumenDiarioRepository resumenDiarioRepository;
+    private final PagoRepository pagoRepository;
+    private final CitaRepository citaRepository;
+    private final TratamientoRealizadoRepository tratamientoRealizadoRepository;
+    private final PacienteRepository pacienteRepository;
+    private final TransactionTemplate transaccion;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Evita que dos regeneraciones del mismo día se intercalen (borrar + insertar)
+    private final Object bloqueo = new Object();
+
+    public ResumenDiarioServiceImpl(ResumenDiarioRepository resumenDiarioRepository,
+                                    PagoRepository pagoRepository,
+                                    CitaRepository citaRepository,
+                                    TratamientoRealizadoRepository tratamientoRealizadoRepository,
+                                    PacienteRepository pacienteRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.resumenDiarioRepository = resumenDiarioRepository;
+        this.pagoRepository = pagoRepository;
+        this.citaRepository = citaRepository;
+        this.tratamientoRealizadoRepository = tratamientoRealizadoRepository;
+        this.pacienteRepository = pacienteRepository;
+        // Transacción propia: los deltas se ejecutan después del commit de la operación original
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void reconstruir(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null || desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("El rango de fechas para los resúmenes no es válido");
+        }
+
+        LocalDate inicioLote = desde;
+        while (!inicioLote.isAfter(hasta)) {
+            LocalDate finLote = inicioLote.plusDays(DIAS_POR_LOTE - 1L);
+            if (finLote.isAfter(hasta)) {
+                finLote = hasta;
+            }
+            LocalDate inicio = inicioLote;
+            LocalDate fin = finLote;
+            synchronized (bloqueo) {
+                transaccion.executeWithoutResult(status -> {
+                    for (TipoResumen tipo : TipoResumen.values()) {
+                        recalcularRango(tipo, inicio, fin);
+                    }
+                });
+            }
+            for (TipoResumen tipo : TipoResumen.values()) {
+                eventPublisher.publishEvent(new ResumenDiarioActualizadoEvent(tipo, inicio, fin));
+            }
+            inicioLote = finLote.plusDays(1);
+        }
+    }
+
+    @Override
+    public void reconstruirTodo() {
+        LocalDate hoy = LocalDate.now();
+        LocalDate primeraFecha = Stream.of(
+                        pagoRepository.findPrimeraFechaPago(),
+                        citaRepository.findPrimeraFechaCita(),
+                        tratamientoRealizadoRepository.findPrimeraFechaRealizacion(),
+                        pacienteRepository.findPrimeraFechaCreacion())
+                .filter(Objects::nonNull)
+                .map(LocalDateTime::toLocalDate)
+                .min(LocalDate::compareTo)
+                .orElse(hoy);
+
+        // Las citas pueden estar agendadas a futuro; se cubre un año por delante
+        LocalDate ultimaFecha = hoy.plusYears(1);
+        log.info("Reconstruyendo resúmenes diarios desde {} hasta {}", primeraFecha, ultimaFecha);
+        reconstruir(primeraFecha.isAfter(hoy) ? hoy : primeraFecha, ultimaFecha);
+    }
+
+    @Override
+    public void recalcularDias(TipoResumen tipo, Collection<LocalDate> dias) {
+        if (tipo == null || dias == null || dias.isEmpty()) {
+            return;
+        }
+        TreeSet<LocalDate> ordenados = new TreeSet<>(dias);
+        synchronized (bloqueo) {
+            transaccion.executeWithoutResult(status -> {
+                for (LocalDate dia : ordenados) {
+                    recalcularRango(tipo, dia, dia);
+                }
+            });
+        }
+        // Ya confirmado: los consumidores (cubo de reportes) pueden releer los días
+        for (LocalDate dia : ordenados) {
+            eventPublisher.publishEvent(new ResumenDiarioActualizadoEvent(tipo, dia, dia));
+        }
+    }
+
+    @Override
+    public boolean estaVacio() {
+        return resumenDiarioRepository.count() == 0;
+    }
+
+    // --- Deltas por evento (después del commit) ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarCita(CitaModificadaEvent evento) {
+        try {
+            citaRepository.findById(evento.citaId())
+                    .map(cita -> cita.getFechaHoraInicio().toLocalDate())
+                    .ifPresent(dia -> {
+                        recalcularDias(TipoResumen.CITA, Set.of(dia));
+                        // Marcar asistencia crea el tratamiento mínimo con la fecha de la cita
+                        recalcularDias(TipoResumen.TRATAMIENTO, Set.of(dia));
+                    });
+        } catch (Exception e) {
+            log.error("No se pudo actualizar el resumen de citas para la cita {}: {}", evento.citaId(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarFacturacion(FacturacionModificadaEvent evento) {
+        try {
+            recalcularDias(TipoResumen.INGRESO,
+                    pagoRepository.findFechasPagoByComprobanteId(evento.comprobanteId()));
+        } catch (Exception e) {
+            log.error("No se pudo actualizar el resumen de ingresos para el comprobante {}: {}",
+                    evento.comprobanteId(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarTratamiento(TratamientoRealizadoModificadoEvent evento) {
+        try {
+            recalcularDias(TipoResumen.TRATAMIENTO, Set.of(evento.fechaRealizacion()));
+        } catch (Exception e) {
+            log.error("No se pudo actualizar el resumen de tratamientos para el tratamiento {}: {}",
+                    evento.tratamientoId(), e.getMessage());
+        }
+    }
+
+    // --- Agregación ---
+
+    private void recalcularRango(TipoResumen tipo, LocalDate desde, LocalDate hasta) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+
+        resumenDiarioRepository.eliminarRango(tipo, desde, hasta);
+
+        List<ResumenDiario> filas = new ArrayList<>();
+        switch (tipo) {
+            case INGRESO -> {
+                for (Object[] fila : pagoRepository.agregarIngresosPorDia(inicio, fin)) {
+                    ResumenDiario resumen = new ResumenDiario(tipo, aFecha(fila[0]));
+                    resumen.setMetodoPago((String) fila[1]);
+                    resumen.setOdontologoId((Long) fila[2]);
+                    resumen.setProcedimientoId((Long) fila[3]);
+                    resumen.setMonto(fila[4] != null ? (BigDecimal) fila[4] : BigDecimal.ZERO);
+                    resumen.setCantidad(((Number) fila[5]).longValue());
+                    filas.add(resumen);
+                }
+            }
+            case CITA -> {
+                for (Object[] fila : citaRepository.agregarCitasPorDia(inicio, fin)) {
+                    ResumenDiario resumen = new ResumenDiario(tipo, aFecha(fila[0]));
+                    resumen.setOdontologoId((Long) fila[1]);
+                    resumen.setProcedimientoId((Long) fila[2]);
+                    resumen.setEstado((String) fila[3]);
+                    resumen.setCantidad(((Number) fila[4]).longValue());
+                    filas.add(resumen);
+                }
+            }
+            case TRATAMIENTO -> {
+                for (Object[] fila : tratamientoRealizadoRepository.agregarTratamientosPorDia(inicio, fin)) {
+                    ResumenDiario resumen = new ResumenDiario(tipo, aFecha(fila[0]));
+                    resumen.setOdontologoId((Long) fila[1]);
+                    resumen.setProcedimientoId((Long) fila[2]);
+                    resumen.setProcedimientoNombre((String) fila[3]);
+                    resumen.setCantidad(((Number) fila[4]).longValue());
+                    filas.add(resumen);
+                }
+            }
+            case PACIENTE_NUEVO -> {
+                for (Object[] fila : pacienteRepository.agregarNuevosPacientesPorDia(inicio, fin)) {
+                    ResumenDiario resumen = new ResumenDiario(tipo, aFecha(fila[0]));
+                    resumen.setCantidad(((Number) fila[1]).longValue());
+                    filas.add(resumen);
+                }
+            }
+        }
+
+        resumenDiarioRepository.saveAll(filas);
+    }
+
+    private LocalDate aFecha(Object valor) {
+        if (valor instanceof LocalDate fecha) {
+            return fecha;
+        }
+        if (valor instanceof java.sql.Date fechaSql) {
+            return fechaSql.toLocalDate();
+        }
+        if (valor instanceof LocalDateTime fechaHora) {
+            return fechaHora.toLocalDate();
+        }
+        throw new IllegalStateException("Tipo de fecha no soportado en resumen diario: " + valor);
+    }
+}
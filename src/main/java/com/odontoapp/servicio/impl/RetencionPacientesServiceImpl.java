@@ -0,0 +1,399 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.CohorteRetencionDTO;
+import com.odontoapp.dto.PacienteRecallDTO;
+import com.odontoapp.entidad.Procedimiento;
+import com.odontoapp.repositorio.ProcedimientoRepository;
+import com.odontoapp.servicio.RetencionPacientesService;
+import com.odontoapp.util.CursorJdbc;
+import com.odontoapp.util.EscritorTabular;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementación de la analítica de retención y recall.
+ *
+ * 1. Una única lectura (cursor de solo avance) de citas y tratamientos, ordenada por paciente y fecha.
+ * 2. Al cambiar de paciente se vuelca su estado a arreglos primitivos: mes de cohorte + bits de
+ *    retención, y (si corresponde) una entrada de recall.
+ * 3. Al terminar se agregan las cohortes y se resuelven nombre/email/teléfono solo de los
+ *    pacientes en recall.
+ *
+ * El resultado se guarda en memoria (instantánea inmutable): se calcula al arrancar, en un hilo
+ * aparte, y cada noche. Las consultas nunca disparan el recorrido; mientras el primer cálculo está
+ * pendiente devuelven listas vacías y fecha de cálculo null.
+ */
+@Service
+public class RetencionPacientesServiceImpl implements RetencionPacientesService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetencionPacientesServiceImpl.class);
+
+    private static final String SQL_HISTORIAL =
+            "SELECT ci.paciente_usuario_id, ci.fecha_hora_inicio, ec.nombre, ci.procedimiento_id " +
+            "FROM citas ci JOIN estados_cita ec ON ec.id = ci.estado_cita_id " +
+            "WHERE ci.eliminado = false AND ci.paciente_usuario_id IS NOT NULL " +
+            "UNION ALL " +
+            "SELECT ci.paciente_usuario_id, t.fecha_realizacion, 'TRATAMIENTO', t.procedimiento_id " +
+            "FROM tratamientos_realizados t JOIN citas ci ON ci.id = t.cita_id " +
+            "WHERE ci.paciente_usuario_id IS NOT NULL " +
+            "ORDER BY 1, 2";
+
+    private static final String SQL_CONTACTOS =
+            "SELECT id, nombre_completo, email, telefono FROM usuarios WHERE eliminado = false AND id IN ";
+
+    private static final int TAMANO_LOTE_CONTACTOS = 500;
+
+    private static final byte RETENIDO_3 = 1;
+    private static final byte RETENIDO_6 = 2;
+    private static final byte RETENIDO_12 = 4;
+
+    private record Instantanea(List<CohorteRetencionDTO> cohortes, List<PacienteRecallDTO> recall,
+            LocalDateTime fechaCalculo) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProcedimientoRepository procedimientoRepository;
+    private final TransactionTemplate transaccionLectura;
+
+    @Value("${reportes.retencion.codigos-limpieza:PRO-001}")
+    private String[] codigosLimpieza;
+
+    @Value("${reportes.retencion.meses-recall:6}")
+    private int mesesRecall;
+
+    @Value("${reportes.exportacion.fetch-size:500}")
+    private int fetchSize;
+
+    private volatile Instantanea instantanea;
+
+    public RetencionPacientesServiceImpl(JdbcTemplate jdbcTemplate,
+                                         ProcedimientoRepository procedimientoRepository,
+                                         PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.procedimientoRepository = procedimientoRepository;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public List<CohorteRetencionDTO> obtenerCohortes() {
+        Instantanea actual = instantanea;
+        return actual != null ? actual.cohortes() : List.of();
+    }
+
+    @Override
+    public List<PacienteRecallDTO> obtenerRecallPendiente() {
+        Instantanea actual = instantanea;
+        return actual != null ? actual.recall() : List.of();
+    }
+
+    @Override
+    public LocalDateTime obtenerFechaCalculo() {
+        Instantanea actual = instantanea;
+        return actual != null ? actual.fechaCalculo() : null;
+    }
+
+    /**
+     * Primer cálculo en segundo plano, para no demorar el arranque ni la primera consulta.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargaInicial() {
+        Thread.ofVirtual().name("retencion-inicial").start(this::recalculoProgramado);
+    }
+
+    /**
+     * Recálculo nocturno.
+     * "0 0 1 * * *" = A la 01:00:00 todos los días
+     */
+    @Scheduled(cron = "${reportes.retencion.cron:0 0 1 * * *}")
+    public void recalculoProgramado() {
+        log.info("========== INICIANDO CÁLCULO DE RETENCIÓN Y RECALL ==========");
+        try {
+            recalcular();
+        } catch (Exception e) {
+            log.error("Error calculando la retención de pacientes: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void recalcular() {
+        long inicio = System.nanoTime();
+        LocalDateTime ahora = LocalDateTime.now();
+        Acumulador acumulador = new Acumulador(ahora, mesesRecall, idsProcedimientosLimpieza());
+
+        transaccionLectura.executeWithoutResult(status -> jdbcTemplate.query(
+                con -> CursorJdbc.prepararCursor(con, SQL_HISTORIAL, fetchSize),
+                (RowCallbackHandler) rs -> {
+                    Timestamp fecha = rs.getTimestamp(2);
+                    if (fecha == null) {
+                        return;
+                    }
+                    long procedimientoId = rs.getLong(4);
+                    if (rs.wasNull()) {
+                        procedimientoId = -1;
+                    }
+                    acumulador.agregar(rs.getLong(1), fecha.toLocalDateTime(), rs.getString(3), procedimientoId);
+                }));
+        acumulador.cerrarPaciente();
+
+        List<CohorteRetencionDTO> cohortes = acumulador.cohortes();
+        List<PacienteRecallDTO> recall = resolverRecall(acumulador);
+        instantanea = new Instantanea(Collections.unmodifiableList(cohortes), Collections.unmodifiableList(recall),
+                ahora);
+
+        log.info("Retención calculada: {} paciente(s), {} cohorte(s), {} paciente(s) en recall ({} ms)",
+                acumulador.totalPacientes, cohortes.size(), recall.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    @Override
+    public void exportarRecall(EscritorTabular escritor) throws IOException {
+        escritor.escribirEncabezados("ID paciente", "Paciente", "Email", "Teléfono", "Última limpieza",
+                "Última visita", "Días vencido");
+        for (PacienteRecallDTO p : obtenerRecallPendiente()) {
+            escritor.escribirFila(p.getPacienteUsuarioId(), p.getNombre(), p.getEmail(), p.getTelefono(),
+                    p.getUltimaLimpieza(), p.getUltimaVisita(), p.getDiasVencido());
+        }
+    }
+
+    private Set<Long> idsProcedimientosLimpieza() {
+        Set<Long> ids = new HashSet<>();
+        for (String codigo : codigosLimpieza) {
+            procedimientoRepository.findByCodigo(codigo.trim())
+                    .map(Procedimiento::getId)
+                    .ifPresentOrElse(ids::add,
+                            () -> log.warn("Procedimiento de limpieza no encontrado: {}", codigo));
+        }
+        return ids;
+    }
+
+    /**
+     * Completa los datos de contacto de los pacientes en recall (por lotes) y descarta los eliminados.
+     */
+    private List<PacienteRecallDTO> resolverRecall(Acumulador a) {
+        Map<Long, String[]> contactos = new HashMap<>(a.totalRecall * 2);
+        for (int desde = 0; desde < a.totalRecall; desde += TAMANO_LOTE_CONTACTOS) {
+            int hasta = Math.min(desde + TAMANO_LOTE_CONTACTOS, a.totalRecall);
+            Object[] ids = new Object[hasta - desde];
+            for (int i = desde; i < hasta; i++) {
+                ids[i - desde] = a.recallPaciente[i];
+            }
+            String marcadores = "(" + String.join(",", Collections.nCopies(ids.length, "?")) + ")";
+            jdbcTemplate.query(SQL_CONTACTOS + marcadores, (RowCallbackHandler) rs -> contactos.put(
+                    rs.getLong(1), new String[] { rs.getString(2), rs.getString(3), rs.getString(4) }), ids);
+        }
+
+        List<PacienteRecallDTO> recall = new ArrayList<>(contactos.size());
+        for (int i = 0; i < a.totalRecall; i++) {
+            String[] contacto = contactos.get(a.recallPaciente[i]);
+            if (contacto == null) {
+                continue;
+            }
+            recall.add(new PacienteRecallDTO(a.recallPaciente[i], contacto[0], contacto[1], contacto[2],
+                    a.recallLimpieza[i] >= 0 ? LocalDate.ofEpochDay(a.recallLimpieza[i]) : null,
+                    LocalDate.ofEpochDay(a.recallVisita[i]),
+                    a.recallDiasVencido[i]));
+        }
+        recall.sort(Comparator.comparingInt(PacienteRecallDTO::getDiasVencido).reversed());
+        return recall;
+    }
+
+    /**
+     * Estado del recorrido. Los días se guardan como epoch day y los meses como año * 12 + mes.
+     */
+    static final class Acumulador {
+        private final LocalDateTime ahora;
+        private final long hoy;
+        private final int mesesRecall;
+        private final Set<Long> procedimientosLimpieza;
+
+        // Un elemento por paciente con al menos una visita
+        private int[] mesCohorte = new int[1024];
+        private byte[] retencion = new byte[1024];
+        private int totalPacientes;
+
+        // Pacientes con recall vencido (arreglos paralelos)
+        private long[] recallPaciente = new long[256];
+        private int[] recallLimpieza = new int[256];
+        private int[] recallVisita = new int[256];
+        private int[] recallDiasVencido = new int[256];
+        private int totalRecall;
+
+        // Paciente en curso
+        private long paciente = Long.MIN_VALUE;
+        private int primeraVisita = -1;
+        private int limite3, limite6, limite12;
+        private byte bits;
+        private int ultimaVisita = -1;
+        private int ultimaLimpieza = -1;
+        private boolean citaFutura;
+
+        Acumulador(LocalDateTime ahora, int mesesRecall, Set<Long> procedimientosLimpieza) {
+            this.ahora = ahora;
+            this.hoy = ahora.toLocalDate().toEpochDay();
+            this.mesesRecall = mesesRecall;
+            this.procedimientosLimpieza = procedimientosLimpieza;
+        }
+
+        void agregar(long pacienteId, LocalDateTime fecha, String tipo, long procedimientoId) {
+            if (pacienteId != paciente) {
+                cerrarPaciente();
+                paciente = pacienteId;
+            }
+
+            if ("PENDIENTE".equals(tipo) || "CONFIRMADA".equals(tipo)) {
+                if (!fecha.isBefore(ahora)) {
+                    citaFutura = true;
+                }
+                return;
+            }
+            if (!"ASISTIO".equals(tipo) && !"TRATAMIENTO".equals(tipo)) {
+                return;
+            }
+
+            LocalDate dia = fecha.toLocalDate();
+            int epochDia = (int) dia.toEpochDay();
+            if (primeraVisita < 0) {
+                primeraVisita = epochDia;
+                limite3 = (int) dia.plusMonths(3).toEpochDay();
+                limite6 = (int) dia.plusMonths(6).toEpochDay();
+                limite12 = (int) dia.plusMonths(12).toEpochDay();
+            } else if (epochDia > primeraVisita) {
+                // Volvió otro día: cuenta para todas las ventanas que lo incluyen
+                if (epochDia <= limite3) {
+                    bits |= RETENIDO_3;
+                }
+                if (epochDia <= limite6) {
+                    bits |= RETENIDO_6;
+                }
+                if (epochDia <= limite12) {
+                    bits |= RETENIDO_12;
+                }
+            }
+            ultimaVisita = Math.max(ultimaVisita, epochDia);
+            if (procedimientoId >= 0 && procedimientosLimpieza.contains(procedimientoId)) {
+                ultimaLimpieza = Math.max(ultimaLimpieza, epochDia);
+            }
+        }
+
+        void cerrarPaciente() {
+            if (paciente != Long.MIN_VALUE && primeraVisita >= 0) {
+                if (totalPacientes == mesCohorte.length) {
+                    mesCohorte = Arrays.copyOf(mesCohorte, totalPacientes * 2);
+                    retencion = Arrays.copyOf(retencion, totalPacientes * 2);
+                }
+                LocalDate primera = LocalDate.ofEpochDay(primeraVisita);
+                mesCohorte[totalPacientes] = primera.getYear() * 12 + primera.getMonthValue() - 1;
+                retencion[totalPacientes] = bits;
+                totalPacientes++;
+
+                if (!citaFutura) {
+                    int referencia = ultimaLimpieza >= 0 ? ultimaLimpieza : ultimaVisita;
+                    long vence = LocalDate.ofEpochDay(referencia).plusMonths(mesesRecall).toEpochDay();
+                    if (vence < hoy) {
+                        agregarRecall((int) (hoy - vence));
+                    }
+                }
+            }
+
+            paciente = Long.MIN_VALUE;
+            primeraVisita = -1;
+            bits = 0;
+            ultimaVisita = -1;
+            ultimaLimpieza = -1;
+            citaFutura = false;
+        }
+
+        private void agregarRecall(int diasVencido) {
+            if (totalRecall == recallPaciente.length) {
+                int capacidad = totalRecall * 2;
+                recallPaciente = Arrays.copyOf(recallPaciente, capacidad);
+                recallLimpieza = Arrays.copyOf(recallLimpieza, capacidad);
+                recallVisita = Arrays.copyOf(recallVisita, capacidad);
+                recallDiasVencido = Arrays.copyOf(recallDiasVencido, capacidad);
+            }
+            recallPaciente[totalRecall] = paciente;
+            recallLimpieza[totalRecall] = ultimaLimpieza;
+            recallVisita[totalRecall] = ultimaVisita;
+            recallDiasVencido[totalRecall] = diasVencido;
+            totalRecall++;
+        }
+
+        /**
+         * Agrega los pacientes por mes de cohorte en una matriz [mes][total, 3, 6, 12].
+         */
+        List<CohorteRetencionDTO> cohortes() {
+            if (totalPacientes == 0) {
+                return new ArrayList<>();
+            }
+            int minimo = Integer.MAX_VALUE, maximo = Integer.MIN_VALUE;
+            for (int i = 0; i < totalPacientes; i++) {
+                minimo = Math.min(minimo, mesCohorte[i]);
+                maximo = Math.max(maximo, mesCohorte[i]);
+            }
+            int[][] matriz = new int[maximo - minimo + 1][4];
+            for (int i = 0; i < totalPacientes; i++) {
+                int[] fila = matriz[mesCohorte[i] - minimo];
+                fila[0]++;
+                if ((retencion[i] & RETENIDO_3) != 0) {
+                    fila[1]++;
+                }
+                if ((retencion[i] & RETENIDO_6) != 0) {
+                    fila[2]++;
+                }
+                if ((retencion[i] & RETENIDO_12) != 0) {
+                    fila[3]++;
+                }
+            }
+
+            LocalDate fechaHoy = LocalDate.ofEpochDay(hoy);
+            List<CohorteRetencionDTO> cohortes = new ArrayList<>();
+            for (int m = 0; m < matriz.length; m++) {
+                int[] fila = matriz[m];
+                if (fila[0] == 0) {
+                    continue;
+                }
+                int mes = minimo + m;
+                YearMonth cohorte = YearMonth.of(mes / 12, mes % 12 + 1);
+                cohortes.add(new CohorteRetencionDTO(cohorte.toString(), fila[0], fila[1], fila[2], fila[3],
+                        porcentaje(cohorte, 3, fila[1], fila[0], fechaHoy),
+                        porcentaje(cohorte, 6, fila[2], fila[0], fechaHoy),
+                        porcentaje(cohorte, 12, fila[3], fila[0], fechaHoy)));
+            }
+            return cohortes;
+        }
+
+        /**
+         * null si algún paciente de la cohorte aún no completó la ventana de N meses.
+         */
+        private static Double porcentaje(YearMonth cohorte, int meses, int retenidos, int total, LocalDate hoy) {
+            if (!cohorte.atEndOfMonth().plusMonths(meses).isBefore(hoy)) {
+                return null;
+            }
+            return Math.round(retenidos * 1000.0 / total) / 10.0;
+        }
+    }
+}
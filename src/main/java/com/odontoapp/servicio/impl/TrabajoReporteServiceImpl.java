@@ -0,0 +1,278 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.ReporteDTO;
+import com.odontoapp.dto.ResultadoReporteDTO;
+import com.odontoapp.dto.TrabajoReporteDTO;
+import com.odontoapp.evento.CitaModificadaEvent;
+import com.odontoapp.evento.FacturacionModificadaEvent;
+import com.odontoapp.evento.TratamientoRealizadoModificadoEvent;
+import com.odontoapp.servicio.ReporteService;
+import com.odontoapp.servicio.TrabajoReporteService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Implementación de la cola de trabajos de reportes.
+ *
+ * - Pool acotado de hilos y cola acotada: si se llena, se rechaza la solicitud.
+ * - Deduplicación: un trabajo en curso se comparte entre todas las solicitudes con la misma clave.
+ * - Caché LRU con expiración para resultados terminados; se invalida con los eventos de
+ *   citas, facturación y tratamientos.
+ */
+@Service
+public class TrabajoReporteServiceImpl implements TrabajoReporteService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrabajoReporteServiceImpl.class);
+
+    private static final String PENDIENTE = "PENDIENTE";
+    private static final String EN_PROCESO = "EN_PROCESO";
+    private static final String COMPLETADO = "COMPLETADO";
+    private static final String ERROR = "ERROR";
+
+    /**
+     * Parámetros normalizados de un reporte (clave de caché y deduplicación).
+     */
+    private record ClaveReporte(LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId) {
+    }
+
+    /**
+     * Resultado terminado junto con el id del trabajo que lo calculó, que se reutiliza en los aciertos.
+     */
+    private record ResultadoEnCache(String trabajoId, ResultadoReporteDTO resultado, long expiraEnNanos) {
+    }
+
+    private record Paso(String nombre, Supplier<List<ReporteDTO>> calculo) {
+    }
+
+    private static final class Trabajo {
+        private final String id = UUID.randomUUID().toString();
+        private final ClaveReporte clave;
+        private final long version;
+        private volatile String estado = PENDIENTE;
+        private volatile int progreso;
+        private volatile String pasoActual;
+        private volatile String error;
+        private volatile ResultadoReporteDTO resultado;
+        private volatile long finalizadoEnNanos;
+
+        private Trabajo(ClaveReporte clave, long version) {
+            this.clave = clave;
+            this.version = version;
+        }
+    }
+
+    private final ReporteService reporteService;
+
+    @Value("${reportes.trabajos.hilos:2}")
+    private int hilos;
+
+    @Value("${reportes.trabajos.capacidad-cola:20}")
+    private int capacidadCola;
+
+    @Value("${reportes.trabajos.cache-ttl-segundos:120}")
+    private long ttlCacheSegundos;
+
+    @Value("${reportes.trabajos.cache-max-entradas:50}")
+    private int maxEntradasCache;
+
+    @Value("${reportes.trabajos.retencion-minutos:10}")
+    private long retencionMinutos;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+    private final Map<ClaveReporte, Trabajo> enCurso = new ConcurrentHashMap<>();
+    // Protegido por synchronized (cache); en orden de acceso para desalojo LRU
+    private final LinkedHashMap<ClaveReporte, ResultadoEnCache> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Se incrementa en cada invalidación; un trabajo iniciado antes no guarda su resultado
+    private final AtomicLong version = new AtomicLong();
+
+    public TrabajoReporteServiceImpl(ReporteService reporteService) {
+        this.reporteService = reporteService;
+    }
+
+    @PostConstruct
+    void inicializar() {
+        executor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                Thread.ofPlatform().name("reporte-trabajo-", 1).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public TrabajoReporteDTO enviar(LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId) {
+        ClaveReporte clave = new ClaveReporte(fechaInicio, fechaFin, odontologoId);
+
+        // Un acierto responde con el resultado y el id del trabajo original, sin registrar uno nuevo
+        ResultadoEnCache enCache = buscarEntrada(clave);
+        if (enCache != null) {
+            return new TrabajoReporteDTO(enCache.trabajoId(), COMPLETADO, 100, null, null,
+                    clave.fechaInicio(), clave.fechaFin(), clave.odontologoId(), enCache.resultado());
+        }
+
+        Trabajo trabajo = enCurso.computeIfAbsent(clave, c -> {
+            Trabajo nuevo = new Trabajo(c, version.get());
+            trabajos.put(nuevo.id, nuevo);
+            try {
+                executor.execute(() -> ejecutar(nuevo));
+            } catch (RejectedExecutionException e) {
+                trabajos.remove(nuevo.id);
+                return null; // No se registra: la cola está llena
+            }
+            return nuevo;
+        });
+
+        if (trabajo == null) {
+            throw new IllegalStateException(
+                    "Hay demasiados reportes en proceso. Intente nuevamente en unos segundos.");
+        }
+        return aDTO(trabajo);
+    }
+
+    @Override
+    public Optional<TrabajoReporteDTO> consultar(String trabajoId) {
+        return Optional.ofNullable(trabajos.get(trabajoId)).map(this::aDTO);
+    }
+
+    @Override
+    public Optional<ResultadoReporteDTO> obtenerResultadoEnCache(LocalDate fechaInicio, LocalDate fechaFin,
+            Long odontologoId) {
+        return buscarEnCache(new ClaveReporte(fechaInicio, fechaFin, odontologoId));
+    }
+
+    @Override
+    public void invalidarCache() {
+        version.incrementAndGet();
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarCita(CitaModificadaEvent evento) {
+        invalidarCache();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarFacturacion(FacturacionModificadaEvent evento) {
+        invalidarCache();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarTratamiento(TratamientoRealizadoModificadoEvent evento) {
+        invalidarCache();
+    }
+
+    /**
+     * Elimina los trabajos terminados cuyo estado ya no se consultará.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgarTrabajosFinalizados() {
+        long limite = System.nanoTime() - TimeUnit.MINUTES.toNanos(retencionMinutos);
+        trabajos.values().removeIf(t -> (COMPLETADO.equals(t.estado) || ERROR.equals(t.estado))
+                && t.finalizadoEnNanos - limite < 0);
+    }
+
+    private void ejecutar(Trabajo trabajo) {
+        ClaveReporte c = trabajo.clave;
+        List<Paso> pasos = List.of(
+                new Paso("Ingresos por método de pago",
+                        () -> reporteService.obtenerIngresosPorMetodoPago(c.fechaInicio(), c.fechaFin())),
+                new Paso("Ingresos por mes",
+                        () -> reporteService.obtenerIngresosPorMes(c.fechaInicio(), c.fechaFin())),
+                new Paso("Citas por estado",
+                        () -> reporteService.obtenerCitasPorEstado(c.fechaInicio(), c.fechaFin(), c.odontologoId())),
+                new Paso("Top tratamientos",
+                        () -> reporteService.obtenerTopTratamientos(c.fechaInicio(), c.fechaFin(), c.odontologoId())),
+                new Paso("Nuevos pacientes",
+                        () -> reporteService.obtenerNuevosPacientesPorMes(c.fechaInicio(), c.fechaFin())),
+                new Paso("Margen por servicio", reporteService::obtenerMargenPorServicio));
+
+        trabajo.estado = EN_PROCESO;
+        try {
+            @SuppressWarnings("unchecked")
+            List<ReporteDTO>[] datos = new List[pasos.size()];
+            for (int i = 0; i < pasos.size(); i++) {
+                trabajo.pasoActual = pasos.get(i).nombre();
+                datos[i] = pasos.get(i).calculo().get();
+                trabajo.progreso = (i + 1) * 100 / pasos.size();
+            }
+
+            ResultadoReporteDTO resultado = new ResultadoReporteDTO(
+                    datos[0], datos[1], datos[2], datos[3], datos[4], datos[5]);
+            guardarEnCache(trabajo, resultado);
+            trabajo.resultado = resultado;
+            trabajo.pasoActual = null;
+            trabajo.estado = COMPLETADO;
+        } catch (Exception e) {
+            log.error("Error generando el reporte {}: {}", c, e.getMessage(), e);
+            trabajo.error = "No se pudo generar el reporte: " + e.getMessage();
+            trabajo.estado = ERROR;
+        } finally {
+            trabajo.finalizadoEnNanos = System.nanoTime();
+            enCurso.remove(c, trabajo);
+        }
+    }
+
+    private Optional<ResultadoReporteDTO> buscarEnCache(ClaveReporte clave) {
+        return Optional.ofNullable(buscarEntrada(clave)).map(ResultadoEnCache::resultado);
+    }
+
+    private ResultadoEnCache buscarEntrada(ClaveReporte clave) {
+        synchronized (cache) {
+            ResultadoEnCache entrada = cache.get(clave);
+            if (entrada != null && entrada.expiraEnNanos() - System.nanoTime() <= 0) {
+                cache.remove(clave);
+                return null;
+            }
+            return entrada;
+        }
+    }
+
+    private void guardarEnCache(Trabajo trabajo, ResultadoReporteDTO resultado) {
+        synchronized (cache) {
+            // Si hubo una invalidación mientras se calculaba, el resultado puede estar desactualizado
+            if (trabajo.version != version.get()) {
+                return;
+            }
+            cache.put(trabajo.clave, new ResultadoEnCache(trabajo.id, resultado,
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlCacheSegundos)));
+            while (cache.size() > maxEntradasCache) {
+                ClaveReporte masAntigua = cache.keySet().iterator().next();
+                cache.remove(masAntigua);
+            }
+        }
+    }
+
+    private TrabajoReporteDTO aDTO(Trabajo t) {
+        return new TrabajoReporteDTO(t.id, t.estado, t.progreso, t.pasoActual, t.error,
+                t.clave.fechaInicio(), t.clave.fechaFin(), t.clave.odontologoId(),
+                COMPLETADO.equals(t.estado) ? t.resultado : null);
+    }
+}
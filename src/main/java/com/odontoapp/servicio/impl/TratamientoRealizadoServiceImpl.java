@@ -11,6 +11,7 @@ import com.odontoapp.entidad.Rol;
 import com.odontoapp.entidad.TipoMovimiento;
 import com.odontoapp.entidad.TratamientoRealizado;
 import com.odontoapp.entidad.Usuario;
+import com.odontoapp.evento.TratamientoRealizadoModificadoEvent;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.InsumoRepository;
 import com.odontoapp.repositorio.MotivoMovimientoRepository;
@@ -22,6 +23,7 @@ import com.odontoapp.repositorio.UsuarioRepository;
 import com.odontoapp.servicio.InventarioService;
 import com.odontoapp.servicio.TratamientoRealizadoService;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -45,6 +47,7 @@ public class TratamientoRealizadoServiceImpl implements TratamientoRealizadoServ
     private final InventarioService inventarioService;
     private final TipoMovimientoRepository tipoMovimientoRepository;
     private final MotivoMovimientoRepository motivoMovimientoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public TratamientoRealizadoServiceImpl(TratamientoRealizadoRepository tratamientoRealizadoRepository,
                                           CitaRepository citaRepository,
@@ -54,7 +57,8 @@ public class TratamientoRealizadoServiceImpl implements TratamientoRealizadoServ
                                           ProcedimientoInsumoRepository procedimientoInsumoRepository,
                                           InventarioService inventarioService,
                                           TipoMovimientoRepository tipoMovimientoRepository,
-                                          MotivoMovimientoRepository motivoMovimientoRepository) {
+                                          MotivoMovimientoRepository motivoMovimientoRepository,
+                                          ApplicationEventPublisher eventPublisher) {
         this.tratamientoRealizadoRepository = tratamientoRealizadoRepository;
         this.citaRepository = citaRepository;
         this.procedimientoRepository = procedimientoRepository;
@@ -64,6 +68,7 @@ public class TratamientoRealizadoServiceImpl implements TratamientoRealizadoServ
         this.inventarioService = inventarioService;
         this.tipoMovimientoRepository = tipoMovimientoRepository;
         this.motivoMovimientoRepository = motivoMovimientoRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -217,7 +222,9 @@ public class TratamientoRealizadoServiceImpl implements TratamientoRealizadoServ
         tratamiento.setInsumoAjustado(insumoAjustado);
 
         // Guardar y devolver la entidad
-        return tratamientoRealizadoRepository.save(tratamiento);
+        TratamientoRealizado guardado = tratamientoRealizadoRepository.save(tratamiento);
+        publicarModificacion(guardado);
+        return guardado;
     }
 
     @Override
@@ -261,6 +268,14 @@ public class TratamientoRealizadoServiceImpl implements TratamientoRealizadoServ
         // Eliminar el tratamiento
         // Nota: Como TratamientoRealizado no tiene soft delete, esto es eliminación física
         tratamientoRealizadoRepository.deleteById(tratamientoId);
+        publicarModificacion(tratamiento);
+    }
+
+    private void publicarModificacion(TratamientoRealizado tratamiento) {
+        if (tratamiento.getFechaRealizacion() != null) {
+            eventPublisher.publishEvent(new TratamientoRealizadoModificadoEvent(
+                    tratamiento.getId(), tratamiento.getFechaRealizacion().toLocalDate()));
+        }
     }
 
     /**
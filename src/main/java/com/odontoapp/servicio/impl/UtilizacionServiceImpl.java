@@ -0,0 +1,277 @@
+package com.odontoapp.servicio.impl;
+
+import com.odontoapp.dto.UtilizacionDiaDTO;
+import com.odontoapp.dto.UtilizacionOdontologoDTO;
+import com.odontoapp.entidad.HorarioExcepcion;
+import com.odontoapp.entidad.Usuario;
+import com.odontoapp.repositorio.CitaRepository;
+import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.UtilizacionService;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Implementación de la analítica de utilización.
+ *
+ * 1. Se compilan los horarios (regular + excepciones) a intervalos en minutos del día.
+ * 2. Por odontólogo, una única lectura ordenada de sus citas del rango acumula los minutos
+ *    en arreglos indexados por día.
+ * 3. Los odontólogos se procesan en paralelo con hilos virtuales, limitando las consultas
+ *    simultáneas para no agotar el pool de conexiones.
+ */
+@Service
+public class UtilizacionServiceImpl implements UtilizacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UtilizacionServiceImpl.class);
+
+    private static final String NO_LABORABLE = "NO_LABORABLE";
+    private static final int[] SIN_HORARIO = new int[0];
+
+    private final UsuarioRepository usuarioRepository;
+    private final CitaRepository citaRepository;
+    private final TransactionTemplate transaccionLectura;
+
+    @Value("${reportes.utilizacion.paralelismo:4}")
+    private int paralelismo;
+
+    public UtilizacionServiceImpl(UsuarioRepository usuarioRepository,
+                                  CitaRepository citaRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.usuarioRepository = usuarioRepository;
+        this.citaRepository = citaRepository;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    /**
+     * Horario de un odontólogo compilado a intervalos [inicio, fin) en minutos del día,
+     * aplanados en pares: {inicio0, fin0, inicio1, fin1, ...}.
+     */
+    private record HorarioCompilado(Long odontologoId, String nombre, int[][] porDiaSemana,
+            Map<LocalDate, int[]> excepciones) {
+
+        int[] intervalos(LocalDate fecha) {
+            int[] excepcion = excepciones.get(fecha);
+            return excepcion != null ? excepcion : porDiaSemana[fecha.getDayOfWeek().getValue() - 1];
+        }
+    }
+
+    @Override
+    public List<UtilizacionOdontologoDTO> calcular(LocalDate fechaInicio, LocalDate fechaFin, Long odontologoId,
+            boolean incluirDias) {
+        if (fechaInicio == null || fechaFin == null || fechaInicio.isAfter(fechaFin)) {
+            throw new IllegalArgumentException("El rango de fechas no es válido");
+        }
+
+        List<HorarioCompilado> horarios = transaccionLectura.execute(status -> compilarHorarios(odontologoId));
+
+        List<UtilizacionOdontologoDTO> resultado = new ArrayList<>();
+        Semaphore permisos = new Semaphore(Math.max(1, paralelismo));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<UtilizacionOdontologoDTO>> tareas = new ArrayList<>();
+            for (HorarioCompilado horario : horarios) {
+                tareas.add(executor.submit(() -> {
+                    permisos.acquire();
+                    try {
+                        return calcularOdontologo(horario, fechaInicio, fechaFin, incluirDias);
+                    } finally {
+                        permisos.release();
+                    }
+                }));
+            }
+            for (Future<UtilizacionOdontologoDTO> tarea : tareas) {
+                resultado.add(tarea.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cálculo de utilización interrumpido", e);
+        } catch (ExecutionException e) {
+            log.error("Error calculando la utilización: {}", e.getCause().getMessage(), e.getCause());
+            throw new IllegalStateException("No se pudo calcular la utilización: " + e.getCause().getMessage(),
+                    e.getCause());
+        }
+
+        resultado.sort(Comparator.comparing(UtilizacionOdontologoDTO::getOdontologoNombre,
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return resultado;
+    }
+
+    private UtilizacionOdontologoDTO calcularOdontologo(HorarioCompilado horario, LocalDate desde,
+            LocalDate hasta, boolean incluirDias) {
+        int totalDias = (int) ChronoUnit.DAYS.between(desde, hasta) + 1;
+        int[] disponibles = new int[totalDias];
+        int[] agendados = new int[totalDias];
+        int[] agendadosEnHorario = new int[totalDias];
+        int[] atendidos = new int[totalDias];
+        int[] cancelados = new int[totalDias];
+        int[] noAsistidos = new int[totalDias];
+
+        for (int d = 0; d < totalDias; d++) {
+            int[] intervalos = horario.intervalos(desde.plusDays(d));
+            for (int i = 0; i < intervalos.length; i += 2) {
+                disponibles[d] += intervalos[i + 1] - intervalos[i];
+            }
+        }
+
+        // Lectura única y ordenada de las citas del odontólogo
+        List<Object[]> citas = transaccionLectura.execute(status -> citaRepository.findIntervalosByOdontologo(
+                horario.odontologoId(), desde.atStartOfDay(), hasta.plusDays(1).atStartOfDay()));
+
+        for (Object[] cita : citas) {
+            LocalDateTime inicio = (LocalDateTime) cita[0];
+            LocalDateTime fin = (LocalDateTime) cita[1];
+            String estado = (String) cita[2];
+            if (inicio == null || fin == null || estado == null || !fin.isAfter(inicio)) {
+                continue;
+            }
+
+            int d = (int) ChronoUnit.DAYS.between(desde, inicio.toLocalDate());
+            int minutoInicio = inicio.getHour() * 60 + inicio.getMinute();
+            // Las citas que cruzan la medianoche se recortan al final del día
+            int minutoFin = fin.toLocalDate().isAfter(inicio.toLocalDate())
+                    ? 24 * 60
+                    : fin.getHour() * 60 + fin.getMinute();
+            int duracion = minutoFin - minutoInicio;
+
+            if (estado.startsWith("CANCELADA")) {
+                cancelados[d] += duracion;
+                continue;
+            }
+            if ("REPROGRAMADA".equals(estado)) {
+                continue; // La cita nueva ya cuenta por sí misma
+            }
+
+            agendados[d] += duracion;
+            agendadosEnHorario[d] += solapamiento(horario.intervalos(inicio.toLocalDate()), minutoInicio, minutoFin);
+            if ("ASISTIO".equals(estado)) {
+                atendidos[d] += duracion;
+            } else if ("NO_ASISTIO".equals(estado)) {
+                noAsistidos[d] += duracion;
+            }
+        }
+
+        long totalDisponibles = 0, totalAgendados = 0, totalEnHorario = 0;
+        long totalAtendidos = 0, totalCancelados = 0, totalNoAsistidos = 0;
+        List<UtilizacionDiaDTO> dias = incluirDias ? new ArrayList<>(totalDias) : null;
+        for (int d = 0; d < totalDias; d++) {
+            totalDisponibles += disponibles[d];
+            totalAgendados += agendados[d];
+            totalEnHorario += agendadosEnHorario[d];
+            totalAtendidos += atendidos[d];
+            totalCancelados += cancelados[d];
+            totalNoAsistidos += noAsistidos[d];
+            if (incluirDias) {
+                dias.add(new UtilizacionDiaDTO(desde.plusDays(d), disponibles[d], agendados[d], atendidos[d],
+                        cancelados[d], noAsistidos[d]));
+            }
+        }
+
+        return new UtilizacionOdontologoDTO(horario.odontologoId(), horario.nombre(),
+                totalDisponibles, totalAgendados, totalAtendidos, totalCancelados, totalNoAsistidos,
+                porcentaje(totalEnHorario, totalDisponibles),
+                porcentaje(totalAtendidos, totalDisponibles),
+                dias);
+    }
+
+    private List<HorarioCompilado> compilarHorarios(Long odontologoId) {
+        List<Usuario> odontologos;
+        if (odontologoId != null) {
+            odontologos = List.of(usuarioRepository.findById(odontologoId)
+                    .orElseThrow(() -> new EntityNotFoundException("Odontólogo no encontrado con ID: " + odontologoId)));
+        } else {
+            odontologos = usuarioRepository.findActiveByRolesNombre("ODONTOLOGO");
+        }
+
+        List<HorarioCompilado> horarios = new ArrayList<>(odontologos.size());
+        for (Usuario odontologo : odontologos) {
+            int[][] porDiaSemana = new int[7][];
+            for (DayOfWeek dia : DayOfWeek.values()) {
+                porDiaSemana[dia.getValue() - 1] = compilarIntervalos(odontologo.getHorarioRegular().get(dia));
+            }
+            Map<LocalDate, int[]> excepciones = new HashMap<>();
+            for (HorarioExcepcion excepcion : odontologo.getExcepcionesHorario()) {
+                // Una excepción sin horas no cambia el horario del día
+                if (excepcion.getFecha() == null || excepcion.getHoras() == null || excepcion.getHoras().isBlank()) {
+                    continue;
+                }
+                excepciones.put(excepcion.getFecha(), NO_LABORABLE.equals(excepcion.getHoras())
+                        ? SIN_HORARIO
+                        : compilarIntervalos(excepcion.getHoras()));
+            }
+            horarios.add(new HorarioCompilado(odontologo.getId(), odontologo.getNombreCompleto(),
+                    porDiaSemana, excepciones));
+        }
+        return horarios;
+    }
+
+    /**
+     * Convierte "09:00-13:00,15:00-19:00" en {540, 780, 900, 1140}. Ignora intervalos mal formados.
+     */
+    private int[] compilarIntervalos(String horas) {
+        if (horas == null || horas.isBlank()) {
+            return SIN_HORARIO;
+        }
+        String[] intervalos = horas.split(",");
+        int[] minutos = new int[intervalos.length * 2];
+        int n = 0;
+        for (String intervalo : intervalos) {
+            String[] partes = intervalo.trim().split("-");
+            if (partes.length != 2) {
+                continue;
+            }
+            try {
+                LocalTime inicio = LocalTime.parse(partes[0].trim());
+                LocalTime fin = LocalTime.parse(partes[1].trim());
+                if (fin.isAfter(inicio)) {
+                    minutos[n++] = inicio.getHour() * 60 + inicio.getMinute();
+                    minutos[n++] = fin.getHour() * 60 + fin.getMinute();
+                }
+            } catch (DateTimeParseException e) {
+                log.warn("Intervalo de horario no válido ignorado: {}", intervalo);
+            }
+        }
+        return n == minutos.length ? minutos : Arrays.copyOf(minutos, n);
+    }
+
+    private int solapamiento(int[] intervalos, int inicio, int fin) {
+        int minutos = 0;
+        for (int i = 0; i < intervalos.length; i += 2) {
+            int desde = Math.max(inicio, intervalos[i]);
+            int hasta = Math.min(fin, intervalos[i + 1]);
+            if (hasta > desde) {
+                minutos += hasta - desde;
+            }
+        }
+        return minutos;
+    }
+
+    private double porcentaje(long parte, long total) {
+        if (total == 0) {
+            return 0.0;
+        }
+        return Math.round(parte * 1000.0 / total) / 10.0;
+    }
+}
@@ -0,0 +1,29 @@
+package com.odontoapp.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Utilidad para leer resultados grandes fila a fila (forward-only, read-only).
+ */
+public final class CursorJdbc {
+
+    private CursorJdbc() {
+    }
+
+    /**
+     * Prepara una sentencia de solo avance con el fetch size adecuado para el driver.
+     * MySQL Connector/J solo transmite fila a fila con Integer.MIN_VALUE (sin useCursorFetch);
+     * el resto de drivers (PostgreSQL) usan un cursor real si la conexión está dentro de una
+     * transacción.
+     */
+    public static PreparedStatement prepararCursor(Connection con, String sql, int fetchSize) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        String producto = con.getMetaData().getDatabaseProductName();
+        boolean esMysql = producto != null && producto.toLowerCase().contains("mysql");
+        ps.setFetchSize(esMysql ? Integer.MIN_VALUE : fetchSize);
+        return ps;
+    }
+}
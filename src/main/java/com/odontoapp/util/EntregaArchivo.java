@@ -0,0 +1,216 @@
+package com.odontoapp.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Entrega un archivo del disco por HTTP con soporte de rangos, validación por ETag y copia sin
+ * pasar por el heap.
+ *
+ * Con hash de contenido el ETag es fuerte ({@code "<sha256>"}) y la respuesta se marca
+ * {@code immutable} por un año: una misma URL nunca cambia de bytes, así que las visitas repetidas
+ * se resuelven en el navegador o con un 304. Sin hash (archivos anteriores al almacén por
+ * contenido) se usa un ETag débil de tamaño y fecha y se revalida en cada visita.
+ *
+ * Se admite un único rango ({@code bytes=a-b}, {@code a-} o {@code -n}); varios rangos se
+ * responden con el archivo completo. Si el conector de Tomcat soporta sendfile se le delega la
+ * copia; si no, se usa {@link FileChannel#transferTo}.
+ */
+public final class EntregaArchivo {
+
+    private static final String CACHE_INMUTABLE = "private, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDAR = "private, no-cache";
+
+    // Atributos de petición que interpreta el conector de Tomcat
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private EntregaArchivo() {
+    }
+
+    /**
+     * Escribe la respuesta completa (200, 206, 304 o 416).
+     *
+     * @param archivo ruta del archivo, ya resuelta y validada
+     * @param hashContenido SHA-256 del contenido (o un identificador inmutable derivado de él), o null
+     * @param tipoMime tipo de contenido; si es null se usa application/octet-stream
+     * @param disposicion cabecera Content-Disposition (inline o attachment)
+     */
+    public static void enviar(Path archivo, String hashContenido, String tipoMime, ContentDisposition disposicion,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long longitud = Files.size(archivo);
+        boolean inmutable = hashContenido != null;
+        String etag = inmutable
+                ? "\"" + hashContenido + "\""
+                : "W/\"" + Long.toHexString(longitud) + "-"
+                        + Long.toHexString(Files.getLastModifiedTime(archivo).toMillis()) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, inmutable ? CACHE_INMUTABLE : CACHE_REVALIDAR);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (coincideEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long inicio = 0;
+        long fin = longitud - 1;
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        // If-Range solo vale con ETag fuerte y exacto; si no coincide se envía el archivo entero
+        if (rango != null && aplicaIfRange(request.getHeader(HttpHeaders.IF_RANGE), etag, inmutable)) {
+            long[] limites = parsearRango(rango, longitud);
+            if (limites == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + longitud);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (limites.length == 2) {
+                inicio = limites[0];
+                fin = limites[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + longitud);
+            }
+        }
+
+        long cantidad = fin - inicio + 1;
+        response.setContentType(tipoMime != null ? tipoMime : "application/octet-stream");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposicion.toString());
+        response.setContentLengthLong(cantidad);
+        if ("HEAD".equals(request.getMethod()) || cantidad <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            // Tomcat copia con sendfile al terminar la petición (el fin es exclusivo)
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.toRealPath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long posicion = inicio;
+            long restante = cantidad;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicion, restante, salida);
+                if (enviados <= 0) {
+                    break;
+                }
+                posicion += enviados;
+                restante -= enviados;
+            }
+        }
+    }
+
+    /**
+     * Responde 304 si el navegador ya tiene el contenido con este hash, sin tocar el disco. Sirve
+     * para cortar antes de resolver la ruta, que en el almacén puede implicar descomprimir.
+     *
+     * @param hashContenido el mismo valor que se pasaría a {@link #enviar}, o null
+     * @return true si la respuesta ya quedó escrita
+     */
+    public static boolean noModificado(String hashContenido, HttpServletRequest request,
+            HttpServletResponse response) {
+        if (hashContenido == null) {
+            return false;
+        }
+        String etag = "\"" + hashContenido + "\"";
+        if (!coincideEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return false;
+        }
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_INMUTABLE);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    /**
+     * Content-Disposition con el nombre original codificado en UTF-8 (RFC 6266).
+     */
+    public static ContentDisposition disposicion(boolean enLinea, String nombreArchivo) {
+        ContentDisposition.Builder builder = enLinea ? ContentDisposition.inline() : ContentDisposition.attachment();
+        if (nombreArchivo != null && !nombreArchivo.isBlank()) {
+            builder.filename(nombreArchivo, StandardCharsets.UTF_8);
+        }
+        return builder.build();
+    }
+
+    // If-None-Match usa comparación débil: W/"x" coincide con "x"
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String propio = sinDebil(etag);
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*") || sinDebil(valor).equals(propio)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean aplicaIfRange(String ifRange, String etag, boolean fuerte) {
+        return ifRange == null || (fuerte && ifRange.trim().equals(etag));
+    }
+
+    private static String sinDebil(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * @return {inicio, fin} inclusivos; un arreglo vacío si hay que ignorar el rango (varios
+     *         rangos o sintaxis inválida, como {@code 5-3}); null si es válido pero no satisfacible
+     *         (empieza después del final o pide un sufijo de 0 bytes)
+     */
+    private static long[] parsearRango(String rango, long longitud) {
+        if (!rango.startsWith("bytes=") || rango.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String especificacion = rango.substring("bytes=".length()).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return new long[0];
+        }
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+            if (desde.isEmpty()) {
+                // Sufijo: los últimos n bytes
+                long sufijo = Long.parseLong(hasta);
+                if (sufijo < 0) {
+                    return new long[0];
+                }
+                if (sufijo == 0 || longitud == 0) {
+                    return null;
+                }
+                return new long[] { Math.max(0, longitud - sufijo), longitud - 1 };
+            }
+            long inicio = Long.parseLong(desde);
+            long fin = hasta.isEmpty() ? Long.MAX_VALUE : Long.parseLong(hasta);
+            if (inicio < 0 || fin < inicio) {
+                return new long[0];
+            }
+            if (inicio >= longitud) {
+                return null;
+            }
+            return new long[] { inicio, Math.min(fin, longitud - 1) };
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.odontoapp.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escritor CSV (RFC 4180, UTF-8 con BOM para que Excel respete las tildes).
+ * Los textos que empiezan como una fórmula se escriben precedidos de una comilla simple; los
+ * números se escriben tal cual.
+ */
+public class EscritorCsv implements EscritorTabular {
+
+    private static final char SEPARADOR = ',';
+    private static final String FIN_LINEA = "\r\n";
+    // Primeros caracteres con los que Excel, LibreOffice y Sheets interpretan la celda como fórmula
+    private static final String INICIO_FORMULA = "=+-@\t\r";
+
+    private final Writer writer;
+
+    public EscritorCsv(OutputStream salida) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 16 * 1024);
+        this.writer.write('\uFEFF');
+    }
+
+    @Override
+    public void escribirEncabezados(String... encabezados) throws IOException {
+        escribirFila((Object[]) encabezados);
+    }
+
+    @Override
+    public void escribirFila(Object... valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARADOR);
+            }
+            Object valor = valores[i];
+            writer.write(valor instanceof Number ? EscritorTabular.comoTexto(valor) : escapar(EscritorTabular.comoTexto(valor)));
+        }
+        writer.write(FIN_LINEA);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private String escapar(String texto) {
+        // Con la comilla delante la hoja de cálculo lo muestra como texto (inyección de fórmulas)
+        if (!texto.isEmpty() && INICIO_FORMULA.indexOf(texto.charAt(0)) >= 0) {
+            texto = "'" + texto;
+        }
+        if (texto.indexOf(SEPARADOR) >= 0 || texto.indexOf('"') >= 0
+                || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+            return '"' + texto.replace("\"", "\"\"") + '"';
+        }
+        return texto;
+    }
+}
@@ -0,0 +1,90 @@
+package com.odontoapp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Escritor secuencial de tablas (encabezado + filas) usado por las exportaciones de reportes.
+ * Las implementaciones escriben directamente sobre el OutputStream sin acumular filas en memoria.
+ */
+public interface EscritorTabular extends AutoCloseable {
+
+    DateTimeFormatter FORMATO_FECHA_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    void escribirEncabezados(String... encabezados) throws IOException;
+
+    void escribirFila(Object... valores) throws IOException;
+
+    /**
+     * Cierra la estructura del documento (no cierra el OutputStream del contenedor).
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Formatos de exportación soportados.
+     */
+    enum Formato {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Formato(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public EscritorTabular crear(OutputStream salida, String nombreHoja) throws IOException {
+            return this == XLSX ? new EscritorXlsx(salida, nombreHoja) : new EscritorCsv(salida);
+        }
+
+        public static Formato desde(String valor) {
+            for (Formato formato : values()) {
+                if (formato.extension.equalsIgnoreCase(valor)) {
+                    return formato;
+                }
+            }
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + valor);
+        }
+    }
+
+    /**
+     * Representación textual común para valores no numéricos.
+     */
+    static String comoTexto(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().format(FORMATO_FECHA_HORA);
+        }
+        if (valor instanceof LocalDateTime fechaHora) {
+            return fechaHora.format(FORMATO_FECHA_HORA);
+        }
+        if (valor instanceof java.sql.Date fecha) {
+            return fecha.toLocalDate().toString();
+        }
+        if (valor instanceof LocalDate fecha) {
+            return fecha.toString();
+        }
+        if (valor instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return valor.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package com.odontoapp.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Escritor XLSX en streaming (una sola hoja, cadenas en línea).
+ * Genera el paquete OOXML mínimo a mano: las filas se escriben directamente en la
+ * entrada ZIP de la hoja, por lo que la memoria usada no depende del número de filas.
+ */
+public class EscritorXlsx implements EscritorTabular {
+
+    private static final String XML_DECL = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String NS_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String NS_PKG_REL = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    // Índices de estilo definidos en styles.xml
+    private static final int ESTILO_ENCABEZADO = 1;
+
+    private final ZipOutputStream zip;
+    private final Writer hoja;
+    private int filaActual = 0;
+
+    public EscritorXlsx(OutputStream salida, String nombreHoja) throws IOException {
+        this.zip = new ZipOutputStream(salida, StandardCharsets.UTF_8);
+        escribirPartesFijas(nombreHojaValido(nombreHoja));
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        this.hoja = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 16 * 1024);
+        hoja.write(XML_DECL);
+        hoja.write("<worksheet xmlns=\"" + NS_MAIN + "\"><sheetData>");
+    }
+
+    @Override
+    public void escribirEncabezados(String... encabezados) throws IOException {
+        escribirFila(ESTILO_ENCABEZADO, (Object[]) encabezados);
+    }
+
+    @Override
+    public void escribirFila(Object... valores) throws IOException {
+        escribirFila(0, valores);
+    }
+
+    @Override
+    public void close() throws IOException {
+        hoja.write("</sheetData></worksheet>");
+        hoja.flush();
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+    }
+
+    private void escribirFila(int estilo, Object... valores) throws IOException {
+        filaActual++;
+        hoja.write("<row r=\"");
+        hoja.write(Integer.toString(filaActual));
+        hoja.write("\">");
+        for (int i = 0; i < valores.length; i++) {
+            Object valor = valores[i];
+            if (valor == null) {
+                continue;
+            }
+            String referencia = columna(i) + filaActual;
+            String atributoEstilo = estilo > 0 ? " s=\"" + estilo + "\"" : "";
+            if (esNumeroFinito(valor)) {
+                hoja.write("<c r=\"" + referencia + "\"" + atributoEstilo + "><v>");
+                hoja.write(EscritorTabular.comoTexto(valor));
+                hoja.write("</v></c>");
+            } else {
+                hoja.write("<c r=\"" + referencia + "\" t=\"inlineStr\"" + atributoEstilo + "><is><t xml:space=\"preserve\">");
+                hoja.write(escaparXml(EscritorTabular.comoTexto(valor)));
+                hoja.write("</t></is></c>");
+            }
+        }
+        hoja.write("</row>");
+    }
+
+    private boolean esNumeroFinito(Object valor) {
+        if (valor instanceof Double d) {
+            return Double.isFinite(d);
+        }
+        if (valor instanceof Float f) {
+            return Float.isFinite(f);
+        }
+        return valor instanceof Number;
+    }
+
+    private void escribirPartesFijas(String nombreHoja) throws IOException {
+        escribirEntrada("[Content_Types].xml", XML_DECL
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+                + "</Types>");
+        escribirEntrada("_rels/.rels", XML_DECL
+                + "<Relationships xmlns=\"" + NS_PKG_REL + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + NS_REL + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        escribirEntrada("xl/workbook.xml", XML_DECL
+                + "<workbook xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_REL + "\">"
+                + "<sheets><sheet name=\"" + escaparXml(nombreHoja) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>"
+                + "</workbook>");
+        escribirEntrada("xl/_rels/workbook.xml.rels", XML_DECL
+                + "<Relationships xmlns=\"" + NS_PKG_REL + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + NS_REL + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+                + "<Relationship Id=\"rId2\" Type=\"" + NS_REL + "/styles\" Target=\"styles.xml\"/>"
+                + "</Relationships>");
+        escribirEntrada("xl/styles.xml", XML_DECL
+                + "<styleSheet xmlns=\"" + NS_MAIN + "\">"
+                + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+                + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>"
+                + "</styleSheet>");
+    }
+
+    private void escribirEntrada(String nombre, String contenido) throws IOException {
+        zip.putNextEntry(new ZipEntry(nombre));
+        zip.write(contenido.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * Convierte un índice de columna (0..n) a su letra de Excel (A, B, ..., Z, AA, ...).
+     */
+    private static String columna(int indice) {
+        StringBuilder sb = new StringBuilder();
+        int n = indice + 1;
+        while (n > 0) {
+            int resto = (n - 1) % 26;
+            sb.insert(0, (char) ('A' + resto));
+            n = (n - 1) / 26;
+        }
+        return sb.toString();
+    }
+
+    private static String nombreHojaValido(String nombre) {
+        String limpio = (nombre == null || nombre.isBlank()) ? "Reporte" : nombre.replaceAll("[\\[\\]:*?/\\\\]", "_");
+        return limpio.length() > 31 ? limpio.substring(0, 31) : limpio;
+    }
+
+    private static String escaparXml(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length() + 16);
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '"' -> sb.append("&quot;");
+                default -> {
+                    // Caracteres de control y no-caracteres no permitidos en XML 1.0
+                    if ((c >= 0x20 && c != 0xFFFE && c != 0xFFFF) || c == '\t' || c == '\n' || c == '\r') {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
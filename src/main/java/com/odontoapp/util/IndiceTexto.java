@@ -0,0 +1,399 @@
+package com.odontoapp.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de trigramas en memoria para búsqueda de texto.
+ *
+ * - Cada documento es un ID con uno o más campos; el texto se normaliza (sin tildes, minúsculas).
+ * - Los trigramas se calculan sobre cada palabra con un espacio delante y detrás, de modo que
+ *   los prefijos y las palabras cortas también tienen trigramas propios.
+ * - Las listas de documentos por trigrama se guardan como deltas en varint (append-only, ordinales
+ *   crecientes), lo que mantiene el índice compacto con cientos de miles de documentos.
+ * - Actualizar un documento marca el ordinal anterior como eliminado y agrega uno nuevo;
+ *   {@link #fraccionEliminada()} indica cuándo conviene reconstruir.
+ *
+ * Coincidencias admitidas por palabra buscada: exacta, prefijo, subcadena (desde 3 caracteres)
+ * y con errores de tipeo (1 edición desde 4 caracteres, 2 desde 8). Todas las palabras deben coincidir.
+ */
+public class IndiceTexto {
+
+    private static final int ALFABETO = 37; // espacio, a-z, 0-9
+    private static final int TOTAL_TRIGRAMAS = ALFABETO * ALFABETO * ALFABETO;
+    private static final int PUNTOS_EXACTA = 10;
+    private static final int PUNTOS_PREFIJO = 7;
+    private static final int PUNTOS_SUBCADENA = 4;
+    private static final int PUNTOS_APROXIMADA = 3;
+    private static final int MAX_PALABRAS = 8;
+
+    /**
+     * Lista de ordinales de un trigrama codificada como deltas varint.
+     */
+    private static final class Postings {
+        private byte[] datos = new byte[8];
+        private int longitud;
+        private int ultimo = -1;
+
+        void agregar(int ordinal) {
+            if (ordinal == ultimo) {
+                return;
+            }
+            int delta = ordinal - (ultimo < 0 ? 0 : ultimo);
+            ultimo = ordinal;
+            if (longitud + 5 > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, longitud + 5));
+            }
+            while ((delta & ~0x7F) != 0) {
+                datos[longitud++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            datos[longitud++] = (byte) delta;
+        }
+    }
+
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private final Postings[] postings = new Postings[TOTAL_TRIGRAMAS];
+    private final Map<Long, Integer> ordinalPorId = new HashMap<>();
+    private final BitSet eliminados = new BitSet();
+    private long[] ids = new long[1024];
+    private String[] textos = new String[1024];
+    private int totalOrdinales;
+
+    /**
+     * Agrega o reemplaza un documento. Los campos vacíos se ignoran; sin texto, equivale a eliminarlo.
+     */
+    public void indexar(long id, String... campos) {
+        StringBuilder sb = new StringBuilder();
+        for (String campo : campos) {
+            String normalizado = NormalizadorTexto.normalizar(campo);
+            if (!normalizado.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(normalizado);
+            }
+        }
+        String texto = sb.toString();
+
+        bloqueo.writeLock().lock();
+        try {
+            eliminarSinBloqueo(id);
+            if (texto.isEmpty()) {
+                return;
+            }
+            if (totalOrdinales == ids.length) {
+                ids = Arrays.copyOf(ids, totalOrdinales * 2);
+                textos = Arrays.copyOf(textos, totalOrdinales * 2);
+            }
+            int ordinal = totalOrdinales++;
+            ids[ordinal] = id;
+            textos[ordinal] = texto;
+            ordinalPorId.put(id, ordinal);
+            for (String palabra : texto.split(" ")) {
+                String rellena = " " + palabra + " ";
+                for (int i = 0; i + 3 <= rellena.length(); i++) {
+                    int trigrama = trigrama(rellena, i);
+                    Postings lista = postings[trigrama];
+                    if (lista == null) {
+                        lista = new Postings();
+                        postings[trigrama] = lista;
+                    }
+                    lista.agregar(ordinal);
+                }
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(long id) {
+        bloqueo.writeLock().lock();
+        try {
+            eliminarSinBloqueo(id);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    private void eliminarSinBloqueo(long id) {
+        Integer anterior = ordinalPorId.remove(id);
+        if (anterior != null) {
+            eliminados.set(anterior);
+            textos[anterior] = null;
+        }
+    }
+
+    /**
+     * Busca los documentos que contienen todas las palabras de la consulta, ordenados por relevancia.
+     *
+     * @return IDs ordenados por puntuación descendente, o null si la consulta no tiene ninguna
+     *         palabra de al menos 2 caracteres (no hay trigramas con los que filtrar)
+     */
+    public List<Long> buscar(String consulta, int limite) {
+        String[] palabras = NormalizadorTexto.tokens(consulta);
+        // Las palabras más largas filtran más: se procesan primero
+        List<String> filtrantes = new ArrayList<>();
+        for (String palabra : palabras) {
+            if (palabra.length() >= 2 && !filtrantes.contains(palabra) && filtrantes.size() < MAX_PALABRAS) {
+                filtrantes.add(palabra);
+            }
+        }
+        if (filtrantes.isEmpty()) {
+            return null;
+        }
+        filtrantes.sort(Comparator.comparingInt(String::length).reversed());
+
+        bloqueo.readLock().lock();
+        try {
+            int[] candidatos = candidatos(filtrantes);
+
+            // Clave ordenable: puntuación, luego texto más corto (coincidencia más específica), luego ordinal
+            long[] claves = new long[candidatos.length];
+            int total = 0;
+            for (int ordinal : candidatos) {
+                if (eliminados.get(ordinal)) {
+                    continue;
+                }
+                int puntos = puntuar(textos[ordinal], palabras);
+                if (puntos > 0) {
+                    long cortedad = 0xFFFF - Math.min(textos[ordinal].length(), 0xFFFF);
+                    claves[total++] = ((long) Math.min(puntos, 0xFFFF) << 47) | (cortedad << 31) | ordinal;
+                }
+            }
+            Arrays.sort(claves, 0, total);
+
+            int cantidad = Math.min(total, limite);
+            List<Long> resultado = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                long clave = claves[total - 1 - i];
+                resultado.add(ids[(int) (clave & Integer.MAX_VALUE)]);
+            }
+            return resultado;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinales que comparten suficientes trigramas con cada una de las palabras (se toleran los
+     * trigramas que puede romper un error de tipeo). Las palabras se procesan por etapas: en cada
+     * una solo cuentan los ordinales que superaron la anterior. Las palabras de 2 caracteres
+     * solo filtran por prefijo.
+     */
+    private int[] candidatos(List<String> filtrantes) {
+        byte[] etapa = new byte[totalOrdinales];
+        byte[] contadores = new byte[totalOrdinales];
+        int[] candidatos = new int[64];
+        int total = 0;
+
+        for (int e = 0; e < filtrantes.size(); e++) {
+            String palabra = filtrantes.get(e);
+            boolean ultima = e == filtrantes.size() - 1;
+            List<Integer> trigramas = new ArrayList<>();
+            if (palabra.length() == 2) {
+                trigramas.add(trigrama(" " + palabra, 0));
+            } else {
+                for (int i = 0; i + 3 <= palabra.length(); i++) {
+                    int t = trigrama(palabra, i);
+                    if (!trigramas.contains(t)) {
+                        trigramas.add(t);
+                    }
+                }
+            }
+            // Un error de tipeo rompe como mucho 3 trigramas; se exige al menos la mitad para acotar candidatos
+            int umbral = erroresPermitidos(palabra.length()) == 0
+                    ? trigramas.size()
+                    : Math.max((trigramas.size() + 1) / 2, trigramas.size() - 3);
+            if (e > 0) {
+                Arrays.fill(contadores, (byte) 0);
+            }
+
+            for (int t : trigramas) {
+                Postings lista = postings[t];
+                if (lista == null) {
+                    continue;
+                }
+                int ordinal = 0;
+                int posicion = 0;
+                while (posicion < lista.longitud) {
+                    int delta = 0;
+                    int desplazamiento = 0;
+                    byte b;
+                    do {
+                        b = lista.datos[posicion++];
+                        delta |= (b & 0x7F) << desplazamiento;
+                        desplazamiento += 7;
+                    } while ((b & 0x80) != 0);
+                    ordinal += delta;
+                    if (etapa[ordinal] != e || ++contadores[ordinal] != umbral) {
+                        continue;
+                    }
+                    etapa[ordinal]++;
+                    if (ultima) {
+                        if (total == candidatos.length) {
+                            candidatos = Arrays.copyOf(candidatos, total * 2);
+                        }
+                        candidatos[total++] = ordinal;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(candidatos, total);
+    }
+
+    /**
+     * Suma la mejor coincidencia de cada palabra buscada; 0 si alguna no coincide.
+     * Recorre las palabras del documento por posiciones, sin crear subcadenas.
+     */
+    private int puntuar(String texto, String[] palabrasConsulta) {
+        int total = 0;
+        for (String buscada : palabrasConsulta) {
+            int largo = buscada.length();
+            int errores = erroresPermitidos(largo);
+            int mejor = 0;
+            int inicio = 0;
+            while (inicio < texto.length() && mejor < PUNTOS_EXACTA) {
+                int fin = texto.indexOf(' ', inicio);
+                if (fin < 0) {
+                    fin = texto.length();
+                }
+                int largoPalabra = fin - inicio;
+                int puntos = 0;
+                if (largoPalabra >= largo && texto.regionMatches(inicio, buscada, 0, largo)) {
+                    puntos = largoPalabra == largo ? PUNTOS_EXACTA : PUNTOS_PREFIJO;
+                } else if (largo >= 3 && largoPalabra > largo) {
+                    int posicion = texto.indexOf(buscada, inicio + 1);
+                    if (posicion >= 0 && posicion + largo <= fin) {
+                        puntos = PUNTOS_SUBCADENA;
+                    }
+                }
+                if (puntos == 0 && errores > 0) {
+                    int d = distancia(buscada, texto, inicio, fin, errores);
+                    if (d > errores && largoPalabra > largo) {
+                        d = distancia(buscada, texto, inicio, inicio + largo, errores);
+                    }
+                    if (d <= errores) {
+                        // Cada edición adicional resta un punto
+                        puntos = PUNTOS_APROXIMADA + 1 - d;
+                    }
+                }
+                mejor = Math.max(mejor, puntos);
+                inicio = fin + 1;
+            }
+            if (mejor == 0) {
+                return 0;
+            }
+            total += mejor;
+        }
+        return total;
+    }
+
+    private static int erroresPermitidos(int longitud) {
+        return longitud >= 8 ? 2 : longitud >= 4 ? 1 : 0;
+    }
+
+    /**
+     * Distancia de edición (con transposiciones adyacentes) entre a y b[desde, hasta),
+     * cortando en cuanto supera el máximo.
+     */
+    static int distancia(String a, String b, int desde, int hasta, int maximo) {
+        int largoB = hasta - desde;
+        if (Math.abs(a.length() - largoB) > maximo) {
+            return maximo + 1;
+        }
+        int[] anteAnterior = new int[largoB + 1];
+        int[] anterior = new int[largoB + 1];
+        int[] actual = new int[largoB + 1];
+        for (int j = 0; j <= largoB; j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int minimoFila = actual[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= largoB; j++) {
+                char cb = b.charAt(desde + j - 1);
+                int valor = Math.min(Math.min(anterior[j] + 1, actual[j - 1] + 1), anterior[j - 1] + (ca == cb ? 0 : 1));
+                if (i > 1 && j > 1 && ca == b.charAt(desde + j - 2) && a.charAt(i - 2) == cb) {
+                    valor = Math.min(valor, anteAnterior[j - 2] + 1);
+                }
+                actual[j] = valor;
+                minimoFila = Math.min(minimoFila, valor);
+            }
+            if (minimoFila > maximo) {
+                return maximo + 1;
+            }
+            int[] temporal = anteAnterior;
+            anteAnterior = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return anterior[largoB];
+    }
+
+    private static int trigrama(String texto, int inicio) {
+        return (codigo(texto.charAt(inicio)) * ALFABETO + codigo(texto.charAt(inicio + 1))) * ALFABETO
+                + codigo(texto.charAt(inicio + 2));
+    }
+
+    private static int codigo(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return 0;
+    }
+
+    public int tamano() {
+        bloqueo.readLock().lock();
+        try {
+            return ordinalPorId.size();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Proporción de ordinales ocupados por documentos eliminados o reemplazados.
+     */
+    public double fraccionEliminada() {
+        bloqueo.readLock().lock();
+        try {
+            return totalOrdinales == 0 ? 0.0 : (double) eliminados.cardinality() / totalOrdinales;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimación de la memoria usada (listas de trigramas, textos y mapa de IDs).
+     */
+    public long bytesEstimados() {
+        bloqueo.readLock().lock();
+        try {
+            long bytes = 4L * TOTAL_TRIGRAMAS + 12L * ids.length;
+            for (Postings lista : postings) {
+                if (lista != null) {
+                    bytes += 32 + lista.datos.length;
+                }
+            }
+            for (int i = 0; i < totalOrdinales; i++) {
+                if (textos[i] != null) {
+                    bytes += 40 + textos[i].length();
+                }
+            }
+            return bytes + 64L * ordinalPorId.size() + eliminados.size() / 8;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.odontoapp.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV secuencial (RFC 4180): campos entre comillas, comillas duplicadas y saltos de línea
+ * dentro de un campo. Lee fila por fila sin cargar el archivo en memoria.
+ * El separador (coma o punto y coma, habitual en Excel en español) se detecta en la primera fila.
+ */
+public class LectorCsv implements AutoCloseable {
+
+    // Límite por campo para que un archivo malformado (comilla sin cerrar) no agote el heap
+    private static final int MAX_LONGITUD_CAMPO = 64 * 1024;
+
+    private final Reader reader;
+    private char separador;
+    private boolean primeraFila = true;
+    private long numeroFila;
+
+    public LectorCsv(InputStream entrada) {
+        this.reader = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Número (1-based) de la última fila devuelta, contando la fila de encabezados.
+     */
+    public long getNumeroFila() {
+        return numeroFila;
+    }
+
+    /**
+     * Siguiente fila, o null al final del archivo. Las líneas vacías se omiten.
+     */
+    public String[] leerFila() throws IOException {
+        while (true) {
+            if (primeraFila) {
+                reader.mark(MAX_LONGITUD_CAMPO);
+                separador = detectarSeparador();
+                reader.reset();
+                primeraFila = false;
+            }
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            boolean hayDatos = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                hayDatos = true;
+                if (entreComillas) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            campo.append('"');
+                        } else {
+                            reader.reset();
+                            entreComillas = false;
+                        }
+                    } else {
+                        agregar(campo, (char) c);
+                    }
+                } else if (c == '"' && campo.length() == 0) {
+                    entreComillas = true;
+                } else if (c == separador) {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    break;
+                } else if (c != '\uFEFF' || numeroFila > 0 || campos.size() > 0 || campo.length() > 0) {
+                    agregar(campo, (char) c);
+                }
+            }
+            if (!hayDatos) {
+                return null;
+            }
+            campos.add(campo.toString());
+            numeroFila++;
+            if (campos.size() == 1 && campos.get(0).isBlank()) {
+                continue;
+            }
+            return campos.toArray(new String[0]);
+        }
+    }
+
+    private void agregar(StringBuilder campo, char c) throws IOException {
+        if (campo.length() >= MAX_LONGITUD_CAMPO) {
+            throw new IOException("Campo demasiado largo en la fila " + (numeroFila + 1)
+                    + " (¿comillas sin cerrar?).");
+        }
+        campo.append(c);
+    }
+
+    private char detectarSeparador() throws IOException {
+        int comas = 0;
+        int puntoYComa = 0;
+        int c;
+        int leidos = 0;
+        while ((c = reader.read()) != -1 && c != '\n' && ++leidos < MAX_LONGITUD_CAMPO) {
+            if (c == ',') {
+                comas++;
+            } else if (c == ';') {
+                puntoYComa++;
+            }
+        }
+        return puntoYComa > comas ? ';' : ',';
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
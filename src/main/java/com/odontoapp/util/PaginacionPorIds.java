@@ -0,0 +1,69 @@
+package com.odontoapp.util;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Pagina una lista de IDs ya ordenada (por ejemplo, por relevancia) cargando solo las entidades
+ * de la página solicitada y respetando el orden original.
+ */
+public final class PaginacionPorIds {
+
+    private PaginacionPorIds() {
+    }
+
+    public static <T> Page<T> paginar(List<Long> idsOrdenados, Pageable pageable,
+            Function<List<Long>, List<T>> cargar, Function<T, Long> obtenerId) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(ordenar(idsOrdenados, cargar.apply(idsOrdenados), obtenerId));
+        }
+        int desde = (int) Math.min(pageable.getOffset(), idsOrdenados.size());
+        int hasta = Math.min(desde + pageable.getPageSize(), idsOrdenados.size());
+        List<Long> idsPagina = idsOrdenados.subList(desde, hasta);
+        List<T> contenido = idsPagina.isEmpty() ? List.of() : ordenar(idsPagina, cargar.apply(idsPagina), obtenerId);
+        return new PageImpl<>(contenido, pageable, idsOrdenados.size());
+    }
+
+    /**
+     * Conserva, en el mismo orden, solo los IDs que la consulta {@code permitidos} devuelve
+     * (por ejemplo, para aplicar filtros de rol que el índice no conoce).
+     */
+    public static List<Long> filtrar(List<Long> idsOrdenados, Function<List<Long>, Collection<Long>> permitidos) {
+        if (idsOrdenados.isEmpty()) {
+            return idsOrdenados;
+        }
+        Set<Long> visibles = new HashSet<>(permitidos.apply(idsOrdenados));
+        List<Long> filtrados = new ArrayList<>(visibles.size());
+        for (Long id : idsOrdenados) {
+            if (visibles.contains(id)) {
+                filtrados.add(id);
+            }
+        }
+        return filtrados;
+    }
+
+    private static <T> List<T> ordenar(List<Long> ids, List<T> entidades, Function<T, Long> obtenerId) {
+        Map<Long, T> porId = new HashMap<>();
+        for (T entidad : entidades) {
+            porId.put(obtenerId.apply(entidad), entidad);
+        }
+        List<T> ordenadas = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T entidad = porId.get(id);
+            if (entidad != null) {
+                ordenadas.add(entidad);
+            }
+        }
+        return ordenadas;
+    }
+}
@@ -0,0 +1,170 @@
+package com.odontoapp.util;
+
+import java.util.Arrays;
+
+/**
+ * Métricas de similitud de cadenas y código fonético para nombres en español,
+ * usadas por la detección de pacientes duplicados.
+ */
+public final class SimilitudTexto {
+
+    private SimilitudTexto() {
+    }
+
+    /**
+     * Nombre normalizado con las palabras ordenadas, para que "Pérez Juan" y "Juan Perez" coincidan.
+     */
+    public static String nombreOrdenado(String nombre) {
+        String[] tokens = NormalizadorTexto.tokens(nombre);
+        Arrays.sort(tokens);
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * Código fonético del nombre completo: un código por palabra, ordenados.
+     * Agrupa grafías que en español suenan igual (b/v, c/s/z, g/j, ll/y, h muda, vocales),
+     * de modo que "Gimena Velásquez" y "Jimena Belasques" comparten código.
+     */
+    public static String codigoFonetico(String nombre) {
+        String[] tokens = NormalizadorTexto.tokens(nombre);
+        String[] codigos = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            codigos[i] = codigoPalabra(tokens[i]);
+        }
+        Arrays.sort(codigos);
+        return String.join(" ", codigos);
+    }
+
+    private static String codigoPalabra(String palabra) {
+        StringBuilder codigo = new StringBuilder(palabra.length());
+        int longitud = palabra.length();
+        for (int i = 0; i < longitud; i++) {
+            char c = palabra.charAt(i);
+            char siguiente = i + 1 < longitud ? palabra.charAt(i + 1) : 0;
+            String sonido;
+            switch (c) {
+                // Solo cuenta la vocal inicial, también tras una "h" muda ("Hernández" = "Ernández")
+                case 'a', 'e', 'i', 'o', 'u' -> sonido = codigo.length() == 0 ? "A" : "";
+                case 'b', 'v', 'w' -> sonido = "B";
+                case 'c' -> {
+                    if (siguiente == 'h') {
+                        sonido = "X";
+                        i++;
+                    } else {
+                        sonido = siguiente == 'e' || siguiente == 'i' ? "S" : "K";
+                    }
+                }
+                case 's', 'z' -> sonido = "S";
+                case 'k', 'q' -> sonido = "K";
+                case 'g' -> sonido = siguiente == 'e' || siguiente == 'i' ? "J" : "G";
+                case 'j' -> sonido = "J";
+                case 'h' -> sonido = "";
+                case 'l' -> {
+                    if (siguiente == 'l') {
+                        sonido = "Y";
+                        i++;
+                    } else {
+                        sonido = "L";
+                    }
+                }
+                // "y" antes de vocal es consonante; al final ("Rey") suena como vocal
+                case 'y' -> sonido = esVocal(siguiente) ? "Y" : (codigo.length() == 0 ? "A" : "");
+                case 'x' -> sonido = "KS";
+                default -> sonido = String.valueOf(Character.toUpperCase(c));
+            }
+            // Letras dobles ("rr", "ss") o sonidos consecutivos iguales cuentan una vez
+            if (!sonido.isEmpty() && (codigo.length() == 0
+                    || codigo.charAt(codigo.length() - 1) != sonido.charAt(0))) {
+                codigo.append(sonido);
+            }
+        }
+        return codigo.toString();
+    }
+
+    private static boolean esVocal(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+
+    /**
+     * Similitud de Jaro-Winkler (0 a 1), que favorece los prefijos comunes.
+     */
+    public static double jaroWinkler(String a, String b) {
+        if (a == null || b == null || a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        if (a.equals(b)) {
+            return 1;
+        }
+        int ventana = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] coincideA = new boolean[a.length()];
+        boolean[] coincideB = new boolean[b.length()];
+        int coincidencias = 0;
+        for (int i = 0; i < a.length(); i++) {
+            int desde = Math.max(0, i - ventana);
+            int hasta = Math.min(b.length() - 1, i + ventana);
+            for (int j = desde; j <= hasta; j++) {
+                if (!coincideB[j] && a.charAt(i) == b.charAt(j)) {
+                    coincideA[i] = true;
+                    coincideB[j] = true;
+                    coincidencias++;
+                    break;
+                }
+            }
+        }
+        if (coincidencias == 0) {
+            return 0;
+        }
+
+        int transposiciones = 0;
+        int k = 0;
+        for (int i = 0; i < a.length(); i++) {
+            if (coincideA[i]) {
+                while (!coincideB[k]) {
+                    k++;
+                }
+                if (a.charAt(i) != b.charAt(k)) {
+                    transposiciones++;
+                }
+                k++;
+            }
+        }
+        double m = coincidencias;
+        double jaro = (m / a.length() + m / b.length() + (m - transposiciones / 2.0) / m) / 3;
+
+        int prefijo = 0;
+        while (prefijo < Math.min(4, Math.min(a.length(), b.length()))
+                && a.charAt(prefijo) == b.charAt(prefijo)) {
+            prefijo++;
+        }
+        return jaro + prefijo * 0.1 * (1 - jaro);
+    }
+
+    /**
+     * 1 - distancia de Levenshtein / longitud mayor (0 a 1). Tolera un dígito mal tipeado en un documento.
+     */
+    public static double similitudLevenshtein(String a, String b) {
+        if (a == null || b == null) {
+            return 0;
+        }
+        int maximo = Math.max(a.length(), b.length());
+        if (maximo == 0) {
+            return 1;
+        }
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int costo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + costo);
+            }
+            int[] temporal = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return 1 - (double) anterior[b.length()] / maximo;
+    }
+}
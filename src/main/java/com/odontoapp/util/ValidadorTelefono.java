@@ -0,0 +1,51 @@
+package com.odontoapp.util;
+
+/**
+ * Reglas de formato para teléfonos celulares peruanos, compartidas por el registro
+ * de pacientes, de personal y la importación masiva.
+ */
+public final class ValidadorTelefono {
+
+    private ValidadorTelefono() {
+    }
+
+    /**
+     * Quita espacios y guiones.
+     */
+    public static String limpiar(String telefono) {
+        return telefono == null ? null : telefono.replaceAll("[\\s\\-]", "");
+    }
+
+    /**
+     * Valida el formato del teléfono para números celulares peruanos
+     * - Debe tener exactamente 9 dígitos
+     * - Debe empezar con 9
+     * - No puede ser un número repetido (ej: 999999999)
+     * - No puede ser una secuencia ascendente/descendente (ej: 123456789, 987654321)
+     *
+     * @throws IllegalArgumentException con el motivo si el formato no es válido
+     */
+    public static void validar(String telefono) {
+        if (telefono == null || telefono.trim().isEmpty()) {
+            return; // Campo opcional
+        }
+
+        String telefonoLimpio = limpiar(telefono);
+
+        if (!telefonoLimpio.matches("\\d+")) {
+            throw new IllegalArgumentException("El teléfono solo debe contener números.");
+        }
+        if (telefonoLimpio.length() != 9) {
+            throw new IllegalArgumentException("El teléfono debe tener exactamente 9 dígitos.");
+        }
+        if (!telefonoLimpio.startsWith("9")) {
+            throw new IllegalArgumentException("El número celular debe empezar con 9.");
+        }
+        if (telefonoLimpio.matches("(\\d)\\1{8}")) {
+            throw new IllegalArgumentException("El teléfono no puede tener todos los dígitos iguales.");
+        }
+        if (telefonoLimpio.equals("123456789") || telefonoLimpio.equals("987654321")) {
+            throw new IllegalArgumentException("El teléfono no puede ser una secuencia numérica simple.");
+        }
+    }
+}
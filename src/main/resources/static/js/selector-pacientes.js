@@ -0,0 +1,65 @@
+/**
+ * selector-pacientes.js
+ * Inicializa un Select2 de pacientes que busca en el servidor mientras se escribe,
+ * en lugar de precargar todos los pacientes en la página.
+ *
+ * El <select> debe tener el atributo data-url con la ruta de /pacientes/api/buscar.
+ * El valor de cada opción es el ID del usuario del paciente (pacienteUsuarioId).
+ */
+
+(function () {
+    'use strict';
+
+    const POR_PAGINA = 20;
+
+    window.inicializarSelectorPacientes = function ($select, opciones) {
+        const config = $.extend({
+            placeholder: 'Busque y seleccione un paciente',
+            allowClear: true,
+            width: '100%',
+            minimumInputLength: 0,
+            ajax: {
+                url: $select.data('url'),
+                dataType: 'json',
+                delay: 250,
+                data: function (params) {
+                    return {
+                        q: params.term || '',
+                        pagina: (params.page || 1) - 1,
+                        limite: POR_PAGINA
+                    };
+                },
+                processResults: function (respuesta) {
+                    return {
+                        results: respuesta.resultados.map(function (p) {
+                            return {
+                                id: p.usuarioId,
+                                text: p.numeroDocumento
+                                    ? p.nombreCompleto + ' - ' + p.numeroDocumento
+                                    : p.nombreCompleto
+                            };
+                        }),
+                        pagination: { more: respuesta.hayMas }
+                    };
+                },
+                cache: true
+            },
+            language: {
+                noResults: function () {
+                    return 'No se encontraron pacientes';
+                },
+                searching: function () {
+                    return 'Buscando...';
+                },
+                loadingMore: function () {
+                    return 'Cargando más resultados...';
+                },
+                errorLoading: function () {
+                    return 'No se pudieron cargar los pacientes';
+                }
+            }
+        }, opciones || {});
+
+        return $select.select2(config);
+    };
+})();
@@ -0,0 +1,153 @@
+package com.odontoapp.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.odontoapp.entidad.Permiso;
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.evento.PersonalModificadoEvent;
+import com.odontoapp.repositorio.PermisoRepository;
+import com.odontoapp.repositorio.RolRepository;
+
+/**
+ * Bits por rol versionados por roles.generacion_permisos: los cambios hechos en otro nodo se ven al
+ * verificar la generación, los roles inactivos no conceden nada y cada petición resuelve una vez.
+ */
+@ExtendWith(MockitoExtension.class)
+class CatalogoPermisosTest {
+
+    @Mock
+    private PermisoRepository permisoRepository;
+    @Mock
+    private RolRepository rolRepository;
+
+    private final Permiso verPacientes = permiso(1, "VER", "PACIENTES");
+    private final Permiso crearPacientes = permiso(2, "CREAR", "PACIENTES");
+
+    @BeforeEach
+    void setUp() {
+        when(permisoRepository.findAll()).thenReturn(List.of(verPacientes, crearPacientes));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void cambioEnOtroNodoSeVeAlVerificarLaGeneracion() {
+        when(rolRepository.maxGeneracionPermisos()).thenReturn(1L, 1L, 2L);
+        when(rolRepository.findAllConPermisos()).thenReturn(
+                List.of(rol("RECEPCIONISTA", true, verPacientes, crearPacientes)),
+                List.of(rol("RECEPCIONISTA", true, verPacientes)));
+        CatalogoPermisos catalogo = new CatalogoPermisos(permisoRepository, rolRepository, Duration.ZERO);
+        Authentication sesion = sesion("RECEPCIONISTA", "VER_PACIENTES", "CREAR_PACIENTES");
+
+        // Misma generación: se mantiene la compilación
+        assertTrue(catalogo.tiene(sesion, "CREAR_PACIENTES"));
+        // Otro nodo subió la generación al quitar el permiso
+        assertFalse(catalogo.tiene(sesion, "CREAR_PACIENTES"));
+        assertTrue(catalogo.tiene(sesion, "VER_PACIENTES"));
+        verify(rolRepository, times(2)).findAllConPermisos();
+    }
+
+    @Test
+    void dentroDelIntervaloSoloRecompilaElEventoLocal() {
+        when(rolRepository.maxGeneracionPermisos()).thenReturn(1L, 2L);
+        when(rolRepository.findAllConPermisos()).thenReturn(
+                List.of(rol("RECEPCIONISTA", true, verPacientes, crearPacientes)),
+                List.of(rol("RECEPCIONISTA", true, verPacientes)));
+        CatalogoPermisos catalogo = new CatalogoPermisos(permisoRepository, rolRepository, Duration.ofHours(1));
+        Authentication sesion = sesion("RECEPCIONISTA", "VER_PACIENTES", "CREAR_PACIENTES");
+
+        assertTrue(catalogo.tiene(sesion, "CREAR_PACIENTES"));
+        assertTrue(catalogo.tiene(sesion, "CREAR_PACIENTES"));
+
+        catalogo.onPersonalModificado(new PersonalModificadoEvent(null, 7L));
+        assertFalse(catalogo.tiene(sesion, "CREAR_PACIENTES"));
+    }
+
+    @Test
+    void rolInactivoNoConcedePermisos() {
+        when(rolRepository.maxGeneracionPermisos()).thenReturn(1L);
+        when(rolRepository.findAllConPermisos()).thenReturn(List.of(
+                rol("RECEPCIONISTA", false, verPacientes, crearPacientes),
+                rol("ODONTOLOGO", true, verPacientes)));
+        CatalogoPermisos catalogo = new CatalogoPermisos(permisoRepository, rolRepository, Duration.ofHours(1));
+
+        Authentication soloInactivo = sesion("RECEPCIONISTA", "VER_PACIENTES", "CREAR_PACIENTES");
+        assertFalse(catalogo.tieneAlguno(soloInactivo, "VER_PACIENTES", "CREAR_PACIENTES"));
+        assertEquals(List.of(), catalogo.nombresDe(soloInactivo));
+
+        Authentication ambos = UsernamePasswordAuthenticationToken.authenticated("ana@correo.com", null,
+                AuthorityUtils.createAuthorityList("ROLE_RECEPCIONISTA", "ROLE_ODONTOLOGO",
+                        "VER_PACIENTES", "CREAR_PACIENTES"));
+        assertEquals(List.of("VER_PACIENTES"), catalogo.nombresDe(ambos));
+    }
+
+    @Test
+    void unaPeticionResuelveLasAuthoritiesUnaSolaVez() {
+        when(rolRepository.maxGeneracionPermisos()).thenReturn(1L);
+        when(rolRepository.findAllConPermisos()).thenReturn(
+                List.of(rol("RECEPCIONISTA", true, verPacientes)));
+        CatalogoPermisos catalogo = new CatalogoPermisos(permisoRepository, rolRepository, Duration.ofHours(1));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        Authentication sesion = spy(sesion("RECEPCIONISTA", "VER_PACIENTES"));
+
+        assertTrue(catalogo.tiene(sesion, "VER_PACIENTES"));
+        assertFalse(catalogo.tiene(sesion, "CREAR_PACIENTES"));
+        assertTrue(catalogo.tieneAlguno(sesion, "CREAR_PACIENTES", "VER_PACIENTES"));
+        verify(sesion, times(1)).getAuthorities();
+
+        // Una copia deserializada de la sesión (otro objeto) se resuelve igual, no por identidad
+        Authentication copia = sesion("RECEPCIONISTA", "VER_PACIENTES");
+        assertTrue(catalogo.tiene(copia, "VER_PACIENTES"));
+        assertFalse(catalogo.tiene(copia, "CREAR_PACIENTES"));
+    }
+
+    private static Authentication sesion(String rol, String... permisos) {
+        List<String> autoridades = new ArrayList<>(List.of(permisos));
+        autoridades.add("ROLE_" + rol);
+        return UsernamePasswordAuthenticationToken.authenticated("ana@correo.com", null,
+                AuthorityUtils.createAuthorityList(autoridades.toArray(String[]::new)));
+    }
+
+    private static Permiso permiso(long id, String accion, String modulo) {
+        Permiso permiso = new Permiso();
+        permiso.setId(id);
+        permiso.setAccion(accion);
+        permiso.setModulo(modulo);
+        return permiso;
+    }
+
+    private static Rol rol(String nombre, boolean activo, Permiso... permisos) {
+        Rol rol = new Rol();
+        rol.setNombre(nombre);
+        rol.setEstaActivo(activo);
+        rol.setPermisos(Set.of(permisos));
+        return rol;
+    }
+}
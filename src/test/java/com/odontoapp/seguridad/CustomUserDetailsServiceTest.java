@@ -0,0 +1,115 @@
+package com.odontoapp.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.odontoapp.entidad.Permiso;
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.entidad.Usuario;
+import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.servicio.RegistroAccesoService;
+
+/**
+ * Las authorities se arman con los permisos leídos de la BD en cada inicio de sesión, sin pasar
+ * por CatalogoPermisos.
+ */
+@ExtendWith(MockitoExtension.class)
+class CustomUserDetailsServiceTest {
+
+    private static final int BLOQUEO_MINUTOS = 30;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private RegistroAccesoService registroAccesoService;
+
+    private CustomUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CustomUserDetailsService(usuarioRepository, registroAccesoService, BLOQUEO_MINUTOS);
+    }
+
+    @Test
+    void authoritiesSalenDeLosPermisosActualesDeCadaRol() {
+        Rol odontologo = rol(1L, "ODONTOLOGO", permiso(1L, "VER", "CITAS"), permiso(2L, "EDITAR", "TRATAMIENTOS"));
+        Rol recepcionista = rol(2L, "RECEPCIONISTA", permiso(1L, "VER", "CITAS"), permiso(3L, "CREAR", "CITAS"));
+        Usuario usuario = new Usuario();
+        usuario.setEmail("dra.perez@odontoapp.com");
+        usuario.setPassword("hash");
+        usuario.setEstaActivo(true);
+        usuario.setRoles(Set.of(odontologo, recepcionista));
+        when(usuarioRepository.findByEmailWithRolesAndPermissions(usuario.getEmail())).thenReturn(Optional.of(usuario));
+
+        UserDetails detalles = service.loadUserByUsername(usuario.getEmail());
+
+        assertEquals(Set.of("ROLE_ODONTOLOGO", "ROLE_RECEPCIONISTA", "VER_CITAS", "EDITAR_TRATAMIENTOS", "CREAR_CITAS"),
+                detalles.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet()));
+        assertEquals(5, detalles.getAuthorities().size());
+    }
+
+    @Test
+    void bloqueoDuraLosMinutosConfigurados() {
+        Usuario usuario = usuarioActivo();
+        // Pasados los 15 minutos de antes, pero dentro de los 30 configurados
+        usuario.setFechaBloqueo(LocalDateTime.now().minusMinutes(20));
+        when(usuarioRepository.findByEmailWithRolesAndPermissions(usuario.getEmail())).thenReturn(Optional.of(usuario));
+
+        assertThrows(LockedException.class, () -> service.loadUserByUsername(usuario.getEmail()));
+        verify(registroAccesoService, never()).registrarDesbloqueo(usuario.getId());
+    }
+
+    @Test
+    void bloqueoVencidoSeLevantaAlIniciarSesion() {
+        Usuario usuario = usuarioActivo();
+        usuario.setFechaBloqueo(LocalDateTime.now().minusMinutes(BLOQUEO_MINUTOS + 1));
+        when(usuarioRepository.findByEmailWithRolesAndPermissions(usuario.getEmail())).thenReturn(Optional.of(usuario));
+
+        service.loadUserByUsername(usuario.getEmail());
+
+        verify(registroAccesoService).registrarDesbloqueo(usuario.getId());
+    }
+
+    private static Usuario usuarioActivo() {
+        Usuario usuario = new Usuario();
+        usuario.setId(7L);
+        usuario.setEmail("recepcion@odontoapp.com");
+        usuario.setPassword("hash");
+        usuario.setEstaActivo(true);
+        usuario.setRoles(Set.of(rol(2L, "RECEPCIONISTA", permiso(1L, "VER", "CITAS"))));
+        return usuario;
+    }
+
+    private static Rol rol(Long id, String nombre, Permiso... permisos) {
+        Rol rol = new Rol();
+        rol.setId(id);
+        rol.setNombre(nombre);
+        rol.setPermisos(Set.of(permisos));
+        return rol;
+    }
+
+    private static Permiso permiso(Long id, String accion, String modulo) {
+        Permiso permiso = new Permiso();
+        permiso.setId(id);
+        permiso.setAccion(accion);
+        permiso.setModulo(modulo);
+        return permiso;
+    }
+}
@@ -0,0 +1,136 @@
+package com.odontoapp.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Ejecutor acotado de hashing: 503 para peticiones HTTP con el pool saturado, espera sin fallar en
+ * segundo plano, hilos por defecto y límites de la calibración del costo.
+ */
+class EncoderContrasenasAcotadoTest {
+
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+    private final CountDownLatch iniciado = new CountDownLatch(1);
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private final ExecutorService segundoPlano = Executors.newCachedThreadPool();
+    private EncoderContrasenasAcotado encoder;
+
+    @BeforeEach
+    void setUp() {
+        // Un hilo y sin cola: un hash en curso satura el ejecutor
+        encoder = new EncoderContrasenasAcotado(1, 0, 20, new EncoderBloqueante(), registro);
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+        RequestContextHolder.resetRequestAttributes();
+        segundoPlano.shutdownNow();
+        encoder.cerrar();
+    }
+
+    @Test
+    void peticionHttpConElPoolSaturadoRecibe503() throws Exception {
+        CompletableFuture<String> enCurso = CompletableFuture.supplyAsync(() -> encoder.encode("a"), segundoPlano);
+        assertTrue(iniciado.await(5, TimeUnit.SECONDS));
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThrows(SobrecargaHashException.class, () -> encoder.encode("b"));
+        assertThrows(SobrecargaHashException.class, () -> encoder.matches("b", "hash-b"));
+        assertEquals(2.0, registro.get("odontoapp.hash.rechazados").counter().count());
+
+        liberar.countDown();
+        assertEquals("hash-a", enCurso.get(5, TimeUnit.SECONDS));
+        // Con el lugar liberado la petición vuelve a pasar
+        assertEquals("hash-c", encoder.encode("c"));
+    }
+
+    @Test
+    void segundoPlanoEsperaSuTurnoSinFallar() throws Exception {
+        CompletableFuture<String> primero = CompletableFuture.supplyAsync(() -> encoder.encode("a"), segundoPlano);
+        assertTrue(iniciado.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> segundo = CompletableFuture.supplyAsync(() -> encoder.encode("b"), segundoPlano);
+        // Muy por encima de la espera de 20 ms que se le da a una petición HTTP
+        Thread.sleep(200);
+        assertFalse(segundo.isDone());
+
+        liberar.countDown();
+        assertEquals("hash-a", primero.get(5, TimeUnit.SECONDS));
+        assertEquals("hash-b", segundo.get(5, TimeUnit.SECONDS));
+        assertEquals(0.0, registro.get("odontoapp.hash.rechazados").counter().count());
+    }
+
+    @Test
+    void erroresDelEncoderLleganSinEnvolverYLiberanElLugar() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        liberar.countDown();
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.matches("x", null));
+        // El único lugar quedó libre
+        assertTrue(encoder.matches("x", "hash-x"));
+    }
+
+    @Test
+    void hilosPorDefectoDejanUnNucleoLibre() {
+        assertEquals(7, EncoderContrasenasAcotado.totalHilos(0, 8));
+        assertEquals(1, EncoderContrasenasAcotado.totalHilos(0, 2));
+        assertEquals(1, EncoderContrasenasAcotado.totalHilos(0, 1));
+        assertEquals(1, EncoderContrasenasAcotado.totalHilos(-1, 1));
+        assertEquals(3, EncoderContrasenasAcotado.totalHilos(3, 8));
+    }
+
+    @Test
+    void calibracionEligeElCostoMasCercanoDentroDeLosLimites() {
+        // 50 ms a costo 10: 100 (11), 200 (12); 400 ya se aleja de 250
+        assertEquals(12, EncoderContrasenasAcotado.costoCalibrado(50, 250));
+        // Equipo lento: nunca por debajo del mínimo
+        assertEquals(10, EncoderContrasenasAcotado.costoCalibrado(1000, 250));
+        // Equipo muy rápido: nunca por encima del máximo
+        assertEquals(14, EncoderContrasenasAcotado.costoCalibrado(0.5, 250));
+        assertEquals(10, EncoderContrasenasAcotado.costoCalibrado(50, 0));
+    }
+
+    /**
+     * Devuelve "hash-" + contraseña; encode espera hasta que la prueba lo libera.
+     */
+    private final class EncoderBloqueante implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            iniciado.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash-" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            if (encodedPassword == null) {
+                throw new IllegalArgumentException("Hash vacío");
+            }
+            return encodedPassword.equals("hash-" + rawPassword);
+        }
+    }
+}
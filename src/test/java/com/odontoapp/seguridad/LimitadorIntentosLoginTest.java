@@ -0,0 +1,211 @@
+package com.odontoapp.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Ventana deslizante, bloqueo y su vencimiento, reinicio, IPs de proxy y mapa lleno del limitador
+ * de intentos de login, con un reloj manual.
+ */
+class LimitadorIntentosLoginTest {
+
+    private static final String PROXIES = "10\\.0\\.0\\.\\d{1,3}";
+
+    private final RelojManual reloj = new RelojManual();
+    // 3 fallos por cuenta en 15 minutos; 5 por IP en 5 minutos
+    private final LimitadorIntentosLogin limitador = new LimitadorIntentosLogin(3, 15, 5, 5, 1000, PROXIES, reloj);
+
+    @Test
+    void bloqueaAlTercerFalloYSoloInformaEseIntento() {
+        assertFalse(limitador.registrarFallo("ana@odontoapp.com", null));
+        assertFalse(limitador.registrarFallo("ana@odontoapp.com", null));
+        assertEquals(1, limitador.intentosRestantes("ana@odontoapp.com"));
+
+        assertTrue(limitador.registrarFallo("ana@odontoapp.com", null));
+        assertEquals(Duration.ofMinutes(15), limitador.bloqueoRestante("ana@odontoapp.com", null));
+
+        // Los intentos durante el bloqueo no se vuelven a informar
+        assertFalse(limitador.registrarFallo("ana@odontoapp.com", null));
+        assertNull(limitador.bloqueoRestante("otro@odontoapp.com", null));
+    }
+
+    @Test
+    void bloqueoVenceYLaCuentaEmpiezaDeCero() {
+        for (int i = 0; i < 3; i++) {
+            limitador.registrarFallo("ana@odontoapp.com", null);
+        }
+        reloj.avanzar(Duration.ofMinutes(15).minusMillis(1));
+        assertEquals(Duration.ofMillis(1), limitador.bloqueoRestante("ana@odontoapp.com", null));
+
+        reloj.avanzar(Duration.ofMillis(1));
+        assertNull(limitador.bloqueoRestante("ana@odontoapp.com", null));
+        assertEquals(3, limitador.intentosRestantes("ana@odontoapp.com"));
+    }
+
+    @Test
+    void ventanaDeslizantePonderaLaVentanaAnterior() {
+        limitador.registrarFallo("ana@odontoapp.com", null);
+        limitador.registrarFallo("ana@odontoapp.com", null);
+
+        // Empieza la ventana siguiente: la anterior cuenta entera
+        reloj.avanzar(Duration.ofMinutes(15));
+        assertEquals(1, limitador.intentosRestantes("ana@odontoapp.com"));
+
+        // A mitad de la ventana, la anterior pesa la mitad: 2 * 0,5 = 1
+        reloj.avanzar(Duration.ofSeconds(450));
+        assertEquals(2, limitador.intentosRestantes("ana@odontoapp.com"));
+
+        // Un fallo más: 1 estimado + 1 actual, todavía no bloquea
+        assertFalse(limitador.registrarFallo("ana@odontoapp.com", null));
+        assertEquals(1, limitador.intentosRestantes("ana@odontoapp.com"));
+
+        // Dos ventanas enteras sin fallos descartan todo
+        reloj.avanzar(Duration.ofMinutes(30));
+        assertEquals(3, limitador.intentosRestantes("ana@odontoapp.com"));
+    }
+
+    @Test
+    void reiniciarOlvidaLosFallosSinImportarMayusculas() {
+        limitador.registrarFallo("Ana@OdontoApp.com", null);
+        limitador.registrarFallo("ana@odontoapp.com", null);
+
+        limitador.reiniciar("  ANA@odontoapp.com ");
+
+        assertEquals(3, limitador.intentosRestantes("ana@odontoapp.com"));
+        assertFalse(limitador.registrarFallo("ana@odontoapp.com", null));
+    }
+
+    @Test
+    void limitePorIpAlcanzaATodasLasCuentas() {
+        for (int i = 0; i < 5; i++) {
+            limitador.registrarFallo("usuario" + i + "@odontoapp.com", "203.0.113.7");
+        }
+
+        assertNotNull(limitador.bloqueoRestante("nueva@odontoapp.com", "203.0.113.7"));
+        assertTrue(limitador.bloqueadoPorIp("203.0.113.7"));
+        assertNull(limitador.bloqueoRestante("nueva@odontoapp.com", "203.0.113.8"));
+
+        reloj.avanzar(Duration.ofMinutes(5));
+        assertFalse(limitador.bloqueadoPorIp("203.0.113.7"));
+    }
+
+    @Test
+    void ipDelProxyNoSeLimitaPeroLaCuentaSi() {
+        assertFalse(limitador.ipConfiable("10.0.0.5"));
+        assertFalse(limitador.ipConfiable(null));
+        assertTrue(limitador.ipConfiable("203.0.113.7"));
+
+        for (int i = 0; i < 20; i++) {
+            limitador.registrarFallo("usuario" + i + "@odontoapp.com", "10.0.0.5");
+        }
+        assertNull(limitador.bloqueoRestante("nueva@odontoapp.com", "10.0.0.5"));
+        assertFalse(limitador.bloqueadoPorIp("10.0.0.5"));
+
+        limitador.registrarFallo("usuario0@odontoapp.com", "10.0.0.5");
+        limitador.registrarFallo("usuario0@odontoapp.com", "10.0.0.5");
+        assertNotNull(limitador.bloqueoRestante("usuario0@odontoapp.com", "10.0.0.5"));
+    }
+
+    @Test
+    void mapaDeIpsLlenoRechazaIpsNuevasHastaQueHayaLugar() {
+        LimitadorIntentosLogin pequeno = new LimitadorIntentosLogin(3, 15, 5, 5, 2, "", reloj);
+        pequeno.registrarFallo("a@odontoapp.com", "203.0.113.1");
+        pequeno.registrarFallo("b@odontoapp.com", "203.0.113.2");
+        // Sin contadores inactivos que purgar
+        assertNull(pequeno.bloqueoRestante("c@odontoapp.com", "203.0.113.3"));
+
+        pequeno.registrarFallo("c@odontoapp.com", "203.0.113.3");
+
+        // Falla cerrado por IP: las IPs sin contador quedan limitadas; las que ya se cuentan, no
+        assertTrue(pequeno.bloqueadoPorIp("203.0.113.3"));
+        assertTrue(pequeno.bloqueadoPorIp("203.0.113.4"));
+        assertFalse(pequeno.bloqueadoPorIp("203.0.113.1"));
+
+        reloj.avanzar(Duration.ofMinutes(10));
+        assertFalse(pequeno.registrarFallo("d@odontoapp.com", "203.0.113.4"));
+        assertFalse(pequeno.bloqueadoPorIp("203.0.113.5"));
+    }
+
+    @Test
+    void mapaDeEmailsLlenoNoBloqueaCuentasLegitimas() {
+        LimitadorIntentosLogin pequeno = new LimitadorIntentosLogin(3, 15, 1000, 5, 3, "", reloj);
+        // Ataque con emails inventados que llena el mapa
+        for (int i = 0; i < 50; i++) {
+            assertFalse(pequeno.registrarFallo("falso" + i + "@odontoapp.com", null));
+            reloj.avanzar(Duration.ofMillis(1));
+        }
+
+        // La cuenta legítima sigue pudiendo entrar y su fallo se cuenta desalojando al contador más antiguo
+        assertNull(pequeno.bloqueoRestante("ana@odontoapp.com", null));
+        assertFalse(pequeno.registrarFallo("ana@odontoapp.com", null));
+        assertEquals(2, pequeno.intentosRestantes("ana@odontoapp.com"));
+        assertNull(pequeno.bloqueoRestante("ana@odontoapp.com", null));
+        assertNull(pequeno.bloqueoRestante("luis@odontoapp.com", null));
+    }
+
+    @Test
+    void mapaDeEmailsLlenoDeBloqueosNoLosDesalojaYFallaAbierto() {
+        LimitadorIntentosLogin pequeno = new LimitadorIntentosLogin(1, 15, 1000, 5, 2, "", reloj);
+        assertTrue(pequeno.registrarFallo("a@odontoapp.com", null));
+        assertTrue(pequeno.registrarFallo("b@odontoapp.com", null));
+
+        // No hay contador que desalojar: el fallo no se cuenta, pero la cuenta tampoco queda limitada
+        assertFalse(pequeno.registrarFallo("ana@odontoapp.com", null));
+        assertNull(pequeno.bloqueoRestante("ana@odontoapp.com", null));
+        assertNotNull(pequeno.bloqueoRestante("a@odontoapp.com", null));
+        assertNotNull(pequeno.bloqueoRestante("b@odontoapp.com", null));
+    }
+
+    @Test
+    void purgaLiberaLugarDeContadoresInactivos() {
+        LimitadorIntentosLogin pequeno = new LimitadorIntentosLogin(3, 15, 5, 5, 2, "", reloj);
+        pequeno.registrarFallo("a@odontoapp.com", null);
+        pequeno.registrarFallo("b@odontoapp.com", null);
+
+        reloj.avanzar(Duration.ofMinutes(30));
+
+        // El registro purga antes de rechazar
+        assertFalse(pequeno.registrarFallo("c@odontoapp.com", null));
+        assertEquals(2, pequeno.intentosRestantes("c@odontoapp.com"));
+        assertEquals(3, pequeno.intentosRestantes("a@odontoapp.com"));
+    }
+
+    private static final class RelojManual extends Clock {
+        private long ahora = Instant.parse("2025-03-10T08:00:00Z").toEpochMilli();
+
+        void avanzar(Duration duracion) {
+            ahora += duracion.toMillis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(ahora);
+        }
+
+        @Override
+        public long millis() {
+            return ahora;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.odontoapp.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import com.odontoapp.entidad.Permiso;
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.repositorio.PermisoRepository;
+import com.odontoapp.repositorio.RolRepository;
+
+/**
+ * El manejador con permisos compilados debe responder exactamente lo mismo que el de Spring Security
+ * cuando las authorities de la sesión coinciden con los roles de la BD: permisos del catálogo (también
+ * más allá del bit 63), authorities ROLE_, authorities que no están en el catálogo y usuarios anónimos.
+ */
+class PermisosMethodSecurityExpressionHandlerTest {
+
+    private static final List<String> EXPRESIONES = List.of(
+            "hasAuthority('VER_PACIENTES')",
+            "hasAuthority('CREAR_PACIENTES')",
+            "hasAuthority('ELIMINAR_USUARIOS')",
+            "hasAuthority('VER_M69')",
+            "hasAuthority('VER_M3')",
+            "hasAuthority('ROLE_RECEPCIONISTA')",
+            "hasAuthority('ROLE_ADMIN')",
+            "hasAuthority('ROLE_ANONYMOUS')",
+            "hasAuthority('EXPORTAR_TODO')",
+            "hasAuthority('NO_EXISTE')",
+            "hasAnyAuthority('ELIMINAR_USUARIOS', 'VER_PACIENTES')",
+            "hasAnyAuthority('ELIMINAR_USUARIOS', 'ROLE_RECEPCIONISTA')",
+            "hasAnyAuthority('NO_EXISTE', 'EXPORTAR_TODO')",
+            "hasAnyAuthority('NO_EXISTE', 'ROLE_ADMIN', 'VER_M3')",
+            "hasAnyAuthority()",
+            "hasRole('RECEPCIONISTA')",
+            "hasAnyRole('ADMIN', 'ODONTOLOGO')",
+            "isAuthenticated() and hasAuthority('VER_PACIENTES')",
+            "isAnonymous() or hasAuthority('VER_M69')");
+
+    private final Method metodo = getClass().getDeclaredMethods()[0];
+
+    private final DefaultMethodSecurityExpressionHandler estandar = new DefaultMethodSecurityExpressionHandler();
+    private CatalogoPermisos catalogo;
+    private PermisosMethodSecurityExpressionHandler compilado;
+    private List<Rol> roles;
+
+    @BeforeEach
+    void setUp() {
+        List<Permiso> permisos = new ArrayList<>();
+        permisos.add(permiso(1, "VER", "PACIENTES"));
+        permisos.add(permiso(2, "CREAR", "PACIENTES"));
+        permisos.add(permiso(3, "ELIMINAR", "USUARIOS"));
+        // Suficientes permisos para ocupar dos palabras de 64 bits
+        for (int i = 0; i < 70; i++) {
+            permisos.add(permiso(10 + i, "VER", "M" + i));
+        }
+        roles = List.of(
+                rol("RECEPCIONISTA", permisos, "VER_PACIENTES", "CREAR_PACIENTES", "VER_M69"),
+                rol("ODONTOLOGO", permisos, "VER_PACIENTES", "VER_M3"),
+                rol("ADMIN", permisos, permisos.stream().map(Permiso::getNombre).toArray(String[]::new)));
+
+        PermisoRepository permisoRepository = mock(PermisoRepository.class);
+        RolRepository rolRepository = mock(RolRepository.class);
+        when(permisoRepository.findAll()).thenReturn(permisos);
+        when(rolRepository.findAllConPermisos()).thenReturn(roles);
+        when(rolRepository.maxGeneracionPermisos()).thenReturn(1L);
+        catalogo = new CatalogoPermisos(permisoRepository, rolRepository, Duration.ofMinutes(5));
+
+        @SuppressWarnings("unchecked")
+        ObjectProvider<CatalogoPermisos> proveedor = mock(ObjectProvider.class);
+        when(proveedor.getObject()).thenReturn(catalogo);
+        compilado = new PermisosMethodSecurityExpressionHandler(proveedor);
+    }
+
+    @Test
+    void rolUnicoConAutoridadFueraDelCatalogo() {
+        compararConSpring(sesion(Set.of("RECEPCIONISTA"), "EXPORTAR_TODO"));
+    }
+
+    @Test
+    void variosRolesAntesDeSeleccionarUno() {
+        compararConSpring(sesion(Set.of("RECEPCIONISTA", "ODONTOLOGO")));
+    }
+
+    @Test
+    void administradorConTodosLosPermisos() {
+        compararConSpring(sesion(Set.of("ADMIN")));
+    }
+
+    @Test
+    void usuarioAnonimo() {
+        compararConSpring(new AnonymousAuthenticationToken("clave", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+    }
+
+    @Test
+    void autenticacionNoAutenticada() {
+        compararConSpring(UsernamePasswordAuthenticationToken.unauthenticated("ana", "secreto"));
+    }
+
+    @Test
+    void laRaizEnvuelveLaDeSpring() {
+        EvaluationContext contexto = compilado.createEvaluationContext(() -> sesion(Set.of("ADMIN")),
+                new SimpleMethodInvocation(this, metodo));
+
+        assertInstanceOf(PermisosExpressionRoot.class, contexto.getRootObject().getValue());
+    }
+
+    @Test
+    void rolSinPermisosEnLaBdNoConcedeAunqueLaSesionLosTenga() {
+        // La sesión se creó antes de que al rol le quitaran CREAR_PACIENTES y aún lo lista
+        roles.get(0).getPermisos().removeIf(p -> p.getNombre().equals("CREAR_PACIENTES"));
+        catalogo.recompilar();
+        Authentication sesion = sesion(Set.of("RECEPCIONISTA"), "CREAR_PACIENTES");
+
+        assertTrue(evaluar(estandar, sesion, "hasAuthority('CREAR_PACIENTES')"));
+        assertFalse(evaluar(compilado, sesion, "hasAuthority('CREAR_PACIENTES')"));
+    }
+
+    private void compararConSpring(Authentication authentication) {
+        for (String expresion : EXPRESIONES) {
+            assertEquals(evaluar(estandar, authentication, expresion),
+                    evaluar(compilado, authentication, expresion), expresion);
+        }
+    }
+
+    private boolean evaluar(DefaultMethodSecurityExpressionHandler manejador, Authentication authentication,
+            String expresion) {
+        Expression parseada = manejador.getExpressionParser().parseExpression(expresion);
+        EvaluationContext contexto = manejador.createEvaluationContext(() -> authentication,
+                new SimpleMethodInvocation(this, metodo));
+        return ExpressionUtils.evaluateAsBoolean(parseada, contexto);
+    }
+
+    /**
+     * Autenticación como la arma CustomUserDetailsService: ROLE_ de cada rol más sus permisos.
+     */
+    private Authentication sesion(Set<String> nombresRol, String... extra) {
+        List<String> autoridades = new ArrayList<>();
+        for (Rol rol : roles) {
+            if (nombresRol.contains(rol.getNombre())) {
+                autoridades.add("ROLE_" + rol.getNombre());
+                rol.getPermisos().forEach(p -> autoridades.add(p.getNombre()));
+            }
+        }
+        autoridades.addAll(List.of(extra));
+        return UsernamePasswordAuthenticationToken.authenticated("ana@correo.com", null,
+                AuthorityUtils.createAuthorityList(autoridades.stream().distinct().toArray(String[]::new)));
+    }
+
+    private static Permiso permiso(long id, String accion, String modulo) {
+        Permiso permiso = new Permiso();
+        permiso.setId(id);
+        permiso.setAccion(accion);
+        permiso.setModulo(modulo);
+        return permiso;
+    }
+
+    private static Rol rol(String nombre, List<Permiso> catalogo, String... permisos) {
+        Set<String> nombres = Set.of(permisos);
+        Rol rol = new Rol();
+        rol.setNombre(nombre);
+        rol.setPermisos(catalogo.stream().filter(p -> nombres.contains(p.getNombre()))
+                .collect(Collectors.toCollection(HashSet::new)));
+        return rol;
+    }
+}
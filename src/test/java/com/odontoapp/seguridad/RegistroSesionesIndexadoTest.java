@@ -0,0 +1,145 @@
+package com.odontoapp.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Correctitud y benchmark del registro de sesiones indexado frente al recorrido de todos los
+ * principals que hacía SessionInvalidationService, con 10.000 sesiones simuladas.
+ */
+class RegistroSesionesIndexadoTest {
+
+    private static final int SESIONES = 10_000;
+    private static final int REPETICIONES = 200;
+    // Distribución aproximada de una clínica: muchos pacientes, poco personal
+    private static final String[] ROLES = { "PACIENTE", "PACIENTE", "PACIENTE", "PACIENTE", "PACIENTE",
+            "PACIENTE", "RECEPCIONISTA", "ODONTOLOGO", "ALMACEN", "ADMIN" };
+
+    private RegistroSesionesIndexado registro;
+
+    @BeforeEach
+    void setUp() {
+        registro = new RegistroSesionesIndexado();
+        for (int i = 0; i < SESIONES; i++) {
+            String rol = ROLES[i % ROLES.length];
+            // Algunos usuarios del personal tienen además el rol PACIENTE
+            List<SimpleGrantedAuthority> autoridades = new ArrayList<>();
+            autoridades.add(new SimpleGrantedAuthority("ROLE_" + rol));
+            if (i % 7 == 0 && !"PACIENTE".equals(rol)) {
+                autoridades.add(new SimpleGrantedAuthority("ROLE_PACIENTE"));
+            }
+            autoridades.add(new SimpleGrantedAuthority("VER_LISTA_CITAS"));
+            User principal = new User("usuario" + i + "@odontoapp.com", "x", autoridades);
+            registro.registerNewSession("sesion-" + i, principal);
+        }
+    }
+
+    @Test
+    void indicesDevuelvenLasMismasSesionesQueElRecorrido() {
+        for (String rol : Set.copyOf(List.of(ROLES))) {
+            assertEquals(ids(recorrerPorRol(rol)), ids(registro.getSesionesPorRol(rol)), "Rol " + rol);
+        }
+        assertEquals(ids(recorrerPorEmail("usuario42@odontoapp.com")),
+                ids(registro.getSesionesPorEmail("USUARIO42@odontoapp.com")));
+    }
+
+    @Test
+    void bajaYCambioDeIdMantienenLosIndices() {
+        registro.removeSessionInformation("sesion-9");
+        assertTrue(registro.getSesionesPorEmail("usuario9@odontoapp.com").isEmpty());
+        assertTrue(registro.getSesionesPorRol("ADMIN").stream()
+                .noneMatch(s -> s.getSessionId().equals("sesion-9")));
+
+        // Igual que SessionRegistryImpl ante SessionIdChangedEvent
+        Object principal = registro.getSessionInformation("sesion-19").getPrincipal();
+        registro.removeSessionInformation("sesion-19");
+        registro.registerNewSession("sesion-19-nueva", principal);
+        assertEquals(Set.of("sesion-19-nueva"), ids(registro.getSesionesPorEmail("usuario19@odontoapp.com")));
+
+        registro.getSessionInformation("sesion-29").expireNow();
+        assertTrue(registro.getSesionesPorEmail("usuario29@odontoapp.com").isEmpty());
+    }
+
+    @Test
+    void benchmarkInvalidacionPorRolYPorUsuario() {
+        System.out.println("==============================================");
+        System.out.println("➡️ BENCHMARK: registro de sesiones con " + SESIONES + " sesiones");
+
+        // Calentamiento
+        for (int i = 0; i < 20; i++) {
+            recorrerPorRol("ADMIN");
+            registro.getSesionesPorRol("ADMIN");
+        }
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            recorrerPorRol("ADMIN");
+        }
+        long recorridoRol = (System.nanoTime() - inicio) / REPETICIONES;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            registro.getSesionesPorRol("ADMIN");
+        }
+        long indiceRol = (System.nanoTime() - inicio) / REPETICIONES;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            recorrerPorEmail("usuario" + (i * 37 % SESIONES) + "@odontoapp.com");
+        }
+        long recorridoEmail = (System.nanoTime() - inicio) / REPETICIONES;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            registro.getSesionesPorEmail("usuario" + (i * 37 % SESIONES) + "@odontoapp.com");
+        }
+        long indiceEmail = (System.nanoTime() - inicio) / REPETICIONES;
+
+        System.out.printf("   Por rol ADMIN (%d sesiones): recorrido %d µs, índice %d µs%n",
+                registro.getSesionesPorRol("ADMIN").size(), recorridoRol / 1000, indiceRol / 1000);
+        System.out.printf("   Por usuario: recorrido %d µs, índice %d µs%n",
+                recorridoEmail / 1000, indiceEmail / 1000);
+
+        assertEquals(SESIONES / ROLES.length, registro.getSesionesPorRol("ADMIN").size());
+        System.out.println("✅ BENCHMARK FINALIZADO");
+        System.out.println("==============================================");
+    }
+
+    // Recorrido completo como lo hacía SessionInvalidationService antes del índice
+    private List<SessionInformation> recorrerPorRol(String rol) {
+        String roleName = "ROLE_" + rol;
+        List<SessionInformation> sesiones = new ArrayList<>();
+        for (Object principal : registro.getAllPrincipals()) {
+            if (principal instanceof User userDetails && userDetails.getAuthorities().stream()
+                    .anyMatch(auth -> auth.getAuthority().equals(roleName))) {
+                sesiones.addAll(registro.getAllSessions(principal, false));
+            }
+        }
+        return sesiones;
+    }
+
+    private List<SessionInformation> recorrerPorEmail(String email) {
+        List<SessionInformation> sesiones = new ArrayList<>();
+        for (Object principal : registro.getAllPrincipals()) {
+            if (principal instanceof User userDetails && userDetails.getUsername().equals(email)) {
+                sesiones.addAll(registro.getAllSessions(principal, false));
+            }
+        }
+        return sesiones;
+    }
+
+    private static Set<String> ids(List<SessionInformation> sesiones) {
+        return sesiones.stream().map(SessionInformation::getSessionId).collect(Collectors.toSet());
+    }
+}
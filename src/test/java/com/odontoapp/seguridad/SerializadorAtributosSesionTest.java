@@ -0,0 +1,103 @@
+package com.odontoapp.seguridad;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+/**
+ * Ida y vuelta de cada formato del serializador de atributos de sesión, incluidos los valores que
+ * escribía Spring Session antes (serialización de Java sin prefijo) y un tipo desconocido.
+ */
+class SerializadorAtributosSesionTest {
+
+    private final SerializadorAtributosSesion serializador =
+            new SerializadorAtributosSesion(getClass().getClassLoader());
+
+    @Test
+    void textosConTipoYUtf8() {
+        assertIdaYVuelta("ODONTOLOGO", 1);
+        assertIdaYVuelta("", 1);
+        assertIdaYVuelta("Sesión de Íñigo — ✓", 1);
+        assertEquals(1 + "ADMIN".length(), serializador.serializar("ADMIN").length);
+    }
+
+    @Test
+    void numerosYLogicosDeLongitudFija() {
+        assertIdaYVuelta(42, 2);
+        assertIdaYVuelta(Integer.MIN_VALUE, 2);
+        assertIdaYVuelta(7_000_000_000L, 3);
+        assertIdaYVuelta(-1L, 3);
+        assertIdaYVuelta(true, 4);
+        assertIdaYVuelta(false, 4);
+        assertEquals(5, serializador.serializar(42).length);
+        assertEquals(9, serializador.serializar(42L).length);
+        assertEquals(2, serializador.serializar(Boolean.TRUE).length);
+    }
+
+    @Test
+    void objetosConSerializacionDeJava() {
+        ArrayList<String> pequeno = new ArrayList<>(List.of("VER_LISTA_CITAS"));
+        byte[] corto = serializador.serializar(pequeno);
+        assertEquals(16, corto[0]);
+        assertEquals(pequeno, serializador.deserializar(corto));
+
+        // El contexto de seguridad pasa del umbral y se guarda comprimido
+        SecurityContextImpl contexto = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                "dra.perez@odontoapp.com", null, List.of(new SimpleGrantedAuthority("ROLE_ODONTOLOGO"))));
+
+        SecurityContextImpl leido = (SecurityContextImpl) serializador.deserializar(serializador.serializar(contexto));
+
+        assertEquals("dra.perez@odontoapp.com", leido.getAuthentication().getName());
+        assertEquals(contexto.getAuthentication().getAuthorities(), leido.getAuthentication().getAuthorities());
+    }
+
+    @Test
+    void objetosGrandesSeComprimenSiCompensa() {
+        ArrayList<String> repetitivo = new ArrayList<>(Collections.nCopies(200, "VER_LISTA_CITAS"));
+        for (int i = 0; i < 200; i++) {
+            repetitivo.add("PERMISO_" + i);
+        }
+        byte[] comprimido = serializador.serializar(repetitivo);
+        assertEquals(17, comprimido[0]);
+        assertEquals(repetitivo, serializador.deserializar(comprimido));
+
+        // Bytes aleatorios: comprimir no reduce el tamaño y se guardan sin comprimir
+        byte[] aleatorio = new byte[4096];
+        new Random(7).nextBytes(aleatorio);
+        byte[] sinComprimir = serializador.serializar(aleatorio);
+        assertEquals(16, sinComprimir[0]);
+        assertArrayEquals(aleatorio, (byte[]) serializador.deserializar(sinComprimir));
+    }
+
+    @Test
+    void leeValoresEscritosPorSpringSessionSinPrefijo() throws Exception {
+        byte[] heredado = new DefaultSerializer().serializeToByteArray(new ArrayList<>(List.of("rolActivo", 3L)));
+
+        assertEquals(List.of("rolActivo", 3L), serializador.deserializar(heredado));
+    }
+
+    @Test
+    void vacioEsNullYTipoDesconocidoFalla() {
+        assertNull(serializador.deserializar(null));
+        assertNull(serializador.deserializar(new byte[0]));
+        assertThrows(IllegalStateException.class, () -> serializador.deserializar(new byte[] { 99, 1, 2 }));
+    }
+
+    private void assertIdaYVuelta(Object valor, int tipo) {
+        byte[] datos = serializador.serializar(valor);
+        assertEquals(tipo, datos[0]);
+        assertEquals(valor, serializador.deserializar(datos));
+    }
+}
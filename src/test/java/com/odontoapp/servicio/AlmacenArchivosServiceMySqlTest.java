@@ -0,0 +1,181 @@
+package com.odontoapp.servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.odontoapp.entidad.ContenidoArchivo;
+import com.odontoapp.repositorio.ContenidoArchivoRepository;
+
+/**
+ * Ciclo de referencias del almacén por contenido contra MySQL 8 (InnoDB) real: deduplicación,
+ * purga tras el commit, filas en 0 tras un rollback y subidas concurrentes de contenido nuevo, que
+ * es donde un gap lock en la transacción del llamador dejaba la subida colgada hasta el timeout.
+ *
+ * Necesita una base de datos de pruebas vacía (se crean las tablas con ddl-auto=update):
+ * ODONTOAPP_TEST_MYSQL_URL, y opcionalmente ODONTOAPP_TEST_MYSQL_USER y ODONTOAPP_TEST_MYSQL_PASSWORD.
+ * Sin esa variable la clase se omite.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AlmacenArchivosService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfEnvironmentVariable(named = "ODONTOAPP_TEST_MYSQL_URL", matches = ".+")
+class AlmacenArchivosServiceMySqlTest {
+
+    private static final int SUBIDAS_CONCURRENTES = 8;
+    // Muy por debajo del innodb_lock_wait_timeout por defecto (50 s)
+    private static final long ESPERA_MAXIMA_SEGUNDOS = 20;
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) throws IOException {
+        Path uploadDir = Files.createTempDirectory("odontoapp-almacen-");
+        registry.add("spring.datasource.url", () -> System.getenv("ODONTOAPP_TEST_MYSQL_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("ODONTOAPP_TEST_MYSQL_USER", "root"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("ODONTOAPP_TEST_MYSQL_PASSWORD", ""));
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Autowired
+    private AlmacenArchivosService almacen;
+    @Autowired
+    private ContenidoArchivoRepository contenidoArchivoRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaccion;
+
+    @BeforeEach
+    void setUp() {
+        transaccion = new TransactionTemplate(transactionManager);
+        contenidoArchivoRepository.deleteAll();
+    }
+
+    @Test
+    void subidasIgualesCompartenFilaYArchivo() {
+        String contenido = "radiografía " + UUID.randomUUID();
+
+        AlmacenArchivosService.ContenidoGuardado primero = subir(contenido);
+        AlmacenArchivosService.ContenidoGuardado segundo = subir(contenido);
+
+        assertEquals(primero, segundo);
+        assertEquals(2, referencias(primero.hash()));
+        assertTrue(Files.exists(almacen.resolver(primero.ruta())));
+    }
+
+    @Test
+    void liberarLaUltimaReferenciaPurgaFilaYArchivoTrasElCommit() {
+        String contenido = "informe " + UUID.randomUUID();
+        AlmacenArchivosService.ContenidoGuardado guardado = subir(contenido);
+        subir(contenido);
+        Path archivo = almacen.resolver(guardado.ruta());
+
+        transaccion.executeWithoutResult(status -> almacen.liberar(guardado.hash()));
+        assertEquals(1, referencias(guardado.hash()));
+        assertTrue(Files.exists(archivo));
+
+        transaccion.executeWithoutResult(status -> {
+            almacen.liberar(guardado.hash());
+            // Dentro de la transacción la fila y el archivo siguen: se purgan en afterCommit
+            assertTrue(Files.exists(archivo));
+        });
+        assertFalse(contenidoArchivoRepository.existsById(guardado.hash()));
+        assertFalse(Files.exists(archivo));
+    }
+
+    @Test
+    void rollbackDejaLaFilaEnCeroHastaLaPurga() {
+        String contenido = "anulado " + UUID.randomUUID();
+        AlmacenArchivosService.ContenidoGuardado guardado = transaccion.execute(status -> {
+            AlmacenArchivosService.ContenidoGuardado resultado = guardar(contenido);
+            status.setRollbackOnly();
+            return resultado;
+        });
+
+        // La fila se creó en su propia transacción; la referencia se deshizo con la del llamador
+        assertEquals(0, referencias(guardado.hash()));
+        assertTrue(Files.exists(almacen.resolver(guardado.ruta())));
+
+        almacen.purgarSinReferencias(Duration.ZERO);
+
+        assertFalse(contenidoArchivoRepository.existsById(guardado.hash()));
+        assertFalse(Files.exists(almacen.resolver(guardado.ruta())));
+    }
+
+    @Test
+    void subidasConcurrentesDeContenidoNuevoNoSeBloquean() throws Exception {
+        String compartido = "compartido " + UUID.randomUUID();
+        ExecutorService hilos = Executors.newFixedThreadPool(SUBIDAS_CONCURRENTES);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<List<AlmacenArchivosService.ContenidoGuardado>>> futuros = new ArrayList<>();
+        try {
+            for (int i = 0; i < SUBIDAS_CONCURRENTES; i++) {
+                String propio = "propio " + i + " " + UUID.randomUUID();
+                futuros.add(hilos.submit(() -> {
+                    salida.await();
+                    return List.of(subir(propio), subir(compartido));
+                }));
+            }
+            salida.countDown();
+
+            String hashCompartido = null;
+            for (Future<List<AlmacenArchivosService.ContenidoGuardado>> futuro : futuros) {
+                List<AlmacenArchivosService.ContenidoGuardado> guardados = futuro.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS);
+                assertEquals(1, referencias(guardados.get(0).hash()));
+                hashCompartido = guardados.get(1).hash();
+            }
+            assertEquals(SUBIDAS_CONCURRENTES, referencias(hashCompartido));
+            assertEquals(SUBIDAS_CONCURRENTES + 1, contenidoArchivoRepository.count());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private AlmacenArchivosService.ContenidoGuardado subir(String contenido) {
+        return transaccion.execute(status -> guardar(contenido));
+    }
+
+    private AlmacenArchivosService.ContenidoGuardado guardar(String contenido) {
+        try {
+            return almacen.guardar(new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int referencias(String hash) {
+        return contenidoArchivoRepository.findById(hash).map(ContenidoArchivo::getReferencias).orElse(-1);
+    }
+}
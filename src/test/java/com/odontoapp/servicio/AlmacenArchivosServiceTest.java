@@ -0,0 +1,239 @@
+package com.odontoapp.servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.odontoapp.entidad.ContenidoArchivo;
+import com.odontoapp.evento.ContenidoArchivoEliminadoEvent;
+import com.odontoapp.repositorio.ContenidoArchivoRepository;
+
+/**
+ * Orden de bloqueos y ciclo de referencias del almacén por contenido, sin base de datos. La prueba
+ * contra InnoDB real está en AlmacenArchivosServiceMySqlTest.
+ */
+@ExtendWith(MockitoExtension.class)
+class AlmacenArchivosServiceTest {
+
+    @TempDir
+    Path raiz;
+
+    @Mock
+    private ContenidoArchivoRepository contenidoArchivoRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private AlmacenArchivosService almacen;
+
+    @BeforeEach
+    void setUp() {
+        almacen = new AlmacenArchivosService(raiz.toString(), "", contenidoArchivoRepository, transactionManager,
+                eventPublisher, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void limpiarSincronizacion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void registraLaFilaEnSuTransaccionAntesDeSumarLaReferencia() throws IOException {
+        when(contenidoArchivoRepository.existsById(any())).thenReturn(false);
+        when(contenidoArchivoRepository.incrementarReferencias(any())).thenReturn(1);
+
+        AlmacenArchivosService.ContenidoGuardado guardado = almacen.guardar(entrada("radiografía"));
+
+        // Ningún UPDATE en la transacción del llamador antes del INSERT de la transacción nueva
+        InOrder orden = inOrder(transactionManager, contenidoArchivoRepository);
+        orden.verify(transactionManager).getTransaction(any());
+        orden.verify(contenidoArchivoRepository).existsById(guardado.hash());
+        orden.verify(contenidoArchivoRepository).saveAndFlush(any(ContenidoArchivo.class));
+        orden.verify(transactionManager).commit(any());
+        orden.verify(contenidoArchivoRepository).incrementarReferencias(guardado.hash());
+        orden.verifyNoMoreInteractions();
+
+        assertEquals("radiografía", Files.readString(raiz.resolve(guardado.ruta()), StandardCharsets.UTF_8));
+        assertEquals(AlmacenArchivosService.rutaDe(guardado.hash()), guardado.ruta());
+        assertTrue(temporalesVacios());
+    }
+
+    @Test
+    void contenidoRepetidoReutilizaFilaYArchivo() throws IOException {
+        when(contenidoArchivoRepository.existsById(any())).thenReturn(false, true);
+        when(contenidoArchivoRepository.incrementarReferencias(any())).thenReturn(1);
+
+        AlmacenArchivosService.ContenidoGuardado primero = almacen.guardar(entrada("mismo contenido"));
+        AlmacenArchivosService.ContenidoGuardado segundo = almacen.guardar(entrada("mismo contenido"));
+
+        assertEquals(primero, segundo);
+        verify(contenidoArchivoRepository).saveAndFlush(any(ContenidoArchivo.class));
+        try (Stream<Path> archivos = Files.list(raiz.resolve(primero.ruta()).getParent())) {
+            assertEquals(1, archivos.count());
+        }
+    }
+
+    @Test
+    void contenidoPurgadoDuranteLaSubidaFallaSinDejarTemporales() throws IOException {
+        when(contenidoArchivoRepository.existsById(any())).thenReturn(true);
+        when(contenidoArchivoRepository.incrementarReferencias(any())).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> almacen.guardar(entrada("purgado")));
+        verify(contenidoArchivoRepository, never()).saveAndFlush(any());
+        assertTrue(temporalesVacios());
+    }
+
+    @Test
+    void liberarLaUltimaReferenciaBorraElArchivoTrasElCommit() throws IOException {
+        when(contenidoArchivoRepository.existsById(any())).thenReturn(false);
+        when(contenidoArchivoRepository.incrementarReferencias(any())).thenReturn(1);
+        AlmacenArchivosService.ContenidoGuardado guardado = almacen.guardar(entrada("informe"));
+        Path archivo = raiz.resolve(guardado.ruta());
+
+        when(contenidoArchivoRepository.decrementarReferencias(guardado.hash())).thenReturn(1);
+        when(contenidoArchivoRepository.eliminarSinReferencias(guardado.hash())).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        almacen.liberar(guardado.hash());
+
+        assertTrue(Files.exists(archivo), "No se borra antes del commit");
+        verify(contenidoArchivoRepository, never()).eliminarSinReferencias(any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertFalse(Files.exists(archivo));
+        verify(eventPublisher).publishEvent(new ContenidoArchivoEliminadoEvent(guardado.hash()));
+    }
+
+    @Test
+    void archivoConOtrasReferenciasNoSeBorra() throws IOException {
+        when(contenidoArchivoRepository.existsById(any())).thenReturn(false);
+        when(contenidoArchivoRepository.incrementarReferencias(any())).thenReturn(1);
+        AlmacenArchivosService.ContenidoGuardado guardado = almacen.guardar(entrada("compartido"));
+
+        when(contenidoArchivoRepository.decrementarReferencias(guardado.hash())).thenReturn(1);
+        // Otra subida volvió a usarlo antes del commit
+        when(contenidoArchivoRepository.eliminarSinReferencias(guardado.hash())).thenReturn(0);
+        TransactionSynchronizationManager.initSynchronization();
+        almacen.liberar(guardado.hash());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertTrue(Files.exists(raiz.resolve(guardado.ruta())));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void archivarConservaLaCopiaCalienteHastaLaGracia() throws IOException {
+        ContenidoArchivo contenido = subido("radiografía antigua");
+        when(contenidoArchivoRepository.marcarFrio(eq(contenido.getHash()), anyBoolean(), any())).thenReturn(1);
+
+        assertEquals(contenido.getTamanoBytes(), almacen.archivar(contenido));
+
+        // Una descarga en curso pudo recibir ya la ruta caliente
+        assertTrue(Files.exists(raiz.resolve(contenido.getRuta())));
+        assertTrue(Files.exists(almacen.rutaFria(contenido.getHash(), true)));
+    }
+
+    @Test
+    void copiaCalienteSinLecturasSeBorraPasadaLaGracia() throws IOException {
+        ContenidoArchivo contenido = subido("informe antiguo");
+        when(contenidoArchivoRepository.marcarFrio(eq(contenido.getHash()), anyBoolean(), any())).thenReturn(1);
+        almacen.archivar(contenido);
+        when(contenidoArchivoRepository.buscarCopiasCalientes(any())).thenReturn(List.of(contenido));
+        when(contenidoArchivoRepository.quitarCopiaCaliente(eq(contenido.getHash()), any())).thenReturn(1);
+
+        assertEquals(contenido.getTamanoBytes(), almacen.borrarCopiasCalientes(Duration.ofHours(24)));
+
+        assertFalse(Files.exists(raiz.resolve(contenido.getRuta())));
+        assertTrue(Files.exists(almacen.rutaFria(contenido.getHash(), true)));
+    }
+
+    @Test
+    void copiaCalienteLeidaDuranteLaGraciaVuelveAQuedarCaliente() throws IOException {
+        ContenidoArchivo contenido = subido("informe leído");
+        when(contenidoArchivoRepository.marcarFrio(eq(contenido.getHash()), anyBoolean(), any())).thenReturn(1);
+        almacen.archivar(contenido);
+        when(contenidoArchivoRepository.buscarCopiasCalientes(any())).thenReturn(List.of(contenido));
+        when(contenidoArchivoRepository.quitarCopiaCaliente(eq(contenido.getHash()), any())).thenReturn(0);
+
+        assertEquals(0, almacen.borrarCopiasCalientes(Duration.ofHours(24)));
+
+        assertTrue(Files.exists(raiz.resolve(contenido.getRuta())));
+        assertFalse(Files.exists(almacen.rutaFria(contenido.getHash(), true)));
+        verify(contenidoArchivoRepository).marcarCaliente(eq(contenido.getHash()), any());
+    }
+
+    @Test
+    void leerRegistraElAccesoComoMuchoUnaVezPorIntervalo() throws IOException {
+        ContenidoArchivo contenido = subido("consulta");
+
+        Path primera = almacen.leer(contenido.getHash(), contenido.getRuta());
+        almacen.leer(contenido.getHash(), contenido.getRuta());
+
+        assertEquals(raiz.resolve(contenido.getRuta()), primera);
+        verify(contenidoArchivoRepository, times(1)).registrarAcceso(eq(contenido.getHash()), any());
+    }
+
+    @Test
+    void resolverRechazaRutasFueraDelDirectorioDeSubidas() {
+        assertThrows(IllegalArgumentException.class, () -> almacen.resolver("../fuera.txt"));
+        assertThrows(IllegalArgumentException.class, () -> almacen.resolver("ab/../../fuera.txt"));
+        assertThrows(IllegalArgumentException.class, () -> almacen.resolver(raiz.getParent().resolve("x").toString()));
+
+        assertEquals(raiz.resolve("ab/cd/abcd").toAbsolutePath().normalize(), almacen.resolver("ab/./cd/abcd"));
+        assertEquals(raiz.resolve("legado.pdf").toAbsolutePath().normalize(), almacen.resolver("legado.pdf"));
+    }
+
+    // Texto repetido para que compense comprimirlo en el almacén frío
+    private ContenidoArchivo subido(String texto) throws IOException {
+        when(contenidoArchivoRepository.existsById(any())).thenReturn(false);
+        when(contenidoArchivoRepository.incrementarReferencias(any())).thenReturn(1);
+        AlmacenArchivosService.ContenidoGuardado guardado = almacen.guardar(entrada(texto.repeat(200)));
+        ContenidoArchivo contenido = new ContenidoArchivo(guardado.hash(), guardado.ruta(), guardado.tamanoBytes());
+        contenido.setReferencias(1);
+        return contenido;
+    }
+
+    private static ByteArrayInputStream entrada(String texto) {
+        return new ByteArrayInputStream(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean temporalesVacios() throws IOException {
+        try (Stream<Path> temporales = Files.list(raiz.resolve(".tmp"))) {
+            return temporales.findAny().isEmpty();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.odontoapp.servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.odontoapp.repositorio.ContenidoArchivoRepository;
+
+/**
+ * Barrido de huérfanos sobre un directorio temporal. Las consultas las responde una JdbcTemplate
+ * falsa con las filas de contenidos_archivo, archivos_adjuntos y paciente_imagenes de cada prueba.
+ */
+@ExtendWith(MockitoExtension.class)
+class LimpiezaAlmacenServiceTest {
+
+    private static final Duration GRACIA = Duration.ofHours(24);
+
+    @TempDir
+    Path raiz;
+
+    @Mock
+    private ContenidoArchivoRepository contenidoArchivoRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private AlmacenArchivosService almacen;
+    private JdbcFalsa jdbc;
+    private LimpiezaAlmacenService limpieza;
+
+    @BeforeEach
+    void setUp() {
+        almacen = new AlmacenArchivosService(raiz.toString(), "", contenidoArchivoRepository, transactionManager,
+                eventPublisher, Duration.ofHours(1));
+        jdbc = new JdbcFalsa();
+        limpieza = new LimpiezaAlmacenService(almacen, jdbc);
+    }
+
+    @Test
+    void soloSeTocanArchivosMasAntiguosQueLaGracia() throws IOException {
+        Path antiguo = escribir(raiz.resolve(AlmacenArchivosService.rutaDe(hash('1'))), true);
+        Path reciente = escribir(raiz.resolve(AlmacenArchivosService.rutaDe(hash('2'))), false);
+        Path temporal = escribir(raiz.resolve(".tmp/subida-1.tmp"), false);
+
+        LimpiezaAlmacenService.Resultado resultado = limpieza.barrer(GRACIA, 2);
+
+        assertFalse(Files.exists(antiguo));
+        assertTrue(Files.exists(reciente), "Puede ser una subida en curso");
+        assertTrue(Files.exists(temporal));
+        assertEquals(1, resultado.revisados());
+        assertEquals(1, resultado.borrados());
+    }
+
+    @Test
+    void contenidoRegistradoNoSeBorra() throws IOException {
+        Path registrado = escribir(raiz.resolve(AlmacenArchivosService.rutaDe(hash('3'))), true);
+        jdbc.contenidos.put(hash('3'), new boolean[] { false, false });
+
+        assertEquals(0, limpieza.barrer(GRACIA, 2).borrados());
+        assertTrue(Files.exists(registrado));
+    }
+
+    @Test
+    void legadoReferenciadoSoloPorAdjuntosEliminadosSeBorra() throws IOException {
+        Path eliminado = escribir(raiz.resolve("radiografia-2019.pdf"), true);
+        Path vigente = escribir(raiz.resolve("informe-2019.pdf"), true);
+        Path imagen = escribir(raiz.resolve("panoramica-2019.jpg"), true);
+        jdbc.rutas.put("radiografia-2019.pdf", true);
+        jdbc.rutas.put("informe-2019.pdf", false);
+        // paciente_imagenes llegó a guardar la ruta absoluta
+        jdbc.rutas.put(imagen.toString(), false);
+
+        LimpiezaAlmacenService.Resultado resultado = limpieza.barrer(GRACIA, 2);
+
+        assertFalse(Files.exists(eliminado));
+        assertTrue(Files.exists(vigente));
+        assertTrue(Files.exists(imagen));
+        assertEquals(1, resultado.borrados());
+    }
+
+    @Test
+    void copiasFriasSeConcilianConElDirectorioDeSubidas() throws IOException {
+        // Sin fila: sobra
+        Path sinFila = escribir(almacen.rutaFria(hash('a'), true), true);
+        // Caliente en BD y en disco: la copia fría sobra
+        escribir(raiz.resolve(AlmacenArchivosService.rutaDe(hash('b'))), true);
+        Path yaCaliente = escribir(almacen.rutaFria(hash('b'), true), true);
+        jdbc.contenidos.put(hash('b'), new boolean[] { false, false });
+        // Frío en BD pero con el original de vuelta (se volvió a subir): se corrige la marca
+        escribir(raiz.resolve(AlmacenArchivosService.rutaDe(hash('c'))), true);
+        Path resubido = escribir(almacen.rutaFria(hash('c'), false), true);
+        jdbc.contenidos.put(hash('c'), new boolean[] { true, false });
+        // Recién archivado: el original solo espera la gracia
+        Path pendienteCaliente = escribir(raiz.resolve(AlmacenArchivosService.rutaDe(hash('d'))), true);
+        Path pendienteFrio = escribir(almacen.rutaFria(hash('d'), true), true);
+        jdbc.contenidos.put(hash('d'), new boolean[] { true, true });
+        // Archivado del todo
+        Path archivado = escribir(almacen.rutaFria(hash('e'), true), true);
+        jdbc.contenidos.put(hash('e'), new boolean[] { true, false });
+
+        LimpiezaAlmacenService.Resultado resultado = limpieza.barrer(GRACIA, 2);
+
+        assertFalse(Files.exists(sinFila));
+        assertFalse(Files.exists(yaCaliente));
+        assertFalse(Files.exists(resubido));
+        verify(contenidoArchivoRepository).marcarCaliente(eq(hash('c')), any());
+        assertTrue(Files.exists(pendienteCaliente));
+        assertTrue(Files.exists(pendienteFrio));
+        verify(contenidoArchivoRepository, never()).marcarCaliente(eq(hash('d')), any());
+        assertTrue(Files.exists(archivado));
+        assertEquals(3, resultado.borrados());
+    }
+
+    private static String hash(char caracter) {
+        return String.valueOf(caracter).repeat(64);
+    }
+
+    private static Path escribir(Path archivo, boolean antiguo) throws IOException {
+        Files.createDirectories(archivo.getParent());
+        Files.writeString(archivo, "contenido de " + archivo.getFileName());
+        if (antiguo) {
+            Files.setLastModifiedTime(archivo, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+        return archivo;
+    }
+
+    /**
+     * Responde solo a las consultas del barrido.
+     */
+    private static final class JdbcFalsa extends JdbcTemplate {
+
+        // hash -> {frio, copia caliente pendiente}
+        private final Map<String, boolean[]> contenidos = new ConcurrentHashMap<>();
+        // ruta de archivos_adjuntos o paciente_imagenes -> eliminado
+        private final Map<String, Boolean> rutas = new ConcurrentHashMap<>();
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            for (Object arg : args) {
+                boolean[] estado = contenidos.get((String) arg);
+                if (estado == null) {
+                    continue;
+                }
+                ResultSet rs = mock(ResultSet.class);
+                try {
+                    when(rs.getString(1)).thenReturn((String) arg);
+                    when(rs.getBoolean(2)).thenReturn(estado[0]);
+                    when(rs.getBoolean(3)).thenReturn(estado[1]);
+                    rch.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            List<T> resultado = new ArrayList<>();
+            if (elementType != String.class) {
+                return resultado;
+            }
+            boolean soloVigentes = sql.contains("eliminado = false");
+            for (Object arg : args) {
+                Boolean eliminado = rutas.get((String) arg);
+                if (eliminado != null && !(soloVigentes && eliminado)) {
+                    resultado.add((T) arg);
+                }
+            }
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.odontoapp.servicio;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.odontoapp.entidad.ArchivoAdjunto;
+import com.odontoapp.evento.ArchivoAdjuntoGuardadoEvent;
+import com.odontoapp.servicio.MiniaturasService.Variante;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Miniaturas con imágenes y PDFs generados en un directorio temporal: reducciones a la mitad,
+ * imágenes que ya caben, una sola generación para peticiones simultáneas, generación en la propia
+ * petición con el ejecutor saturado y render de la primera página de un PDF.
+ */
+@ExtendWith(MockitoExtension.class)
+class MiniaturasServiceTest {
+
+    @TempDir
+    Path raiz;
+
+    @Mock
+    private AlmacenArchivosService almacenArchivosService;
+
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+    private final ExecutorService peticiones = Executors.newCachedThreadPool();
+    private MiniaturasService miniaturas;
+
+    @AfterEach
+    void tearDown() {
+        peticiones.shutdownNow();
+        if (miniaturas != null) {
+            miniaturas.cerrar();
+        }
+    }
+
+    @Test
+    void reduceALaMitadHastaElTamanoFinal() {
+        assertPasos(MiniaturasService.pasosEscalado(4000, 3000, 1024), 2000, 1500, 1024, 768);
+        // La miniatura sale de la vista previa
+        assertPasos(MiniaturasService.pasosEscalado(1024, 768, 200), 512, 384, 256, 192, 200, 150);
+        // Muy apaisada: el lado corto nunca baja de un píxel
+        assertPasos(MiniaturasService.pasosEscalado(5000, 2, 200), 2500, 1, 1250, 1, 625, 1, 312, 1, 200, 1);
+    }
+
+    @Test
+    void imagenQueYaCabeNoSeAmplia() {
+        assertPasos(MiniaturasService.pasosEscalado(150, 100, 200), 150, 100);
+
+        BufferedImage transparente = new BufferedImage(150, 100, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage resultado = MiniaturasService.escalar(transparente, 200);
+
+        assertEquals(150, resultado.getWidth());
+        assertEquals(100, resultado.getHeight());
+        // JPEG no admite transparencia: queda fondo blanco
+        assertEquals(BufferedImage.TYPE_INT_RGB, resultado.getType());
+        assertEquals(Color.WHITE.getRGB(), resultado.getRGB(75, 50));
+    }
+
+    @Test
+    void generaAmbasVariantesDesdeUnaImagen() throws Exception {
+        miniaturas = servicio(1, 10);
+        ArchivoAdjunto archivo = adjunto(1L, "ab" + "1".repeat(62), "image/png");
+        when(almacenArchivosService.leer(archivo.getHashContenido(), archivo.getRutaArchivo()))
+                .thenReturn(imagen("radiografia.png", 3000, 2000));
+
+        Path vistaPrevia = miniaturas.obtener(archivo, Variante.VISTA_PREVIA);
+        Path miniatura = miniaturas.obtener(archivo, Variante.MINIATURA);
+
+        assertTamano(vistaPrevia, 1024, 683);
+        assertTamano(miniatura, 200, 133);
+        assertTrue(vistaPrevia.startsWith(raiz.resolve(".derivados").resolve("vista-previa").resolve("ab")));
+        // La segunda variante ya estaba: una sola lectura del original
+        verify(almacenArchivosService, times(1)).leer(any(), any());
+    }
+
+    @Test
+    void peticionesSimultaneasEsperanUnaSolaGeneracion() throws Exception {
+        miniaturas = servicio(2, 10);
+        ArchivoAdjunto archivo = adjunto(1L, "cd" + "2".repeat(62), "image/png");
+        Path original = imagen("foto.png", 400, 300);
+        CountDownLatch leyendo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(almacenArchivosService.leer(any(), any())).thenAnswer(invocacion -> {
+            leyendo.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return original;
+        });
+
+        CompletableFuture<Path> primera = pedir(archivo, Variante.MINIATURA);
+        assertTrue(leyendo.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Path> segunda = pedir(archivo, Variante.VISTA_PREVIA);
+        // La subida confirmada tampoco encola otra generación
+        miniaturas.onArchivoGuardado(new ArchivoAdjuntoGuardadoEvent(1L, archivo.getHashContenido(),
+                archivo.getRutaArchivo(), "image/png"));
+        Thread.sleep(100);
+        assertFalse(segunda.isDone());
+
+        liberar.countDown();
+        assertTamano(primera.get(5, TimeUnit.SECONDS), 200, 150);
+        assertTamano(segunda.get(5, TimeUnit.SECONDS), 400, 300);
+        verify(almacenArchivosService, times(1)).leer(any(), any());
+    }
+
+    @Test
+    void conElEjecutorSaturadoSeGeneraEnLaPropiaPeticion() throws Exception {
+        // Un hilo ocupado y la cola de uno llena
+        miniaturas = servicio(1, 1);
+        Map<String, String> hiloPorRuta = new ConcurrentHashMap<>();
+        CountDownLatch ocupado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Path original = imagen("foto.png", 300, 300);
+        when(almacenArchivosService.leer(any(), any())).thenAnswer(invocacion -> {
+            String ruta = invocacion.getArgument(1);
+            hiloPorRuta.put(ruta, Thread.currentThread().getName());
+            if (ruta.equals("ocupa.png")) {
+                ocupado.countDown();
+                liberar.await(5, TimeUnit.SECONDS);
+            }
+            return original;
+        });
+
+        miniaturas.onArchivoGuardado(new ArchivoAdjuntoGuardadoEvent(1L, "aa" + "1".repeat(62), "ocupa.png", "image/png"));
+        assertTrue(ocupado.await(5, TimeUnit.SECONDS));
+        miniaturas.onArchivoGuardado(new ArchivoAdjuntoGuardadoEvent(2L, "bb" + "2".repeat(62), "en-cola.png", "image/png"));
+        // Cola llena: esta subida no se encola y queda para cuando se pida
+        miniaturas.onArchivoGuardado(new ArchivoAdjuntoGuardadoEvent(3L, "cc" + "3".repeat(62), "sin-lugar.png", "image/png"));
+
+        ArchivoAdjunto pedido = adjunto(4L, "dd" + "4".repeat(62), "image/png");
+        pedido.setRutaArchivo("pedido.png");
+        Path miniatura = miniaturas.obtener(pedido, Variante.MINIATURA);
+
+        assertTamano(miniatura, 200, 200);
+        assertEquals(Thread.currentThread().getName(), hiloPorRuta.get("pedido.png"));
+        assertFalse(hiloPorRuta.containsKey("sin-lugar.png"));
+
+        // La encolada se genera en el ejecutor al quedar libre
+        liberar.countDown();
+        ArchivoAdjunto encolado = adjunto(2L, "bb" + "2".repeat(62), "image/png");
+        encolado.setRutaArchivo("en-cola.png");
+        assertTamano(miniaturas.obtener(encolado, Variante.MINIATURA), 200, 200);
+        assertEquals("miniaturas-1", hiloPorRuta.get("en-cola.png"));
+    }
+
+    @Test
+    void pdfSeRenderizaDesdeLaPrimeraPagina() throws Exception {
+        miniaturas = servicio(1, 10);
+        Path pdf = raiz.resolve("consentimiento.pdf");
+        try (PDDocument documento = new PDDocument()) {
+            PDPage primera = new PDPage(PDRectangle.A4);
+            documento.addPage(primera);
+            try (PDPageContentStream contenido = new PDPageContentStream(documento, primera)) {
+                // Mitad superior negra
+                contenido.setNonStrokingColor(Color.BLACK);
+                contenido.addRect(0, PDRectangle.A4.getHeight() / 2, PDRectangle.A4.getWidth(),
+                        PDRectangle.A4.getHeight() / 2);
+                contenido.fill();
+            }
+            // Segunda página apaisada y en blanco: no debe influir
+            documento.addPage(new PDPage(new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth())));
+            documento.save(pdf.toFile());
+        }
+        ArchivoAdjunto archivo = adjunto(7L, null, "application/pdf");
+        when(almacenArchivosService.leer(null, archivo.getRutaArchivo())).thenReturn(pdf);
+
+        Path vistaPrevia = miniaturas.obtener(archivo, Variante.VISTA_PREVIA);
+
+        // A4 vertical con el lado mayor a 1024 px
+        BufferedImage render = ImageIO.read(vistaPrevia.toFile());
+        assertEquals(1024, render.getHeight(), 1);
+        assertEquals(724, render.getWidth(), 1);
+        assertTrue(brillo(render.getRGB(362, 256)) < 40);
+        assertTrue(brillo(render.getRGB(362, 768)) > 215);
+        // Sin hash, los derivados van por ID del adjunto
+        assertEquals("adjunto-7.jpg", vistaPrevia.getFileName().toString());
+    }
+
+    @Test
+    void tiposNoSoportadosYArchivosIlegibles() throws Exception {
+        miniaturas = servicio(1, 10);
+        assertFalse(miniaturas.soportado("text/plain"));
+        assertFalse(miniaturas.soportado(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> miniaturas.obtener(adjunto(1L, "ee" + "5".repeat(62), "text/plain"), Variante.MINIATURA));
+
+        ArchivoAdjunto corrupto = adjunto(2L, "ff" + "6".repeat(62), "image/png");
+        Path basura = Files.writeString(raiz.resolve("corrupto.png"), "no es una imagen");
+        when(almacenArchivosService.leer(eq(corrupto.getHashContenido()), any())).thenReturn(basura);
+
+        assertThrows(IOException.class, () -> miniaturas.obtener(corrupto, Variante.MINIATURA));
+        assertEquals(1.0, registro.get("odontoapp.miniaturas.fallidos").counter().count());
+    }
+
+    private MiniaturasService servicio(int hilos, int cola) {
+        return new MiniaturasService(raiz.toString(), almacenArchivosService, hilos, cola, 5000, registro);
+    }
+
+    private CompletableFuture<Path> pedir(ArchivoAdjunto archivo, Variante variante) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return miniaturas.obtener(archivo, variante);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, peticiones);
+    }
+
+    private Path imagen(String nombre, int ancho, int alto) throws IOException {
+        BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = imagen.createGraphics();
+        g.setColor(Color.GRAY);
+        g.fillRect(0, 0, ancho, alto);
+        g.dispose();
+        Path ruta = raiz.resolve(nombre);
+        ImageIO.write(imagen, "png", ruta.toFile());
+        return ruta;
+    }
+
+    private static ArchivoAdjunto adjunto(Long id, String hash, String tipoMime) {
+        ArchivoAdjunto archivo = new ArchivoAdjunto();
+        archivo.setId(id);
+        archivo.setHashContenido(hash);
+        archivo.setRutaArchivo("adjuntos/" + id);
+        archivo.setTipoMime(tipoMime);
+        return archivo;
+    }
+
+    private static void assertPasos(List<int[]> pasos, int... esperados) {
+        int[] obtenidos = pasos.stream().flatMapToInt(Arrays::stream).toArray();
+        assertArrayEquals(esperados, obtenidos);
+    }
+
+    private static void assertTamano(Path jpeg, int ancho, int alto) throws IOException {
+        BufferedImage imagen = ImageIO.read(jpeg.toFile());
+        assertNotNull(imagen, jpeg.toString());
+        assertEquals(ancho, imagen.getWidth(), jpeg.toString());
+        assertEquals(alto, imagen.getHeight(), jpeg.toString());
+    }
+
+    private static int brillo(int rgb) {
+        Color color = new Color(rgb);
+        return (color.getRed() + color.getGreen() + color.getBlue()) / 3;
+    }
+}
@@ -0,0 +1,182 @@
+package com.odontoapp.servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Registro diferido de accesos: fusión por usuario, UPDATE condicionados (el último acceso no
+ * retrocede y solo se limpian bloqueos vencidos), reintento tras un lote fallido y vaciado al apagar.
+ */
+class RegistroAccesoServiceTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2026, 10, 19, 9, 0);
+
+    private TablaUsuarios usuarios;
+    private RegistroAccesoService registro;
+
+    @BeforeEach
+    void setUp() {
+        usuarios = new TablaUsuarios();
+        registro = new RegistroAccesoService(usuarios, 15);
+    }
+
+    @Test
+    void variosLoginsDelMismoUsuarioSeFusionanEnUnaFila() {
+        registro.registrarAcceso(2L, T);
+        registro.registrarAcceso(1L, T.plusMinutes(1));
+        registro.registrarAcceso(1L, T.plusMinutes(3));
+        // Llega tarde un login anterior: no retrocede
+        registro.registrarAcceso(1L, T.plusMinutes(2));
+        registro.registrarDesbloqueo(1L);
+        registro.registrarAcceso(null, T);
+
+        assertEquals(2, registro.vaciar());
+
+        List<Object[]> accesos = usuarios.lotes.get(0);
+        assertEquals(2, accesos.size());
+        // Ordenados por ID para bloquear las filas siempre en el mismo orden
+        assertEquals(1L, accesos.get(0)[1]);
+        assertEquals(Timestamp.valueOf(T.plusMinutes(3)), accesos.get(0)[0]);
+        assertEquals(2L, accesos.get(1)[1]);
+        assertEquals(1, usuarios.lotes.get(1).size());
+        // Vaciado: sin nada pendiente no se escribe
+        assertEquals(0, registro.vaciar());
+        assertEquals(2, usuarios.lotes.size());
+    }
+
+    @Test
+    void elUltimoAccesoNoRetrocede() {
+        usuarios.fila(1L).ultimoAcceso = T.plusHours(1);
+        usuarios.fila(2L);
+
+        registro.registrarAcceso(1L, T);
+        registro.registrarAcceso(2L, T);
+        registro.vaciar();
+
+        // Otro nodo ya escribió un acceso más reciente
+        assertEquals(T.plusHours(1), usuarios.fila(1L).ultimoAcceso);
+        assertEquals(T, usuarios.fila(2L).ultimoAcceso);
+    }
+
+    @Test
+    void soloSeLimpianBloqueosVencidos() {
+        Fila vencido = usuarios.fila(1L);
+        vencido.intentosFallidos = 5;
+        vencido.fechaBloqueo = LocalDateTime.now().minusMinutes(20);
+        // Se bloqueó de nuevo entre el login y el vaciado
+        Fila vigente = usuarios.fila(2L);
+        vigente.intentosFallidos = 5;
+        vigente.fechaBloqueo = LocalDateTime.now().minusMinutes(1);
+        Fila conIntentos = usuarios.fila(3L);
+        conIntentos.intentosFallidos = 2;
+
+        registro.registrarDesbloqueo(1L);
+        registro.registrarDesbloqueo(2L);
+        registro.registrarDesbloqueo(3L);
+        registro.vaciar();
+
+        assertEquals(0, vencido.intentosFallidos);
+        assertNull(vencido.fechaBloqueo);
+        assertEquals(5, vigente.intentosFallidos);
+        assertEquals(0, conIntentos.intentosFallidos);
+    }
+
+    @Test
+    void unLoteFallidoVuelveALaColaSinPerderLoMasReciente() {
+        usuarios.fila(1L);
+        usuarios.fallar = () -> {
+            // Un login entra mientras falla el lote
+            registro.registrarAcceso(1L, T.plusMinutes(5));
+            throw new QueryTimeoutException("Lock wait timeout");
+        };
+        registro.registrarAcceso(1L, T);
+        registro.registrarDesbloqueo(1L);
+
+        assertEquals(0, registro.vaciar());
+
+        usuarios.fallar = null;
+        assertEquals(1, registro.vaciar());
+        assertEquals(T.plusMinutes(5), usuarios.fila(1L).ultimoAcceso);
+        // El desbloqueo del lote fallido también se reintenta
+        assertTrue(usuarios.sentencias.get(usuarios.sentencias.size() - 1).contains("fecha_bloqueo = NULL"));
+    }
+
+    @Test
+    void alApagarSeEscribeLoPendiente() {
+        usuarios.fila(1L);
+        registro.registrarAcceso(1L, T);
+
+        registro.alApagar();
+
+        assertEquals(T, usuarios.fila(1L).ultimoAcceso);
+        assertEquals(0, registro.vaciar());
+    }
+
+    private static final class Fila {
+        LocalDateTime ultimoAcceso;
+        int intentosFallidos;
+        LocalDateTime fechaBloqueo;
+    }
+
+    /**
+     * Tabla usuarios en memoria que aplica las condiciones de los dos UPDATE por lotes.
+     */
+    private static final class TablaUsuarios extends JdbcTemplate {
+
+        private final Map<Long, Fila> filas = new HashMap<>();
+        private final List<String> sentencias = new ArrayList<>();
+        private final List<List<Object[]>> lotes = new ArrayList<>();
+        private Runnable fallar;
+
+        Fila fila(Long id) {
+            return filas.computeIfAbsent(id, k -> new Fila());
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> argumentos) {
+            if (fallar != null) {
+                fallar.run();
+            }
+            sentencias.add(sql);
+            lotes.add(argumentos);
+            int[] actualizadas = new int[argumentos.size()];
+            for (int i = 0; i < argumentos.size(); i++) {
+                Object[] args = argumentos.get(i);
+                if (sql.startsWith("UPDATE usuarios SET ultimo_acceso")) {
+                    assertTrue(sql.contains("(ultimo_acceso IS NULL OR ultimo_acceso < ?)"), sql);
+                    LocalDateTime fecha = ((Timestamp) args[0]).toLocalDateTime();
+                    Fila fila = filas.get((Long) args[1]);
+                    LocalDateTime guarda = ((Timestamp) args[2]).toLocalDateTime();
+                    if (fila != null && (fila.ultimoAcceso == null || fila.ultimoAcceso.isBefore(guarda))) {
+                        fila.ultimoAcceso = fecha;
+                        actualizadas[i] = 1;
+                    }
+                } else {
+                    assertTrue(sql.contains("(fecha_bloqueo IS NULL OR fecha_bloqueo <= ?)"), sql);
+                    Fila fila = filas.get((Long) args[0]);
+                    LocalDateTime limite = ((Timestamp) args[1]).toLocalDateTime();
+                    if (fila != null && (fila.fechaBloqueo == null || !fila.fechaBloqueo.isAfter(limite))
+                            && (fila.intentosFallidos != 0 || fila.fechaBloqueo != null)) {
+                        fila.intentosFallidos = 0;
+                        fila.fechaBloqueo = null;
+                        actualizadas[i] = 1;
+                    }
+                }
+            }
+            return actualizadas;
+        }
+    }
+}
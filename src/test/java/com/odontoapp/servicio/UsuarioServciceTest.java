@@ -5,21 +5,30 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.odontoapp.entidad.Usuario;
+import com.odontoapp.evento.PersonalModificadoEvent;
 import com.odontoapp.repositorio.CitaRepository;
 import com.odontoapp.repositorio.PacienteRepository;
 import com.odontoapp.repositorio.RolRepository;
 import com.odontoapp.repositorio.TipoDocumentoRepository;
 import com.odontoapp.repositorio.UsuarioRepository;
+import com.odontoapp.seguridad.LimitadorIntentosLogin;
+import com.odontoapp.servicio.IndiceBusquedaService.TipoIndice;
 
 @ExtendWith(MockitoExtension.class)
 class UsuarioServiceTest {
@@ -38,10 +47,22 @@ class UsuarioServiceTest {
     private TipoDocumentoRepository tipoDocumentoRepository;
     @Mock
     private CitaRepository citaRepository;
+    @Mock
+    private IndiceBusquedaService indiceBusquedaService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private LimitadorIntentosLogin limitadorIntentosLogin;
 
-    @InjectMocks
     private UsuarioServiceImpl usuarioService;
 
+    @BeforeEach
+    void setUp() {
+        usuarioService = new UsuarioServiceImpl(emailService, pacienteRepository, passwordEncoder, rolRepository,
+                tipoDocumentoRepository, usuarioRepository, citaRepository, indiceBusquedaService, eventPublisher,
+                limitadorIntentosLogin, 15);
+    }
+
     @Test
     void testBuscarPorId() {
         System.out.println("==============================================");
@@ -78,4 +99,36 @@ class UsuarioServiceTest {
         System.out.println("✅ TEST FINALIZADO CON ÉXITO");
         System.out.println("==============================================");
     }
+
+    @Test
+    void busquedaConIndiceSoloListaPersonalEnOrdenDeRelevancia() {
+        when(indiceBusquedaService.buscar(TipoIndice.USUARIO, "garcia")).thenReturn(Optional.of(List.of(10L, 11L, 12L)));
+        // 11 solo tiene el rol PACIENTE
+        when(usuarioRepository.findIdsConRolesDePersonal(List.of(10L, 11L, 12L))).thenReturn(List.of(12L, 10L));
+        when(usuarioRepository.findAllWithRolesByIdIn(List.of(10L, 12L))).thenReturn(List.of(usuario(12L), usuario(10L)));
+
+        Page<Usuario> pagina = usuarioService.listarTodosLosUsuarios("garcia", PageRequest.of(0, 10));
+
+        assertEquals(List.of(10L, 12L), pagina.map(Usuario::getId).getContent());
+        assertEquals(2, pagina.getTotalElements());
+    }
+
+    @Test
+    void actualizarHorarioInvalidaElDirectorioDePersonal() {
+        Usuario usuario = usuario(7L);
+        when(usuarioRepository.findById(7L)).thenReturn(Optional.of(usuario));
+        Map<DayOfWeek, String> horario = Map.of(DayOfWeek.MONDAY, "09:00-13:00");
+
+        usuarioService.actualizarHorarioRegular(7L, horario);
+
+        assertEquals(horario, usuario.getHorarioRegular());
+        verify(usuarioRepository).save(usuario);
+        verify(eventPublisher).publishEvent(new PersonalModificadoEvent(7L, null));
+    }
+
+    private static Usuario usuario(Long id) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        return usuario;
+    }
 }
@@ -0,0 +1,135 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.odontoapp.entidad.CorreoPendiente;
+import com.odontoapp.entidad.CorreoPendiente.EstadoCorreo;
+import com.odontoapp.entidad.CorreoPendiente.TipoCorreo;
+import com.odontoapp.repositorio.CorreoPendienteRepository;
+import com.odontoapp.servicio.EmailService;
+
+/**
+ * Bandeja de salida: cada pasada envía solo lo que reclamó con el UPDATE condicionado, libera los
+ * reclamos vencidos y deja los fallos en PENDIENTE hasta agotar los intentos.
+ */
+@ExtendWith(MockitoExtension.class)
+class CorreoPendienteServiceImplTest {
+
+    @Mock
+    private CorreoPendienteRepository correoPendienteRepository;
+    @Mock
+    private EmailService emailService;
+
+    private CorreoPendienteServiceImpl servicio;
+
+    @BeforeEach
+    void setUp() {
+        servicio = new CorreoPendienteServiceImpl(correoPendienteRepository, emailService);
+        ReflectionTestUtils.setField(servicio, "tamanoLote", 2);
+        ReflectionTestUtils.setField(servicio, "maxIntentos", 3);
+        ReflectionTestUtils.setField(servicio, "reclamoMinutos", 15L);
+    }
+
+    @Test
+    void enviaSoloLosCorreosReclamadosPorEstaPasada() throws Exception {
+        when(correoPendienteRepository.findIdsByEstado(EstadoCorreo.PENDIENTE, PageRequest.of(0, 2)))
+                .thenReturn(List.of(1L, 2L));
+        ArgumentCaptor<String> reclamo = ArgumentCaptor.forClass(String.class);
+        // Otro nodo se adelantó con el correo 2
+        when(correoPendienteRepository.reclamar(eq(List.of(1L, 2L)), reclamo.capture(), any(),
+                eq(EstadoCorreo.PENDIENTE), eq(EstadoCorreo.ENVIANDO))).thenReturn(1);
+        CorreoPendiente correo = correo(1L, 0);
+        when(correoPendienteRepository.findByReclamoAndEstadoOrderByIdAsc(anyString(), eq(EstadoCorreo.ENVIANDO)))
+                .thenReturn(List.of(correo));
+
+        assertEquals(1, servicio.procesarPendientes());
+
+        verify(correoPendienteRepository).findByReclamoAndEstadoOrderByIdAsc(reclamo.getValue(), EstadoCorreo.ENVIANDO);
+        verify(emailService).intentarEnviarEmailActivacionAdmin("ana@correo.com", "Ana", "token-1");
+        assertEquals(EstadoCorreo.ENVIADO, correo.getEstado());
+        assertNull(correo.getReclamo());
+        verify(correoPendienteRepository).save(correo);
+    }
+
+    @Test
+    void sinReclamarNadaNoEnvia() {
+        when(correoPendienteRepository.findIdsByEstado(EstadoCorreo.PENDIENTE, PageRequest.of(0, 2)))
+                .thenReturn(List.of(1L));
+        when(correoPendienteRepository.reclamar(any(), anyString(), any(), any(), any())).thenReturn(0);
+
+        assertEquals(0, servicio.procesarPendientes());
+
+        verify(correoPendienteRepository, never()).findByReclamoAndEstadoOrderByIdAsc(anyString(), any());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void liberaLosReclamosVencidosAntesDeBuscar() {
+        when(correoPendienteRepository.findIdsByEstado(any(), any())).thenReturn(List.of());
+        LocalDateTime antes = LocalDateTime.now().minusMinutes(15);
+
+        servicio.procesarPendientes();
+
+        ArgumentCaptor<LocalDateTime> limite = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(correoPendienteRepository).liberarReclamosVencidos(limite.capture(), eq(EstadoCorreo.ENVIANDO),
+                eq(EstadoCorreo.PENDIENTE));
+        assertFalse(limite.getValue().isBefore(antes));
+    }
+
+    @Test
+    void fallosVuelvenAPendienteHastaAgotarLosIntentos() throws Exception {
+        when(correoPendienteRepository.findIdsByEstado(any(), any())).thenReturn(List.of(1L, 2L));
+        when(correoPendienteRepository.reclamar(any(), anyString(), any(), any(), any())).thenReturn(2);
+        CorreoPendiente reintento = correo(1L, 0);
+        CorreoPendiente agotado = correo(2L, 2);
+        when(correoPendienteRepository.findByReclamoAndEstadoOrderByIdAsc(anyString(), eq(EstadoCorreo.ENVIANDO)))
+                .thenReturn(List.of(reintento, agotado));
+        doThrow(new IllegalStateException("SMTP caído")).when(emailService)
+                .intentarEnviarEmailActivacionAdmin(anyString(), anyString(), anyString());
+
+        assertEquals(0, servicio.procesarPendientes());
+
+        assertEquals(EstadoCorreo.PENDIENTE, reintento.getEstado());
+        assertEquals(1, reintento.getIntentos());
+        assertEquals("SMTP caído", reintento.getUltimoError());
+        assertNull(reintento.getReclamo());
+        assertEquals(EstadoCorreo.FALLIDO, agotado.getEstado());
+        assertEquals(3, agotado.getIntentos());
+    }
+
+    private static CorreoPendiente correo(Long id, int intentos) {
+        CorreoPendiente correo = new CorreoPendiente();
+        correo.setId(id);
+        correo.setTipo(TipoCorreo.ACTIVACION_CUENTA);
+        correo.setDestinatario("ana@correo.com");
+        correo.setNombre("Ana");
+        correo.setToken("token-" + id);
+        correo.setEstado(EstadoCorreo.ENVIANDO);
+        correo.setReclamo("reclamo");
+        correo.setFechaReclamo(LocalDateTime.now());
+        correo.setIntentos(intentos);
+        return correo;
+    }
+}
@@ -0,0 +1,286 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.odontoapp.dto.FilaCuboDTO;
+import com.odontoapp.dto.ResultadoCuboDTO;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+import com.odontoapp.evento.ResumenDiarioActualizadoEvent;
+import com.odontoapp.servicio.CuboReporteService.Dimension;
+
+/**
+ * Tras cada delta el cubo debe sumar lo mismo que resumenes_diarios. La tabla es una lista en
+ * memoria detrás de una JdbcTemplate falsa; los resúmenes se "regeneran" cambiando sus filas y
+ * publicando el mismo evento que ResumenDiarioServiceImpl.
+ */
+class CuboReporteServiceImplTest {
+
+    private static final LocalDate LUNES = LocalDate.of(2025, 3, 3);
+
+    private TablaFalsa tabla;
+    private CuboReporteServiceImpl cubo;
+
+    @BeforeEach
+    void setUp() {
+        tabla = new TablaFalsa();
+        tabla.usuarios.put(1L, "Dra. Pérez");
+        tabla.usuarios.put(2L, "Dr. Gómez");
+        tabla.usuarios.put(9L, "Dra. Núñez");
+        tabla.procedimientos.put(100L, new String[] { "Limpieza", "Prevención" });
+        tabla.procedimientos.put(200L, new String[] { "Endodoncia", "Endodoncia" });
+        for (int d = 0; d < 3; d++) {
+            tabla.agregar(TipoResumen.INGRESO, LUNES.plusDays(d), 1L, 100L, "EFECTIVO", 2, "80.00");
+            tabla.agregar(TipoResumen.INGRESO, LUNES.plusDays(d), 2L, 200L, "TARJETA", 1, "350.50");
+            tabla.agregar(TipoResumen.CITA, LUNES.plusDays(d), 1L, null, null, 5, null);
+        }
+        cubo = new CuboReporteServiceImpl(tabla, mock(PlatformTransactionManager.class));
+        cubo.construir();
+    }
+
+    @Test
+    void construccionSumaLoMismoQueLaTabla() {
+        assertCuadra(TipoResumen.INGRESO);
+        assertCuadra(TipoResumen.CITA);
+    }
+
+    @Test
+    void deltaReemplazaLosDiasRegeneradosYCuadraConLaTabla() {
+        LocalDate martes = LUNES.plusDays(1);
+        tabla.eliminar(TipoResumen.INGRESO, martes, martes);
+        tabla.agregar(TipoResumen.INGRESO, martes, 1L, 100L, "EFECTIVO", 3, "120.00");
+        // Odontóloga que aparece por primera vez en un delta
+        tabla.agregar(TipoResumen.INGRESO, martes, 9L, 200L, "TRANSFERENCIA", 1, "410.25");
+
+        cubo.alActualizarResumen(new ResumenDiarioActualizadoEvent(TipoResumen.INGRESO, martes, martes));
+
+        assertCuadra(TipoResumen.INGRESO);
+        assertCuadra(TipoResumen.CITA);
+        ResultadoCuboDTO porOdontologo = cubo.consultar(TipoResumen.INGRESO, List.of(Dimension.ODONTOLOGO),
+                null, null, null);
+        Map<String, BigDecimal> montos = new HashMap<>();
+        Map<String, String> etiquetas = new HashMap<>();
+        for (FilaCuboDTO fila : porOdontologo.getFilas()) {
+            montos.put(fila.getClaves().get(0), fila.getMonto());
+            etiquetas.put(fila.getClaves().get(0), fila.getEtiquetas().get(0));
+        }
+        assertEquals(tabla.montosPorOdontologo(TipoResumen.INGRESO), montos);
+        assertEquals("Dra. Núñez", etiquetas.get("9"));
+    }
+
+    @Test
+    void deltaQueVaciaDiasLosDejaEnCero() {
+        LocalDate martes = LUNES.plusDays(1);
+        tabla.eliminar(TipoResumen.INGRESO, LUNES, martes);
+
+        cubo.alActualizarResumen(new ResumenDiarioActualizadoEvent(TipoResumen.INGRESO, LUNES, martes));
+
+        ResultadoCuboDTO vaciados = cubo.consultar(TipoResumen.INGRESO, List.of(Dimension.DIA), null, LUNES, martes);
+        assertTrue(vaciados.getFilas().isEmpty());
+        assertEquals(0, vaciados.getTotalMonto().signum());
+        assertCuadra(TipoResumen.INGRESO);
+        assertCuadra(TipoResumen.CITA);
+    }
+
+    @Test
+    void deltasRepetidosCompactanSinPerderFilas() {
+        LocalDate ultimo = LUNES.plusDays(599);
+        for (int ronda = 0; ronda < 3; ronda++) {
+            tabla.eliminar(TipoResumen.INGRESO, LUNES, ultimo);
+            for (LocalDate dia = LUNES; !dia.isAfter(ultimo); dia = dia.plusDays(1)) {
+                tabla.agregar(TipoResumen.INGRESO, dia, 1L + ronda % 2, 100L, "EFECTIVO", ronda + 1, "10.0" + ronda);
+            }
+            cubo.alActualizarResumen(new ResumenDiarioActualizadoEvent(TipoResumen.INGRESO, LUNES, ultimo));
+            assertCuadra(TipoResumen.INGRESO);
+        }
+        assertCuadra(TipoResumen.CITA);
+        // La tercera ronda supera las 1024 filas reemplazadas y compacta
+        assertEquals(0, cubo.obtenerMemoria().getFilasEliminadas());
+    }
+
+    @Test
+    void filtrosPorCategoriaYMetodoCuadranConLaTabla() {
+        ResultadoCuboDTO endodoncias = cubo.consultar(TipoResumen.INGRESO, List.of(Dimension.METODO_PAGO),
+                Map.of(Dimension.CATEGORIA, Set.of("Endodoncia")), null, null);
+
+        assertEquals(1, endodoncias.getFilas().size());
+        assertEquals("TARJETA", endodoncias.getFilas().get(0).getClaves().get(0));
+        assertEquals(new BigDecimal("1051.50"), endodoncias.getTotalMonto());
+        assertEquals(3, endodoncias.getTotalCantidad());
+    }
+
+    private void assertCuadra(TipoResumen tipo) {
+        ResultadoCuboDTO resultado = cubo.consultar(tipo, List.of(), null, null, null);
+        assertEquals(tabla.cantidad(tipo), resultado.getTotalCantidad(), "Cantidad de " + tipo);
+        assertEquals(tabla.monto(tipo), resultado.getTotalMonto(), "Monto de " + tipo);
+        // Las filas reemplazadas no se escanean
+        assertEquals(tabla.filas(tipo), resultado.getFilasEscaneadas(), "Filas de " + tipo);
+    }
+
+    /**
+     * resumenes_diarios, usuarios y procedimientos en memoria. Solo entiende las consultas del cubo.
+     */
+    private static final class TablaFalsa extends JdbcTemplate {
+
+        private record Fila(TipoResumen tipo, LocalDate fecha, Long odontologoId, Long procedimientoId,
+                String metodoPago, long cantidad, BigDecimal monto) {
+        }
+
+        private final List<Fila> resumenes = new ArrayList<>();
+        private final Map<Long, String> usuarios = new HashMap<>();
+        // id -> {nombre, categoría}
+        private final Map<Long, String[]> procedimientos = new TreeMap<>();
+
+        void agregar(TipoResumen tipo, LocalDate fecha, Long odontologoId, Long procedimientoId, String metodoPago,
+                long cantidad, String monto) {
+            resumenes.add(new Fila(tipo, fecha, odontologoId, procedimientoId, metodoPago, cantidad,
+                    monto != null ? new BigDecimal(monto) : null));
+        }
+
+        void eliminar(TipoResumen tipo, LocalDate desde, LocalDate hasta) {
+            resumenes.removeIf(f -> f.tipo() == tipo && !f.fecha().isBefore(desde) && !f.fecha().isAfter(hasta));
+        }
+
+        long cantidad(TipoResumen tipo) {
+            return resumenes.stream().filter(f -> f.tipo() == tipo).mapToLong(Fila::cantidad).sum();
+        }
+
+        BigDecimal monto(TipoResumen tipo) {
+            return resumenes.stream().filter(f -> f.tipo() == tipo && f.monto() != null).map(Fila::monto)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add).setScale(2);
+        }
+
+        int filas(TipoResumen tipo) {
+            return (int) resumenes.stream().filter(f -> f.tipo() == tipo).count();
+        }
+
+        Map<String, BigDecimal> montosPorOdontologo(TipoResumen tipo) {
+            Map<String, BigDecimal> montos = new HashMap<>();
+            for (Fila fila : resumenes) {
+                if (fila.tipo() == tipo) {
+                    montos.merge(String.valueOf(fila.odontologoId()), fila.monto().setScale(2), BigDecimal::add);
+                }
+            }
+            return montos;
+        }
+
+        // SELECT ... FROM resumenes_diarios [WHERE tipo = ? AND fecha BETWEEN ? AND ?]
+        @Override
+        public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+            List<Object> parametros = new ArrayList<>();
+            try {
+                Connection con = mock(Connection.class, RETURNS_DEEP_STUBS);
+                PreparedStatement ps = mock(PreparedStatement.class);
+                when(con.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(ps);
+                doAnswer(inv -> parametros.add(inv.getArgument(1))).when(ps).setObject(anyInt(), any());
+                psc.createPreparedStatement(con);
+                for (Fila fila : List.copyOf(resumenes)) {
+                    if (!parametros.isEmpty() && !(fila.tipo().name().equals(parametros.get(0))
+                            && !fila.fecha().isBefore(((Date) parametros.get(1)).toLocalDate())
+                            && !fila.fecha().isAfter(((Date) parametros.get(2)).toLocalDate()))) {
+                        continue;
+                    }
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString(1)).thenReturn(fila.tipo().name());
+                    when(rs.getDate(2)).thenReturn(Date.valueOf(fila.fecha()));
+                    when(rs.getLong(3)).thenReturn(fila.odontologoId() != null ? fila.odontologoId() : 0L);
+                    when(rs.getLong(4)).thenReturn(fila.procedimientoId() != null ? fila.procedimientoId() : 0L);
+                    when(rs.wasNull()).thenReturn(fila.odontologoId() == null, fila.procedimientoId() == null);
+                    when(rs.getString(5)).thenReturn(fila.procedimientoId() != null
+                            ? procedimientos.get(fila.procedimientoId())[0] : null);
+                    when(rs.getString(6)).thenReturn(fila.metodoPago());
+                    when(rs.getLong(8)).thenReturn(fila.cantidad());
+                    when(rs.getBigDecimal(9)).thenReturn(fila.monto());
+                    rch.processRow(rs);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // Odontólogos con resúmenes, al construir
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            Set<Long> conResumenes = new HashSet<>();
+            resumenes.forEach(f -> conResumenes.add(f.odontologoId()));
+            usuarios.forEach((id, nombre) -> {
+                if (conResumenes.contains(id)) {
+                    procesar(rch, id, nombre);
+                }
+            });
+        }
+
+        // Odontólogos nuevos en un delta
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            for (Object id : args) {
+                if (usuarios.containsKey((Long) id)) {
+                    procesar(rch, (Long) id, usuarios.get((Long) id));
+                }
+            }
+        }
+
+        // Procedimientos: todos, o los de los IDs indicados
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            List<T> resultado = new ArrayList<>();
+            Set<Object> ids = Set.of(args);
+            try {
+                for (Map.Entry<Long, String[]> procedimiento : procedimientos.entrySet()) {
+                    if (!ids.isEmpty() && !ids.contains(procedimiento.getKey())) {
+                        continue;
+                    }
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong(1)).thenReturn(procedimiento.getKey());
+                    when(rs.getString(2)).thenReturn(procedimiento.getValue()[0]);
+                    when(rs.getString(3)).thenReturn(procedimiento.getValue()[1]);
+                    resultado.add(rowMapper.mapRow(rs, resultado.size()));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return resultado;
+        }
+
+        private static void procesar(RowCallbackHandler rch, Long id, String nombre) {
+            try {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn(id);
+                when(rs.getString(2)).thenReturn(nombre);
+                rch.processRow(rs);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
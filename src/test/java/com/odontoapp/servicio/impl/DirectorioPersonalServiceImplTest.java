@@ -0,0 +1,123 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.odontoapp.dto.MiembroPersonalDTO;
+import com.odontoapp.evento.PersonalModificadoEvent;
+import com.odontoapp.repositorio.UsuarioRepository;
+
+/**
+ * Instantánea del directorio de personal: se reutiliza hasta que un evento la invalida o caduca,
+ * no publica una carga iniciada antes de invalidar y sus miembros no se pueden modificar.
+ */
+@ExtendWith(MockitoExtension.class)
+class DirectorioPersonalServiceImplTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    private DirectorioPersonalServiceImpl servicio;
+
+    @BeforeEach
+    void setUp() {
+        servicio = new DirectorioPersonalServiceImpl(usuarioRepository);
+        ReflectionTestUtils.setField(servicio, "ttlMs", 600_000L);
+    }
+
+    @Test
+    void reutilizaLaInstantaneaHastaElEventoDePersonal() {
+        when(usuarioRepository.findDirectorioPersonal()).thenReturn(
+                filas(fila("ODONTOLOGO", true, 1L, "Ana Díaz", true)),
+                filas(fila("ODONTOLOGO", true, 1L, "Ana Díaz", true), fila("ODONTOLOGO", true, 2L, "Luis Paz", true)));
+
+        assertEquals(1, servicio.listarActivosPorRol("odontologo").size());
+        assertEquals(1, servicio.listarPorRol("ODONTOLOGO").size());
+        verify(usuarioRepository, times(1)).findDirectorioPersonal();
+
+        servicio.onPersonalModificado(new PersonalModificadoEvent(2L, null));
+
+        assertEquals(2, servicio.listarActivosPorRol("ODONTOLOGO").size());
+        verify(usuarioRepository, times(2)).findDirectorioPersonal();
+    }
+
+    @Test
+    void cargaIniciadaAntesDeInvalidarNoSeGuarda() {
+        when(usuarioRepository.findDirectorioPersonal())
+                .thenAnswer(invocacion -> {
+                    // Otro hilo confirma un cambio mientras se lee
+                    servicio.invalidar();
+                    return filas(fila("ODONTOLOGO", true, 1L, "Ana Díaz", true));
+                })
+                .thenReturn(filas(fila("ODONTOLOGO", true, 1L, "Ana Díaz", false)));
+
+        assertEquals(1, servicio.listarActivosPorRol("ODONTOLOGO").size());
+        assertEquals(0, servicio.listarActivosPorRol("ODONTOLOGO").size());
+        assertEquals(0, servicio.listarActivosPorRol("ODONTOLOGO").size());
+        verify(usuarioRepository, times(2)).findDirectorioPersonal();
+    }
+
+    @Test
+    void instantaneaVencidaSeRecarga() {
+        ReflectionTestUtils.setField(servicio, "ttlMs", -1L);
+        when(usuarioRepository.findDirectorioPersonal()).thenReturn(filas(fila("ODONTOLOGO", true, 1L, "Ana Díaz", true)));
+
+        servicio.listarPorRol("ODONTOLOGO");
+        servicio.listarPorRol("ODONTOLOGO");
+
+        verify(usuarioRepository, times(2)).findDirectorioPersonal();
+    }
+
+    @Test
+    void rolInactivoSoloApareceEnLaListaCompleta() {
+        when(usuarioRepository.findDirectorioPersonal()).thenReturn(filas(
+                fila("ODONTOLOGO", true, 1L, "Ana Díaz", true),
+                fila("RECEPCIONISTA", false, 1L, "Ana Díaz", true)));
+
+        assertEquals(1, servicio.listarPorRol("RECEPCIONISTA").size());
+        assertTrue(servicio.listarActivosPorRol("RECEPCIONISTA").isEmpty());
+        // Un único DTO por usuario aunque tenga varios roles
+        assertSame(servicio.listarPorRol("ODONTOLOGO").get(0), servicio.listarPorRol("RECEPCIONISTA").get(0));
+    }
+
+    @Test
+    void miembrosCompartidosNoSePuedenModificar() {
+        when(usuarioRepository.findDirectorioPersonal()).thenReturn(filas(fila("ODONTOLOGO", true, 1L, "Ana Díaz", true)));
+        when(usuarioRepository.findHorariosRegularesByUsuarioIdIn(anyCollection())).thenReturn(filas(
+                new Object[] { 1L, "WEDNESDAY", "14:00-18:00" },
+                new Object[] { 1L, "MONDAY", "09:00-13:00" }));
+
+        List<MiembroPersonalDTO> odontologos = servicio.listarActivosPorRol("ODONTOLOGO");
+        MiembroPersonalDTO ana = odontologos.get(0);
+
+        assertEquals(List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), new ArrayList<>(ana.getHorarioRegular().keySet()));
+        assertThrows(UnsupportedOperationException.class, () -> ana.getHorarioRegular().clear());
+        assertThrows(UnsupportedOperationException.class, () -> odontologos.remove(0));
+        assertSame(ana, servicio.listarActivosPorRol("ODONTOLOGO").get(0));
+    }
+
+    private static List<Object[]> filas(Object[]... filas) {
+        return List.of(filas);
+    }
+
+    private static Object[] fila(String rol, boolean rolActivo, Long id, String nombre, boolean activo) {
+        return new Object[] { rol, rolActivo, id, nombre, "u" + id + "@odontoapp.com", null, activo };
+    }
+}
@@ -0,0 +1,258 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.odontoapp.entidad.DuplicadoPaciente;
+import com.odontoapp.entidad.DuplicadoPaciente.EstadoDuplicado;
+import com.odontoapp.entidad.Paciente;
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.entidad.Usuario;
+import com.odontoapp.repositorio.DuplicadoPacienteRepository;
+import com.odontoapp.repositorio.PacienteRepository;
+import com.odontoapp.repositorio.UsuarioRepository;
+
+/**
+ * Bloques de la detección de duplicados (código fonético, fecha de nacimiento y sufijo del
+ * teléfono, con tope por bloque) y tablas que reasigna la fusión.
+ */
+@ExtendWith(MockitoExtension.class)
+class DuplicadosPacienteServiceImplTest {
+
+    private static final LocalDate NACIMIENTO = LocalDate.of(1990, 5, 17);
+
+    @Mock
+    private DuplicadoPacienteRepository duplicadoPacienteRepository;
+    @Mock
+    private PacienteRepository pacienteRepository;
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private AuditorAware<String> auditorAware;
+
+    private final BaseFalsa base = new BaseFalsa();
+    private DuplicadosPacienteServiceImpl servicio;
+
+    @BeforeEach
+    void setUp() {
+        servicio = new DuplicadosPacienteServiceImpl(base, mock(PlatformTransactionManager.class),
+                duplicadoPacienteRepository, pacienteRepository, usuarioRepository, auditorAware);
+        ReflectionTestUtils.setField(servicio, "umbral", 0.85);
+        ReflectionTestUtils.setField(servicio, "maxBloque", 200);
+        ReflectionTestUtils.setField(servicio, "fetchSize", 500);
+    }
+
+    @Test
+    void soloSeComparanLosParesQueCompartenUnBloque() {
+        // Mismo código fonético
+        base.paciente(1, "12345678", "Gimena Velásquez", "gimena@correo.com", "987 111 222", NACIMIENTO);
+        base.paciente(2, null, "Jimena Belasques", null, null, null);
+        // Misma fecha de nacimiento
+        base.paciente(3, null, "Ana Torres", null, "912345678", LocalDate.of(1985, 1, 1));
+        base.paciente(4, null, "Rosa Quispe", null, null, LocalDate.of(1985, 1, 1));
+        // Mismos seis últimos dígitos del teléfono
+        base.paciente(5, null, "Luis Paz", null, "999-345-678", null);
+        // Nada en común con nadie
+        base.paciente(6, null, "Pedro Soto", null, "911000111", LocalDate.of(2000, 2, 2));
+        // Comparte los tres bloques con el 1: el par se compara una sola vez
+        base.paciente(7, "12345679", "Velasquez Gimena", "gimena.v@correo.com", "987111222", NACIMIENTO);
+        when(duplicadoPacienteRepository.findAll()).thenReturn(List.of());
+
+        Map<String, Object> resultado = servicio.detectar();
+
+        assertEquals(7, resultado.get("pacientes"));
+        // (1,2) (1,7) (2,7) por fonética, (3,4) por fecha, (3,5) por teléfono
+        assertEquals(5, resultado.get("paresComparados"));
+        assertEquals(Set.of("1-7"), paresGuardados());
+    }
+
+    @Test
+    void bloqueDemasiadoGrandeSeOmite() {
+        ReflectionTestUtils.setField(servicio, "maxBloque", 2);
+        // Fecha por defecto cargada en masa
+        base.paciente(1, null, "Ana Torres", null, null, NACIMIENTO);
+        base.paciente(2, null, "Luis Paz", null, null, NACIMIENTO);
+        base.paciente(3, null, "Pedro Soto", null, null, NACIMIENTO);
+
+        Map<String, Object> resultado = servicio.detectar();
+
+        assertEquals(0, resultado.get("paresComparados"));
+        assertEquals(0, resultado.get("candidatos"));
+    }
+
+    @Test
+    void homonimosSinDatosQueCorroborenNoSonCandidatos() {
+        base.paciente(1, null, "Juan Pérez", null, null, null);
+        base.paciente(2, null, "Juan Perez", null, null, null);
+        // Mismo nombre, distinto documento y distinta fecha
+        base.paciente(3, "11111111", "María López", null, null, LocalDate.of(1970, 1, 1));
+        base.paciente(4, "99999999", "Maria Lopez", null, null, LocalDate.of(2001, 9, 9));
+
+        Map<String, Object> resultado = servicio.detectar();
+
+        assertEquals(2, resultado.get("paresComparados"));
+        assertEquals(0, resultado.get("candidatos"));
+    }
+
+    @Test
+    void fusionarReasignaLasSieteTablasPorUsuarioYElChat() {
+        DuplicadoPaciente duplicado = new DuplicadoPaciente();
+        duplicado.setId(10L);
+        duplicado.setPacienteAId(1L);
+        duplicado.setPacienteBId(2L);
+        when(duplicadoPacienteRepository.findById(10L)).thenReturn(Optional.of(duplicado));
+        Paciente conservado = paciente(1L, usuario(100L, "PACIENTE"), null);
+        Paciente absorbido = paciente(2L, usuario(200L, "PACIENTE"), "912345678");
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(conservado));
+        when(pacienteRepository.findById(2L)).thenReturn(Optional.of(absorbido));
+        when(auditorAware.getCurrentAuditor()).thenReturn(Optional.of("admin"));
+
+        Map<String, Object> reasignadas = servicio.fusionar(10L, 1L);
+
+        List<String> tablas = new ArrayList<>();
+        for (Object[] update : base.actualizaciones) {
+            String sql = (String) update[0];
+            if (sql.startsWith("UPDATE ")) {
+                tablas.add(sql.substring(7, sql.indexOf(' ', 7)));
+                boolean chat = sql.startsWith("UPDATE chat_mensajes");
+                assertEquals(chat ? "SET paciente_id = ?" : "SET paciente_usuario_id = ?",
+                        sql.substring(sql.indexOf("SET"), sql.indexOf(" WHERE")));
+                assertEquals(chat ? List.of(1L, 2L) : List.of(100L, 200L), List.of(update[1], update[2]), sql);
+            }
+        }
+        assertEquals(List.of("citas", "comprobantes", "odontograma_dientes", "archivos_adjuntos",
+                "odontograma_historial", "paciente_imagenes", "tratamientos_planificados", "chat_mensajes"), tablas);
+        // Antes de mover los dientes se descartan los que el conservado ya tiene
+        assertTrue(((String) base.actualizaciones.get(0)[0]).startsWith("DELETE FROM odontograma_dientes"));
+        assertEquals(List.of(200L, 100L), List.of(base.actualizaciones.get(0)[1], base.actualizaciones.get(0)[2]));
+        assertEquals(9, reasignadas.size());
+
+        assertEquals("912345678", conservado.getTelefono());
+        assertTrue(absorbido.isEliminado());
+        assertTrue(absorbido.getUsuario().isEliminado());
+        assertEquals(EstadoDuplicado.FUSIONADO, duplicado.getEstado());
+        assertEquals(1L, duplicado.getPacienteConservadoId());
+        verify(duplicadoPacienteRepository).descartarPendientesDePaciente(eq(2L), eq(EstadoDuplicado.PENDIENTE),
+                eq(EstadoDuplicado.DESCARTADO), any(), eq("admin"));
+    }
+
+    @Test
+    void fusionarNoAbsorbeUnaCuentaDePersonal() {
+        DuplicadoPaciente duplicado = new DuplicadoPaciente();
+        duplicado.setPacienteAId(1L);
+        duplicado.setPacienteBId(2L);
+        when(duplicadoPacienteRepository.findById(10L)).thenReturn(Optional.of(duplicado));
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente(1L, usuario(100L, "PACIENTE"), null)));
+        when(pacienteRepository.findById(2L)).thenReturn(Optional.of(
+                paciente(2L, usuario(200L, "PACIENTE", "ODONTOLOGO"), null)));
+
+        assertThrows(IllegalStateException.class, () -> servicio.fusionar(10L, 1L));
+        assertTrue(base.actualizaciones.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> servicio.fusionar(10L, 3L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> paresGuardados() {
+        ArgumentCaptor<Collection<DuplicadoPaciente>> guardados = ArgumentCaptor.forClass(Collection.class);
+        verify(duplicadoPacienteRepository).saveAll(guardados.capture());
+        return guardados.getValue().stream()
+                .map(d -> d.getPacienteAId() + "-" + d.getPacienteBId())
+                .collect(Collectors.toSet());
+    }
+
+    private static Paciente paciente(Long id, Usuario usuario, String telefono) {
+        Paciente paciente = new Paciente();
+        paciente.setId(id);
+        paciente.setUsuario(usuario);
+        paciente.setTelefono(telefono);
+        return paciente;
+    }
+
+    private static Usuario usuario(Long id, String... roles) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setRoles(Arrays.stream(roles).map(nombre -> {
+            Rol rol = new Rol();
+            rol.setNombre(nombre);
+            return rol;
+        }).collect(Collectors.toSet()));
+        return usuario;
+    }
+
+    /**
+     * Pacientes en memoria para el cursor de la detección y registro de las sentencias de la fusión.
+     */
+    private static final class BaseFalsa extends JdbcTemplate {
+
+        private final List<Object[]> pacientes = new ArrayList<>();
+        private final List<Object[]> actualizaciones = new ArrayList<>();
+
+        void paciente(long id, String documento, String nombre, String email, String telefono, LocalDate nacimiento) {
+            pacientes.add(new Object[] { id, documento, nombre, email, telefono, nacimiento });
+        }
+
+        @Override
+        public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+            try {
+                psc.createPreparedStatement(mock(Connection.class, RETURNS_DEEP_STUBS));
+                for (Object[] fila : pacientes) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong(1)).thenReturn((Long) fila[0]);
+                    when(rs.getLong(2)).thenReturn(fila[1] != null ? 1L : 0L);
+                    when(rs.wasNull()).thenReturn(fila[1] == null);
+                    when(rs.getString(3)).thenReturn((String) fila[1]);
+                    when(rs.getString(4)).thenReturn((String) fila[2]);
+                    when(rs.getString(5)).thenReturn((String) fila[3]);
+                    when(rs.getString(6)).thenReturn((String) fila[4]);
+                    when(rs.getDate(7)).thenReturn(fila[5] != null ? Date.valueOf((LocalDate) fila[5]) : null);
+                    rch.processRow(rs);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            Object[] registro = new Object[args.length + 1];
+            registro[0] = sql;
+            System.arraycopy(args, 0, registro, 1, args.length);
+            actualizaciones.add(registro);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.odontoapp.dto.ResumenImportacionDTO;
+import com.odontoapp.entidad.Rol;
+import com.odontoapp.entidad.TipoDocumento;
+import com.odontoapp.repositorio.RolRepository;
+import com.odontoapp.repositorio.TipoDocumentoRepository;
+import com.odontoapp.servicio.IndiceBusquedaService;
+import com.odontoapp.util.EscritorTabular;
+
+/**
+ * Importación masiva de pacientes contra una base en memoria: duplicados con la base y dentro del
+ * archivo, filas con error, reintento fila por fila de un lote rechazado y reporte por fila.
+ */
+class ImportacionPacientesServiceImplTest {
+
+    private static final String ENCABEZADO = "Tipo Documento;Número de Documento;Nombre completo;Correo;Teléfono;"
+            + "Fecha de nacimiento\n";
+
+    private BaseFalsa base;
+    private ImportacionPacientesServiceImpl servicio;
+    private final ReporteEnMemoria reporte = new ReporteEnMemoria();
+
+    @BeforeEach
+    void setUp() {
+        base = new BaseFalsa();
+        TipoDocumentoRepository tipoDocumentoRepository = mock(TipoDocumentoRepository.class);
+        when(tipoDocumentoRepository.findAll()).thenReturn(List.of(tipo(1L, "DNI", "Documento Nacional de Identidad"),
+                tipo(2L, "CE", "Carnet de Extranjería")));
+        RolRepository rolRepository = mock(RolRepository.class);
+        Rol paciente = new Rol();
+        paciente.setId(5L);
+        when(rolRepository.findByNombre("PACIENTE")).thenReturn(Optional.of(paciente));
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(anyString())).thenReturn("hash");
+        @SuppressWarnings("unchecked")
+        AuditorAware<String> auditor = mock(AuditorAware.class);
+        when(auditor.getCurrentAuditor()).thenReturn(Optional.of("admin"));
+
+        servicio = new ImportacionPacientesServiceImpl(base, mock(PlatformTransactionManager.class),
+                tipoDocumentoRepository, rolRepository, passwordEncoder, mock(IndiceBusquedaService.class), auditor);
+        ReflectionTestUtils.setField(servicio, "tamanoLote", 2);
+        ReflectionTestUtils.setField(servicio, "fetchSize", 100);
+    }
+
+    @Test
+    void detectaDuplicadosConLaBaseYDentroDelArchivo() throws IOException {
+        base.documentos.add("1|12345678");
+        base.emails.add("existe@correo.com");
+        base.telefonos.add("987654320");
+
+        ResumenImportacionDTO resumen = importar(ENCABEZADO
+                + "DNI;12345678;Ya Registrado;nuevo1@correo.com;;\n"
+                + ";22222222;Email Usado;EXISTE@correo.com;;\n"
+                + "dni;33333333;Teléfono Usado;nuevo3@correo.com;987 654 320;\n"
+                + "CE;44444444;Ana Díaz;ana@correo.com;912345670;1990-05-17\n"
+                + "DNI;44444444;Otro Documento;otro@correo.com;;\n"
+                + "CE;44444444;Repetida En Archivo;ana2@correo.com;;\n"
+                + "DNI;55555555;Email Repetido;Ana@Correo.com;;\n");
+
+        assertEquals(7, resumen.getFilasLeidas());
+        assertEquals(2, resumen.getImportados());
+        assertEquals(5, resumen.getDuplicados());
+        assertEquals(0, resumen.getErrores());
+        assertEquals(List.of("ana@correo.com", "otro@correo.com"), base.usuariosInsertados);
+        assertEquals(2, base.correosEncolados);
+        assertEquals("DUPLICADO", reporte.resultado(2));
+        assertTrue(reporte.mensaje(3).contains("email"));
+        assertTrue(reporte.mensaje(4).contains("teléfono"));
+        assertEquals("IMPORTADO", reporte.resultado(5));
+        assertEquals("IMPORTADO", reporte.resultado(6));
+        assertEquals("DUPLICADO", reporte.resultado(7));
+        assertEquals("DUPLICADO", reporte.resultado(8));
+    }
+
+    @Test
+    void filasConErrorSeInformanSinDetenerLaImportacion() throws IOException {
+        ResumenImportacionDTO resumen = importar(ENCABEZADO
+                + "DNI;;Sin Documento;a@correo.com;;\n"
+                + "DNI;11111111;Email Malo;sin-arroba;;\n"
+                + "PASAPORTE;22222222;Tipo Raro;b@correo.com;;\n"
+                + "DNI;33333333;Teléfono Malo;c@correo.com;12345;\n"
+                + "DNI;44444444;Fecha Mala;d@correo.com;;31/13/1990\n"
+                + "DNI;55555555;Correcto;e@correo.com;;07/03/1985\n");
+
+        assertEquals(5, resumen.getErrores());
+        assertEquals(1, resumen.getImportados());
+        assertEquals("El número de documento es obligatorio.", reporte.mensaje(2));
+        assertTrue(reporte.mensaje(3).contains("formato"));
+        assertTrue(reporte.mensaje(4).contains("PASAPORTE"));
+        assertTrue(reporte.mensaje(5).contains("9 dígitos"));
+        assertTrue(reporte.mensaje(6).contains("Fecha de nacimiento"));
+        assertEquals("IMPORTADO", reporte.resultado(7));
+        assertEquals(List.of("e@correo.com"), base.usuariosInsertados);
+    }
+
+    @Test
+    void loteRechazadoSeReintentaFilaPorFilaYLiberaLasClaves() throws IOException {
+        // La base rechaza este email (p. ej. otro usuario lo registró durante la importación)
+        base.emailsRechazados.add("carrera@correo.com");
+
+        ResumenImportacionDTO resumen = importar(ENCABEZADO
+                + "DNI;11111111;Primero;uno@correo.com;;\n"
+                + "DNI;22222222;Carrera;carrera@correo.com;;\n"
+                + "DNI;22222222;Mismo Documento;tres@correo.com;;\n");
+
+        assertEquals(2, resumen.getImportados());
+        assertEquals(1, resumen.getErrores());
+        assertTrue(reporte.mensaje(3).startsWith("No se pudo guardar"));
+        // Al fallar, el documento quedó libre para la fila siguiente
+        assertEquals("IMPORTADO", reporte.resultado(4));
+        assertEquals(List.of("uno@correo.com", "tres@correo.com"), base.usuariosInsertados);
+    }
+
+    @Test
+    void faltaUnaColumnaObligatoria() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> importar("dni;nombre\n1;Ana\n"));
+
+        assertTrue(error.getMessage().contains("'email'"));
+    }
+
+    private ResumenImportacionDTO importar(String csv) throws IOException {
+        return servicio.importar(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), reporte);
+    }
+
+    private static TipoDocumento tipo(Long id, String codigo, String nombre) {
+        TipoDocumento tipo = new TipoDocumento();
+        tipo.setId(id);
+        tipo.setCodigo(codigo);
+        tipo.setNombre(nombre);
+        return tipo;
+    }
+
+    /**
+     * Claves existentes e inserciones en memoria. Solo entiende las sentencias de la importación;
+     * un batch con un email rechazado falla entero, como un rollback.
+     */
+    private static final class BaseFalsa extends JdbcTemplate {
+
+        private final List<String> documentos = new ArrayList<>();
+        private final List<String> emails = new ArrayList<>();
+        private final List<String> telefonos = new ArrayList<>();
+        private final Set<String> emailsRechazados = new HashSet<>();
+        private final List<String> usuariosInsertados = new ArrayList<>();
+        private int correosEncolados;
+        private long siguienteId = 100;
+
+        // Claves existentes (cursor)
+        @Override
+        public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+            String sql = sentencia(psc);
+            try {
+                if (sql.startsWith("SELECT tipo_documento_id")) {
+                    for (String clave : documentos) {
+                        String[] partes = clave.split("\\|");
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getLong(1)).thenReturn(Long.parseLong(partes[0]));
+                        when(rs.getString(2)).thenReturn(partes[1]);
+                        rch.processRow(rs);
+                    }
+                } else {
+                    for (String valor : sql.startsWith("SELECT email") ? emails : telefonos) {
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getString(1)).thenReturn(valor);
+                        rch.processRow(rs);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // Usuarios y pacientes, con claves generadas
+        @Override
+        public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder claves) {
+            String sql = sentencia(psc);
+            List<String> emailsLote = new ArrayList<>();
+            try {
+                PreparedStatement ps = mock(PreparedStatement.class);
+                Map<Integer, Object> parametros = new HashMap<>();
+                doAnswer(inv -> parametros.put(inv.getArgument(0), inv.getArgument(1)))
+                        .when(ps).setString(anyInt(), any());
+                for (int i = 0; i < pss.getBatchSize(); i++) {
+                    pss.setValues(ps, i);
+                    emailsLote.add((String) parametros.get(sql.startsWith("INSERT INTO usuarios") ? 2 : 4));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            if (sql.startsWith("INSERT INTO usuarios")) {
+                for (String email : emailsLote) {
+                    if (emailsRechazados.contains(email)) {
+                        throw new DataIntegrityViolationException("Duplicate entry '" + email + "'");
+                    }
+                }
+                usuariosInsertados.addAll(emailsLote);
+            }
+            for (int i = 0; i < emailsLote.size(); i++) {
+                claves.getKeyList().add(Map.of("id", siguienteId++));
+            }
+            return new int[emailsLote.size()];
+        }
+
+        // usuarios_roles y correos_pendientes
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> filas, int tamano,
+                ParameterizedPreparedStatementSetter<T> pss) {
+            if (sql.startsWith("INSERT INTO correos_pendientes")) {
+                correosEncolados += filas.size();
+            }
+            return new int[][] { new int[filas.size()] };
+        }
+
+        private static String sentencia(PreparedStatementCreator psc) {
+            try {
+                Connection con = mock(Connection.class, RETURNS_DEEP_STUBS);
+                List<String> sql = new ArrayList<>();
+                doAnswer(inv -> {
+                    sql.add(inv.getArgument(0));
+                    return mock(PreparedStatement.class);
+                }).when(con).prepareStatement(anyString(), anyInt(), anyInt());
+                doAnswer(inv -> {
+                    sql.add(inv.getArgument(0));
+                    return mock(PreparedStatement.class);
+                }).when(con).prepareStatement(anyString(), any(String[].class));
+                psc.createPreparedStatement(con);
+                return sql.get(0);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Reporte por fila en memoria: número de fila → {resultado, mensaje}.
+     */
+    private static final class ReporteEnMemoria implements EscritorTabular {
+
+        private final Map<String, String[]> filas = new HashMap<>();
+
+        @Override
+        public void escribirEncabezados(String... encabezados) {
+        }
+
+        @Override
+        public void escribirFila(Object... valores) {
+            filas.put(String.valueOf(valores[0]), new String[] { (String) valores[1], (String) valores[2] });
+        }
+
+        String resultado(long fila) {
+            return filas.get(String.valueOf(fila))[0];
+        }
+
+        String mensaje(long fila) {
+            return filas.get(String.valueOf(fila))[1];
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.odontoapp.dto.EventoLineaTiempoDTO;
+import com.odontoapp.dto.EventoLineaTiempoDTO.TipoEvento;
+import com.odontoapp.dto.LineaTiempoDTO;
+
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * Cursor keyset de la línea de tiempo con fuentes mezcladas que comparten (fecha, tipo) e incluso
+ * IDs, y mezcla k-way de las listas ya ordenadas de cada fuente.
+ */
+class LineaTiempoPacienteServiceImplTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2026, 3, 1, 10, 0);
+    private static final long USUARIO = 7L;
+
+    // Orden de la línea de tiempo: fecha, tipo e id descendentes
+    private static final Comparator<EventoLineaTiempoDTO> ORDEN = Comparator
+            .comparing(EventoLineaTiempoDTO::getFecha)
+            .thenComparing(EventoLineaTiempoDTO::getTipo)
+            .thenComparing(EventoLineaTiempoDTO::getId)
+            .reversed();
+
+    private BaseFalsa base;
+    private LineaTiempoPacienteServiceImpl servicio;
+
+    @BeforeEach
+    void setUp() {
+        base = new BaseFalsa();
+        // Varios eventos con la misma fecha, del mismo y de distinto tipo, con IDs repetidos entre fuentes
+        base.evento(USUARIO, TipoEvento.CITA, 1, T);
+        base.evento(USUARIO, TipoEvento.CITA, 2, T);
+        base.evento(USUARIO, TipoEvento.CITA, 3, T);
+        base.evento(USUARIO, TipoEvento.CITA, 4, T.minusHours(1));
+        base.evento(USUARIO, TipoEvento.TRATAMIENTO, 2, T);
+        base.evento(USUARIO, TipoEvento.TRATAMIENTO, 5, T);
+        base.evento(USUARIO, TipoEvento.COMPROBANTE, 1, T);
+        base.evento(USUARIO, TipoEvento.COMPROBANTE, 9, T.plusDays(1));
+        base.evento(USUARIO, TipoEvento.ODONTOGRAMA, 3, T.minusHours(1));
+        base.evento(USUARIO, TipoEvento.ODONTOGRAMA, 8, T);
+        base.evento(USUARIO, TipoEvento.ARCHIVO, 2, T.minusHours(2));
+        // Otro paciente
+        base.evento(8L, TipoEvento.CITA, 6, T);
+        servicio = new LineaTiempoPacienteServiceImpl(base, 4);
+    }
+
+    @Test
+    void paginarConCualquierLimiteRecorreTodoSinRepetirNiSaltar() {
+        List<EventoLineaTiempoDTO> esperado = base.delUsuario(USUARIO);
+        for (int limite = 1; limite <= esperado.size() + 1; limite++) {
+            List<EventoLineaTiempoDTO> recorrido = new ArrayList<>();
+            String cursor = null;
+            int paginas = 0;
+            do {
+                LineaTiempoDTO pagina = servicio.obtenerPagina(1L, cursor, limite, null);
+                assertTrue(pagina.getEventos().size() <= limite);
+                recorrido.addAll(pagina.getEventos());
+                cursor = pagina.getSiguienteCursor();
+                paginas++;
+            } while (cursor != null && paginas <= esperado.size());
+
+            assertEquals(claves(esperado), claves(recorrido), "límite " + limite);
+        }
+    }
+
+    @Test
+    void mezclaLasFuentesEnOrdenTotal() {
+        LineaTiempoDTO pagina = servicio.obtenerPagina(1L, null, 50, null);
+
+        assertEquals(List.of("COMPROBANTE-9", "ODONTOGRAMA-8", "COMPROBANTE-1", "TRATAMIENTO-5", "TRATAMIENTO-2",
+                "CITA-3", "CITA-2", "CITA-1", "ODONTOGRAMA-3", "CITA-4", "ARCHIVO-2"), claves(pagina.getEventos()));
+        assertNull(pagina.getSiguienteCursor());
+        // Cada fuente pide una fila más que el límite para saber si hay más
+        assertTrue(base.filasPedidas.stream().allMatch(filas -> filas == 51));
+    }
+
+    @Test
+    void cursorEnMitadDeUnaFechaCompartida() {
+        LineaTiempoDTO primera = servicio.obtenerPagina(1L, null, 4, null);
+        assertEquals(List.of("COMPROBANTE-9", "ODONTOGRAMA-8", "COMPROBANTE-1", "TRATAMIENTO-5"),
+                claves(primera.getEventos()));
+        assertNotNull(primera.getSiguienteCursor());
+
+        // Tras TRATAMIENTO-5: el resto de tratamientos y todas las citas de la misma fecha, nada de
+        // comprobantes ni odontograma de esa fecha
+        LineaTiempoDTO segunda = servicio.obtenerPagina(1L, primera.getSiguienteCursor(), 4, null);
+        assertEquals(List.of("TRATAMIENTO-2", "CITA-3", "CITA-2", "CITA-1"), claves(segunda.getEventos()));
+    }
+
+    @Test
+    void filtraPorTipo() {
+        LineaTiempoDTO pagina = servicio.obtenerPagina(1L, null, 2, EnumSet.of(TipoEvento.CITA, TipoEvento.ARCHIVO));
+        assertEquals(List.of("CITA-3", "CITA-2"), claves(pagina.getEventos()));
+
+        List<EventoLineaTiempoDTO> resto = new ArrayList<>();
+        String cursor = pagina.getSiguienteCursor();
+        while (cursor != null) {
+            LineaTiempoDTO siguiente = servicio.obtenerPagina(1L, cursor, 2, Set.of(TipoEvento.CITA, TipoEvento.ARCHIVO));
+            resto.addAll(siguiente.getEventos());
+            cursor = siguiente.getSiguienteCursor();
+        }
+        assertEquals(List.of("CITA-1", "CITA-4", "ARCHIVO-2"), claves(resto));
+    }
+
+    @Test
+    void validaLimiteCursorYPaciente() {
+        assertThrows(IllegalArgumentException.class, () -> servicio.obtenerPagina(1L, null, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> servicio.obtenerPagina(1L, "no-es-un-cursor", 5, null));
+        assertThrows(EntityNotFoundException.class, () -> servicio.obtenerPagina(99L, null, 5, null));
+        // Paciente sin usuario: no tiene historial
+        assertTrue(servicio.obtenerPagina(2L, null, 5, null).getEventos().isEmpty());
+    }
+
+    private static List<String> claves(List<EventoLineaTiempoDTO> eventos) {
+        return eventos.stream().map(e -> e.getTipo() + "-" + e.getId()).toList();
+    }
+
+    /**
+     * Fuentes en memoria que aplican el mismo filtro y orden que las consultas keyset:
+     * {@code (fecha < ? OR (fecha = ? AND id < ?)) ORDER BY fecha DESC, id DESC LIMIT ?}.
+     */
+    private static final class BaseFalsa extends JdbcTemplate {
+
+        private static final Map<String, TipoEvento> TABLAS = Map.of(
+                "FROM citas c", TipoEvento.CITA,
+                "FROM tratamientos_realizados", TipoEvento.TRATAMIENTO,
+                "FROM comprobantes", TipoEvento.COMPROBANTE,
+                "FROM odontograma_historial", TipoEvento.ODONTOGRAMA,
+                "FROM archivos_adjuntos", TipoEvento.ARCHIVO);
+
+        private final List<Object[]> eventos = new ArrayList<>();
+        private final List<Integer> filasPedidas = Collections.synchronizedList(new ArrayList<>());
+
+        void evento(long usuarioId, TipoEvento tipo, long id, LocalDateTime fecha) {
+            eventos.add(new Object[] { usuarioId, new EventoLineaTiempoDTO(tipo, id, fecha, tipo.name(), "", null, null) });
+        }
+
+        List<EventoLineaTiempoDTO> delUsuario(long usuarioId) {
+            return eventos.stream()
+                    .filter(e -> (long) e[0] == usuarioId)
+                    .map(e -> (EventoLineaTiempoDTO) e[1])
+                    .sorted(ORDEN)
+                    .toList();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> tipo, Object... args) {
+            long pacienteId = (Long) args[0];
+            if (pacienteId == 1L) {
+                return (List<T>) List.of(USUARIO);
+            }
+            if (pacienteId == 2L) {
+                return (List<T>) Collections.singletonList(null);
+            }
+            return List.of();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sql, RowMapper<T> mapper, Object... args) {
+            TipoEvento tipo = TABLAS.entrySet().stream()
+                    .filter(tabla -> sql.contains(tabla.getKey()))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElseThrow();
+            long usuarioId = (Long) args[0];
+            LocalDateTime fecha = ((Timestamp) args[1]).toLocalDateTime();
+            long idLimite = (Long) args[3];
+            int filas = (Integer) args[4];
+            filasPedidas.add(filas);
+            return (List<T>) eventos.stream()
+                    .filter(e -> (long) e[0] == usuarioId)
+                    .map(e -> (EventoLineaTiempoDTO) e[1])
+                    .filter(e -> e.getTipo() == tipo)
+                    .filter(e -> e.getFecha().isBefore(fecha) || (e.getFecha().equals(fecha) && e.getId() < idLimite))
+                    .sorted(Comparator.comparing(EventoLineaTiempoDTO::getFecha)
+                            .thenComparing(EventoLineaTiempoDTO::getId).reversed())
+                    .limit(filas)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.odontoapp.servicio.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.odontoapp.entidad.Cita;
+import com.odontoapp.entidad.ResumenDiario.TipoResumen;
+import com.odontoapp.evento.CitaModificadaEvent;
+import com.odontoapp.evento.FacturacionModificadaEvent;
+import com.odontoapp.evento.ResumenDiarioActualizadoEvent;
+import com.odontoapp.evento.TratamientoRealizadoModificadoEvent;
+import com.odontoapp.repositorio.CitaRepository;
+import com.odontoapp.repositorio.PacienteRepository;
+import com.odontoapp.repositorio.PagoRepository;
+import com.odontoapp.repositorio.ResumenDiarioRepository;
+import com.odontoapp.repositorio.TratamientoRealizadoRepository;
+
+/**
+ * Deltas por evento: cada evento regenera los días actuales del registro, en su propia transacción.
+ */
+@ExtendWith(MockitoExtension.class)
+class ResumenDiarioServiceImplTest {
+
+    private static final LocalDate LUNES = LocalDate.of(2025, 3, 3);
+    private static final LocalDate MIERCOLES = LocalDate.of(2025, 3, 5);
+
+    @Mock
+    private ResumenDiarioRepository resumenDiarioRepository;
+    @Mock
+    private PagoRepository pagoRepository;
+    @Mock
+    private CitaRepository citaRepository;
+    @Mock
+    private TratamientoRealizadoRepository tratamientoRealizadoRepository;
+    @Mock
+    private PacienteRepository pacienteRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ResumenDiarioServiceImpl servicio;
+
+    @BeforeEach
+    void setUp() {
+        servicio = new ResumenDiarioServiceImpl(resumenDiarioRepository, pagoRepository, citaRepository,
+                tratamientoRealizadoRepository, pacienteRepository, transactionManager, eventPublisher);
+    }
+
+    @Test
+    void citaRegeneraSuDiaDeCitasYTratamientos() {
+        Cita cita = new Cita();
+        cita.setFechaHoraInicio(LUNES.atTime(9, 0));
+        when(citaRepository.findById(1L)).thenReturn(Optional.of(cita));
+
+        servicio.alModificarCita(new CitaModificadaEvent(1L));
+
+        verify(resumenDiarioRepository).eliminarRango(TipoResumen.CITA, LUNES, LUNES);
+        verify(resumenDiarioRepository).eliminarRango(TipoResumen.TRATAMIENTO, LUNES, LUNES);
+        verify(eventPublisher).publishEvent(new ResumenDiarioActualizadoEvent(TipoResumen.CITA, LUNES, LUNES));
+        verify(eventPublisher).publishEvent(new ResumenDiarioActualizadoEvent(TipoResumen.TRATAMIENTO, LUNES, LUNES));
+    }
+
+    @Test
+    void citaInexistenteNoRegeneraNada() {
+        when(citaRepository.findById(1L)).thenReturn(Optional.empty());
+
+        servicio.alModificarCita(new CitaModificadaEvent(1L));
+
+        verify(resumenDiarioRepository, never()).eliminarRango(any(), any(), any());
+    }
+
+    @Test
+    void tratamientoUsaLaFechaDelEventoYPagosSusFechas() {
+        servicio.alModificarTratamiento(new TratamientoRealizadoModificadoEvent(5L, MIERCOLES));
+        verify(resumenDiarioRepository).eliminarRango(TipoResumen.TRATAMIENTO, MIERCOLES, MIERCOLES);
+
+        when(pagoRepository.findFechasPagoByComprobanteId(9L)).thenReturn(List.of(LUNES, MIERCOLES));
+        servicio.alModificarFacturacion(new FacturacionModificadaEvent(9L));
+        verify(resumenDiarioRepository).eliminarRango(TipoResumen.INGRESO, LUNES, LUNES);
+        verify(resumenDiarioRepository).eliminarRango(TipoResumen.INGRESO, MIERCOLES, MIERCOLES);
+    }
+
+    @Test
+    void siLaRegeneracionFallaNoSePropagaNiSeAnuncia() {
+        Cita cita = new Cita();
+        cita.setFechaHoraInicio(LUNES.atTime(9, 0));
+        when(citaRepository.findById(1L)).thenReturn(Optional.of(cita));
+        when(resumenDiarioRepository.eliminarRango(eq(TipoResumen.CITA), any(), any()))
+                .thenThrow(new IllegalStateException("sin conexión"));
+
+        servicio.alModificarCita(new CitaModificadaEvent(1L));
+
+        verify(resumenDiarioRepository, times(1)).eliminarRango(TipoResumen.CITA, LUNES, LUNES);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
@@ -0,0 +1,126 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.odontoapp.dto.CohorteRetencionDTO;
+
+/**
+ * Cohortes del acumulador de retención: límites inclusivos de 3, 6 y 12 meses contados desde la
+ * primera visita (con fin de mes y año bisiesto), visitas que no cuentan y ventanas sin terminar.
+ */
+class RetencionPacientesAcumuladorTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2025, 6, 15, 10, 0);
+
+    private final RetencionPacientesServiceImpl.Acumulador acumulador =
+            new RetencionPacientesServiceImpl.Acumulador(AHORA, 6, Set.of());
+
+    @Test
+    void limitesDeTresSeisYDoceMesesDesdeFinDeMes() {
+        // 31/01 + 3 meses = 30/04, + 6 = 31/07, + 12 = 31/01 del año siguiente
+        visita(1, "2024-01-31", "ASISTIO");
+        visita(1, "2024-04-30", "TRATAMIENTO");
+        visita(2, "2024-01-31", "ASISTIO");
+        visita(2, "2024-05-01", "ASISTIO");
+        visita(3, "2024-01-31", "ASISTIO");
+        visita(3, "2024-07-31", "ASISTIO");
+        visita(4, "2024-01-31", "ASISTIO");
+        visita(4, "2024-08-01", "ASISTIO");
+        visita(5, "2024-01-31", "ASISTIO");
+        visita(5, "2025-01-31", "ASISTIO");
+        // Volver el mismo día no es retención; pasado el año tampoco
+        visita(6, "2024-01-10", "ASISTIO");
+        visita(6, "2024-01-10", "TRATAMIENTO");
+        visita(6, "2025-02-01", "ASISTIO");
+        // Solo cuentan asistencias y tratamientos
+        visita(7, "2024-01-15", "ASISTIO");
+        visita(7, "2024-02-01", "CANCELADA");
+        visita(7, "2024-03-01", "NO_ASISTIO");
+
+        CohorteRetencionDTO enero = porMes().get("2024-01");
+
+        assertEquals(7, enero.getPacientes());
+        assertEquals(1, enero.getRetenidos3Meses());
+        assertEquals(3, enero.getRetenidos6Meses());
+        assertEquals(5, enero.getRetenidos12Meses());
+        assertEquals(14.3, enero.getPorcentaje3Meses());
+        assertEquals(42.9, enero.getPorcentaje6Meses());
+        assertEquals(71.4, enero.getPorcentaje12Meses());
+    }
+
+    @Test
+    void primeraVisitaEnDiaBisiesto() {
+        // 29/02/2024 + 3 meses = 29/05/2024; + 12 meses = 28/02/2025
+        visita(1, "2024-02-29", "ASISTIO");
+        visita(1, "2024-05-29", "ASISTIO");
+        visita(2, "2024-02-29", "ASISTIO");
+        visita(2, "2024-05-30", "ASISTIO");
+        visita(3, "2024-02-29", "ASISTIO");
+        visita(3, "2025-02-28", "ASISTIO");
+        visita(4, "2024-02-29", "ASISTIO");
+        visita(4, "2025-03-01", "ASISTIO");
+
+        CohorteRetencionDTO febrero = porMes().get("2024-02");
+
+        assertEquals(4, febrero.getPacientes());
+        assertEquals(1, febrero.getRetenidos3Meses());
+        assertEquals(2, febrero.getRetenidos6Meses());
+        assertEquals(3, febrero.getRetenidos12Meses());
+    }
+
+    @Test
+    void porcentajeNullMientrasLaVentanaNoTermino() {
+        // Hoy es 15/06/2025
+        visita(1, "2025-02-20", "ASISTIO");
+        visita(1, "2025-03-10", "ASISTIO");
+        visita(2, "2025-03-05", "ASISTIO");
+        visita(3, "2025-04-10", "ASISTIO");
+
+        Map<String, CohorteRetencionDTO> cohortes = porMes();
+
+        // Febrero: 28/02 + 3 meses = 28/05, ya pasó
+        assertEquals(100.0, cohortes.get("2025-02").getPorcentaje3Meses());
+        assertNull(cohortes.get("2025-02").getPorcentaje6Meses());
+        // Marzo: 31/03 + 3 meses = 30/06, todavía no
+        assertNull(cohortes.get("2025-03").getPorcentaje3Meses());
+        assertEquals(1, cohortes.get("2025-03").getPacientes());
+        assertNull(cohortes.get("2025-04").getPorcentaje12Meses());
+    }
+
+    @Test
+    void mesesSinPacientesNoGeneranCohorteYSinVisitasNoHayPaciente() {
+        visita(1, "2024-01-05", "ASISTIO");
+        // Solo una cita futura pendiente: no es paciente de ninguna cohorte
+        visita(2, "2025-07-01", "PENDIENTE");
+        visita(3, "2024-04-05", "TRATAMIENTO");
+
+        List<CohorteRetencionDTO> cohortes = cerrar();
+
+        assertEquals(List.of("2024-01", "2024-04"), cohortes.stream().map(CohorteRetencionDTO::getCohorte).toList());
+        assertEquals(2, cohortes.stream().mapToInt(CohorteRetencionDTO::getPacientes).sum());
+    }
+
+    private void visita(long pacienteId, String fecha, String tipo) {
+        acumulador.agregar(pacienteId, LocalDate.parse(fecha).atTime(9, 30), tipo, -1);
+    }
+
+    private List<CohorteRetencionDTO> cerrar() {
+        acumulador.cerrarPaciente();
+        return acumulador.cohortes();
+    }
+
+    private Map<String, CohorteRetencionDTO> porMes() {
+        return cerrar().stream().collect(Collectors.toMap(CohorteRetencionDTO::getCohorte, Function.identity()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.odontoapp.dto.TrabajoReporteDTO;
+import com.odontoapp.servicio.ReporteService;
+
+/**
+ * Aciertos de caché de la cola de reportes: se responde con el resultado y el id del trabajo que lo
+ * calculó, sin registrar trabajos nuevos.
+ */
+class TrabajoReporteServiceImplTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2025, 1, 1);
+    private static final LocalDate FIN = LocalDate.of(2025, 1, 31);
+
+    private ReporteService reporteService;
+    private TrabajoReporteServiceImpl servicio;
+
+    @BeforeEach
+    void setUp() {
+        reporteService = mock(ReporteService.class);
+        servicio = new TrabajoReporteServiceImpl(reporteService);
+        ReflectionTestUtils.setField(servicio, "hilos", 1);
+        ReflectionTestUtils.setField(servicio, "capacidadCola", 5);
+        ReflectionTestUtils.setField(servicio, "ttlCacheSegundos", 120L);
+        ReflectionTestUtils.setField(servicio, "maxEntradasCache", 10);
+        ReflectionTestUtils.setField(servicio, "retencionMinutos", 10L);
+        servicio.inicializar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servicio.cerrar();
+    }
+
+    @Test
+    void aciertoDeCacheReutilizaElTrabajoOriginal() throws InterruptedException {
+        TrabajoReporteDTO original = esperar(servicio.enviar(INICIO, FIN, null).getId());
+
+        TrabajoReporteDTO acierto = servicio.enviar(INICIO, FIN, null);
+
+        assertEquals("COMPLETADO", acierto.getEstado());
+        assertEquals(100, acierto.getProgreso());
+        assertEquals(original.getId(), acierto.getId());
+        assertSame(original.getResultado(), acierto.getResultado());
+        assertEquals(1, trabajosRegistrados());
+        verify(reporteService, times(1)).obtenerMargenPorServicio();
+    }
+
+    @Test
+    void trasInvalidarSeCalculaUnTrabajoNuevo() throws InterruptedException {
+        String primero = esperar(servicio.enviar(INICIO, FIN, 3L).getId()).getId();
+        servicio.invalidarCache();
+
+        TrabajoReporteDTO segundo = servicio.enviar(INICIO, FIN, 3L);
+
+        assertNotEquals(primero, segundo.getId());
+        assertEquals("COMPLETADO", esperar(segundo.getId()).getEstado());
+        assertEquals(2, trabajosRegistrados());
+        assertTrue(servicio.obtenerResultadoEnCache(INICIO, FIN, 3L).isPresent());
+    }
+
+    private TrabajoReporteDTO esperar(String trabajoId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            TrabajoReporteDTO trabajo = servicio.consultar(trabajoId).orElseThrow();
+            if ("COMPLETADO".equals(trabajo.getEstado())) {
+                assertNotNull(trabajo.getResultado());
+                return trabajo;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("El trabajo " + trabajoId + " no terminó");
+    }
+
+    private int trabajosRegistrados() {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(servicio, "trabajos")).size();
+    }
+}
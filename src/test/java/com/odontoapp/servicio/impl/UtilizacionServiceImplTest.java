@@ -0,0 +1,212 @@
+package com.odontoapp.servicio.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.odontoapp.dto.UtilizacionDiaDTO;
+import com.odontoapp.dto.UtilizacionOdontologoDTO;
+import com.odontoapp.entidad.HorarioExcepcion;
+import com.odontoapp.entidad.Usuario;
+import com.odontoapp.repositorio.CitaRepository;
+import com.odontoapp.repositorio.UsuarioRepository;
+
+/**
+ * Aritmética de minutos de la utilización: horario regular menos excepciones, minutos atendidos,
+ * cancelados y no asistidos, y un año completo de diez odontólogos dentro del presupuesto de tiempo.
+ */
+@ExtendWith(MockitoExtension.class)
+class UtilizacionServiceImplTest {
+
+    // Lunes
+    private static final LocalDate LUNES = LocalDate.of(2026, 10, 19);
+    private static final String[] ESTADOS = { "ASISTIO", "NO_ASISTIO", "CANCELADA_PACIENTE", "CONFIRMADA" };
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private CitaRepository citaRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UtilizacionServiceImpl servicio;
+
+    @BeforeEach
+    void setUp() {
+        servicio = new UtilizacionServiceImpl(usuarioRepository, citaRepository, transactionManager);
+        ReflectionTestUtils.setField(servicio, "paralelismo", 4);
+    }
+
+    @Test
+    void disponiblesSonElHorarioRegularMenosLasExcepciones() {
+        Usuario ana = odontologo(1L, "Ana Díaz");
+        ana.getHorarioRegular().put(DayOfWeek.MONDAY, "09:00-13:00,15:00-19:00");
+        ana.getHorarioRegular().put(DayOfWeek.TUESDAY, "09:00-13:00");
+        ana.getHorarioRegular().put(DayOfWeek.THURSDAY, "08:00-10:00, 25:00-26:00, 12:00-11:00");
+        ana.getHorarioRegular().put(DayOfWeek.FRIDAY, "09:00-13:00");
+        ana.getExcepcionesHorario().add(new HorarioExcepcion(LUNES.plusDays(1), "NO_LABORABLE", "Vacaciones"));
+        ana.getExcepcionesHorario().add(new HorarioExcepcion(LUNES.plusDays(2), "10:00-12:00", "Guardia"));
+        // Sin horas solo informa el motivo: se mantiene el horario regular
+        ana.getExcepcionesHorario().add(new HorarioExcepcion(LUNES.plusDays(3), " ", "Congreso"));
+        ana.getExcepcionesHorario().add(new HorarioExcepcion(LUNES.plusDays(4), "14:00-16:30", "Cambio de turno"));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(ana));
+        when(citaRepository.findIntervalosByOdontologo(eq(1L), any(), any())).thenReturn(List.of());
+
+        UtilizacionOdontologoDTO resultado = servicio.calcular(LUNES, LUNES.plusDays(6), 1L, true).get(0);
+
+        // Lun 480, mar vacaciones, mié guardia 120, jue regular válido 120, vie excepción 150, fin de semana 0
+        assertEquals(List.of(480, 0, 120, 120, 150, 0, 0),
+                resultado.getDias().stream().map(UtilizacionDiaDTO::getMinutosDisponibles).toList());
+        assertEquals(870, resultado.getMinutosDisponibles());
+        assertEquals(0.0, resultado.getPorcentajeOcupacion());
+    }
+
+    @Test
+    void separaAtendidosCanceladosYNoAsistidos() {
+        Usuario ana = odontologo(1L, "Ana Díaz");
+        ana.getHorarioRegular().put(DayOfWeek.MONDAY, "09:00-13:00,15:00-19:00");
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(ana));
+        when(citaRepository.findIntervalosByOdontologo(eq(1L), any(), any())).thenReturn(List.of(
+                cita(LUNES, "09:00", 60, "ASISTIO"),
+                cita(LUNES, "10:00", 30, "NO_ASISTIO"),
+                cita(LUNES, "11:00", 60, "CANCELADA_PACIENTE"),
+                cita(LUNES, "11:00", 15, "CANCELADA_CLINICA"),
+                // La cita nueva cuenta por sí misma; la reprogramada no suma
+                cita(LUNES, "12:00", 30, "REPROGRAMADA"),
+                // Mitad en el horario de la mañana, mitad en el descanso
+                cita(LUNES, "12:30", 60, "CONFIRMADA"),
+                // Cruza la medianoche: se recorta al final del día
+                cita(LUNES, "23:30", 60, "ASISTIO"),
+                new Object[] { LUNES.atTime(14, 0), LUNES.atTime(14, 0), "ASISTIO" },
+                new Object[] { LUNES.atTime(14, 0), null, "ASISTIO" }));
+
+        UtilizacionOdontologoDTO resultado = servicio.calcular(LUNES, LUNES, 1L, true).get(0);
+
+        UtilizacionDiaDTO lunes = resultado.getDias().get(0);
+        assertEquals(480, lunes.getMinutosDisponibles());
+        assertEquals(60 + 30 + 60 + 30, lunes.getMinutosAgendados());
+        assertEquals(60 + 30, lunes.getMinutosAtendidos());
+        assertEquals(30, lunes.getMinutosNoAsistidos());
+        assertEquals(75, lunes.getMinutosCancelados());
+        // En horario: 60 + 30 + 30 = 120 de 480; atendidos 90 de 480
+        assertEquals(25.0, resultado.getPorcentajeOcupacion());
+        assertEquals(18.8, resultado.getPorcentajeAtencion());
+    }
+
+    @Test
+    void rangoInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> servicio.calcular(LUNES, LUNES.minusDays(1), null, false));
+        assertThrows(IllegalArgumentException.class, () -> servicio.calcular(null, LUNES, null, false));
+    }
+
+    @Test
+    void diezOdontologosDuranteUnAnioEnMenosDeUnSegundo() {
+        LocalDate desde = LocalDate.of(2026, 1, 1);
+        LocalDate hasta = LocalDate.of(2026, 12, 31);
+        List<Usuario> odontologos = new ArrayList<>();
+        int[][][] esperado = new int[10][365][];
+        for (int o = 0; o < 10; o++) {
+            Usuario odontologo = odontologo((long) o + 1, "Odontólogo " + o);
+            for (DayOfWeek dia : List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+                    DayOfWeek.THURSDAY, DayOfWeek.FRIDAY)) {
+                odontologo.getHorarioRegular().put(dia, "09:00-13:00,14:00-18:00");
+            }
+            odontologo.getHorarioRegular().put(DayOfWeek.SATURDAY, "09:00-13:00");
+
+            List<Object[]> citas = new ArrayList<>();
+            for (int d = 0; d < 365; d++) {
+                LocalDate fecha = desde.plusDays(d);
+                // {disponibles, agendados, atendidos, cancelados, noAsistidos}
+                int[] dia = new int[5];
+                esperado[o][d] = dia;
+                if ((d + o) % 30 == 0) {
+                    odontologo.getExcepcionesHorario().add(new HorarioExcepcion(fecha, "NO_LABORABLE", "Libre"));
+                    continue;
+                }
+                DayOfWeek diaSemana = fecha.getDayOfWeek();
+                if (diaSemana == DayOfWeek.SUNDAY) {
+                    continue;
+                }
+                dia[0] = diaSemana == DayOfWeek.SATURDAY ? 240 : 480;
+                int turnos = diaSemana == DayOfWeek.SATURDAY ? 4 : 8;
+                for (int k = 0; k < turnos; k++) {
+                    String estado = ESTADOS[(d + o + k) % ESTADOS.length];
+                    citas.add(cita(fecha, LocalTime.of(9 + k, 0).toString(), 45, estado));
+                    switch (estado) {
+                        case "ASISTIO" -> {
+                            dia[1] += 45;
+                            dia[2] += 45;
+                        }
+                        case "NO_ASISTIO" -> {
+                            dia[1] += 45;
+                            dia[4] += 45;
+                        }
+                        case "CANCELADA_PACIENTE" -> dia[3] += 45;
+                        default -> dia[1] += 45;
+                    }
+                }
+            }
+            when(citaRepository.findIntervalosByOdontologo(eq(odontologo.getId()), any(), any())).thenReturn(citas);
+            odontologos.add(odontologo);
+        }
+        when(usuarioRepository.findActiveByRolesNombre("ODONTOLOGO")).thenReturn(odontologos);
+
+        // Primera pasada para cargar clases; se mide la segunda
+        servicio.calcular(desde, hasta, null, true);
+        long inicio = System.nanoTime();
+        List<UtilizacionOdontologoDTO> resultado = servicio.calcular(desde, hasta, null, true);
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        assertTrue(ms < 1000, "Utilización anual de 10 odontólogos en " + ms + " ms");
+        assertEquals(10, resultado.size());
+        for (UtilizacionOdontologoDTO fila : resultado) {
+            int o = (int) (fila.getOdontologoId() - 1);
+            assertEquals(365, fila.getDias().size());
+            long disponibles = 0;
+            for (int d = 0; d < 365; d++) {
+                UtilizacionDiaDTO dia = fila.getDias().get(d);
+                int[] e = esperado[o][d];
+                String contexto = fila.getOdontologoNombre() + " " + dia.getFecha();
+                assertEquals(desde.plusDays(d), dia.getFecha());
+                assertEquals(e[0], dia.getMinutosDisponibles(), contexto);
+                assertEquals(e[1], dia.getMinutosAgendados(), contexto);
+                assertEquals(e[2], dia.getMinutosAtendidos(), contexto);
+                assertEquals(e[3], dia.getMinutosCancelados(), contexto);
+                assertEquals(e[4], dia.getMinutosNoAsistidos(), contexto);
+                disponibles += e[0];
+            }
+            assertEquals(disponibles, fila.getMinutosDisponibles());
+        }
+    }
+
+    private static Usuario odontologo(Long id, String nombre) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setNombreCompleto(nombre);
+        return usuario;
+    }
+
+    private static Object[] cita(LocalDate fecha, String hora, int minutos, String estado) {
+        LocalDateTime inicio = fecha.atTime(LocalTime.parse(hora));
+        return new Object[] { inicio, inicio.plusMinutes(minutos), estado };
+    }
+}
@@ -0,0 +1,218 @@
+package com.odontoapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Rangos (sufijo, abierto, varios, inválidos y fuera del archivo), If-None-Match (también antes de
+ * resolver la ruta), If-Range, HEAD y sendfile de la entrega de archivos.
+ */
+class EntregaArchivoTest {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String ETAG = "\"" + HASH + "\"";
+
+    @TempDir
+    Path directorio;
+
+    private Path archivo;
+    private byte[] contenido;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        contenido = new byte[100];
+        for (int i = 0; i < contenido.length; i++) {
+            contenido[i] = (byte) i;
+        }
+        archivo = Files.write(directorio.resolve("radiografia.bin"), contenido);
+    }
+
+    @Test
+    void sinRangoEnviaElArchivoCompletoConEtagFuerte() throws IOException {
+        MockHttpServletResponse response = enviar(peticion(), HASH);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(contenido, response.getContentAsByteArray());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("private, max-age=31536000, immutable", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertEquals(100, response.getContentLengthLong());
+        assertEquals("image/png", response.getContentType());
+    }
+
+    @Test
+    void rangoCerradoYAbierto() throws IOException {
+        assertParcial("bytes=10-19", 10, 19);
+        assertParcial("bytes=95-", 95, 99);
+        // El final se recorta al tamaño del archivo
+        assertParcial("bytes=90-500", 90, 99);
+        assertParcial("bytes=99-99", 99, 99);
+    }
+
+    @Test
+    void rangoSufijo() throws IOException {
+        assertParcial("bytes=-10", 90, 99);
+        assertParcial("bytes=-500", 0, 99);
+    }
+
+    @Test
+    void variosRangosOSintaxisInvalidaSeIgnoran() throws IOException {
+        for (String rango : new String[] { "bytes=0-1,5-6", "bytes=5-3", "bytes=abc", "bytes=10", "items=0-5",
+                "bytes=-", "bytes=--5" }) {
+            MockHttpServletResponse response = enviar(peticionConRango(rango), HASH);
+            assertEquals(200, response.getStatus(), rango);
+            assertArrayEquals(contenido, response.getContentAsByteArray(), rango);
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE), rango);
+        }
+    }
+
+    @Test
+    void rangoFueraDelArchivoResponde416() throws IOException {
+        for (String rango : new String[] { "bytes=100-", "bytes=100-200", "bytes=-0" }) {
+            MockHttpServletResponse response = enviar(peticionConRango(rango), HASH);
+            assertEquals(416, response.getStatus(), rango);
+            assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE), rango);
+            assertEquals(0, response.getContentAsByteArray().length, rango);
+        }
+    }
+
+    @Test
+    void ifNoneMatchCoincidenteResponde304() throws IOException {
+        for (String ifNoneMatch : new String[] { ETAG, "W/" + ETAG, "\"otro\", " + ETAG, "*" }) {
+            MockHttpServletRequest request = peticion();
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+            MockHttpServletResponse response = enviar(request, HASH);
+            assertEquals(304, response.getStatus(), ifNoneMatch);
+            assertEquals(0, response.getContentAsByteArray().length, ifNoneMatch);
+            assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        }
+
+        MockHttpServletRequest distinto = peticion();
+        distinto.addHeader(HttpHeaders.IF_NONE_MATCH, "\"otro\"");
+        assertEquals(200, enviar(distinto, HASH).getStatus());
+    }
+
+    @Test
+    void noModificadoRespondeSinTocarElArchivo() {
+        MockHttpServletRequest request = peticion();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/" + ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(EntregaArchivo.noModificado(HASH, request, response));
+        assertEquals(304, response.getStatus());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("private, max-age=31536000, immutable", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void noModificadoSinCoincidenciaOSinHashNoEscribeNada() {
+        MockHttpServletRequest distinto = peticion();
+        distinto.addHeader(HttpHeaders.IF_NONE_MATCH, "\"otro\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(EntregaArchivo.noModificado(HASH, distinto, response));
+        assertFalse(EntregaArchivo.noModificado(HASH, peticion(), response));
+
+        // Sin hash el ETag depende del archivo: solo enviar() puede validarlo
+        MockHttpServletRequest comodin = peticion();
+        comodin.addHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        assertFalse(EntregaArchivo.noModificado(null, comodin, response));
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void ifRangeSoloAplicaElRangoConElMismoEtagFuerte() throws IOException {
+        MockHttpServletRequest coincide = peticionConRango("bytes=0-9");
+        coincide.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        assertEquals(206, enviar(coincide, HASH).getStatus());
+
+        MockHttpServletRequest cambio = peticionConRango("bytes=0-9");
+        cambio.addHeader(HttpHeaders.IF_RANGE, "\"version-anterior\"");
+        MockHttpServletResponse completo = enviar(cambio, HASH);
+        assertEquals(200, completo.getStatus());
+        assertArrayEquals(contenido, completo.getContentAsByteArray());
+
+        // Sin hash el ETag es débil y If-Range no puede validarlo
+        MockHttpServletResponse sinHash = enviar(peticion(), null);
+        MockHttpServletRequest debil = peticionConRango("bytes=0-9");
+        debil.addHeader(HttpHeaders.IF_RANGE, sinHash.getHeader(HttpHeaders.ETAG));
+        assertEquals(200, enviar(debil, null).getStatus());
+    }
+
+    @Test
+    void sinHashUsaEtagDebilYRevalida() throws IOException {
+        MockHttpServletResponse primera = enviar(peticion(), null);
+        String etag = primera.getHeader(HttpHeaders.ETAG);
+        assertEquals("W/\"64-", etag.substring(0, 6));
+        assertEquals("private, no-cache", primera.getHeader(HttpHeaders.CACHE_CONTROL));
+
+        MockHttpServletRequest revalidacion = peticion();
+        revalidacion.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        assertEquals(304, enviar(revalidacion, null).getStatus());
+    }
+
+    @Test
+    void headNoEnviaCuerpo() throws IOException {
+        MockHttpServletRequest request = peticionConRango("bytes=0-9");
+        request.setMethod("HEAD");
+        MockHttpServletResponse response = enviar(request, HASH);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void conSendfileDelegaLaCopiaAlConector() throws IOException {
+        MockHttpServletRequest request = peticionConRango("bytes=10-19");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = enviar(request, HASH);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(archivo.toRealPath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        // El fin de sendfile es exclusivo
+        assertEquals(20L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    private void assertParcial(String rango, int inicio, int fin) throws IOException {
+        MockHttpServletResponse response = enviar(peticionConRango(rango), HASH);
+        assertEquals(206, response.getStatus(), rango);
+        assertEquals("bytes " + inicio + "-" + fin + "/100", response.getHeader(HttpHeaders.CONTENT_RANGE), rango);
+        assertEquals(fin - inicio + 1, response.getContentLengthLong(), rango);
+        assertArrayEquals(Arrays.copyOfRange(contenido, inicio, fin + 1), response.getContentAsByteArray(), rango);
+    }
+
+    private MockHttpServletResponse enviar(MockHttpServletRequest request, String hash) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        EntregaArchivo.enviar(archivo, hash, "image/png", EntregaArchivo.disposicion(true, "radiografía.png"),
+                request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest peticion() {
+        return new MockHttpServletRequest("GET", "/archivos/ver/1");
+    }
+
+    private static MockHttpServletRequest peticionConRango(String rango) {
+        MockHttpServletRequest request = peticion();
+        request.addHeader(HttpHeaders.RANGE, rango);
+        return request;
+    }
+}
@@ -0,0 +1,69 @@
+package com.odontoapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comillas, escapes, tipos de valor y neutralización de fórmulas del CSV.
+ */
+class EscritorCsvTest {
+
+    @Test
+    void empiezaConBomYSeparaFilasConCrLf() throws IOException {
+        String csv = escribir(new Object[] { "Paciente", "Monto" }, new Object[] { "Ana", 10 });
+
+        assertEquals("\uFEFFPaciente,Monto\r\nAna,10\r\n", csv);
+    }
+
+    @Test
+    void entrecomillaSoloLoQueLoNecesita() throws IOException {
+        String csv = escribir(new Object[] { "Pérez, Juan", "Dijo \"hola\"", "línea 1\nlínea 2", "retorno\r", "simple" });
+
+        assertEquals("\uFEFF\"Pérez, Juan\",\"Dijo \"\"hola\"\"\",\"línea 1\nlínea 2\",\"retorno\r\",simple\r\n", csv);
+    }
+
+    @Test
+    void formateaNulosFechasYDecimales() throws IOException {
+        String csv = escribir(new Object[] { null, LocalDate.of(2025, 3, 7), LocalDateTime.of(2025, 3, 7, 9, 5, 0),
+                new BigDecimal("1E+3"), new BigDecimal("1500.50"), -5 });
+
+        assertEquals("\uFEFF,2025-03-07,2025-03-07 09:05:00,1000,1500.50,-5\r\n", csv);
+    }
+
+    @Test
+    void neutralizaTextosQueEmpiezanComoFormula() throws IOException {
+        String csv = escribir(new Object[] { "=HYPERLINK(\"http://x\")", "+34 600 000 000", "-2+3", "@SUM(A1)",
+                "\t=1", "\r=1", "=1,2", "a=b" });
+
+        assertEquals("\uFEFF\"'=HYPERLINK(\"\"http://x\"\")\",'+34 600 000 000,'-2+3,'@SUM(A1),'\t=1,\"'\r=1\","
+                + "\"'=1,2\",a=b\r\n", csv);
+    }
+
+    @Test
+    void losEncabezadosTambienSeNeutralizan() throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (EscritorCsv escritor = new EscritorCsv(salida)) {
+            escritor.escribirEncabezados("=Total", "Fecha");
+        }
+
+        assertEquals("\uFEFF'=Total,Fecha\r\n", salida.toString(StandardCharsets.UTF_8));
+    }
+
+    private static String escribir(Object[]... filas) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (EscritorCsv escritor = new EscritorCsv(salida)) {
+            for (Object[] fila : filas) {
+                escritor.escribirFila(fila);
+            }
+        }
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+}
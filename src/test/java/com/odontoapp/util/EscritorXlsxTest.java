@@ -0,0 +1,146 @@
+package com.odontoapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Paquete OOXML del XLSX: partes presentes, XML bien formado (se parsea cada parte), referencias de
+ * celda, tipos y escape de caracteres especiales.
+ */
+class EscritorXlsxTest {
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    @Test
+    void generaTodasLasPartesBienFormadas() throws Exception {
+        Map<String, Document> partes = escribir("Ingresos", new Object[] { "Paciente", "Monto" },
+                new Object[] { "Ana", new BigDecimal("150.50") });
+
+        assertEquals(Set.of("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+                "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml"), partes.keySet());
+        Element hoja = (Element) partes.get("xl/workbook.xml").getElementsByTagNameNS(NS_MAIN, "sheet").item(0);
+        assertEquals("Ingresos", hoja.getAttribute("name"));
+    }
+
+    @Test
+    void escribeCeldasConReferenciaTipoYEstilo() throws Exception {
+        Document hoja = escribir("Reporte", new Object[] { "Paciente", "Monto" },
+                new Object[] { "Ana", new BigDecimal("150.50"), null, LocalDate.of(2025, 3, 7), Double.NaN })
+                .get("xl/worksheets/sheet1.xml");
+
+        NodeList filas = hoja.getElementsByTagNameNS(NS_MAIN, "row");
+        assertEquals(2, filas.getLength());
+        Element encabezado = celda(hoja, "A1");
+        assertEquals("1", encabezado.getAttribute("s"));
+        assertEquals("inlineStr", encabezado.getAttribute("t"));
+        assertEquals("Paciente", encabezado.getTextContent());
+
+        Element monto = celda(hoja, "B2");
+        assertFalse(monto.hasAttribute("t"), "Los números van como valor numérico");
+        assertEquals("150.50", monto.getTextContent());
+        // La celda nula se omite y la siguiente conserva su columna
+        assertNull(celdaOpcional(hoja, "C2"));
+        assertEquals("2025-03-07", celda(hoja, "D2").getTextContent());
+        assertEquals("inlineStr", celda(hoja, "E2").getAttribute("t"));
+        assertEquals("NaN", celda(hoja, "E2").getTextContent());
+    }
+
+    @Test
+    void escapaCaracteresEspecialesYQuitaLosDeControl() throws Exception {
+        String texto = "<b>Pérez & \"Hijos\"</b>\u0001\u000B fin\n";
+        Document hoja = escribir("Reporte", new Object[] { texto, "=SUM(A1)" }).get("xl/worksheets/sheet1.xml");
+
+        assertEquals("<b>Pérez & \"Hijos\"</b> fin\n", celda(hoja, "A1").getTextContent());
+        // En XLSX las cadenas en línea nunca se evalúan como fórmula
+        assertEquals("=SUM(A1)", celda(hoja, "B1").getTextContent());
+        assertEquals(0, hoja.getElementsByTagNameNS(NS_MAIN, "f").getLength());
+    }
+
+    @Test
+    void columnasDespuesDeLaZContinuanConDosLetras() throws Exception {
+        Object[] fila = new Object[28];
+        for (int i = 0; i < fila.length; i++) {
+            fila[i] = i;
+        }
+        Document hoja = escribir("Reporte", fila).get("xl/worksheets/sheet1.xml");
+
+        assertEquals("25", celda(hoja, "Z1").getTextContent());
+        assertEquals("26", celda(hoja, "AA1").getTextContent());
+        assertEquals("27", celda(hoja, "AB1").getTextContent());
+    }
+
+    @Test
+    void nombreDeHojaSeLimpiaYRecorta() throws Exception {
+        Document libro = escribir("Ingresos [2025/03]: detalle por odontólogo y método", new Object[] { "x" })
+                .get("xl/workbook.xml");
+
+        String nombre = ((Element) libro.getElementsByTagNameNS(NS_MAIN, "sheet").item(0)).getAttribute("name");
+        assertEquals("Ingresos _2025_03__ detalle por", nombre);
+        assertTrue(nombre.length() <= 31);
+    }
+
+    private static Map<String, Document> escribir(String nombreHoja, Object[]... filas) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (EscritorXlsx escritor = new EscritorXlsx(salida, nombreHoja)) {
+            for (int i = 0; i < filas.length; i++) {
+                if (i == 0 && filas.length > 1) {
+                    escritor.escribirEncabezados(Arrays.stream(filas[0]).map(String::valueOf)
+                            .toArray(String[]::new));
+                } else {
+                    escritor.escribirFila(filas[i]);
+                }
+            }
+        }
+
+        DocumentBuilderFactory fabrica = DocumentBuilderFactory.newInstance();
+        fabrica.setNamespaceAware(true);
+        DocumentBuilder parser = fabrica.newDocumentBuilder();
+        Map<String, Document> partes = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(salida.toByteArray()))) {
+            ZipEntry entrada;
+            while ((entrada = zip.getNextEntry()) != null) {
+                partes.put(entrada.getName(), parser.parse(new ByteArrayInputStream(zip.readAllBytes())));
+            }
+        }
+        return partes;
+    }
+
+    private static Element celda(Document hoja, String referencia) {
+        Element celda = celdaOpcional(hoja, referencia);
+        assertNotNull(celda, "Falta la celda " + referencia);
+        return celda;
+    }
+
+    private static Element celdaOpcional(Document hoja, String referencia) {
+        NodeList celdas = hoja.getElementsByTagNameNS(NS_MAIN, "c");
+        for (int i = 0; i < celdas.getLength(); i++) {
+            Element celda = (Element) celdas.item(i);
+            if (referencia.equals(celda.getAttribute("r"))) {
+                return celda;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.odontoapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Búsqueda en el índice de trigramas: normalización de la consulta, prefijos, errores de tipeo,
+ * documentos reemplazados o eliminados, y el filtro de rol que se aplica después con
+ * {@link PaginacionPorIds#filtrar}.
+ */
+class IndiceTextoTest {
+
+    private IndiceTexto indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceTexto();
+        indice.indexar(1, "José Rodríguez", "12345678", "jose@correo.com");
+        indice.indexar(2, "María González", "87654321", null);
+        indice.indexar(3, "Ana Torres", "", "ana@correo.com");
+        indice.indexar(4, "Anabel Ruiz", "11223344", "anabel@correo.com");
+    }
+
+    @Test
+    void laConsultaSeNormalizaIgualQueLosDocumentos() {
+        assertEquals(List.of(1L), indice.buscar("JOSÉ", 10));
+        assertEquals(List.of(2L), indice.buscar("gonzalez", 10));
+        assertEquals(List.of(2L), indice.buscar("  MARIA   González ", 10));
+    }
+
+    @Test
+    void coincidenciaExactaVaAntesQueElPrefijo() {
+        assertEquals(List.of(3L, 4L), indice.buscar("ana", 10));
+        assertEquals(List.of(1L), indice.buscar("rodr", 10));
+        assertEquals(List.of(3L), indice.buscar("ana", 1));
+    }
+
+    @Test
+    void todasLasPalabrasDebenCoincidir() {
+        assertEquals(List.of(1L), indice.buscar("jose rodriguez", 10));
+        assertTrue(indice.buscar("jose gonzalez", 10).isEmpty());
+    }
+
+    @Test
+    void toleraErroresDeTipeoSegunLaLongitud() {
+        // Una letra de menos, una cambiada y dos letras transpuestas
+        assertEquals(List.of(1L), indice.buscar("rodrigez", 10));
+        assertEquals(List.of(2L), indice.buscar("gonzales", 10));
+        assertEquals(List.of(1L), indice.buscar("rodrigeuz", 10));
+        assertEquals(List.of(2L), indice.buscar("gonzalez mara", 10));
+        // Hasta 3 caracteres no se admiten errores
+        assertTrue(indice.buscar("ama", 10).isEmpty());
+        assertEquals(1, IndiceTexto.distancia("rodirguez", "rodriguez", 0, 9, 2));
+        assertEquals(3, IndiceTexto.distancia("gomez", "rodriguez", 0, 9, 2));
+    }
+
+    @Test
+    void consultaSinPalabrasUtilesDevuelveNull() {
+        assertNull(indice.buscar("a", 10));
+        assertNull(indice.buscar("¿?", 10));
+    }
+
+    @Test
+    void reindexarReemplazaElTextoAnterior() {
+        indice.indexar(1, "Josefa Rodríguez", "99887766");
+
+        assertTrue(indice.buscar("12345678", 10).isEmpty());
+        assertEquals(List.of(1L), indice.buscar("99887766", 10));
+        assertEquals(List.of(1L), indice.buscar("josefa", 10));
+        assertEquals(4, indice.tamano());
+        assertEquals(1.0 / 5, indice.fraccionEliminada(), 1e-9);
+    }
+
+    @Test
+    void eliminarQuitaElDocumento() {
+        indice.eliminar(2);
+        // Sin texto, indexar equivale a eliminar
+        indice.indexar(3, "", null);
+
+        assertTrue(indice.buscar("gonzalez", 10).isEmpty());
+        assertEquals(List.of(4L), indice.buscar("ana", 10));
+        assertEquals(2, indice.tamano());
+        // Eliminar lo que no está no hace nada
+        indice.eliminar(42);
+        assertEquals(2, indice.tamano());
+    }
+
+    @Test
+    void elFiltroDeRolConservaElOrdenDeRelevancia() {
+        IndiceTexto personal = new IndiceTexto();
+        personal.indexar(10, "Lucía García");
+        personal.indexar(11, "Pedro Garcíarena");
+        personal.indexar(12, "Ana Garcya");
+        List<Long> ranking = personal.buscar("garcia", 10);
+        assertEquals(List.of(10L, 11L, 12L), ranking);
+
+        // 11 solo tiene el rol PACIENTE: no se lista como personal
+        List<Long> visibles = PaginacionPorIds.filtrar(ranking, ids -> Set.of(12L, 10L));
+
+        assertEquals(List.of(10L, 12L), visibles);
+    }
+}
@@ -0,0 +1,108 @@
+package com.odontoapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comillas, BOM, saltos de línea dentro de campos, separador y numeración de filas del lector CSV.
+ */
+class LectorCsvTest {
+
+    @Test
+    void leeCamposEntreComillasConSeparadorYComillasDuplicadas() throws IOException {
+        List<String[]> filas = leer("nombre,nota\r\n\"Pérez, Juan\",\"Dijo \"\"hola\"\"\"\r\n");
+
+        assertEquals(2, filas.size());
+        assertArrayEquals(new String[] { "Pérez, Juan", "Dijo \"hola\"" }, filas.get(1));
+    }
+
+    @Test
+    void conservaSaltosDeLineaDentroDeUnCampo() throws IOException {
+        try (LectorCsv lector = lector("nombre,direccion\nAna,\"Calle 1\r\nPiso 2\"\nLuis,Av. 3\n")) {
+            lector.leerFila();
+
+            assertArrayEquals(new String[] { "Ana", "Calle 1\r\nPiso 2" }, lector.leerFila());
+            assertEquals(2, lector.getNumeroFila());
+            assertArrayEquals(new String[] { "Luis", "Av. 3" }, lector.leerFila());
+            assertEquals(3, lector.getNumeroFila());
+            assertNull(lector.leerFila());
+        }
+    }
+
+    @Test
+    void omiteElBomInicialPeroNoElDeOtrosCampos() throws IOException {
+        List<String[]> filas = leer("\uFEFFdni;nombre\n1;\uFEFFAna\n");
+
+        assertArrayEquals(new String[] { "dni", "nombre" }, filas.get(0));
+        assertArrayEquals(new String[] { "1", "\uFEFFAna" }, filas.get(1));
+    }
+
+    @Test
+    void detectaPuntoYComaEnLaPrimeraFila() throws IOException {
+        List<String[]> filas = leer("dni;nombre;nota\n1;Ana;\"a,b\"\n");
+
+        assertArrayEquals(new String[] { "1", "Ana", "a,b" }, filas.get(1));
+    }
+
+    @Test
+    void omiteLineasVaciasYAceptaUltimaFilaSinSalto() throws IOException {
+        try (LectorCsv lector = lector("a,b\n\n\r\n1,2")) {
+            lector.leerFila();
+
+            assertArrayEquals(new String[] { "1", "2" }, lector.leerFila());
+            // Las líneas vacías cuentan en la numeración, como en el archivo
+            assertEquals(4, lector.getNumeroFila());
+            assertNull(lector.leerFila());
+        }
+    }
+
+    @Test
+    void camposVaciosYFinalDeFila() throws IOException {
+        List<String[]> filas = leer("a,b,c\n,,\n\"\",x,\n");
+
+        assertArrayEquals(new String[] { "", "", "" }, filas.get(1));
+        assertArrayEquals(new String[] { "", "x", "" }, filas.get(2));
+    }
+
+    @Test
+    void comillaSinCerrarFallaSinAgotarLaMemoria() throws IOException {
+        String contenido = "a,b\n1,\"" + "x".repeat(70 * 1024);
+        try (LectorCsv lector = lector(contenido)) {
+            lector.leerFila();
+
+            IOException error = assertThrows(IOException.class, lector::leerFila);
+            assertTrue(error.getMessage().contains("fila 2"), error.getMessage());
+        }
+    }
+
+    @Test
+    void archivoVacioNoTieneFilas() throws IOException {
+        assertTrue(leer("").isEmpty());
+    }
+
+    private static List<String[]> leer(String contenido) throws IOException {
+        List<String[]> filas = new ArrayList<>();
+        try (LectorCsv lector = lector(contenido)) {
+            String[] fila;
+            while ((fila = lector.leerFila()) != null) {
+                filas.add(fila);
+            }
+        }
+        return filas;
+    }
+
+    private static LectorCsv lector(String contenido) {
+        return new LectorCsv(new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,40 @@
+package com.odontoapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Normalización para búsquedas: tildes, diéresis, eñes, mayúsculas y separadores.
+ */
+class NormalizadorTextoTest {
+
+    @Test
+    void quitaTildesYPasaAMinusculas() {
+        assertEquals("jose nunez perez", NormalizadorTexto.normalizar("  José  ÑÚÑEZ-Pérez "));
+        assertEquals("muller", NormalizadorTexto.normalizar("MÜLLER"));
+        assertEquals("conceicao", NormalizadorTexto.normalizar("Conceição"));
+    }
+
+    @Test
+    void todoLoQueNoEsLetraONumeroSeparaPalabras() {
+        assertEquals("jose correo com", NormalizadorTexto.normalizar("jose@correo.com"));
+        assertEquals("o brien 2", NormalizadorTexto.normalizar("O'Brien 2º"));
+        assertEquals("12 345 678 k", NormalizadorTexto.normalizar("12.345.678-K"));
+    }
+
+    @Test
+    void textoVacioONuloNoTienePalabras() {
+        assertEquals("", NormalizadorTexto.normalizar(null));
+        assertEquals("", NormalizadorTexto.normalizar("   "));
+        assertEquals("", NormalizadorTexto.normalizar("¿?¡!"));
+        assertArrayEquals(new String[0], NormalizadorTexto.tokens("--"));
+    }
+
+    @Test
+    void tokensDevuelvePalabrasNormalizadas() {
+        assertArrayEquals(new String[] { "maria", "jose", "gonzalez" },
+                NormalizadorTexto.tokens("María-José  González"));
+    }
+}
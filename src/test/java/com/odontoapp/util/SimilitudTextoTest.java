@@ -0,0 +1,70 @@
+package com.odontoapp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Código fonético en español, Jaro-Winkler y Levenshtein usados por la detección de duplicados.
+ */
+class SimilitudTextoTest {
+
+    @Test
+    void codigoFoneticoAgrupaGrafiasQueSuenanIgual() {
+        assertEquals("BLSKS JMN", SimilitudTexto.codigoFonetico("Gimena Velásquez"));
+        assertEquals("BLSKS JMN", SimilitudTexto.codigoFonetico("Jimena Belasques"));
+        // ch, c/s/z ante e/i, k/q, ll/y
+        assertEquals(SimilitudTexto.codigoFonetico("Chávez"), SimilitudTexto.codigoFonetico("Chabes"));
+        assertEquals(SimilitudTexto.codigoFonetico("Cecilia"), SimilitudTexto.codigoFonetico("Sesilia"));
+        assertEquals(SimilitudTexto.codigoFonetico("Quispe"), SimilitudTexto.codigoFonetico("Kispe"));
+        assertEquals(SimilitudTexto.codigoFonetico("Llanos"), SimilitudTexto.codigoFonetico("Yanos"));
+        // Letras dobles y h muda, también al inicio
+        assertEquals(SimilitudTexto.codigoFonetico("Carrasco"), SimilitudTexto.codigoFonetico("Carasco"));
+        assertEquals(SimilitudTexto.codigoFonetico("Hernández"), SimilitudTexto.codigoFonetico("Ernandes"));
+        assertEquals("AG", SimilitudTexto.codigoFonetico("Hugo"));
+    }
+
+    @Test
+    void codigoFoneticoDistingueSonidosDistintos() {
+        // g ante a/o/u no es j; c ante a/o/u no es s
+        assertNotEquals(SimilitudTexto.codigoFonetico("Gómez"), SimilitudTexto.codigoFonetico("Jómez"));
+        assertNotEquals(SimilitudTexto.codigoFonetico("Casas"), SimilitudTexto.codigoFonetico("Sasas"));
+        // "y" final suena como vocal; ante vocal, como consonante
+        assertEquals("R", SimilitudTexto.codigoFonetico("Rey"));
+        assertEquals("YLND", SimilitudTexto.codigoFonetico("Yolanda"));
+        assertEquals("", SimilitudTexto.codigoFonetico("  "));
+    }
+
+    @Test
+    void codigoFoneticoYNombreOrdenadoIgnoranElOrdenDeLasPalabras() {
+        assertEquals(SimilitudTexto.codigoFonetico("Pérez Juan"), SimilitudTexto.codigoFonetico("Juan Perez"));
+        assertEquals("juan perez", SimilitudTexto.nombreOrdenado("Pérez, Juan"));
+        assertEquals("juan perez", SimilitudTexto.nombreOrdenado("JUAN  PÉREZ"));
+    }
+
+    @Test
+    void jaroWinklerConValoresDeReferencia() {
+        assertEquals(0.961, SimilitudTexto.jaroWinkler("martha", "marhta"), 0.001);
+        assertEquals(0.840, SimilitudTexto.jaroWinkler("dwayne", "duane"), 0.001);
+        assertEquals(0.813, SimilitudTexto.jaroWinkler("dixon", "dicksonx"), 0.001);
+        assertEquals(1.0, SimilitudTexto.jaroWinkler("ana", "ana"));
+        assertEquals(0.0, SimilitudTexto.jaroWinkler("abc", "xyz"));
+        assertEquals(0.0, SimilitudTexto.jaroWinkler("", "ana"));
+        assertEquals(0.0, SimilitudTexto.jaroWinkler(null, "ana"));
+        // El prefijo común pesa más que el mismo error al final
+        assertTrue(SimilitudTexto.jaroWinkler("rodriguez", "rodrigues") > SimilitudTexto.jaroWinkler("rodriguez", "xodriguez"));
+    }
+
+    @Test
+    void levenshteinNormalizadoPorLaLongitudMayor() {
+        assertEquals(1 - 3.0 / 7, SimilitudTexto.similitudLevenshtein("kitten", "sitting"), 1e-9);
+        // Un dígito mal tipeado en un DNI de 8 dígitos
+        assertEquals(0.875, SimilitudTexto.similitudLevenshtein("12345678", "12345679"), 1e-9);
+        assertEquals(0.875, SimilitudTexto.similitudLevenshtein("12345678", "1234567"), 1e-9);
+        assertEquals(1.0, SimilitudTexto.similitudLevenshtein("", ""));
+        assertEquals(0.0, SimilitudTexto.similitudLevenshtein("abc", ""));
+        assertEquals(0.0, SimilitudTexto.similitudLevenshtein(null, "abc"));
+    }
+}